@@ -0,0 +1,134 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.batch;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.sveditor.core.indent.SVBatchFormatter;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+
+/**
+ * Application that indents SystemVerilog source files. Directories are
+ * searched for source files. Files are re-written in place unless an
+ * output directory is specified, in which case the formatted files are
+ * written to the same path relative to the output directory.
+ *
+ * Usage: [-indent <incr>] [-charset <name>] [-o <out_dir>] <file|dir> ...
+ */
+public class SVFormatApplication implements IApplication {
+
+	private static final String suffixes[] = {
+		".sv",
+		".svh",
+		".v",
+		".vl",
+		".vlog",
+		".vh"
+	};
+
+	public Object start(IApplicationContext context) throws Exception {
+		String args[] = (String [])context.getArguments().get(IApplicationContext.APPLICATION_ARGS);
+		SVBatchFormatter formatter = new SVBatchFormatter();
+		File out_dir = null;
+		List<File> paths = new ArrayList<File>();
+		List<File> in = new ArrayList<File>();
+		List<File> out = new ArrayList<File>();
+
+		if (args == null) {
+			args = new String[0];
+		}
+
+		for (int i=0; i<args.length; i++) {
+			if (args[i].equals("-o")) {
+				if (i+1 >= args.length) {
+					throw new Exception("-o requires an argument");
+				}
+				out_dir = new File(args[++i]);
+			} else if (args[i].equals("-indent")) {
+				if (i+1 >= args.length) {
+					throw new Exception("-indent requires an argument");
+				}
+				formatter.setIndentIncr(args[++i].replace("\\t", "\t"));
+			} else if (args[i].equals("-charset")) {
+				if (i+1 >= args.length) {
+					throw new Exception("-charset requires an argument");
+				}
+				formatter.setCharset(Charset.forName(args[++i]));
+			} else {
+				paths.add(new File(args[i]));
+			}
+		}
+
+		if (paths.size() == 0) {
+			throw new Exception("No files specified: " +
+					"[-indent <incr>] [-charset <name>] [-o <out_dir>] <file|dir> ...");
+		}
+
+		for (File p : paths) {
+			if (!p.exists()) {
+				throw new Exception("Path \"" + p + "\" does not exist");
+			}
+			File dst = null;
+			if (out_dir != null) {
+				dst = new File(out_dir, p.getName());
+			}
+			find_files(p, dst, in, out);
+		}
+
+		for (File f : out) {
+			File parent = f.getParentFile();
+			if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+				throw new Exception("Failed to create output directory \"" + parent + "\"");
+			}
+		}
+
+		List<File> failed = formatter.format(new NullProgressMonitor(), in, out);
+
+		for (File f : failed) {
+			System.out.println("Failed to format " + f);
+		}
+		System.out.println("Formatted " + (in.size()-failed.size()) + " of " +
+				in.size() + " files");
+
+		return Status.OK_STATUS;
+	}
+
+	private static void find_files(File p, File dst, List<File> in, List<File> out) {
+		if (p.isDirectory()) {
+			File file_l[] = p.listFiles();
+			if (file_l != null) {
+				for (File f : file_l) {
+					find_files(f, (dst != null)?new File(dst, f.getName()):null, in, out);
+				}
+			}
+		} else {
+			for (String s : suffixes) {
+				if (p.getName().endsWith(s)) {
+					in.add(p);
+					out.add((dst != null)?dst:p);
+					break;
+				}
+			}
+		}
+	}
+
+	public void stop() {}
+
+}
@@ -0,0 +1,120 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.batch;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.sveditor.core.SVCorePlugin;
+import net.sf.sveditor.core.db.index.ISVDBIndex;
+import net.sf.sveditor.core.db.index.SVDBIndexImage;
+import net.sf.sveditor.core.metrics.MetricsRegistry;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+
+/**
+ * Application that builds the index for argument files or source
+ * directories, and writes an index image for each. Images written to
+ * a directory named by the 'sveditor.index.images' system property of
+ * an Eclipse instance are used when an index with the same location
+ * is first created.
+ *
+ * Usage: -o <out_dir> [-j <threads>] [-m <metrics_file>] [-p <size>] <arg_file|dir> ...
+ * By default, one thread is used per processor. When specified, the
+ * performance metrics collected while indexing are written to metrics_file.
+ * Files whose pre-processed size is at least 'size' characters are split
+ * at top-level design elements, and the pieces parsed in parallel
+ */
+public class SVIndexApplication implements IApplication {
+
+	public Object start(IApplicationContext context) throws Exception {
+		String args[] = (String [])context.getArguments().get(IApplicationContext.APPLICATION_ARGS);
+		File out_dir = null;
+		File metrics_file = null;
+		int n_threads = Runtime.getRuntime().availableProcessors();
+		List<String> paths = new ArrayList<String>();
+
+		for (int i=0; i<args.length; i++) {
+			if (args[i].equals("-o")) {
+				if (i+1 >= args.length) {
+					throw new Exception("-o requires an argument");
+				}
+				out_dir = new File(args[++i]);
+			} else if (args[i].equals("-j")) {
+				if (i+1 >= args.length) {
+					throw new Exception("-j requires an argument");
+				}
+				n_threads = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-m")) {
+				if (i+1 >= args.length) {
+					throw new Exception("-m requires an argument");
+				}
+				metrics_file = new File(args[++i]);
+			} else if (args[i].equals("-p")) {
+				if (i+1 >= args.length) {
+					throw new Exception("-p requires an argument");
+				}
+				SVCorePlugin.setParallelParseMinSize(Integer.parseInt(args[++i]));
+			} else {
+				paths.add(args[i]);
+			}
+		}
+
+		if (out_dir == null) {
+			throw new Exception("output directory not specified");
+		}
+
+		if (!out_dir.isDirectory() && !out_dir.mkdirs()) {
+			throw new Exception("Failed to create output directory \"" + out_dir + "\"");
+		}
+
+		for (String path : paths) {
+			File f = new File(path);
+			if (!f.exists()) {
+				throw new Exception("Path \"" + path + "\" does not exist");
+			}
+
+			SVDBIndexImage image = new SVDBIndexImage(f.getAbsolutePath());
+			image.setMaxThreads(n_threads);
+			long start = System.currentTimeMillis();
+			File image_f = image.build(new NullProgressMonitor(), out_dir);
+			long total = System.currentTimeMillis() - start;
+
+			System.out.println("Wrote index image for " + f.getAbsolutePath() + ": " + image_f);
+			long phase_times[] = image.getPhaseTimes();
+			for (int i=0; i<phase_times.length; i++) {
+				System.out.println("    " + ISVDBIndex.PhaseNames[i] +
+						": " + phase_times[i] + "ms");
+			}
+			System.out.println("    Write: " + image.getWriteTime() + "ms");
+			System.out.println("    Total: " + total + "ms ; " + image.getNumFiles() +
+					" files ; " + (image.getNumBytes()/1024) + "KB ; " +
+					((total > 0)?((image.getNumBytes()*1000)/(1024*total)):0) + "KB/s" +
+					" (" + n_threads + " threads)");
+		}
+
+		if (metrics_file != null) {
+			MetricsRegistry.getDefault().dump(metrics_file);
+			System.out.println("Wrote metrics to " + metrics_file);
+		}
+
+		return Status.OK_STATUS;
+	}
+
+	public void stop() {}
+
+}
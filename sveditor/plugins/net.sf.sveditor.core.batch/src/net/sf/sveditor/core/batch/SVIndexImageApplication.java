@@ -0,0 +1,75 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.batch;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.sveditor.core.SVCorePlugin;
+import net.sf.sveditor.core.db.index.plugin_lib.SVDBPluginLibDescriptor;
+import net.sf.sveditor.core.db.index.plugin_lib.SVDBPluginLibIndexImage;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+
+/**
+ * Build-time application that produces index images for the plugin
+ * libraries. The images are copied to the 'index_images' directory
+ * of the bundle providing each library.
+ * 
+ * Usage: -o <out_dir> [library_id ...]
+ * All registered libraries are processed if none are specified
+ */
+public class SVIndexImageApplication implements IApplication {
+
+	public Object start(IApplicationContext context) throws Exception {
+		String args[] = (String [])context.getArguments().get(IApplicationContext.APPLICATION_ARGS);
+		File out_dir = null;
+		List<String> lib_ids = new ArrayList<String>();
+		
+		for (int i=0; i<args.length; i++) {
+			if (args[i].equals("-o")) {
+				if (i+1 >= args.length) {
+					throw new Exception("-o requires an argument");
+				}
+				out_dir = new File(args[++i]);
+			} else {
+				lib_ids.add(args[i]);
+			}
+		}
+		
+		if (out_dir == null) {
+			throw new Exception("output directory not specified");
+		}
+		
+		if (!out_dir.isDirectory() && !out_dir.mkdirs()) {
+			throw new Exception("Failed to create output directory \"" + out_dir + "\"");
+		}
+		
+		for (SVDBPluginLibDescriptor d : SVCorePlugin.getDefault().getPluginLibList()) {
+			if (lib_ids.size() > 0 && !lib_ids.contains(d.getId())) {
+				continue;
+			}
+			File image = SVDBPluginLibIndexImage.build(new NullProgressMonitor(), d, out_dir);
+			System.out.println("Wrote index image for " + d.getId() + ": " + image);
+		}
+		
+		return Status.OK_STATUS;
+	}
+
+	public void stop() {}
+
+}
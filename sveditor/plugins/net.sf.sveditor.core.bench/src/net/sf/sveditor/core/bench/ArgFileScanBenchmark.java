@@ -0,0 +1,86 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+import net.sf.sveditor.core.SVFileUtils;
+import net.sf.sveditor.core.scanutils.InputStreamTextScanner;
+import net.sf.sveditor.core.svf_scanner.SVFBufferScanner;
+import net.sf.sveditor.core.svf_scanner.SVFScanner;
+
+/**
+ * Measures scanning an argument file with either SVFScanner or
+ * SVFBufferScanner. The argument file is generated during setup. It
+ * defines each macro of the corpus, adds each corpus directory as an
+ * include path and lists each corpus file.
+ */
+public class ArgFileScanBenchmark extends SVBenchmark {
+	private boolean						fBuffered;
+	private byte						fData[];
+
+	public ArgFileScanBenchmark(boolean buffered) {
+		super((buffered)?"argFileBufferScan":"argFileScan");
+		fBuffered = buffered;
+	}
+
+	@Override
+	public String getOperation() {
+		return "one argument file";
+	}
+
+	@Override
+	public boolean setup(BenchmarkCorpus corpus) throws Exception {
+		StringBuilder sb = new StringBuilder();
+		Set<String> dirs = new HashSet<String>();
+
+		for (String name : corpus.getMacros().keySet()) {
+			sb.append("+define+" + name + "=1\n");
+		}
+
+		for (String path : corpus.getPaths()) {
+			String dir = SVFileUtils.normalize(new File(path).getParent());
+			if (dirs.add(dir)) {
+				sb.append("+incdir+" + dir + "\n");
+			}
+			sb.append(path + "\n");
+		}
+
+		fData = sb.toString().getBytes();
+
+		return (corpus.getPaths().size() > 0);
+	}
+
+	@Override
+	public long run() throws Exception {
+		if (fBuffered) {
+			SVFBufferScanner scanner = new SVFBufferScanner();
+			scanner.scan(fData, 0, fData.length);
+			return scanner.getFilePaths().size();
+		} else {
+			SVFScanner scanner = new SVFScanner();
+			scanner.scan(new InputStreamTextScanner(
+					new ByteArrayInputStream(fData), "bench.f"));
+			return scanner.getFilePaths().size();
+		}
+	}
+
+	@Override
+	public void teardown() {
+		fData = null;
+	}
+
+}
@@ -0,0 +1,235 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import net.sf.sveditor.core.SVFileUtils;
+import net.sf.sveditor.core.StringInputStream;
+import net.sf.sveditor.core.db.ISVDBChildItem;
+import net.sf.sveditor.core.db.ISVDBChildParent;
+import net.sf.sveditor.core.db.SVDBFile;
+import net.sf.sveditor.core.db.SVDBItemType;
+import net.sf.sveditor.core.db.SVDBMacroDef;
+import net.sf.sveditor.core.db.SVDBPreProcObserver;
+import net.sf.sveditor.core.preproc.SVPreProcDirectiveScanner;
+import net.sf.sveditor.core.scanner.IPreProcMacroProvider;
+import net.sf.sveditor.core.scanner.SVPreProcDefineProvider;
+
+/**
+ * Set of SystemVerilog sources used as benchmark input. The corpus is
+ * a directory or a zip file, such as the uvm.zip and ovm.zip sources
+ * bundled with the core tests. Zip files are unpacked to a temporary
+ * directory. All sources are read into memory, and the macros defined
+ * by all sources are collected so that each file can be pre-processed
+ * independently.
+ */
+public class BenchmarkCorpus {
+	private static final String				fExtensions[] = {
+		".sv", ".svh", ".v", ".vh"
+	};
+
+	private File							fRoot;
+	private boolean							fTmpRoot;
+	private List<String>					fPaths;
+	private Map<String, String>				fContent;
+	private Map<String, SVDBMacroDef>		fMacros;
+
+	public BenchmarkCorpus(File path) throws IOException {
+		if (path.isDirectory()) {
+			fRoot = path;
+		} else if (path.isFile()) {
+			fRoot = File.createTempFile("sveditor_bench", "");
+			fRoot.delete();
+			fRoot.mkdirs();
+			fTmpRoot = true;
+			unpack(path, fRoot);
+		} else {
+			throw new IOException("Corpus \"" + path + "\" does not exist");
+		}
+
+		fPaths = new ArrayList<String>();
+		fContent = new HashMap<String, String>();
+		fMacros = new HashMap<String, SVDBMacroDef>();
+
+		collect(fRoot);
+		Collections.sort(fPaths);
+
+		for (String p : fPaths) {
+			collectMacros(p);
+		}
+	}
+
+	public File getRoot() {
+		return fRoot;
+	}
+
+	/**
+	 * Returns the absolute paths of the corpus sources, in a stable order
+	 */
+	public List<String> getPaths() {
+		return fPaths;
+	}
+
+	public String getContent(String path) {
+		return fContent.get(path);
+	}
+
+	public long getNumBytes() {
+		long ret = 0;
+		for (String c : fContent.values()) {
+			ret += c.length();
+		}
+		return ret;
+	}
+
+	public Map<String, SVDBMacroDef> getMacros() {
+		return fMacros;
+	}
+
+	/**
+	 * Returns a new define provider that resolves the macros defined
+	 * anywhere in the corpus
+	 */
+	public SVPreProcDefineProvider createDefineProvider() {
+		return new SVPreProcDefineProvider(new IPreProcMacroProvider() {
+
+			public void setMacro(String key, String value) {}
+
+			public void addMacro(SVDBMacroDef macro) {}
+
+			public SVDBMacroDef findMacro(String name, int lineno) {
+				return fMacros.get(name);
+			}
+		});
+	}
+
+	public void dispose() {
+		if (fTmpRoot) {
+			SVFileUtils.delete(fRoot);
+		}
+	}
+
+	private void collect(File dir) throws IOException {
+		File files[] = dir.listFiles();
+
+		if (files == null) {
+			return;
+		}
+
+		for (File f : files) {
+			if (f.isDirectory()) {
+				collect(f);
+			} else {
+				for (String ext : fExtensions) {
+					if (f.getName().endsWith(ext)) {
+						String path = SVFileUtils.normalize(f.getAbsolutePath());
+						fPaths.add(path);
+						fContent.put(path, read(f));
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	private void collectMacros(String path) {
+		SVPreProcDirectiveScanner scanner = new SVPreProcDirectiveScanner();
+		SVDBPreProcObserver observer = new SVDBPreProcObserver();
+
+		scanner.init(new StringInputStream(fContent.get(path)), path);
+		scanner.setObserver(observer);
+		scanner.process();
+
+		for (SVDBFile f : observer.getFiles()) {
+			collectMacros(f);
+		}
+	}
+
+	private void collectMacros(ISVDBChildParent scope) {
+		for (ISVDBChildItem it : scope.getChildren()) {
+			if (it.getType() == SVDBItemType.MacroDef) {
+				SVDBMacroDef m = (SVDBMacroDef)it;
+				if (!fMacros.containsKey(m.getName())) {
+					fMacros.put(m.getName(), m);
+				}
+			} else if (it instanceof ISVDBChildParent) {
+				collectMacros((ISVDBChildParent)it);
+			}
+		}
+	}
+
+	private static String read(File f) throws IOException {
+		InputStream in = new FileInputStream(f);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		byte buf[] = new byte[64*1024];
+		int len;
+
+		try {
+			while ((len = in.read(buf, 0, buf.length)) > 0) {
+				bos.write(buf, 0, len);
+			}
+		} finally {
+			in.close();
+		}
+
+		return bos.toString();
+	}
+
+	private static void unpack(File zip, File dir) throws IOException {
+		ZipFile zf = new ZipFile(zip);
+		byte buf[] = new byte[64*1024];
+
+		try {
+			Enumeration<? extends ZipEntry> entries = zf.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry e = entries.nextElement();
+				File f = new File(dir, e.getName());
+
+				if (e.isDirectory()) {
+					f.mkdirs();
+				} else {
+					f.getParentFile().mkdirs();
+					InputStream in = zf.getInputStream(e);
+					OutputStream out = new FileOutputStream(f);
+					int len;
+					try {
+						while ((len = in.read(buf, 0, buf.length)) > 0) {
+							out.write(buf, 0, len);
+						}
+					} finally {
+						in.close();
+						out.close();
+					}
+				}
+			}
+		} finally {
+			zf.close();
+		}
+	}
+
+}
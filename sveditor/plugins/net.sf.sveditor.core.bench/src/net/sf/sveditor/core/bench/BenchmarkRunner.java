@@ -0,0 +1,356 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.sveditor.core.SVCorePlugin;
+
+/**
+ * Runs benchmarks in the style of JMH: each benchmark is set up once,
+ * then run for a number of timed warmup iterations, whose results are
+ * discarded, followed by timed measurement iterations. Each iteration
+ * invokes the operation repeatedly until the iteration time elapses.
+ * The mean time per operation, with its 99% confidence interval, is
+ * reported across the measurement iterations, along with the bytes 
+ * allocated per operation when the JVM provides per-thread allocation
+ * counters.
+ *
+ * All benchmarks run in the same JVM, so each should be run alone
+ * (by specifying its name) when comparing results across changes.
+ *
+ * Usage: -corpus <dir|zip> [-root <path>] [-wi <n>] [-i <n>] [-t <ms>]
+ *        [-o <results_file>] [benchmark ...]
+ */
+public class BenchmarkRunner {
+	// Normal-distribution quantile for a two-sided 99% interval
+	private static final double				Z_99 = 2.576;
+
+	// Consumes benchmark results, so work cannot be optimized away
+	private static volatile long			fSink;
+	
+	// com.sun.management.ThreadMXBean.getThreadAllocatedBytes(), if present
+	private static Method					fAllocatedBytes;
+	
+	static {
+		// Located through the bean class, since com.sun.management 
+		// may not be visible to the bundle class loader
+		Class<?> cls = ManagementFactory.getThreadMXBean().getClass();
+		
+		while (cls != null && fAllocatedBytes == null) {
+			for (Class<?> i : cls.getInterfaces()) {
+				if (i.getName().equals("com.sun.management.ThreadMXBean")) {
+					try {
+						fAllocatedBytes = i.getMethod("getThreadAllocatedBytes", long.class);
+					} catch (Exception e) {}
+				}
+			}
+			cls = cls.getSuperclass();
+		}
+	}
+
+	private int								fWarmupIterations = 5;
+	private int								fIterations = 10;
+	private long							fIterationTime = 1000;
+	private PrintStream						fOut = System.out;
+
+	public static class Result {
+		public String						fName;
+		public String						fOperation;
+		public double						fTimes[];
+		// Bytes allocated per operation, or -1 if not measured
+		public double						fAllocBytes[];
+
+		public double getMean() {
+			double sum = 0;
+			for (double t : fTimes) {
+				sum += t;
+			}
+			return (fTimes.length > 0)?(sum / fTimes.length):0;
+		}
+
+		public double getStdDev() {
+			if (fTimes.length < 2) {
+				return 0;
+			}
+			double mean = getMean();
+			double sum = 0;
+			for (double t : fTimes) {
+				sum += (t - mean) * (t - mean);
+			}
+			return Math.sqrt(sum / (fTimes.length - 1));
+		}
+
+		public double getError() {
+			return (fTimes.length > 0)?(Z_99 * getStdDev() / Math.sqrt(fTimes.length)):0;
+		}
+
+		public double getMin() {
+			double min = Double.MAX_VALUE;
+			for (double t : fTimes) {
+				min = Math.min(min, t);
+			}
+			return min;
+		}
+
+		public double getAllocBytes() {
+			double sum = 0;
+			for (double b : fAllocBytes) {
+				if (b < 0) {
+					return -1;
+				}
+				sum += b;
+			}
+			return (fAllocBytes.length > 0)?(sum / fAllocBytes.length):-1;
+		}
+
+		public double getMax() {
+			double max = 0;
+			for (double t : fTimes) {
+				max = Math.max(max, t);
+			}
+			return max;
+		}
+	}
+
+	public void setWarmupIterations(int n) {
+		fWarmupIterations = n;
+	}
+
+	public void setIterations(int n) {
+		fIterations = n;
+	}
+
+	public void setIterationTime(long ms) {
+		fIterationTime = ms;
+	}
+
+	public void setOutput(PrintStream out) {
+		fOut = out;
+	}
+
+	/**
+	 * Returns the benchmarks provided by the core
+	 */
+	public static List<SVBenchmark> getBenchmarks(String root) {
+		List<SVBenchmark> ret = new ArrayList<SVBenchmark>();
+
+		ret.add(new LexerBenchmark());
+		ret.add(new PreProcessorBenchmark());
+		ret.add(new MacroExpansionBenchmark());
+		ret.add(new ParserBenchmark());
+		ret.add(new PersistenceWriteBenchmark());
+		ret.add(new PersistenceReadBenchmark());
+		ret.add(new DeclCacheBenchmark(root));
+		ret.add(new ArgFileScanBenchmark(false));
+		ret.add(new ArgFileScanBenchmark(true));
+
+		return ret;
+	}
+
+	/**
+	 * Runs the benchmark
+	 *
+	 * @return the result, or null if the benchmark cannot run with
+	 *         the corpus
+	 */
+	public Result run(SVBenchmark b, BenchmarkCorpus corpus) throws Exception {
+		fOut.println("# Benchmark: " + b.getName() + " (" + b.getOperation() + ")");
+
+		if (!b.setup(corpus)) {
+			fOut.println("# Skipped: not supported by the corpus");
+			return null;
+		}
+
+		Result r = new Result();
+		r.fName = b.getName();
+		r.fOperation = b.getOperation();
+		r.fTimes = new double[fIterations];
+		r.fAllocBytes = new double[fIterations];
+
+		try {
+			for (int i=0; i<fWarmupIterations; i++) {
+				double t = iteration(b, null, 0);
+				fOut.println(String.format("# Warmup %d: %.3f us/op", (i+1), t));
+			}
+
+			for (int i=0; i<fIterations; i++) {
+				r.fTimes[i] = iteration(b, r.fAllocBytes, i);
+				fOut.println(String.format("Iteration %d: %.3f us/op", (i+1), r.fTimes[i]));
+			}
+		} finally {
+			b.teardown();
+		}
+
+		fOut.println(String.format("Result: %.3f +-(99%%) %.3f us/op [min %.3f, max %.3f]",
+				r.getMean(), r.getError(), r.getMin(), r.getMax()));
+		if (r.getAllocBytes() >= 0) {
+			fOut.println(String.format("Allocation: %.1f B/op", r.getAllocBytes()));
+		}
+		fOut.println();
+
+		return r;
+	}
+
+	/**
+	 * Runs the operation until the iteration time elapses. The bytes
+	 * allocated per operation are stored to alloc[idx], if alloc is
+	 * non-null
+	 *
+	 * @return the mean time per operation, in microseconds
+	 */
+	private double iteration(SVBenchmark b, double alloc[], int idx) throws Exception {
+		System.gc();
+
+		long sink = 0;
+		long ops = 0;
+		long end_time = fIterationTime * 1000000;
+		long alloc_start = allocatedBytes();
+		long start = System.nanoTime();
+		long elapsed;
+
+		do {
+			sink += b.run();
+			ops++;
+		} while ((elapsed = (System.nanoTime() - start)) < end_time);
+
+		long alloc_end = allocatedBytes();
+		fSink += sink;
+
+		if (alloc != null) {
+			alloc[idx] = (alloc_start < 0 || alloc_end < 0)?-1:
+				((double)(alloc_end - alloc_start) / ops);
+		}
+
+		return (elapsed / 1000.0) / ops;
+	}
+
+	/**
+	 * Returns the bytes allocated so far by the current thread, or -1
+	 * if the JVM does not provide the count
+	 */
+	private static long allocatedBytes() {
+		if (fAllocatedBytes != null) {
+			try {
+				return (Long)fAllocatedBytes.invoke(ManagementFactory.getThreadMXBean(),
+						Thread.currentThread().getId());
+			} catch (Exception e) {
+				fAllocatedBytes = null;
+			}
+		}
+		return -1;
+	}
+
+	public static void writeResults(List<Result> results, File file) throws IOException {
+		PrintStream out = new PrintStream(new FileOutputStream(file));
+
+		try {
+			out.println("benchmark,operation,mean_us,error_us,min_us,max_us,alloc_bytes,iterations");
+			for (Result r : results) {
+				out.println(String.format("%s,%s,%.3f,%.3f,%.3f,%.3f,%.1f,%d",
+						r.fName, r.fOperation, r.getMean(), r.getError(),
+						r.getMin(), r.getMax(), r.getAllocBytes(), r.fTimes.length));
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	public static List<Result> run(String args[], PrintStream out) throws Exception {
+		BenchmarkRunner runner = new BenchmarkRunner();
+		File corpus_path = null;
+		File results_file = null;
+		String root = null;
+		List<String> names = new ArrayList<String>();
+
+		for (int i=0; i<args.length; i++) {
+			String opt = args[i];
+			if (opt.startsWith("-") && i+1 >= args.length) {
+				throw new Exception(opt + " requires an argument");
+			}
+
+			if (opt.equals("-corpus")) {
+				corpus_path = new File(args[++i]);
+			} else if (opt.equals("-root")) {
+				root = args[++i];
+			} else if (opt.equals("-wi")) {
+				runner.setWarmupIterations(Integer.parseInt(args[++i]));
+			} else if (opt.equals("-i")) {
+				runner.setIterations(Integer.parseInt(args[++i]));
+			} else if (opt.equals("-t")) {
+				runner.setIterationTime(Long.parseLong(args[++i]));
+			} else if (opt.equals("-o")) {
+				results_file = new File(args[++i]);
+			} else if (opt.startsWith("-")) {
+				throw new Exception("Unknown option " + opt);
+			} else {
+				names.add(opt);
+			}
+		}
+
+		if (corpus_path == null) {
+			throw new Exception("-corpus not specified");
+		}
+
+		if (SVCorePlugin.getDefault() == null) {
+			// Not running within Eclipse
+			SVCorePlugin.testInit();
+		}
+
+		runner.setOutput(out);
+		BenchmarkCorpus corpus = new BenchmarkCorpus(corpus_path);
+		List<Result> results = new ArrayList<Result>();
+
+		try {
+			out.println("# Corpus: " + corpus_path + " (" + corpus.getPaths().size() +
+					" files, " + (corpus.getNumBytes()/1024) + "KB)");
+			out.println();
+
+			for (SVBenchmark b : getBenchmarks(root)) {
+				if (names.size() > 0 && !names.contains(b.getName())) {
+					continue;
+				}
+				Result r = runner.run(b, corpus);
+				if (r != null) {
+					results.add(r);
+				}
+			}
+		} finally {
+			corpus.dispose();
+		}
+
+		out.println("Benchmark                      Mean (us/op)       Error (99%)    Alloc (B/op)");
+		for (Result r : results) {
+			out.println(String.format("%-30s %12.3f +- %12.3f %15.1f",
+					r.fName, r.getMean(), r.getError(), r.getAllocBytes()));
+		}
+
+		if (results_file != null) {
+			writeResults(results, results_file);
+		}
+
+		return results;
+	}
+
+	public static void main(String args[]) throws Exception {
+		run(args, System.out);
+	}
+
+}
@@ -0,0 +1,107 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.sveditor.core.SVFileUtils;
+import net.sf.sveditor.core.db.index.SVDBArgFileIndex;
+import net.sf.sveditor.core.db.index.SVDBDeclCacheItem;
+import net.sf.sveditor.core.db.index.SVDBFSFileSystemProvider;
+import net.sf.sveditor.core.db.index.cache.InMemoryIndexCache;
+import net.sf.sveditor.core.db.search.SVDBAllTypeMatcher;
+import net.sf.sveditor.core.db.search.SVDBFindDefaultNameMatcher;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+/**
+ * Measures global-scope declaration lookups against an index of the
+ * corpus. The index is built, from an argument file that includes the
+ * corpus root file, during setup. Each operation looks up the name of
+ * one class, module or interface declared by the corpus.
+ */
+public class DeclCacheBenchmark extends SVBenchmark {
+	public static final String			DEFAULT_ROOT = "uvm/src/uvm_pkg.sv";
+
+	private String						fRoot;
+	private File						fArgFile;
+	private SVDBArgFileIndex			fIndex;
+	private NullProgressMonitor			fMonitor;
+	private List<String>				fNames;
+	private int							fIdx;
+
+	public DeclCacheBenchmark(String root) {
+		super("declCache");
+		fRoot = (root != null)?root:DEFAULT_ROOT;
+	}
+
+	@Override
+	public String getOperation() {
+		return "one lookup";
+	}
+
+	@Override
+	public boolean setup(BenchmarkCorpus corpus) throws Exception {
+		File root = new File(corpus.getRoot(), fRoot);
+
+		if (!root.isFile()) {
+			return false;
+		}
+
+		fArgFile = File.createTempFile("sveditor_bench", ".f");
+		PrintStream ps = new PrintStream(new FileOutputStream(fArgFile));
+		ps.println("+incdir+" + SVFileUtils.normalize(root.getParentFile().getAbsolutePath()));
+		ps.println(SVFileUtils.normalize(root.getAbsolutePath()));
+		ps.close();
+
+		fMonitor = new NullProgressMonitor();
+		fIndex = new SVDBArgFileIndex("GLOBAL",
+				SVFileUtils.normalize(fArgFile.getAbsolutePath()),
+				new SVDBFSFileSystemProvider(), new InMemoryIndexCache(), null);
+		fIndex.init(fMonitor);
+		fIndex.loadIndex(fMonitor);
+
+		fNames = new ArrayList<String>();
+		fIdx = 0;
+		for (SVDBDeclCacheItem it : fIndex.findGlobalScopeDecl(
+				fMonitor, "", new SVDBAllTypeMatcher())) {
+			fNames.add(it.getName());
+		}
+
+		return (fNames.size() > 0);
+	}
+
+	@Override
+	public long run() throws Exception {
+		String name = fNames.get(fIdx);
+		fIdx = (fIdx + 1) % fNames.size();
+
+		return fIndex.findGlobalScopeDecl(fMonitor, name,
+				SVDBFindDefaultNameMatcher.getDefault()).size();
+	}
+
+	@Override
+	public void teardown() {
+		if (fIndex != null) {
+			fIndex.dispose();
+		}
+		if (fArgFile != null) {
+			fArgFile.delete();
+		}
+	}
+
+}
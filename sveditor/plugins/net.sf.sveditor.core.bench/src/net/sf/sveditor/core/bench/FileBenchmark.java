@@ -0,0 +1,55 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base class for benchmarks whose operation processes a single corpus
+ * file. Successive operations visit the corpus files in turn.
+ */
+public abstract class FileBenchmark extends SVBenchmark {
+	protected BenchmarkCorpus			fCorpus;
+	protected List<String>				fPaths;
+	private int							fIdx;
+
+	protected FileBenchmark(String name) {
+		super(name);
+	}
+
+	@Override
+	public String getOperation() {
+		return "one file";
+	}
+
+	@Override
+	public boolean setup(BenchmarkCorpus corpus) throws Exception {
+		fCorpus = corpus;
+		fPaths = new ArrayList<String>(corpus.getPaths());
+		fIdx = 0;
+
+		return (fPaths.size() > 0);
+	}
+
+	@Override
+	public long run() throws Exception {
+		String path = fPaths.get(fIdx);
+		fIdx = (fIdx + 1) % fPaths.size();
+
+		return run(path);
+	}
+
+	protected abstract long run(String path) throws Exception;
+
+}
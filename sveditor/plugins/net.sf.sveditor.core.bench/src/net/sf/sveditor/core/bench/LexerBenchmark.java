@@ -0,0 +1,106 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.bench;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import net.sf.sveditor.core.StringInputStream;
+import net.sf.sveditor.core.log.ILogHandle;
+import net.sf.sveditor.core.log.LogFactory;
+import net.sf.sveditor.core.log.LogHandle;
+import net.sf.sveditor.core.parser.ISVParser;
+import net.sf.sveditor.core.parser.SVLexer;
+import net.sf.sveditor.core.parser.SVParseException;
+import net.sf.sveditor.core.parser.SVParsers;
+import net.sf.sveditor.core.preproc.SVPreProcessor;
+import net.sf.sveditor.core.scanner.SVPreProcDefineProvider;
+import net.sf.sveditor.core.scanutils.StringTextScanner;
+
+/**
+ * Measures SVLexer tokenizing pre-processed corpus files. Files are
+ * pre-processed during setup, so only lexing is timed.
+ */
+public class LexerBenchmark extends FileBenchmark implements ISVParser {
+	private SVLexer						fLexer;
+	private LogHandle					fLog;
+	private Map<String, String>			fPreProcContent;
+
+	public LexerBenchmark() {
+		super("lexer");
+	}
+
+	@Override
+	public boolean setup(BenchmarkCorpus corpus) throws Exception {
+		SVPreProcDefineProvider dp = corpus.createDefineProvider();
+
+		fLexer = new SVLexer();
+		fLog = LogFactory.getLogHandle("LexerBenchmark");
+		fPreProcContent = new HashMap<String, String>();
+
+		for (String path : corpus.getPaths()) {
+			SVPreProcessor pp = new SVPreProcessor(
+					new StringInputStream(corpus.getContent(path)), path, dp);
+			fPreProcContent.put(path, pp.preprocess().toString());
+		}
+
+		return super.setup(corpus);
+	}
+
+	@Override
+	protected long run(String path) throws Exception {
+		long n_tokens = 0;
+
+		fLexer.init(this, new StringTextScanner(fPreProcContent.get(path)));
+
+		while (fLexer.peek() != null) {
+			fLexer.eatToken();
+			n_tokens++;
+		}
+
+		return n_tokens;
+	}
+
+	@Override
+	public void teardown() {
+		LogFactory.removeLogHandle(fLog);
+		fPreProcContent = null;
+	}
+
+	public SVLexer lexer() {
+		return fLexer;
+	}
+
+	public void error(String msg) throws SVParseException {}
+
+	public void error(SVParseException e) throws SVParseException {}
+
+	public void warning(String msg, int lineno) {}
+
+	public boolean error_limit_reached() {
+		return false;
+	}
+
+	public void disableErrors(boolean dis) {}
+
+	public SVParsers parsers() {
+		return null;
+	}
+
+	public void debug(String msg, Exception e) {}
+
+	public ILogHandle getLogHandle() {
+		return fLog;
+	}
+
+}
@@ -0,0 +1,75 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.sveditor.core.db.SVDBMacroDef;
+import net.sf.sveditor.core.scanner.SVPreProcDefineProvider;
+
+/**
+ * Measures SVPreProcDefineProvider.expandMacro(). Each operation expands
+ * one reference to a macro defined by the corpus, with placeholder
+ * values for its parameters.
+ */
+public class MacroExpansionBenchmark extends SVBenchmark {
+	private SVPreProcDefineProvider		fDefineProvider;
+	private List<String>				fReferences;
+	private int							fIdx;
+
+	public MacroExpansionBenchmark() {
+		super("expandMacro");
+	}
+
+	@Override
+	public String getOperation() {
+		return "one macro reference";
+	}
+
+	@Override
+	public boolean setup(BenchmarkCorpus corpus) throws Exception {
+		fDefineProvider = corpus.createDefineProvider();
+		fReferences = new ArrayList<String>();
+		fIdx = 0;
+
+		for (SVDBMacroDef m : corpus.getMacros().values()) {
+			StringBuilder ref = new StringBuilder();
+			ref.append('`');
+			ref.append(m.getName());
+
+			if (m.getParameters() != null && m.getParameters().size() > 0) {
+				ref.append('(');
+				for (int i=0; i<m.getParameters().size(); i++) {
+					if (i > 0) {
+						ref.append(", ");
+					}
+					ref.append("arg" + i);
+				}
+				ref.append(')');
+			}
+			fReferences.add(ref.toString());
+		}
+
+		return (fReferences.size() > 0);
+	}
+
+	@Override
+	public long run() throws Exception {
+		String ref = fReferences.get(fIdx);
+		fIdx = (fIdx + 1) % fReferences.size();
+
+		return fDefineProvider.expandMacro(ref, "bench", 1).length();
+	}
+
+}
@@ -0,0 +1,53 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.sveditor.core.StringInputStream;
+import net.sf.sveditor.core.db.SVDBFile;
+import net.sf.sveditor.core.db.SVDBMarker;
+import net.sf.sveditor.core.parser.ParserSVDBFileFactory;
+import net.sf.sveditor.core.scanner.SVPreProcDefineProvider;
+
+/**
+ * Measures ParserSVDBFileFactory.parse(), which pre-processes and
+ * parses a file
+ */
+public class ParserBenchmark extends FileBenchmark {
+	private SVPreProcDefineProvider		fDefineProvider;
+
+	public ParserBenchmark() {
+		super("parse");
+	}
+
+	@Override
+	public boolean setup(BenchmarkCorpus corpus) throws Exception {
+		fDefineProvider = corpus.createDefineProvider();
+		return super.setup(corpus);
+	}
+
+	@Override
+	protected long run(String path) throws Exception {
+		return countChildren(parse(path));
+	}
+
+	public SVDBFile parse(String path) {
+		List<SVDBMarker> markers = new ArrayList<SVDBMarker>();
+		ParserSVDBFileFactory f = new ParserSVDBFileFactory(fDefineProvider);
+
+		return f.parse(new StringInputStream(fCorpus.getContent(path)), path, markers);
+	}
+
+}
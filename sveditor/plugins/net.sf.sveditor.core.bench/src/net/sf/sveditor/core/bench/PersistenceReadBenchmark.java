@@ -0,0 +1,65 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.sf.sveditor.core.db.SVDBFile;
+import net.sf.sveditor.core.db.persistence.SVDBPersistenceRW;
+
+/**
+ * Measures reading parsed files with SVDBPersistenceRW, as the index
+ * cache does. Files are parsed and written during setup.
+ */
+public class PersistenceReadBenchmark extends PersistenceWriteBenchmark {
+	private Map<String, byte[]>			fData;
+	private SVDBPersistenceRW			fReader;
+
+	public PersistenceReadBenchmark() {
+		super("persistenceRead");
+	}
+
+	@Override
+	public boolean setup(BenchmarkCorpus corpus) throws Exception {
+		boolean ret = super.setup(corpus);
+
+		fData = new HashMap<String, byte[]>();
+		fReader = new SVDBPersistenceRW();
+
+		for (String path : corpus.getPaths()) {
+			fData.put(path, write(fFiles.get(path)));
+		}
+		fFiles = null;
+
+		return ret;
+	}
+
+	@Override
+	protected long run(String path) throws Exception {
+		SVDBFile file = new SVDBFile();
+
+		fReader.init(new DataInputStream(new ByteArrayInputStream(fData.get(path))));
+		fReader.readObject(null, file.getClass(), file);
+
+		return countChildren(file);
+	}
+
+	@Override
+	public void teardown() {
+		fData = null;
+	}
+
+}
@@ -0,0 +1,77 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.sf.sveditor.core.db.SVDBFile;
+import net.sf.sveditor.core.db.persistence.SVDBPersistenceRW;
+
+/**
+ * Measures writing parsed files with SVDBPersistenceRW, as the index
+ * cache does. Files are parsed during setup.
+ */
+public class PersistenceWriteBenchmark extends FileBenchmark {
+	protected Map<String, SVDBFile>		fFiles;
+	private SVDBPersistenceRW			fWriter;
+	private ByteArrayOutputStream		fBytes;
+
+	public PersistenceWriteBenchmark() {
+		this("persistenceWrite");
+	}
+
+	protected PersistenceWriteBenchmark(String name) {
+		super(name);
+	}
+
+	@Override
+	public boolean setup(BenchmarkCorpus corpus) throws Exception {
+		fFiles = new HashMap<String, SVDBFile>();
+		fWriter = new SVDBPersistenceRW();
+		fBytes = new ByteArrayOutputStream();
+
+		ParserBenchmark parser = new ParserBenchmark();
+		parser.setup(corpus);
+		for (String path : corpus.getPaths()) {
+			fFiles.put(path, parser.parse(path));
+		}
+
+		return super.setup(corpus);
+	}
+
+	@Override
+	protected long run(String path) throws Exception {
+		return write(fFiles.get(path)).length;
+	}
+
+	protected byte[] write(SVDBFile file) throws Exception {
+		fBytes.reset();
+		DataOutputStream out = new DataOutputStream(fBytes);
+
+		fWriter.init(out);
+		fWriter.writeObject(file.getClass(), file);
+		fWriter.close();
+		out.flush();
+
+		return fBytes.toByteArray();
+	}
+
+	@Override
+	public void teardown() {
+		fFiles = null;
+	}
+
+}
@@ -0,0 +1,45 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.bench;
+
+import net.sf.sveditor.core.StringInputStream;
+import net.sf.sveditor.core.preproc.SVPreProcOutput;
+import net.sf.sveditor.core.preproc.SVPreProcessor;
+import net.sf.sveditor.core.scanner.SVPreProcDefineProvider;
+
+/**
+ * Measures SVPreProcessor, expanding the macros defined by the corpus
+ */
+public class PreProcessorBenchmark extends FileBenchmark {
+	private SVPreProcDefineProvider		fDefineProvider;
+
+	public PreProcessorBenchmark() {
+		super("preprocess");
+	}
+
+	@Override
+	public boolean setup(BenchmarkCorpus corpus) throws Exception {
+		fDefineProvider = corpus.createDefineProvider();
+		return super.setup(corpus);
+	}
+
+	@Override
+	protected long run(String path) throws Exception {
+		SVPreProcessor pp = new SVPreProcessor(
+				new StringInputStream(fCorpus.getContent(path)), path, fDefineProvider);
+		SVPreProcOutput out = pp.preprocess();
+
+		return out.toString().length();
+	}
+
+}
@@ -0,0 +1,36 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.bench;
+
+import org.eclipse.core.runtime.Status;
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+
+/**
+ * Application that runs the core benchmarks within Eclipse. See
+ * BenchmarkRunner for the supported arguments. The runner may also
+ * be run outside Eclipse, via its main() method.
+ */
+public class SVBenchApplication implements IApplication {
+
+	public Object start(IApplicationContext context) throws Exception {
+		String args[] = (String [])context.getArguments().get(IApplicationContext.APPLICATION_ARGS);
+
+		BenchmarkRunner.run(args, System.out);
+
+		return Status.OK_STATUS;
+	}
+
+	public void stop() {}
+
+}
@@ -0,0 +1,63 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.bench;
+
+import net.sf.sveditor.core.db.ISVDBChildItem;
+import net.sf.sveditor.core.db.ISVDBChildParent;
+
+/**
+ * Base class for a benchmark. setup() is called once, before any
+ * iteration, to prepare the inputs from the corpus. Each call to
+ * run() is one operation, whose time is measured. The value returned
+ * by run() is consumed by the runner, so that the work it depends on
+ * cannot be optimized away.
+ */
+public abstract class SVBenchmark {
+	private String				fName;
+
+	protected SVBenchmark(String name) {
+		fName = name;
+	}
+
+	public String getName() {
+		return fName;
+	}
+
+	/**
+	 * Returns a description of the unit of work performed by run()
+	 */
+	public abstract String getOperation();
+
+	/**
+	 * Prepares the benchmark inputs
+	 *
+	 * @return false if the benchmark cannot run with this corpus
+	 */
+	public abstract boolean setup(BenchmarkCorpus corpus) throws Exception;
+
+	public abstract long run() throws Exception;
+
+	public void teardown() {}
+
+	/**
+	 * Returns the number of direct children of the scope
+	 */
+	protected static long countChildren(ISVDBChildParent scope) {
+		long ret = 0;
+		for (@SuppressWarnings("unused") ISVDBChildItem it : scope.getChildren()) {
+			ret++;
+		}
+		return ret;
+	}
+
+}
@@ -22,8 +22,10 @@ import net.sf.sveditor.core.SVCorePlugin;
 import net.sf.sveditor.core.log.ILogHandle;
 import net.sf.sveditor.core.log.ILogListener;
 import net.sf.sveditor.core.log.LogFactory;
+import net.sf.sveditor.core.tests.argfile.TestArgFileScanner;
 import net.sf.sveditor.core.tests.argfile.open_decl.ArgFileOpenDeclTests;
 import net.sf.sveditor.core.tests.content_assist.ContentAssistTests;
+import net.sf.sveditor.core.tests.diagrams.TestDiagModelCache;
 import net.sf.sveditor.core.tests.docs.DocsTests;
 import net.sf.sveditor.core.tests.fileset.FileSetTests;
 import net.sf.sveditor.core.tests.hierarchy.HierarchyTests;
@@ -32,6 +34,8 @@ import net.sf.sveditor.core.tests.index.IndexTests;
 import net.sf.sveditor.core.tests.index.cache.IndexCacheTests;
 import net.sf.sveditor.core.tests.index.persistence.PersistenceTests;
 import net.sf.sveditor.core.tests.job_mgr.JobMgrTests;
+import net.sf.sveditor.core.tests.log.LogTests;
+import net.sf.sveditor.core.tests.metrics.MetricsTests;
 import net.sf.sveditor.core.tests.open_decl.OpenDeclTests;
 import net.sf.sveditor.core.tests.parser.ParserTests;
 import net.sf.sveditor.core.tests.preproc.PreProcTests;
@@ -63,12 +67,15 @@ public class CoreReleaseTests extends TestSuite {
 	
 	public CoreReleaseTests() {
 		addTest(ArgFileOpenDeclTests.suite());
+		addTest(new TestSuite(TestArgFileScanner.class));
 		addTest(new TestSuite(SVScannerTests.class));
 		addTest(ParserTests.suite());
 		addTest(new TestSuite(PreProcMacroTests.class));
 		addTest(PreProcTests.suite());
 		addTest(IndentTests.suite());
 		addTest(JobMgrTests.suite());
+		addTest(LogTests.suite());
+		addTest(MetricsTests.suite());
 		addTest(ContentAssistTests.suite());
 		addTest(PersistenceTests.suite());
 		addTest(ProjectSettingsTests.suite());
@@ -80,6 +87,7 @@ public class CoreReleaseTests extends TestSuite {
 		addTest(TemplateTests.suite());
 		addTest(HierarchyTests.suite());
 		addTest(DocsTests.suite());
+		addTest(new TestSuite(TestDiagModelCache.class));
 	}
 	
 	public static List<Exception> getErrors() {
@@ -78,6 +78,7 @@ public class FileIndexIterator extends AbstractSVDBIndex /* implements ISVDBInde
 		// Do Nothing
 		cacheDeclarations(fFile);
 		cacheReferences(fFile);
+		cacheModuleInstances(fFile);
 		getCache().setFile(fFile.getFilePath(), fFile);
 		return null;
 	}
@@ -0,0 +1,105 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.tests.argfile;
+
+import java.io.ByteArrayInputStream;
+
+import junit.framework.TestCase;
+import net.sf.sveditor.core.scanutils.InputStreamTextScanner;
+import net.sf.sveditor.core.svf_scanner.SVFBufferScanner;
+import net.sf.sveditor.core.svf_scanner.SVFScanner;
+
+public class TestArgFileScanner extends TestCase {
+
+	public void testBufferScannerMatchesSVFScanner() throws Exception {
+		String doc =
+			"// comment\n" +
+			"/* block\n" +
+			" * comment */\n" +
+			"+define+FOO=1 +define+BAR +define+STR=\"a b\"\n" +
+			"-define X=Y -DEF Z\n" +
+			"+incdir+/a/b -incdir /c/d\n" +
+			"-f sub.f -file ${ENV}/x.f\n" +
+			"-y lib -v foo.v -nowarn 123 -sv\n" +
+			"#ifdef SOMETHING\n" +
+			"${PROJ}/rtl/file_1.sv \\\n" +
+			"    rtl/file_2.sv\n" +
+			"dpi.c dpi.cpp\n" +
+			"last.sv";
+
+		SVFScanner scanner = new SVFScanner();
+		scanner.scan(new InputStreamTextScanner(
+				new ByteArrayInputStream(doc.getBytes()), "doc"));
+
+		SVFBufferScanner buf_scanner = new SVFBufferScanner();
+		buf_scanner.scan(new ByteArrayInputStream(doc.getBytes()));
+
+		assertEquals(scanner.getFilePaths(), buf_scanner.getFilePaths());
+		assertEquals(scanner.getIncludePaths(), buf_scanner.getIncludePaths());
+		assertEquals(scanner.getArgFilePaths(), buf_scanner.getArgFilePaths());
+		assertEquals(scanner.getLibPaths(), buf_scanner.getLibPaths());
+		assertEquals(scanner.getDefineMap(), buf_scanner.getDefineMap());
+
+		assertEquals(3, buf_scanner.getFilePaths().size());
+		assertEquals("a b", buf_scanner.getDefineMap().get("STR"));
+	}
+
+	public void testDefineNumericValue() throws Exception {
+		String doc =
+			"-define WIDTH=32\n" +
+			"file.sv\n";
+
+		SVFBufferScanner scanner = new SVFBufferScanner();
+		scanner.scan(new ByteArrayInputStream(doc.getBytes()));
+
+		assertEquals("32", scanner.getDefineMap().get("WIDTH"));
+		assertEquals(1, scanner.getFilePaths().size());
+		assertEquals("file.sv", scanner.getFilePaths().get(0));
+	}
+
+	/**
+	 * Scans a large argument file with both scanners, which must
+	 * produce the same content. The ArgFileScanBenchmark benchmarks
+	 * compare their speed
+	 */
+	public void testLargeFileEquivalence() throws Exception {
+		StringBuilder doc = new StringBuilder();
+
+		for (int i=0; i<50000; i++) {
+			if ((i % 1000) == 0) {
+				doc.append("+incdir+${PROJ}/rtl/dir_" + i + "\n");
+				doc.append("+define+DEF_" + i + "=" + i + "\n");
+				doc.append("-y ${PROJ}/lib/dir_" + i + " +libext+.v\n");
+				doc.append("-f ${PROJ}/rtl/dir_" + i + "/files.f\n");
+			}
+			doc.append("${PROJ}/rtl/dir_" + (i/1000) + "/file_" + i + ".sv\n");
+		}
+		byte data[] = doc.toString().getBytes();
+
+		SVFScanner scanner = new SVFScanner();
+		scanner.scan(new InputStreamTextScanner(
+				new ByteArrayInputStream(data), "doc"));
+
+		SVFBufferScanner buf_scanner = new SVFBufferScanner();
+		buf_scanner.scan(new ByteArrayInputStream(data));
+
+		assertEquals(50000, buf_scanner.getFilePaths().size());
+		assertEquals(scanner.getFilePaths(), buf_scanner.getFilePaths());
+		assertEquals(scanner.getIncludePaths(), buf_scanner.getIncludePaths());
+		assertEquals(scanner.getArgFilePaths(), buf_scanner.getArgFilePaths());
+		assertEquals(scanner.getLibPaths(), buf_scanner.getLibPaths());
+		assertEquals(scanner.getSrcExts(), buf_scanner.getSrcExts());
+		assertEquals(scanner.getDefineMap(), buf_scanner.getDefineMap());
+	}
+
+}
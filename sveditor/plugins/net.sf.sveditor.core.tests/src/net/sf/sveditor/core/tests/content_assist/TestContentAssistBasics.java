@@ -581,6 +581,104 @@ public class TestContentAssistBasics extends TestCase {
 				"ovm_component", "ovm_component_registry"}, proposals);
 	}
 	
+	public void testUntriggeredProposalRanking() {
+		String doc = 
+			"class my_c;\n" +
+			"endclass\n" +
+			"\n" +
+			"class my_class;\n" +
+			"    int my_cl;\n" +
+			"\n" +
+			"    function void foo();\n" +
+			"        int my_c2;\n" +
+			"        my_c<<FIELD1>>\n" +
+			"    endfunction\n" +
+			"endclass\n";
+		Tuple<SVDBFile, TextTagPosUtils> ini = contentAssistSetup(doc);
+		StringBIDITextScanner scanner = new StringBIDITextScanner(
+				ini.second().getStrippedData());
+		
+		TestCompletionProcessor cp = new TestCompletionProcessor(ini.first(), fIndex);
+		
+		scanner.seek(ini.second().getPosMap().get("FIELD1"));
+		cp.computeProposals(scanner, ini.first(), 
+				ini.second().getLineMap().get("FIELD1"));
+		List<SVCompletionProposal> proposals = cp.getCompletionProposals();
+		
+		// Exact match first, followed by the shortest prefix matches
+		String expected[] = {"my_c", "my_c2", "my_cl", "my_class"};
+		assertEquals(expected.length, proposals.size());
+		for (int i=0; i<expected.length; i++) {
+			assertEquals(expected[i], proposals.get(i).getReplacement());
+		}
+		
+		// Only the most relevant proposals are kept
+		cp.setMaxProposals(2);
+		scanner.seek(ini.second().getPosMap().get("FIELD1"));
+		cp.computeProposals(scanner, ini.first(), 
+				ini.second().getLineMap().get("FIELD1"));
+		proposals = cp.getCompletionProposals();
+		
+		assertEquals(2, proposals.size());
+		assertEquals("my_c", proposals.get(0).getReplacement());
+		assertEquals("my_c2", proposals.get(1).getReplacement());
+	}
+	
+	public void testUntriggeredProposalRefinement() {
+		String doc = 
+			"class my_c;\n" +
+			"endclass\n" +
+			"\n" +
+			"class my_class;\n" +
+			"    int my_cl;\n" +
+			"\n" +
+			"    function void foo();\n" +
+			"        int my_c2;\n" +
+			"        my_c<<FIELD1>>\n" +
+			"    endfunction\n" +
+			"endclass\n";
+		Tuple<SVDBFile, TextTagPosUtils> ini = contentAssistSetup(doc);
+		TestCompletionProcessor cp = new TestCompletionProcessor(ini.first(), fIndex);
+		
+		StringBIDITextScanner scanner = new StringBIDITextScanner(
+				ini.second().getStrippedData());
+		scanner.seek(ini.second().getPosMap().get("FIELD1"));
+		cp.computeProposals(scanner, ini.first(), 
+				ini.second().getLineMap().get("FIELD1"));
+		assertEquals(4, cp.getCompletionProposals().size());
+		
+		// Add a global class to the index without notifying about it
+		ISVDBFileFactory factory = SVCorePlugin.createFileFactory(null);
+		List<SVDBMarker> markers = new ArrayList<SVDBMarker>();
+		fIndex.setFile(factory.parse(new StringInputStream(
+				ini.second().getStrippedData() + "class my_clx;\nendclass\n"), 
+				"doc", markers));
+		
+		// Extend the prefix. The previous results are refined, so 
+		// the new class is not proposed
+		TextTagPosUtils tt_utils = new TextTagPosUtils(new StringInputStream(
+				doc.replace("my_c<<FIELD1>>", "my_cl<<FIELD1>>")));
+		scanner = new StringBIDITextScanner(tt_utils.getStrippedData());
+		scanner.seek(tt_utils.getPosMap().get("FIELD1"));
+		cp.computeProposals(scanner, ini.first(), 
+				tt_utils.getLineMap().get("FIELD1"));
+		List<SVCompletionProposal> proposals = cp.getCompletionProposals();
+		
+		assertEquals(2, proposals.size());
+		assertEquals("my_cl", proposals.get(0).getReplacement());
+		assertEquals(3, proposals.get(0).getReplacementLength());
+		assertEquals("my_class", proposals.get(1).getReplacement());
+		
+		// Once the results are discarded, the index is searched again
+		cp.clearResultCache();
+		scanner.seek(tt_utils.getPosMap().get("FIELD1"));
+		cp.computeProposals(scanner, ini.first(), 
+				tt_utils.getLineMap().get("FIELD1"));
+		
+		validateResults(new String[] {"my_cl", "my_clx", "my_class"}, 
+				cp.getCompletionProposals());
+	}
+	
 	public void testMacroCompletion() {
 		String doc =
 			"class my_class extends ovm_object;\n" +
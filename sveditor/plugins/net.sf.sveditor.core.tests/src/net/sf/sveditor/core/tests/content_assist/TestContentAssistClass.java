@@ -19,15 +19,23 @@ import junit.framework.TestCase;
 import net.sf.sveditor.core.SVCorePlugin;
 import net.sf.sveditor.core.StringInputStream;
 import net.sf.sveditor.core.content_assist.SVCompletionProposal;
+import net.sf.sveditor.core.db.ISVDBChildItem;
 import net.sf.sveditor.core.db.ISVDBFileFactory;
 import net.sf.sveditor.core.db.ISVDBItemBase;
+import net.sf.sveditor.core.db.SVDBClassDecl;
 import net.sf.sveditor.core.db.SVDBFile;
 import net.sf.sveditor.core.db.SVDBItem;
 import net.sf.sveditor.core.db.SVDBMarker;
+import net.sf.sveditor.core.db.search.SVDBClassMemberTable;
+import net.sf.sveditor.core.db.search.SVDBClassMemberTableCache;
+import net.sf.sveditor.core.db.search.SVDBFindByNameInClassHierarchy;
+import net.sf.sveditor.core.db.search.SVDBFindDefaultNameMatcher;
+import net.sf.sveditor.core.db.stmt.SVDBVarDeclStmt;
 import net.sf.sveditor.core.log.LogFactory;
 import net.sf.sveditor.core.log.LogHandle;
 import net.sf.sveditor.core.scanutils.StringBIDITextScanner;
 import net.sf.sveditor.core.tests.FileIndexIterator;
+import net.sf.sveditor.core.tests.SVDBTestUtils;
 import net.sf.sveditor.core.tests.TextTagPosUtils;
 
 public class TestContentAssistClass extends TestCase {
@@ -349,6 +357,106 @@ public class TestContentAssistClass extends TestCase {
 		LogFactory.removeLogHandle(log);
 	}
 	
+	public void testContentAssistParameterizedBaseClass() {
+		String testname = "testContentAssistParameterizedBaseClass";
+		LogHandle log = LogFactory.getLogHandle(testname);
+		String doc1 =
+			"class elem_t;\n" +
+			"	int		EEEE;\n" +
+			"endclass\n" +
+			"\n" +
+			"class base #(type T=int);\n" +
+			"	T		AAAA;\n" +
+			"	int		AABB;\n" +
+			"endclass\n" +
+			"\n" +
+			"class my_class extends base #(elem_t);\n" +
+			"	int		AABB;\n" +
+			"\n" +
+			"	function void build();\n" +
+			"		AA<<MARK>>\n" +
+			"	endfunction\n" +
+			"endclass\n" +
+			"\n"
+			;
+		SVCorePlugin.getDefault().enableDebug(false);
+				
+		TextTagPosUtils tt_utils = new TextTagPosUtils(new StringInputStream(doc1));
+		ISVDBFileFactory factory = SVCorePlugin.createFileFactory(null);
+		
+		List<SVDBMarker> markers = new ArrayList<SVDBMarker>();
+		SVDBFile file = factory.parse(tt_utils.openStream(), testname, markers);
+		StringBIDITextScanner scanner = new StringBIDITextScanner(tt_utils.getStrippedData());
+		FileIndexIterator index_it = new FileIndexIterator(file);
+		
+		TestCompletionProcessor cp = new TestCompletionProcessor(
+				log, file, index_it);
+		
+		scanner.seek(tt_utils.getPosMap().get("MARK"));
+
+		cp.computeProposals(scanner, file, tt_utils.getLineMap().get("MARK"));
+		List<SVCompletionProposal> proposals = cp.getCompletionProposals();
+		
+		for (SVCompletionProposal p : proposals) {
+			log.debug("proposal: " + p.getReplacement());
+		}
+		
+		ContentAssistTests.validateResults(new String[] {
+				"AAAA", "AABB", "AABB"}, proposals);
+		
+		// Members of the class shadow inherited members
+		SVDBClassDecl my_class = (SVDBClassDecl)SVDBTestUtils.findInFile(file, "my_class");
+		SVDBFindByNameInClassHierarchy finder = new SVDBFindByNameInClassHierarchy(
+				index_it, SVDBFindDefaultNameMatcher.getDefault());
+		List<ISVDBItemBase> result = finder.find(my_class, "AABB");
+		assertEquals(2, result.size());
+		assertSame(findField(my_class, "AABB"), result.get(0));
+		
+		// Inherited members reflect the specialization of the base class
+		SVDBClassMemberTable table = SVDBClassMemberTableCache.getDefault().getTable(
+				index_it, my_class);
+		SVDBClassDecl base = table.getSuperTable().getClassDecl();
+		assertEquals("base", base.getName());
+		SVDBVarDeclStmt aaaa = findFieldDecl(base, "AAAA");
+		assertNotNull(aaaa);
+		assertEquals("elem_t", aaaa.getTypeName());
+		
+		// Tables are kept until a file declaring the hierarchy changes
+		SVDBClassMemberTableCache.getDefault().invalidate("/other/file.sv");
+		assertSame(table, SVDBClassMemberTableCache.getDefault().getTable(
+				index_it, my_class));
+		SVDBClassMemberTableCache.getDefault().invalidate(file.getFilePath());
+		assertNotSame(table, SVDBClassMemberTableCache.getDefault().getTable(
+				index_it, my_class));
+		
+		LogFactory.removeLogHandle(log);
+	}
+	
+	private static SVDBVarDeclStmt findFieldDecl(SVDBClassDecl cls, String name) {
+		for (ISVDBChildItem it : cls.getChildren()) {
+			if (it instanceof SVDBVarDeclStmt) {
+				for (ISVDBChildItem vi : ((SVDBVarDeclStmt)it).getChildren()) {
+					if (SVDBItem.getName(vi).equals(name)) {
+						return (SVDBVarDeclStmt)it;
+					}
+				}
+			}
+		}
+		return null;
+	}
+	
+	private static ISVDBItemBase findField(SVDBClassDecl cls, String name) {
+		SVDBVarDeclStmt stmt = findFieldDecl(cls, name);
+		if (stmt != null) {
+			for (ISVDBChildItem vi : stmt.getChildren()) {
+				if (SVDBItem.getName(vi).equals(name)) {
+					return vi;
+				}
+			}
+		}
+		return null;
+	}
+	
 	public void testContentAssistBaseClass() {
 		String testname = "v";
 		LogHandle log = LogFactory.getLogHandle(testname);
@@ -0,0 +1,176 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.tests.diagrams;
+
+import junit.framework.TestCase;
+import net.sf.sveditor.core.db.ISVDBChildItem;
+import net.sf.sveditor.core.db.SVDBClassDecl;
+import net.sf.sveditor.core.db.SVDBFile;
+import net.sf.sveditor.core.db.index.ISVDBIndexChangeListener;
+import net.sf.sveditor.core.diagrams.ClassDiagModelFactory;
+import net.sf.sveditor.core.diagrams.DiagModel;
+import net.sf.sveditor.core.diagrams.DiagModelCache;
+import net.sf.sveditor.core.diagrams.DiagNode;
+import net.sf.sveditor.core.tests.FileIndexIterator;
+import net.sf.sveditor.core.tests.SVDBTestUtils;
+
+public class TestDiagModelCache extends TestCase {
+
+	private static final String DOC =
+		"class base;\n" +
+		"endclass\n" +
+		"\n" +
+		"class leaf;\n" +
+		"endclass\n" +
+		"\n" +
+		"class mid extends base;\n" +
+		"	leaf		m_leaf;\n" +
+		"endclass\n" +
+		"\n" +
+		"class top;\n" +
+		"	mid			m_mid;\n" +
+		"endclass\n"
+		;
+
+	private SVDBFile					fFile;
+	private ChangingIndex				fIndex;
+
+	@Override
+	protected void setUp() throws Exception {
+		fFile = SVDBTestUtils.parse(DOC, "diag_cache.svh");
+		fIndex = new ChangingIndex(fFile);
+	}
+
+	public void testCacheHit() {
+		DiagModelCache cache = new DiagModelCache();
+		CountingFactory factory = new CountingFactory(fIndex, findClass("top"));
+
+		DiagModel model = cache.getModel(fIndex, factory);
+		assertNotNull(model);
+		assertSame(model, cache.getModel(fIndex, factory));
+		assertEquals(1, factory.fBuilds);
+
+		// Models built by another factory are cached separately
+		CountingFactory mid_factory = new CountingFactory(fIndex, findClass("mid"));
+		assertNotSame(model, cache.getModel(fIndex, mid_factory));
+		assertEquals(1, mid_factory.fBuilds);
+	}
+
+	public void testIndexChangeInvalidates() {
+		DiagModelCache cache = new DiagModelCache();
+		CountingFactory factory = new CountingFactory(fIndex, findClass("top"));
+
+		DiagModel model = cache.getModel(fIndex, factory);
+
+		fIndex.changed();
+
+		DiagModel rebuilt = cache.getModel(fIndex, factory);
+		assertNotSame(model, rebuilt);
+		assertEquals(2, factory.fBuilds);
+		assertSame(rebuilt, cache.getModel(fIndex, factory));
+		assertEquals(2, factory.fBuilds);
+	}
+
+	public void testChangeDuringBuildNotCached() {
+		DiagModelCache cache = new DiagModelCache();
+		CountingFactory factory = new CountingFactory(fIndex, findClass("top"));
+
+		// The index changes while the first model is built, so that
+		// model must not be returned by later requests
+		factory.fChangeOnBuild = true;
+		DiagModel model = cache.getModel(fIndex, factory);
+		assertNotNull(model);
+
+		factory.fChangeOnBuild = false;
+		DiagModel rebuilt = cache.getModel(fIndex, factory);
+		assertNotSame(model, rebuilt);
+		assertEquals(2, factory.fBuilds);
+		assertSame(rebuilt, cache.getModel(fIndex, factory));
+	}
+
+	public void testExpandNodeOnDemand() {
+		CountingFactory factory = new CountingFactory(fIndex, findClass("top"));
+		DiagModel model = factory.build();
+
+		// Only the root is expanded by build()
+		assertNotNull(model.getVisitedClass("top"));
+		DiagNode mid = model.getVisitedClass("mid");
+		assertNotNull(mid);
+		assertTrue(model.getVisitedClass("top").isExpanded());
+		assertFalse(mid.isExpanded());
+		assertNull(model.getVisitedClass("base"));
+		assertNull(model.getVisitedClass("leaf"));
+		assertEquals(2, model.getNodes().size());
+
+		// Members are collected when first requested
+		assertEquals(1, mid.getMemberDecls().size());
+		assertEquals("m_leaf", mid.getMemberDecls().get(0).getName());
+
+		factory.expandNode(model, mid);
+		assertTrue(mid.isExpanded());
+		assertNotNull(model.getVisitedClass("base"));
+		assertNotNull(model.getVisitedClass("leaf"));
+		assertEquals(4, model.getNodes().size());
+		assertEquals(1, mid.getSuperClasses().size());
+		assertEquals(1, mid.getContainedClasses().size());
+
+		// Nodes are only expanded once
+		factory.expandNode(model, mid);
+		assertEquals(4, model.getNodes().size());
+		assertEquals(2, mid.getConnectedTo().size());
+	}
+
+	private SVDBClassDecl findClass(String name) {
+		for (ISVDBChildItem c : fFile.getChildren()) {
+			if (c instanceof SVDBClassDecl &&
+					((SVDBClassDecl)c).getName().equals(name)) {
+				return (SVDBClassDecl)c;
+			}
+		}
+		fail("Failed to find class " + name);
+		return null;
+	}
+
+	private static class ChangingIndex extends FileIndexIterator {
+
+		public ChangingIndex(SVDBFile file) {
+			super(file);
+		}
+
+		public void changed() {
+			notifyIndexChanged(ISVDBIndexChangeListener.FILE_CHANGED, null);
+		}
+	}
+
+	private static class CountingFactory extends ClassDiagModelFactory {
+		private ChangingIndex		fChangingIndex;
+		int							fBuilds;
+		boolean						fChangeOnBuild;
+
+		public CountingFactory(ChangingIndex index, SVDBClassDecl cls) {
+			super(index, cls);
+			fChangingIndex = index;
+		}
+
+		@Override
+		public DiagModel build() {
+			DiagModel model = super.build();
+			fBuilds++;
+			if (fChangeOnBuild) {
+				fChangingIndex.changed();
+			}
+			return model;
+		}
+	}
+
+}
@@ -30,6 +30,8 @@ import net.sf.sveditor.core.db.index.SVDBDeclCacheItem;
 import net.sf.sveditor.core.db.index.SVDBIndexRegistry;
 import net.sf.sveditor.core.db.search.SVDBFindPackageMatcher;
 import net.sf.sveditor.core.docs.DocGenConfig;
+import net.sf.sveditor.core.docs.html.HTMLDocWriter;
+import net.sf.sveditor.core.docs.model.DocFile;
 import net.sf.sveditor.core.docs.model.DocModel;
 import net.sf.sveditor.core.docs.model.DocModelFactory;
 import net.sf.sveditor.core.log.ILogLevel;
@@ -94,10 +96,99 @@ public class TestModelFactory extends TestCase {
 
 	}			
 	
-	public void doTestUVMExample(
+	public void testUVMParallel() throws IOException {
+		
+		String test_name = "testBasicExamplePkgParallel" ;
+		String bundle_dir_name = "basic_uvm" ;
+		String test_bundle_dir = "/data/doc_gen/" + bundle_dir_name ;
+		
+		DocModel model = doTestUVMExample(
+				test_name, 
+				bundle_dir_name,
+				test_bundle_dir,
+				4) ;
+		
+		/*
+		 * Generate HTML twice into the same directory. Pages whose
+		 * source is unchanged must not be re-written the second time
+		 */
+		DocGenConfig cfg = new DocGenConfig() ;
+		cfg.setOutputDir(new File(fTmpDir, "html")) ;
+		cfg.setMaxThreads(4) ;
+		
+		new HTMLDocWriter().write(cfg, model) ;
+		
+		assertTrue(model.getDocFiles().size() > 0) ;
+		for(DocFile docFile: model.getDocFiles()) {
+			File page = new File(docFile.getOutPath()) ;
+			assertTrue("Page " + page + " not generated", page.isFile()) ;
+			page.setLastModified(0) ;
+		}
+		
+		new HTMLDocWriter().write(cfg, model) ;
+		
+		for(DocFile docFile: model.getDocFiles()) {
+			File page = new File(docFile.getOutPath()) ;
+			assertEquals("Page " + page + " unexpectedly re-written", 
+					0, page.lastModified()) ;
+		}
+		
+		cfg.setIncremental(false) ;
+		new HTMLDocWriter().write(cfg, model) ;
+		
+		for(DocFile docFile: model.getDocFiles()) {
+			File page = new File(docFile.getOutPath()) ;
+			assertTrue("Page " + page + " not re-written", page.lastModified() != 0) ;
+		}
+		
+		/*
+		 * Pages rendered in parallel must match those rendered 
+		 * sequentially. Each thread renders at least 16 pages
+		 */
+		assertTrue(model.getDocFiles().size() >= 2*16) ;
+		Map<String,List<String>> parPages = readPages(cfg, model) ;
+		
+		DocGenConfig seqCfg = new DocGenConfig() ;
+		seqCfg.setOutputDir(new File(fTmpDir, "html_seq")) ;
+		seqCfg.setMaxThreads(1) ;
+		seqCfg.setIncremental(false) ;
+		new HTMLDocWriter().write(seqCfg, model) ;
+		Map<String,List<String>> seqPages = readPages(seqCfg, model) ;
+		
+		assertEquals(seqPages.keySet(), parPages.keySet()) ;
+		for(String page: seqPages.keySet()) {
+			assertEquals("Page " + page + " differs from sequential output",
+					seqPages.get(page), parPages.get(page)) ;
+		}
+	}
+	
+	/**
+	 * Reads the generated pages, keyed by their path within the output directory
+	 */
+	private Map<String,List<String>> readPages(DocGenConfig cfg, DocModel model) throws IOException {
+		Map<String,List<String>> pages = new HashMap<String, List<String>>() ;
+		String outDir = cfg.getOutputDir().getPath() ;
+		for(DocFile docFile: model.getDocFiles()) {
+			String outPath = docFile.getOutPath() ;
+			assertTrue(outPath.startsWith(outDir)) ;
+			pages.put(outPath.substring(outDir.length()), 
+					TestUtils.fileToLines(outPath)) ;
+		}
+		return pages ;
+	}
+	
+	public DocModel doTestUVMExample(
 			String 			testName, 
 			String			bundleDirName,
 			String			testBundleDir) throws IOException {
+		return doTestUVMExample(testName, bundleDirName, testBundleDir, -1) ;
+	}
+	
+	public DocModel doTestUVMExample(
+			String 			testName, 
+			String			bundleDirName,
+			String			testBundleDir,
+			int				maxThreads) throws IOException {
 
 		BundleUtils utils = new BundleUtils(SVCoreTestsPlugin.getDefault().getBundle());
 		LogHandle log = LogFactory.getLogHandle(testName);
@@ -144,6 +235,9 @@ public class TestModelFactory extends TestCase {
 		 */
 		
 		DocGenConfig cfg = new DocGenConfig() ;
+		if(maxThreads >= 0) {
+			cfg.setMaxThreads(maxThreads) ;
+		}
 		
 		Map<String,Tuple<SVDBDeclCacheItem, ISVDBIndex>> pkgMap = 
 				new HashMap<String, Tuple<SVDBDeclCacheItem,ISVDBIndex>>() ;
@@ -218,6 +312,8 @@ public class TestModelFactory extends TestCase {
 		//
 
 		LogFactory.removeLogHandle(log);
+		
+		return model ;
 	}	
 	
 	
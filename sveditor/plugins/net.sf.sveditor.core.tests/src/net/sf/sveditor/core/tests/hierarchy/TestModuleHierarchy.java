@@ -1,7 +1,22 @@
 package net.sf.sveditor.core.tests.hierarchy;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import junit.framework.TestCase;
 import net.sf.sveditor.core.SVCorePlugin;
+import net.sf.sveditor.core.Tuple;
+import net.sf.sveditor.core.db.ISVDBChildItem;
+import net.sf.sveditor.core.db.SVDBModIfcDecl;
+import net.sf.sveditor.core.db.index.ISVDBIndexIterator;
+import net.sf.sveditor.core.db.index.SVDBBaseIndexCacheData;
+import net.sf.sveditor.core.db.index.SVDBModInstCacheEntry;
+import net.sf.sveditor.core.db.search.SVDBFindNamedModIfcClassIfc;
+import net.sf.sveditor.core.hierarchy.HierarchyTreeNode;
+import net.sf.sveditor.core.hierarchy.ModuleHierarchyTreeFactory;
+import net.sf.sveditor.core.tests.IndexTestUtils;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
 
 public class TestModuleHierarchy extends TestCase {
 
@@ -33,4 +48,106 @@ public class TestModuleHierarchy extends TestCase {
 		HierarchyTests.runModuleHierarchyTest(testname, doc, "top", 
 				"top.m3_1.m2_2.m1_1");
 	}
+	
+	public void testModuleInstanceGraph() {
+		SVCorePlugin.getDefault().enableDebug(false);
+		String doc = 
+			"module m1;\n" +
+			"endmodule\n" +
+			"\n" +
+			"module m2;\n" +
+			"	m1 m1_1();\n" +
+			"	m1 m1_2(), m1_3();\n" +
+			"endmodule\n" +
+			"\n" +
+			"interface i1;\n" +
+			"endinterface\n" +
+			"\n" +
+			"module top;\n" +
+			"	m2 m2_1();\n" +
+			"	i1 i1_1();\n" +
+			"endmodule\n" +
+			"\n"
+			;
+		ISVDBIndexIterator index_it = IndexTestUtils.buildIndex(doc, "testModuleInstanceGraph");
+		
+		List<Tuple<String, String>> insts = index_it.findModuleInstances(new NullProgressMonitor(), "m2");
+		assertNotNull(insts);
+		assertEquals(3, insts.size());
+		for (Tuple<String, String> inst : insts) {
+			assertEquals("m1", inst.second());
+		}
+		assertEquals("m1_3", insts.get(2).first());
+		
+		insts = index_it.findModuleInstances(new NullProgressMonitor(), "top");
+		assertNotNull(insts);
+		assertEquals(2, insts.size());
+		assertEquals("i1", insts.get(1).second());
+		
+		// Declared, but with no instances
+		insts = index_it.findModuleInstances(new NullProgressMonitor(), "m1");
+		assertNotNull(insts);
+		assertEquals(0, insts.size());
+		
+		assertNull(index_it.findModuleInstances(new NullProgressMonitor(), "m_unknown"));
+	}
+	
+	public void testModuleInstanceCacheData() {
+		SVDBBaseIndexCacheData data = new SVDBBaseIndexCacheData("base");
+		List<Tuple<String, String>> insts = new ArrayList<Tuple<String,String>>();
+		
+		// The same module declared in two files
+		for (String path : new String[] {"/b/m.sv", "/a/m.sv", "/c/m.sv"}) {
+			SVDBModInstCacheEntry e = new SVDBModInstCacheEntry();
+			insts.clear();
+			insts.add(new Tuple<String, String>("u_" + path.charAt(1), "sub"));
+			e.addModule("m", insts);
+			data.getModInstCacheMap().put(path, e);
+		}
+		
+		List<Tuple<String, String>> ret = data.findModuleInstances("m");
+		assertNotNull(ret);
+		assertEquals(1, ret.size());
+		assertEquals("u_a", ret.get(0).first());
+		
+		// Clearing the cache data drops the instance graph
+		data.clear();
+		assertNull(data.findModuleInstances("m"));
+	}
+	
+	public void testUnknownModuleType() {
+		SVCorePlugin.getDefault().enableDebug(false);
+		String doc = 
+			"module m1;\n" +
+			"endmodule\n" +
+			"\n" +
+			"module top;\n" +
+			"	m1 m1_1();\n" +
+			"	m_unknown u1();\n" +
+			"endmodule\n" +
+			"\n"
+			;
+		ISVDBIndexIterator index_it = IndexTestUtils.buildIndex(doc, "testUnknownModuleType");
+		ModuleHierarchyTreeFactory tf = new ModuleHierarchyTreeFactory(index_it);
+		
+		SVDBFindNamedModIfcClassIfc mod_finder = new SVDBFindNamedModIfcClassIfc(index_it);
+		List<ISVDBChildItem> mod_l = mod_finder.find("top");
+		assertEquals(1, mod_l.size());
+		
+		HierarchyTreeNode h = tf.build((SVDBModIfcDecl)mod_l.get(0));
+		assertEquals(2, h.getChildren().size());
+		
+		HierarchyTreeNode m1_1 = h.getChildren().get(0);
+		HierarchyTreeNode u1 = h.getChildren().get(1);
+		
+		assertEquals("m1_1", m1_1.getName());
+		assertNotNull(m1_1.getItemDecl());
+		assertNotNull(m1_1.getItemType());
+		assertEquals(0, m1_1.getChildren().size());
+		
+		assertEquals("u1", u1.getName());
+		assertNotNull(u1.getItemDecl());
+		assertNull(u1.getItemType());
+		assertEquals(0, u1.getChildren().size());
+	}
 }
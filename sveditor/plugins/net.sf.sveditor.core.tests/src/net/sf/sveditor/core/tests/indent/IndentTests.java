@@ -34,6 +34,8 @@ public class IndentTests extends TestCase {
 		suite.addTest(new TestSuite(NoHangIndentTests.class));
 		suite.addTest(new TestSuite(TestIndentScanner.class));
 		suite.addTest(new TestSuite(TestAdaptiveIndent.class));
+		suite.addTest(new TestSuite(TestIndentCheckpoints.class));
+		suite.addTest(new TestSuite(TestBatchFormatter.class));
 		
 		return suite;
 	}
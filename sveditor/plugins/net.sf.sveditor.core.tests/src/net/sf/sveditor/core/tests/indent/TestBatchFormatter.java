@@ -0,0 +1,123 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.tests.indent;
+
+import junit.framework.TestCase;
+import net.sf.sveditor.core.SVCorePlugin;
+import net.sf.sveditor.core.indent.ISVIndenter;
+import net.sf.sveditor.core.indent.SVBatchFormatter;
+import net.sf.sveditor.core.indent.SVIndentScanner;
+import net.sf.sveditor.core.scanutils.StringTextScanner;
+
+public class TestBatchFormatter extends TestCase {
+
+	private static final String fContent =
+		"package p;\n" +
+		"class c1;\n" +
+		"int a;\n" +
+		"endclass : c1\n" +
+		"endpackage : p\n" +
+		"\n" +
+		"// comment before c2\n" +
+		"virtual class c2;\n" +
+		"/* class c3; */\n" +
+		"function void f();\n" +
+		"a = \"class c4;\";\n" +
+		"endfunction\n" +
+		"endclass\n" +
+		"`define C5 \\\n" +
+		"class c5; \\\n" +
+		"endclass\n" +
+		"typedef class c6;\n" +
+		"interface class c7;\n" +
+		"endclass\n" +
+		"module m(\n" +
+		"interface i);\n" +
+		"initial begin\n" +
+		"$display(\"Hello\");\n" +
+		"end\n" +
+		"endmodule\n"
+		;
+
+	public void testSplit() {
+		int offsets[] = SVBatchFormatter.split(fContent, 1);
+
+		// Items in comments, strings, macros and port lists are ignored
+		assertEquals(4, offsets.length);
+		assertEquals(0, offsets[0]);
+		assertEquals(fContent.indexOf("virtual class c2"), offsets[1]);
+		assertEquals(fContent.indexOf("interface class c7"), offsets[2]);
+		assertEquals(fContent.indexOf("module m"), offsets[3]);
+
+		// Chunks hold at least the specified number of lines
+		offsets = SVBatchFormatter.split(fContent, 10);
+		assertEquals(2, offsets.length);
+		assertEquals(fContent.indexOf("interface class c7"), offsets[1]);
+
+		assertEquals(1, SVBatchFormatter.split(fContent, 1000).length);
+	}
+
+	public void testChunksMatchFullIndent() {
+		SVBatchFormatter formatter = new SVBatchFormatter();
+		formatter.setChunkLines(1);
+
+		assertEquals(indent(fContent), formatter.format(fContent));
+	}
+
+	public void testUnbalancedChunk() {
+		// The stray 'endclass' does not close the module, so the
+		// content is not split inside the module
+		String content =
+			"module m;\n" +
+			"endclass\n" +
+			"class c2;\n" +
+			"int a;\n" +
+			"endclass\n" +
+			"endmodule\n" +
+			"class c3;\n" +
+			"endclass\n"
+			;
+		int offsets[] = SVBatchFormatter.split(content, 1);
+		assertEquals(2, offsets.length);
+		assertEquals(content.indexOf("class c3"), offsets[1]);
+
+		// Scopes that do not balance prevent splitting
+		String ifdef_content =
+			"`ifdef A\n" +
+			"module m(input a);\n" +
+			"`else\n" +
+			"module m(input b);\n" +
+			"`endif\n" +
+			"endmodule\n" +
+			"class c1;\n" +
+			"endclass\n"
+			;
+		assertEquals(1, SVBatchFormatter.split(ifdef_content, 1).length);
+
+		SVBatchFormatter formatter = new SVBatchFormatter();
+		formatter.setChunkLines(1);
+
+		assertEquals(indent(content), formatter.format(content));
+	}
+
+	private static String indent(String content) {
+		ISVIndenter indenter = SVCorePlugin.getDefault().createIndenter();
+
+		indenter.setIndentIncr("\t");
+		indenter.setAdaptiveIndentEnd(-1);
+		indenter.init(new SVIndentScanner(new StringTextScanner(content)));
+
+		return indenter.indent();
+	}
+
+}
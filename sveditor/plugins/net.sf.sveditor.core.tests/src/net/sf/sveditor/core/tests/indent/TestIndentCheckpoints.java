@@ -0,0 +1,166 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.tests.indent;
+
+import junit.framework.TestCase;
+import net.sf.sveditor.core.SVCorePlugin;
+import net.sf.sveditor.core.indent.ISVIndenter;
+import net.sf.sveditor.core.indent.SVIndentCheckpoint;
+import net.sf.sveditor.core.indent.SVIndentCheckpointCache;
+import net.sf.sveditor.core.indent.SVIndentScanner;
+import net.sf.sveditor.core.scanutils.StringTextScanner;
+
+public class TestIndentCheckpoints extends TestCase {
+
+	private static final String fContent =
+		"package p;\n" +								// 1
+		"class c1;\n" +									// 2
+		"int a;\n" +									// 3
+		"function void f();\n" +						// 4
+		"if (a) begin\n" +								// 5
+		"a = 1;\n" +									// 6
+		"end\n" +										// 7
+		"endfunction\n" +								// 8
+		"// comment\n" +								// 9
+		"task t();\n" +									// 10
+		"a = 2;\n" +									// 11
+		"endtask\n" +									// 12
+		"endclass\n" +									// 13
+		"\n" +											// 14
+		"class c2;\n" +									// 15
+		"int b;\n" +									// 16
+		"endclass\n" +									// 17
+		"endpackage\n" +								// 18
+		"\n" +											// 19
+		"module m;\n" +									// 20
+		"initial begin\n" +								// 21
+		"$display(\"Hello\");\n" +						// 22
+		"end\n" +										// 23
+		"endmodule\n"									// 24
+		;
+
+	public void testResumeMatchesFullIndent() {
+		SVIndentCheckpointCache cache = new SVIndentCheckpointCache();
+		ISVIndenter indenter = create(fContent, null);
+		indenter.setCheckpointCache(cache, fContent.length());
+		indenter.indent();
+
+		assertTrue("No checkpoints recorded", cache.size() > 0);
+
+		int n_lines = 24;
+		int line_offset = 0;
+		int n_resumed = 0;
+		for (int line=1; line<=n_lines; line++) {
+			SVIndentCheckpoint cp = cache.find(line_offset, "\t", -1);
+
+			String expected = create(fContent, null).indent(line, n_lines);
+			String result = create(fContent, cp).indent(line, n_lines);
+
+			assertEquals("Line " + line, expected, result);
+
+			if (cp != null) {
+				assertTrue(cp.getLineno() <= line);
+				n_resumed++;
+			}
+			line_offset = fContent.indexOf('\n', line_offset) + 1;
+		}
+
+		assertTrue("Too few resumed: " + n_resumed, n_resumed > n_lines/2);
+	}
+
+	public void testNoCheckpointInParens() {
+		String content =
+			"bind top sub u1 (\n" +						// 1
+			".a(a),\n" +								// 2
+			".b(b)\n" +									// 3
+			");\n" +										// 4
+			"module m;\n" +								// 5
+			"assign x = y;\n" +							// 6
+			"endmodule\n"								// 7
+			;
+		SVIndentCheckpointCache cache = new SVIndentCheckpointCache();
+		ISVIndenter indenter = create(content, null);
+		indenter.setCheckpointCache(cache, content.length());
+		indenter.indent();
+
+		int n_lines = 7;
+		int line_offset = 0;
+		for (int line=1; line<=n_lines; line++) {
+			SVIndentCheckpoint cp = cache.find(line_offset, "\t", -1);
+
+			if (line == 2 || line == 3) {
+				// The port connections are inside the parentheses
+				assertTrue("Line " + line, cp == null || cp.getLineno() <= 1);
+			}
+
+			assertEquals("Line " + line,
+					create(content, null).indent(line, n_lines),
+					create(content, cp).indent(line, n_lines));
+
+			line_offset = content.indexOf('\n', line_offset) + 1;
+		}
+	}
+
+	public void testInvalidate() {
+		SVIndentCheckpointCache cache = new SVIndentCheckpointCache();
+		ISVIndenter indenter = create(fContent, null);
+		indenter.setCheckpointCache(cache, fContent.length());
+		indenter.indent();
+
+		int offset = fContent.indexOf("task t");
+
+		cache.invalidate(offset);
+
+		SVIndentCheckpoint cp = cache.find(fContent.length(), "\t", -1);
+		assertNotNull(cp);
+		assertTrue(cp.getOffset() <= offset);
+
+		// Checkpoints depend on the indent settings
+		assertNull(cache.find(fContent.length(), "  ", -1));
+
+		// Only the checkpoint at the start of the content remains
+		cache.invalidate(0);
+		cp = cache.find(fContent.length(), "\t", -1);
+		assertNotNull(cp);
+		assertEquals(0, cp.getOffset());
+	}
+
+	public void testCheckpointLimit() {
+		SVIndentCheckpointCache cache = new SVIndentCheckpointCache();
+		int limit = fContent.indexOf("endpackage");
+		ISVIndenter indenter = create(fContent, null);
+		indenter.setCheckpointCache(cache, limit);
+		indenter.indent();
+
+		SVIndentCheckpoint cp = cache.find(fContent.length(), "\t", -1);
+		assertNotNull(cp);
+		assertTrue(cp.getOffset() < limit);
+	}
+
+	private static ISVIndenter create(String content, SVIndentCheckpoint cp) {
+		ISVIndenter indenter = SVCorePlugin.getDefault().createIndenter();
+
+		indenter.setIndentIncr("\t");
+		if (cp != null) {
+			indenter.init(new SVIndentScanner(
+					new StringTextScanner(content.substring(cp.getOffset())),
+					cp.getLineno(), cp.getOffset()), cp);
+		} else {
+			indenter.init(new SVIndentScanner(new StringTextScanner(content)));
+		}
+		indenter.setAdaptiveIndentEnd(-1);
+
+		return indenter;
+	}
+
+}
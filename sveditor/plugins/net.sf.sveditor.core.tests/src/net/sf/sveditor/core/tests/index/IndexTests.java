@@ -50,9 +50,15 @@ public class IndexTests extends TestSuite {
 		suite.addTest(new TestSuite(TestIndexParse.class));
 		suite.addTest(new TestSuite(TestArgFileIndex.class));
 		suite.addTest(new TestSuite(TestIndexPersistance.class));
+		suite.addTest(new TestSuite(TestPluginLibIndexImage.class));
+		suite.addTest(new TestSuite(TestSharedIndexCache.class));
 		suite.addTest(new TestSuite(TestOpencoresProjects.class));
 		suite.addTest(new TestSuite(TestCrossIndexReferences.class));
 		suite.addTest(new TestSuite(TestIndexFileRefs.class));
+		suite.addTest(new TestSuite(TestIndexRouteTable.class));
+		suite.addTest(new TestSuite(TestIndexQueryRunner.class));
+		suite.addTest(new TestSuite(TestIndexImage.class));
+		suite.addTest(new TestSuite(TestMarkerPropagation.class));
 //		suite.addTest(new TestSuite(TestThreadedSourceCollectionIndex.class));
 		suite.addTest(new TestSuite(ObjectsTests.class));
 		
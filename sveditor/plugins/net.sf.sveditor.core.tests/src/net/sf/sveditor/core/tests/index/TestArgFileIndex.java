@@ -392,4 +392,72 @@ public class TestArgFileIndex extends TestCase {
 		LogFactory.removeLogHandle(log);
 	}
 
+	public void testNestedArgFileChange() throws IOException {
+		String testname = "testNestedArgFileChange";
+		CoreReleaseTests.clearErrors();
+		LogHandle log = LogFactory.getLogHandle(testname);
+		SVCorePlugin.getDefault().enableDebug(false);
+		
+		final IProject project_dir = TestUtils.createProject(testname);
+		
+		// Create enough nested argument files to scan them in parallel
+		StringBuilder top_f = new StringBuilder();
+		for (int i=0; i<8; i++) {
+			top_f.append("-f sub_" + i + ".f\n");
+			TestUtils.copy(
+					"-f sub_sub_" + i + ".f\n" +
+					"module_" + i + ".sv\n",
+					project_dir.getFile("sub_" + i + ".f"));
+			TestUtils.copy(
+					"module_sub_" + i + ".sv\n",
+					project_dir.getFile("sub_sub_" + i + ".f"));
+			TestUtils.copy(
+					"module module_" + i + ";\n" +
+					"endmodule\n",
+					project_dir.getFile("module_" + i + ".sv"));
+			TestUtils.copy(
+					"module module_sub_" + i + ";\n" +
+					"endmodule\n",
+					project_dir.getFile("module_sub_" + i + ".sv"));
+		}
+		TestUtils.copy(top_f.toString(), project_dir.getFile("top.f"));
+		
+		TestUtils.copy(
+				"module module_extra;\n" +
+				"endmodule\n",
+				project_dir.getFile("module_extra.sv"));
+		
+		SVDBIndexRegistry rgy = SVCorePlugin.getDefault().getSVDBIndexRegistry();
+		rgy.init(TestIndexCacheFactory.instance(fTmpDir));
+		
+		ISVDBIndex index = rgy.findCreateIndex(
+				new NullProgressMonitor(), "GENERIC", 
+				"${workspace_loc}/" + testname + "/top.f",
+				SVDBArgFileIndexFactory.TYPE, null);
+
+		index.loadIndex(new NullProgressMonitor());
+		
+		for (int i=0; i<8; i++) {
+			IndexTests.assertContains(index, "module_" + i, SVDBItemType.ModuleDecl);
+			IndexTests.assertContains(index, "module_sub_" + i, SVDBItemType.ModuleDecl);
+		}
+		IndexTestUtils.assertDoesNotContain(index, "module_extra");
+		
+		// Changing a nested argument file must cause the 
+		// argument files to be re-expanded
+		TestUtils.copy(
+				"module_sub_3.sv\n" +
+				"module_extra.sv\n",
+				project_dir.getFile("sub_sub_3.f"));
+		
+		index.rebuildIndex(new NullProgressMonitor());
+		index.loadIndex(new NullProgressMonitor());
+		
+		IndexTests.assertContains(index, "module_sub_3", SVDBItemType.ModuleDecl);
+		IndexTests.assertContains(index, "module_extra", SVDBItemType.ModuleDecl);
+		
+		assertEquals(0, CoreReleaseTests.getErrors().size());
+		LogFactory.removeLogHandle(log);
+	}
+
 }
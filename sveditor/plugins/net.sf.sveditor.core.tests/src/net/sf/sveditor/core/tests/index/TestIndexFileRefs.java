@@ -30,6 +30,7 @@ import net.sf.sveditor.core.db.refs.SVDBRefType;
 import net.sf.sveditor.core.db.refs.SVDBTypeRefMatcher;
 import net.sf.sveditor.core.log.LogFactory;
 import net.sf.sveditor.core.log.LogHandle;
+import net.sf.sveditor.core.tests.CoreReleaseTests;
 import net.sf.sveditor.core.tests.IndexTestUtils;
 import net.sf.sveditor.core.tests.SVCoreTestsPlugin;
 import net.sf.sveditor.core.tests.TestIndexCacheFactory;
@@ -170,4 +171,58 @@ public class TestIndexFileRefs extends TestCase {
 		LogFactory.removeLogHandle(log);
 	}
 	
+	public void testLibPathFunctionBodyRefs() {
+		CoreReleaseTests.clearErrors();
+		LogHandle log = LogFactory.getLogHandle("testLibPathFunctionBodyRefs");
+		boolean skim = SVCorePlugin.getSkimLibraryBodies();
+		
+		fProject = TestUtils.createProject("project");
+		
+		String content = 
+			"package lib_pkg;\n" +
+			"	class c1;\n" +
+			"	endclass\n" +
+			"\n" +
+			"	class c2;\n" +
+			"		function void build();\n" +
+			"			c1 h;\n" +
+			"			h = new();\n" +
+			"		endfunction\n" +
+			"	endclass\n" +
+			"endpackage\n"
+			;
+		TestUtils.copy(content, fProject.getFile("lib_pkg.sv"));
+		
+		File db = new File(fTmpDir, "db");
+		if (db.exists()) {
+			TestUtils.delete(db);
+		}
+		
+		SVDBIndexRegistry rgy = SVCorePlugin.getDefault().getSVDBIndexRegistry();
+		rgy.init(TestIndexCacheFactory.instance(db));
+		
+		try {
+			// Skimming applies to plugin libraries, not to library paths
+			SVCorePlugin.setSkimLibraryBodies(true);
+			
+			ISVDBIndex index = rgy.findCreateIndex(new NullProgressMonitor(), "project",
+					"${workspace_loc}/project/lib_pkg.sv", SVDBLibPathIndexFactory.TYPE, null);
+			index.loadIndex(new NullProgressMonitor());
+			IndexTestUtils.assertNoErrWarn(log, index);
+			
+			List<SVDBRefCacheItem> refs = index.findReferences(
+					new NullProgressMonitor(), "c1", new SVDBTypeRefMatcher());
+			assertEquals(1, refs.size());
+			
+			List<SVDBRefItem> ref_items = refs.get(0).findReferences(new NullProgressMonitor());
+			assertEquals(1, ref_items.size());
+			assertEquals(7, ref_items.get(0).getLeaf().getLocation().getLine());
+		} finally {
+			SVCorePlugin.setSkimLibraryBodies(skim);
+		}
+		
+		LogFactory.removeLogHandle(log);
+		assertEquals(0, CoreReleaseTests.getErrors().size());
+	}
+	
 }
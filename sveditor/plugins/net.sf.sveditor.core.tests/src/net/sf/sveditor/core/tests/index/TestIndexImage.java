@@ -0,0 +1,102 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.tests.index;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+import net.sf.sveditor.core.SVCorePlugin;
+import net.sf.sveditor.core.db.SVDBItemType;
+import net.sf.sveditor.core.db.index.ISVDBIndex;
+import net.sf.sveditor.core.db.index.SVDBArgFileIndex;
+import net.sf.sveditor.core.db.index.SVDBFSFileSystemProvider;
+import net.sf.sveditor.core.db.index.SVDBIndexImage;
+import net.sf.sveditor.core.db.index.cache.ISVDBFS;
+import net.sf.sveditor.core.db.index.cache.SVDBArchiveFS;
+import net.sf.sveditor.core.db.index.cache.SVDBDirFS;
+import net.sf.sveditor.core.db.index.cache.SVDBFileIndexCache;
+import net.sf.sveditor.core.metrics.MetricsHistogram;
+import net.sf.sveditor.core.metrics.MetricsRegistry;
+import net.sf.sveditor.core.tests.SVCoreTestsPlugin;
+import net.sf.sveditor.core.tests.utils.BundleUtils;
+import net.sf.sveditor.core.tests.utils.TestUtils;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+public class TestIndexImage extends TestCase {
+
+	private File			fTmpDir;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fTmpDir = TestUtils.createTempDir();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		System.clearProperty(SVDBIndexImage.IMAGE_DIR_PROPERTY);
+		if (fTmpDir != null && fTmpDir.exists()) {
+			TestUtils.delete(fTmpDir);
+		}
+	}
+
+	public void testArgFileFromImage() throws Exception {
+		BundleUtils utils = new BundleUtils(SVCoreTestsPlugin.getDefault().getBundle());
+		utils.copyBundleDirToFS("/data/index/arg_file_cross_index_ref/p1", fTmpDir);
+
+		String arg_file = new File(fTmpDir, "p1/p1.f").getAbsolutePath();
+		File out_dir = new File(fTmpDir, "images");
+		out_dir.mkdirs();
+
+		SVDBIndexImage builder = new SVDBIndexImage(arg_file);
+		File img = builder.build(new NullProgressMonitor(), out_dir);
+		assertTrue(img.isFile());
+		assertEquals(SVDBIndexImage.getImageName(arg_file), img.getName());
+		assertEquals(SVDBIndexImage.getVersion(arg_file), SVDBArchiveFS.readVersion(img));
+		assertEquals(1, builder.getNumFiles());
+		assertEquals(ISVDBIndex.PhaseNames.length,
+				builder.getPhaseTimes().length);
+
+		File overlay = new File(fTmpDir, "overlay");
+		SVDBDirFS dir_fs = new SVDBDirFS(overlay);
+
+		// Images are only imported from the configured directory
+		assertSame(dir_fs, SVDBIndexImage.createFS(arg_file, dir_fs));
+
+		System.setProperty(SVDBIndexImage.IMAGE_DIR_PROPERTY, out_dir.getAbsolutePath());
+		assertSame(dir_fs, SVDBIndexImage.createFS(arg_file + ".other", dir_fs));
+
+		// Images are found for a base location written using variables
+		SVCorePlugin.setenv("IMAGE_ROOT", fTmpDir.getAbsolutePath());
+		assertEquals(img.getName(), SVDBIndexImage.getImageName("${IMAGE_ROOT}/p1/p1.f"));
+		assertTrue(SVDBIndexImage.createFS("${IMAGE_ROOT}/p1/p1.f", dir_fs) instanceof SVDBArchiveFS);
+
+		ISVDBFS fs = SVDBIndexImage.createFS(arg_file, dir_fs);
+		assertTrue(fs instanceof SVDBArchiveFS);
+
+		SVDBArgFileIndex index = new SVDBArgFileIndex("GLOBAL", arg_file,
+				new SVDBFSFileSystemProvider(), new SVDBFileIndexCache(fs), null);
+		MetricsHistogram parse_h = MetricsRegistry.histogram(MetricsRegistry.INDEX_FILE_PARSE);
+		long n_parsed = parse_h.getCount();
+		index.init(new NullProgressMonitor());
+		index.loadIndex(new NullProgressMonitor());
+
+		IndexTests.assertContains(index, "p1_c", SVDBItemType.ClassDecl);
+		// The content comes from the image, without parsing any file
+		assertEquals(n_parsed, parse_h.getCount());
+	}
+
+}
@@ -0,0 +1,181 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.tests.index;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import net.sf.sveditor.core.SVCorePlugin;
+import net.sf.sveditor.core.db.ISVDBNamedItem;
+import net.sf.sveditor.core.db.SVDBClassDecl;
+import net.sf.sveditor.core.db.index.ISVDBIndex;
+import net.sf.sveditor.core.db.index.SVDBDeclCacheItem;
+import net.sf.sveditor.core.db.index.SVDBIndexCollection;
+import net.sf.sveditor.core.db.index.SVDBIndexQueryRunner;
+import net.sf.sveditor.core.db.project.SVDBProjectData;
+import net.sf.sveditor.core.db.project.SVDBProjectManager;
+import net.sf.sveditor.core.db.project.SVProjectFileWrapper;
+import net.sf.sveditor.core.db.search.ISVDBFindNameMatcher;
+import net.sf.sveditor.core.db.search.SVDBFindDefaultNameMatcher;
+import net.sf.sveditor.core.db.search.SVDBFindNamedClass;
+import net.sf.sveditor.core.tests.CoreReleaseTests;
+import net.sf.sveditor.core.tests.utils.TestUtils;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+public class TestIndexQueryRunner extends TestCase {
+	private File					fTmpDir;
+	private SVDBIndexCollection		fP1IndexMgr;
+
+	@Override
+	protected void setUp() throws Exception {
+		fTmpDir = TestUtils.createTempDir();
+		CoreReleaseTests.clearErrors();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		assertEquals(0, CoreReleaseTests.getErrors().size());
+	}
+
+	public void testResultOrder() throws CoreException {
+		SVDBIndexCollection index_mgr = setupProjects();
+		List<ISVDBIndex> indexes = index_mgr.getIndexList();
+
+		List<List<String>> result = SVDBIndexQueryRunner.run(
+				new NullProgressMonitor(), indexes,
+				new SVDBIndexQueryRunner.IIndexQuery<String>() {
+					public List<String> query(ISVDBIndex index) {
+						List<String> ret = new ArrayList<String>();
+						ret.add(index.getBaseLocation());
+						return ret;
+					}
+				}, false);
+
+		assertEquals(indexes.size(), result.size());
+		for (int i=0; i<indexes.size(); i++) {
+			assertEquals(1, result.get(i).size());
+			assertEquals(indexes.get(i).getBaseLocation(), result.get(i).get(0));
+		}
+
+		// A failing query does not fail the others
+		result = SVDBIndexQueryRunner.run(new NullProgressMonitor(), indexes,
+				new SVDBIndexQueryRunner.IIndexQuery<String>() {
+					public List<String> query(ISVDBIndex index) {
+						throw new RuntimeException("Query failed");
+					}
+				}, false);
+		assertEquals(indexes.size(), result.size());
+		for (List<String> r : result) {
+			assertEquals(0, r.size());
+		}
+		CoreReleaseTests.clearErrors();
+	}
+
+	public void testParallelMatchesSequential() throws CoreException {
+		SVDBIndexCollection index_mgr = setupProjects();
+		ISVDBFindNameMatcher all = new ISVDBFindNameMatcher() {
+			public boolean match(ISVDBNamedItem it, String name) {
+				return true;
+			}
+		};
+
+		List<SVDBDeclCacheItem> result = index_mgr.findGlobalScopeDecl(
+				new NullProgressMonitor(), "", all);
+
+		// Query the local indexes, then those of the referenced project,
+		// one at a time. A declaration found by an earlier index is
+		// dropped from the results of later indexes
+		List<ISVDBIndex> indexes = new ArrayList<ISVDBIndex>();
+		indexes.addAll(index_mgr.getIndexList());
+		indexes.addAll(fP1IndexMgr.getIndexList());
+
+		List<String> expected = new ArrayList<String>();
+		Map<String, Integer> found = new HashMap<String, Integer>();
+		for (int i=0; i<indexes.size(); i++) {
+			for (SVDBDeclCacheItem it : indexes.get(i).findGlobalScopeDecl(
+					new NullProgressMonitor(), "", all)) {
+				String key = it.getFilename() + ":" + it.getType() + ":" + it.getName();
+				if (found.containsKey(key) && found.get(key) != i) {
+					continue;
+				}
+				found.put(key, i);
+				expected.add(key);
+			}
+		}
+
+		List<String> actual = new ArrayList<String>();
+		for (SVDBDeclCacheItem it : result) {
+			actual.add(it.getFilename() + ":" + it.getType() + ":" + it.getName());
+		}
+
+		assertTrue(expected.size() > 0);
+		assertEquals(expected, actual);
+	}
+
+	public void testFirstMatch() throws CoreException {
+		SVDBIndexCollection index_mgr = setupProjects();
+
+		List<SVDBDeclCacheItem> result = index_mgr.findGlobalScopeDecl(
+				new NullProgressMonitor(), "p1_c",
+				SVDBFindDefaultNameMatcher.getDefault(), true);
+		assertEquals(1, result.size());
+		assertEquals("p1_c", result.get(0).getName());
+
+		SVDBFindNamedClass finder = new SVDBFindNamedClass(index_mgr);
+		SVDBClassDecl cls = finder.findFirst("p2_c");
+		assertNotNull(cls);
+		assertEquals("p2_c", cls.getName());
+
+		assertNull(finder.findFirst("p3_c"));
+	}
+
+	/**
+	 * Sets up project p2, which references project p1
+	 */
+	private SVDBIndexCollection setupProjects() throws CoreException {
+		SVDBProjectManager pmgr = SVCorePlugin.getDefault().getProjMgr();
+
+		IProject p1 = TestUtils.setupIndexWSProject(
+				null, fTmpDir, "p1",
+				"/data/index/arg_file_cross_index_ref/p1");
+
+		IProject p2 = TestUtils.setupIndexWSProject(
+				null, fTmpDir, "p2",
+				"/data/index/arg_file_cross_index_ref/p2");
+		IProjectDescription p2_desc = p2.getDescription();
+		p2_desc.setReferencedProjects(new IProject[] {p1});
+		p2.setDescription(p2_desc,  new NullProgressMonitor());
+
+		SVDBProjectData p1_pdata = pmgr.getProjectData(p1);
+		SVProjectFileWrapper p1_fwrapper = p1_pdata.getProjectFileWrapper();
+		SVDBProjectData p2_pdata = pmgr.getProjectData(p2);
+		SVProjectFileWrapper p2_fwrapper = p2_pdata.getProjectFileWrapper();
+
+		p1_fwrapper.addArgFilePath("${workspace_loc}/p1/p1/p1.f");
+		p2_fwrapper.addArgFilePath("${workspace_loc}/p2/p2/p2.f");
+
+		p1_pdata.setProjectFileWrapper(p1_fwrapper);
+		p2_pdata.setProjectFileWrapper(p2_fwrapper);
+
+		return p2_pdata.getProjectIndexMgr();
+	}
+
+}
@@ -0,0 +1,146 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.tests.index;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.sf.sveditor.core.SVCorePlugin;
+import net.sf.sveditor.core.db.SVDBFile;
+import net.sf.sveditor.core.db.index.ISVDBIndex;
+import net.sf.sveditor.core.db.index.SVDBIndexCollection;
+import net.sf.sveditor.core.db.index.SVDBIndexRouteTable;
+import net.sf.sveditor.core.db.project.SVDBProjectData;
+import net.sf.sveditor.core.db.project.SVDBProjectManager;
+import net.sf.sveditor.core.db.project.SVProjectFileWrapper;
+import net.sf.sveditor.core.db.search.SVDBSearchResult;
+import net.sf.sveditor.core.tests.CoreReleaseTests;
+import net.sf.sveditor.core.tests.utils.TestUtils;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+public class TestIndexRouteTable extends TestCase {
+	private File				fTmpDir;
+
+	@Override
+	protected void setUp() throws Exception {
+		fTmpDir = TestUtils.createTempDir();
+		CoreReleaseTests.clearErrors();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		assertEquals(0, CoreReleaseTests.getErrors().size());
+	}
+
+	public void testRoutedLookup() throws CoreException {
+		SVDBIndexCollection index_mgr = setupProject();
+		List<ISVDBIndex> indexes = index_mgr.getIndexList();
+		final List<ISVDBIndex> probed = new ArrayList<ISVDBIndex>();
+		SVDBIndexRouteTable routes = new SVDBIndexRouteTable();
+
+		for (ISVDBIndex index : indexes) {
+			index.loadIndex(new NullProgressMonitor());
+			routes.addIndex(index);
+		}
+
+		String path = null;
+		for (String p : index_mgr.getFileList(new NullProgressMonitor())) {
+			if (p.endsWith("p1_c.svh")) {
+				path = p;
+				break;
+			}
+		}
+		assertNotNull(path);
+
+		final String path_f = path;
+		SVDBIndexRouteTable.IFileProbe probe = new SVDBIndexRouteTable.IFileProbe() {
+			public SVDBFile probe(ISVDBIndex index) {
+				probed.add(index);
+				return index.findFile(path_f);
+			}
+		};
+
+		List<SVDBSearchResult<SVDBFile>> result = routes.find(path, indexes, false, false, probe);
+		assertEquals(1, result.size());
+		assertTrue(routes.size() > 0);
+
+		// Only the owning index is probed
+		assertEquals(1, probed.size());
+		assertEquals(result.get(0).getIndex(), probed.get(0));
+
+		// A path held by none of the indexes is only searched once
+		probed.clear();
+		final String missing = path.replace("p1_c.svh", "missing.svh");
+		probe = new SVDBIndexRouteTable.IFileProbe() {
+			public SVDBFile probe(ISVDBIndex index) {
+				probed.add(index);
+				return index.findFile(missing);
+			}
+		};
+		assertEquals(0, routes.find(missing, indexes, false, false, probe).size());
+		assertEquals(indexes.size(), probed.size());
+
+		probed.clear();
+		assertEquals(0, routes.find(missing, indexes, false, false, probe).size());
+		assertEquals(0, probed.size());
+
+		// A full probe does not trust the remembered miss
+		probed.clear();
+		assertEquals(0, routes.find(missing, indexes, false, true, probe).size());
+		assertEquals(indexes.size(), probed.size());
+
+		// Rebuilding an index drops its routes
+		probed.clear();
+		indexes.get(0).rebuildIndex(new NullProgressMonitor());
+		assertEquals(0, routes.find(missing, indexes, false, false, probe).size());
+		assertEquals(indexes.size(), probed.size());
+	}
+
+	public void testCollectionFindFile() throws CoreException {
+		SVDBIndexCollection index_mgr = setupProject();
+
+		for (String path : index_mgr.getFileList(new NullProgressMonitor())) {
+			List<SVDBSearchResult<SVDBFile>> result = index_mgr.findFile(path, false);
+			assertEquals(path, 1, result.size());
+			assertNotNull(index_mgr.findFile(new NullProgressMonitor(), path));
+
+			// The second lookup is routed
+			result = index_mgr.findPreProcFile(path, false);
+			assertEquals(path, 1, result.size());
+		}
+
+		assertEquals(0, index_mgr.findFile("/no/such/file.sv", false).size());
+		assertEquals(0, index_mgr.findFile("/no/such/file.sv", false).size());
+	}
+
+	private SVDBIndexCollection setupProject() throws CoreException {
+		SVDBProjectManager pmgr = SVCorePlugin.getDefault().getProjMgr();
+
+		IProject p1 = TestUtils.setupIndexWSProject(
+				null, fTmpDir, "p1",
+				"/data/index/arg_file_cross_index_ref/p1");
+
+		SVDBProjectData p1_pdata = pmgr.getProjectData(p1);
+		SVProjectFileWrapper p1_fwrapper = p1_pdata.getProjectFileWrapper();
+		p1_fwrapper.addArgFilePath("${workspace_loc}/p1/p1/p1.f");
+		p1_pdata.setProjectFileWrapper(p1_fwrapper);
+
+		return p1_pdata.getProjectIndexMgr();
+	}
+
+}
@@ -0,0 +1,125 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.tests.index;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+import net.sf.sveditor.core.SVMarkerPropagationJob;
+import net.sf.sveditor.core.tests.utils.TestUtils;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+
+public class TestMarkerPropagation extends TestCase {
+	private File				fTmpDir;
+	private IProject			fProject;
+
+	@Override
+	protected void setUp() throws Exception {
+		fTmpDir = TestUtils.createTempDir();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (fProject != null) {
+			TestUtils.deleteProject(fProject);
+		}
+		if (fTmpDir != null && fTmpDir.exists()) {
+			TestUtils.delete(fTmpDir);
+		}
+	}
+
+	public void testOnlyChangedMarkersUpdated() throws Exception {
+		fProject = TestUtils.createProject("marker_p", new File(fTmpDir, "marker_p"));
+		IFile file = fProject.getFile("file.sv");
+		TestUtils.copy("module m;\nendmodule\n", file);
+
+		SVMarkerPropagationJob job = new SVMarkerPropagationJob();
+
+		job.clearMarkers(file);
+		job.addMarker(file, IMarker.SEVERITY_ERROR, 1, "error 1");
+		job.addMarker(file, IMarker.SEVERITY_WARNING, 2, "warning 2");
+		job.join();
+
+		IMarker markers[] = getMarkers(file);
+		assertEquals(2, markers.length);
+		IMarker error_1 = find(markers, "error 1");
+		assertNotNull(error_1);
+		assertEquals(IMarker.SEVERITY_ERROR, error_1.getAttribute(IMarker.SEVERITY, -1));
+		assertEquals(1, error_1.getAttribute(IMarker.LINE_NUMBER, -1));
+
+		// Re-propagate with one marker changed
+		job.clearMarkers(file);
+		job.addMarker(file, IMarker.SEVERITY_ERROR, 1, "error 1");
+		job.addMarker(file, IMarker.SEVERITY_WARNING, 3, "warning 3");
+		job.join();
+
+		markers = getMarkers(file);
+		assertEquals(2, markers.length);
+		assertNotNull(find(markers, "warning 3"));
+		assertNull(find(markers, "warning 2"));
+
+		// The unchanged marker is kept, rather than re-created
+		assertEquals(error_1.getId(), find(markers, "error 1").getId());
+
+		// Clearing with no new markers removes them all
+		job.clearMarkers(file);
+		job.join();
+		assertEquals(0, getMarkers(file).length);
+	}
+
+	public void testManyMarkers() throws Exception {
+		fProject = TestUtils.createProject("marker_p", new File(fTmpDir, "marker_p"));
+		IFile files[] = new IFile[4];
+
+		for (int i=0; i<files.length; i++) {
+			files[i] = fProject.getFile("file" + i + ".sv");
+			TestUtils.copy("module m" + i + ";\nendmodule\n", files[i]);
+		}
+
+		// More markers than are applied by a single batch
+		SVMarkerPropagationJob job = new SVMarkerPropagationJob();
+		for (IFile file : files) {
+			job.clearMarkers(file);
+			for (int i=0; i<1000; i++) {
+				job.addMarker(file, IMarker.SEVERITY_WARNING, i+1, "warning " + i);
+			}
+		}
+
+		while (job.getState() != SVMarkerPropagationJob.NONE) {
+			job.join();
+		}
+
+		for (IFile file : files) {
+			assertEquals(file.getName(), 1000, getMarkers(file).length);
+		}
+	}
+
+	private static IMarker[] getMarkers(IFile file) throws CoreException {
+		return file.findMarkers(IMarker.PROBLEM, true, IResource.DEPTH_ZERO);
+	}
+
+	private static IMarker find(IMarker markers[], String msg) {
+		for (IMarker m : markers) {
+			if (msg.equals(m.getAttribute(IMarker.MESSAGE, ""))) {
+				return m;
+			}
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,134 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.tests.index;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.File;
+
+import junit.framework.TestCase;
+import net.sf.sveditor.core.SVCorePlugin;
+import net.sf.sveditor.core.SVFileUtils;
+import net.sf.sveditor.core.db.SVDBItemType;
+import net.sf.sveditor.core.db.index.cache.SVDBArchiveFS;
+import net.sf.sveditor.core.db.index.cache.SVDBDirFS;
+import net.sf.sveditor.core.db.index.cache.SVDBFileIndexCache;
+import net.sf.sveditor.core.db.index.plugin_lib.SVDBPluginLibDescriptor;
+import net.sf.sveditor.core.db.index.plugin_lib.SVDBPluginLibIndex;
+import net.sf.sveditor.core.db.index.plugin_lib.SVDBPluginLibIndexImage;
+import net.sf.sveditor.core.tests.utils.TestUtils;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+public class TestPluginLibIndexImage extends TestCase {
+
+	private File			fTmpDir;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fTmpDir = TestUtils.createTempDir();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		if (fTmpDir != null && fTmpDir.exists()) {
+			TestUtils.delete(fTmpDir);
+		}
+	}
+
+	public void testArchiveFSOverlay() throws Exception {
+		File src = new File(fTmpDir, "src");
+		File img = new File(fTmpDir, "test.svdbimg");
+		File overlay = new File(fTmpDir, "overlay");
+
+		SVDBDirFS src_fs = new SVDBDirFS(src);
+		src_fs.mkdirs("a");
+		SVFileUtils.writeToFile(new File(src, "index"), "index content");
+		SVFileUtils.writeToFile(new File(src, "a/file"), "file content");
+		SVFileUtils.writeToFile(new File(src, "a/fileTreeMap"), "file tree content");
+
+		SVDBArchiveFS.writeImage(src, img, "1.0");
+		assertEquals("1.0", SVDBArchiveFS.readVersion(img));
+
+		SVDBArchiveFS fs = new SVDBArchiveFS(img, new SVDBDirFS(overlay));
+		assertEquals("1.0", fs.getVersion());
+		assertTrue(fs.fileExists("a/file"));
+		assertEquals("file content", readString(fs, "a/file"));
+
+		// Writes go to the overlay and mask the image content
+		DataOutput out = fs.openDataOutput("index");
+		out.write("new index".getBytes());
+		fs.closeOutput(out);
+		assertEquals("new index", readString(fs, "index"));
+		assertTrue(new File(overlay, "index").isFile());
+
+		// Deleted image content is no longer visible
+		fs.delete(new NullProgressMonitor(), "a/file");
+		assertFalse(fs.fileExists("a/file"));
+		assertTrue(fs.fileExists("a/fileTreeMap"));
+
+		// Clearing the cache discards the image
+		fs.delete(new NullProgressMonitor(), "");
+		assertFalse(fs.fileExists("a/fileTreeMap"));
+	}
+
+	public void testPluginLibFromImage() throws Exception {
+		SVDBPluginLibDescriptor ovm = null;
+		for (SVDBPluginLibDescriptor d : SVCorePlugin.getDefault().getPluginLibList()) {
+			if (d.getId().equals("org.ovmworld.ovm")) {
+				ovm = d;
+				break;
+			}
+		}
+		assertNotNull("Failed to find OVM library", ovm);
+
+		File img = SVDBPluginLibIndexImage.build(new NullProgressMonitor(), ovm, fTmpDir);
+		assertTrue(img.isFile());
+		assertEquals(SVDBPluginLibIndexImage.getVersion(ovm),
+				SVDBArchiveFS.readVersion(img));
+
+		File overlay = new File(fTmpDir, "overlay");
+		SVDBArchiveFS fs = new SVDBArchiveFS(img, new SVDBDirFS(overlay));
+		SVDBPluginLibIndex index = new SVDBPluginLibIndex("GLOBAL",
+				ovm.getNamespace(), ovm.getPath(), new SVDBFileIndexCache(fs));
+
+		index.init(new NullProgressMonitor());
+		index.loadIndex(new NullProgressMonitor());
+
+		IndexTests.assertContains(index, "ovm_component", SVDBItemType.ClassDecl);
+		IndexTests.assertContains(index, "ovm_sequence", SVDBItemType.ClassDecl);
+
+		// Nothing is re-parsed, so nothing is written to the overlay
+		File overlay_files[] = overlay.listFiles();
+		assertTrue("Library was re-parsed",
+				(overlay_files == null || overlay_files.length == 0));
+	}
+
+	private static String readString(SVDBArchiveFS fs, String path) throws Exception {
+		DataInput in = fs.openDataInput(path);
+		StringBuilder sb = new StringBuilder();
+		try {
+			while (true) {
+				sb.append((char)in.readByte());
+			}
+		} catch (EOFException e) {}
+		fs.closeInput(in);
+
+		return sb.toString();
+	}
+
+}
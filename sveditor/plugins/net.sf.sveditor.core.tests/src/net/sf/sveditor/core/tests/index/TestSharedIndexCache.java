@@ -0,0 +1,149 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.tests.index;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+import net.sf.sveditor.core.SVFileUtils;
+import net.sf.sveditor.core.db.SVDBFile;
+import net.sf.sveditor.core.db.SVDBItemType;
+import net.sf.sveditor.core.db.index.ISVDBIndex;
+import net.sf.sveditor.core.db.index.SVDBArgFileIndex;
+import net.sf.sveditor.core.db.index.SVDBFSFileSystemProvider;
+import net.sf.sveditor.core.db.index.cache.SVDBDirFS;
+import net.sf.sveditor.core.db.index.cache.SVDBSharedFileStore;
+import net.sf.sveditor.core.db.index.cache.SVDBSharedIndexCache;
+import net.sf.sveditor.core.tests.utils.TestUtils;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+public class TestSharedIndexCache extends TestCase {
+	private static final String			CLS_CONTENT =
+		"`ifdef SHARED_EXT\n" +
+		"class shared_cls_ext;\n" +
+		"`else\n" +
+		"class shared_cls;\n" +
+		"`endif\n" +
+		"	int a;\n" +
+		"endclass\n";
+
+	private File			fTmpDir;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fTmpDir = TestUtils.createTempDir();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+
+		if (fTmpDir != null && fTmpDir.exists()) {
+			TestUtils.delete(fTmpDir);
+		}
+	}
+
+	public void testIdenticalContentShared() throws Exception {
+		SVDBSharedFileStore store = new SVDBSharedFileStore(new File(fTmpDir, "store"));
+
+		SVDBSharedIndexCache cache1 = createCache("cache1", store);
+		SVDBSharedIndexCache cache2 = createCache("cache2", store);
+		ISVDBIndex index1 = createIndex("p1", "", cache1);
+		ISVDBIndex index2 = createIndex("p2", "", cache2);
+
+		IndexTests.assertContains(index1, "shared_cls", SVDBItemType.ClassDecl);
+		IndexTests.assertContains(index2, "shared_cls", SVDBItemType.ClassDecl);
+
+		// Both files are bound to a single entry
+		File entry = getSingleEntry(store);
+		String key = entry.getParentFile().getName() + "/" + entry.getName();
+		assertEquals(2, store.getRefCount(key));
+
+		// Each index sees the file under its own path
+		String path2 = new File(fTmpDir, "p2/cls.svh").getAbsolutePath();
+		SVDBFile file2 = index2.findFile(path2);
+		assertNotNull(file2);
+		assertEquals(path2, file2.getFilePath());
+
+		// Unreferenced entries are collected
+		cache1.clear(new NullProgressMonitor());
+		assertEquals(0, store.gc());
+		cache2.clear(new NullProgressMonitor());
+		// Pinned entries, pending write-back by a cache, are kept
+		store.pin(key);
+		assertEquals(0, store.gc());
+		assertTrue(entry.exists());
+		store.unpin(key);
+		assertEquals(1, store.gc());
+		assertFalse(entry.exists());
+	}
+
+	public void testMacroEnvironmentSeparatesEntries() throws Exception {
+		SVDBSharedFileStore store = new SVDBSharedFileStore(new File(fTmpDir, "store"));
+
+		ISVDBIndex index1 = createIndex("p1", "", createCache("cache1", store));
+		ISVDBIndex index2 = createIndex("p2", "+define+SHARED_EXT\n",
+				createCache("cache2", store));
+
+		IndexTests.assertContains(index1, "shared_cls", SVDBItemType.ClassDecl);
+		IndexTests.assertContains(index2, "shared_cls_ext", SVDBItemType.ClassDecl);
+
+		String content_key = SVDBSharedFileStore.computeContentKey(CLS_CONTENT.getBytes());
+		String variants[] = new File(store.getRoot(), content_key).list();
+		assertNotNull(variants);
+		assertEquals(2, variants.length);
+	}
+
+	private SVDBSharedIndexCache createCache(String name, SVDBSharedFileStore store) {
+		SVDBDirFS fs = new SVDBDirFS(new File(fTmpDir, name));
+		fs.setEnableAsyncClear(false);
+		return new SVDBSharedIndexCache(fs, store);
+	}
+
+	private ISVDBIndex createIndex(
+			String					name,
+			String					args,
+			SVDBSharedIndexCache	cache) {
+		File dir = new File(fTmpDir, name);
+		assertTrue(dir.mkdirs());
+		SVFileUtils.writeToFile(new File(dir, "cls.svh"), CLS_CONTENT);
+		SVFileUtils.writeToFile(new File(dir, name + ".f"), args + "cls.svh\n");
+
+		ISVDBIndex index = new SVDBArgFileIndex(name,
+				new File(dir, name + ".f").getAbsolutePath(),
+				new SVDBFSFileSystemProvider(), cache, null);
+		index.init(new NullProgressMonitor());
+		index.loadIndex(new NullProgressMonitor());
+
+		return index;
+	}
+
+	private static File getSingleEntry(SVDBSharedFileStore store) {
+		File entry = null;
+
+		for (File content_d : store.getRoot().listFiles()) {
+			if (content_d.isDirectory()) {
+				for (File env_d : content_d.listFiles()) {
+					assertNull("More than one shared entry", entry);
+					entry = env_d;
+				}
+			}
+		}
+		assertNotNull("No shared entry", entry);
+
+		return entry;
+	}
+
+}
@@ -40,6 +40,8 @@ import net.sf.sveditor.core.db.index.SVDBIndexRegistry;
 import net.sf.sveditor.core.db.persistence.DBFormatException;
 import net.sf.sveditor.core.log.LogFactory;
 import net.sf.sveditor.core.log.LogHandle;
+import net.sf.sveditor.core.metrics.MetricsHistogram;
+import net.sf.sveditor.core.metrics.MetricsRegistry;
 import net.sf.sveditor.core.preproc.SVPreProcDirectiveScanner;
 import net.sf.sveditor.core.preproc.SVPreProcOutput;
 import net.sf.sveditor.core.preproc.SVPreProcessor;
@@ -47,6 +49,7 @@ import net.sf.sveditor.core.tests.IndexTestUtils;
 import net.sf.sveditor.core.tests.SVCoreTestsPlugin;
 import net.sf.sveditor.core.tests.SVDBTestUtils;
 import net.sf.sveditor.core.tests.TestIndexCacheFactory;
+import net.sf.sveditor.core.tests.index.IndexTests;
 import net.sf.sveditor.core.tests.utils.BundleUtils;
 import net.sf.sveditor.core.tests.utils.TestUtils;
 
@@ -642,6 +645,85 @@ public class ArgFilePersistence extends TestCase
 		LogFactory.removeLogHandle(log);
 	}
 
+	public void testNestedArgFileReload() {
+		String testname = "testNestedArgFileReload";
+		SVCorePlugin.getDefault().enableDebug(false);
+		LogHandle log = LogFactory.getLogHandle(testname);
+		MetricsHistogram scan_h = MetricsRegistry.histogram(MetricsRegistry.INDEX_ARGFILE_SCAN);
+		MetricsHistogram parse_h = MetricsRegistry.histogram(MetricsRegistry.INDEX_FILE_PARSE);
+		String base = "${workspace_loc}/" + testname + "/top.f";
+		
+		fProject = TestUtils.createProject(testname);
+		
+		StringBuilder top_f = new StringBuilder();
+		for (int i=0; i<4; i++) {
+			top_f.append("-f sub_" + i + ".f\n");
+			TestUtils.copy(
+					"module_" + i + ".sv\n",
+					fProject.getFile("sub_" + i + ".f"));
+			TestUtils.copy(
+					"module module_" + i + ";\n" +
+					"endmodule\n",
+					fProject.getFile("module_" + i + ".sv"));
+		}
+		TestUtils.copy(top_f.toString(), fProject.getFile("top.f"));
+		TestUtils.copy(
+				"module module_extra;\n" +
+				"endmodule\n",
+				fProject.getFile("module_extra.sv"));
+		
+		SVDBIndexRegistry rgy = SVCorePlugin.getDefault().getSVDBIndexRegistry();
+		rgy.init(TestIndexCacheFactory.instance(fTmpDir));
+		
+		ISVDBIndex index = rgy.findCreateIndex(new NullProgressMonitor(), "GENERIC", 
+				base, SVDBArgFileIndexFactory.TYPE, null);
+		index.loadIndex(new NullProgressMonitor());
+		IndexTests.assertContains(index, "module_2", SVDBItemType.ModuleDecl);
+		
+		rgy.save_state();
+		
+		// Reloading an unchanged index from the cache reads nothing
+		rgy.init(TestIndexCacheFactory.instance(fTmpDir));
+		long n_scan = scan_h.getCount();
+		long n_parse = parse_h.getCount();
+		
+		index = rgy.findCreateIndex(new NullProgressMonitor(), "GENERIC", 
+				base, SVDBArgFileIndexFactory.TYPE, null);
+		index.loadIndex(new NullProgressMonitor());
+		IndexTests.assertContains(index, "module_2", SVDBItemType.ModuleDecl);
+		
+		assertEquals("argument files scanned", n_scan, scan_h.getCount());
+		assertEquals("files parsed", n_parse, parse_h.getCount());
+		
+		rgy.save_state();
+		rgy.init(TestIndexCacheFactory.instance(fTmpDir));
+		
+		// Sleep to ensure that the timestamp is different
+		try {
+			Thread.sleep(2000);
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+		
+		// Only the changed argument file is scanned again
+		TestUtils.copy(
+				"module_2.sv\n" +
+				"module_extra.sv\n",
+				fProject.getFile("sub_2.f"));
+		n_scan = scan_h.getCount();
+		
+		index = rgy.findCreateIndex(new NullProgressMonitor(), "GENERIC", 
+				base, SVDBArgFileIndexFactory.TYPE, null);
+		index.loadIndex(new NullProgressMonitor());
+		
+		assertEquals("argument files scanned", n_scan+1, scan_h.getCount());
+		IndexTests.assertContains(index, "module_2", SVDBItemType.ModuleDecl);
+		IndexTests.assertContains(index, "module_extra", SVDBItemType.ModuleDecl);
+		
+		IndexTestUtils.assertNoErrWarn(log, index);
+		LogFactory.removeLogHandle(log);
+	}
+
 	public void index_changed(int reason, SVDBFile file) {}
 
 	public void index_rebuilt() {
@@ -0,0 +1,125 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.tests.log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.sf.sveditor.core.log.AsyncLogListener;
+import net.sf.sveditor.core.log.ILogHandle;
+import net.sf.sveditor.core.log.ILogLevel;
+import net.sf.sveditor.core.log.ILogListener;
+import net.sf.sveditor.core.log.LogHandle;
+
+public class LogTests extends TestCase {
+	
+	public static TestSuite suite() {
+		TestSuite s = new TestSuite("LogTests");
+		s.addTest(new TestSuite(LogTests.class));
+		return s;
+	}
+	
+	private static class RecordingListener implements ILogListener {
+		List<String>		fMessages = new ArrayList<String>();
+		
+		public synchronized void message(ILogHandle handle, int type, int level, String message) {
+			fMessages.add(message);
+		}
+	}
+	
+	private static class CountingObject {
+		int					fCount;
+		
+		@Override
+		public String toString() {
+			fCount++;
+			return "obj";
+		}
+	}
+	
+	public void testDisabledDebug() {
+		RecordingListener l = new RecordingListener();
+		LogHandle log = new LogHandle("testDisabledDebug");
+		log.init(l);
+		CountingObject obj = new CountingObject();
+		
+		log.setDebugLevel(ILogLevel.LEVEL_OFF);
+		log.debug("msg");
+		log.debug(ILogLevel.LEVEL_MIN, "msg");
+		log.debugf("msg %s", obj);
+		log.debugf(ILogLevel.LEVEL_MIN, "msg %s %s", obj, obj);
+		log.error("error");
+		
+		assertEquals(0, obj.fCount);
+		assertEquals(1, l.fMessages.size());
+		assertEquals("error", l.fMessages.get(0));
+		
+		l.fMessages.clear();
+		log.setDebugLevel(ILogLevel.LEVEL_MIN);
+		log.debugf(ILogLevel.LEVEL_MIN, "msg %s %d", obj, 1);
+		log.debugf(ILogLevel.LEVEL_MID, "msg %s", obj);
+		log.debugf("msg %s", obj);
+		
+		assertEquals(1, obj.fCount);
+		assertEquals(1, l.fMessages.size());
+		assertEquals("msg obj 1", l.fMessages.get(0));
+	}
+	
+	public void testAsyncListener() throws InterruptedException {
+		final RecordingListener l = new RecordingListener();
+		// Small buffer, so that logging threads wait for the writer
+		final AsyncLogListener async_l = new AsyncLogListener(l, 16);
+		final int n_threads = 4;
+		final int n_messages = 2000;
+		Thread threads[] = new Thread[n_threads];
+		
+		for (int i=0; i<n_threads; i++) {
+			final int id = i;
+			threads[i] = new Thread(new Runnable() {
+				public void run() {
+					for (int j=0; j<n_messages; j++) {
+						async_l.message(null, ILogListener.Type_Debug, 
+								ILogLevel.LEVEL_MIN, id + ":" + j);
+					}
+				}
+			});
+			threads[i].start();
+		}
+		
+		for (Thread t : threads) {
+			t.join();
+		}
+		async_l.flush();
+		
+		assertEquals(n_threads*n_messages, l.fMessages.size());
+		
+		// Messages from each thread are delivered in order
+		int next[] = new int[n_threads];
+		for (String msg : l.fMessages) {
+			int id = Integer.parseInt(msg.substring(0, msg.indexOf(':')));
+			int idx = Integer.parseInt(msg.substring(msg.indexOf(':')+1));
+			assertEquals(next[id], idx);
+			next[id]++;
+		}
+		
+		async_l.dispose();
+		
+		// Delivered directly once disposed
+		l.fMessages.clear();
+		async_l.message(null, ILogListener.Type_Debug, ILogLevel.LEVEL_MIN, "msg");
+		assertEquals(1, l.fMessages.size());
+	}
+
+}
@@ -0,0 +1,95 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.tests.metrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.sf.sveditor.core.metrics.MetricsCounter;
+import net.sf.sveditor.core.metrics.MetricsHistogram;
+import net.sf.sveditor.core.metrics.MetricsRegistry;
+
+public class MetricsTests extends TestCase {
+	
+	public static TestSuite suite() {
+		TestSuite s = new TestSuite("MetricsTests");
+		s.addTest(new TestSuite(MetricsTests.class));
+		return s;
+	}
+	
+	public void testCounters() {
+		MetricsRegistry reg = new MetricsRegistry();
+		MetricsCounter c = reg.getCounter("c");
+		
+		assertSame(c, reg.getCounter("c"));
+		c.inc();
+		c.add(4);
+		assertEquals(5, reg.getCounter("c").get());
+		
+		reg.getCounter("cache.hit").add(3);
+		reg.getCounter("cache.miss").add(1);
+		assertEquals(0.75, reg.getHitRatio("cache"), 0.0001);
+		
+		reg.reset();
+		assertEquals(0, c.get());
+		assertEquals(0.0, reg.getHitRatio("cache"), 0.0001);
+	}
+	
+	public void testHistogram() {
+		MetricsHistogram h = new MetricsHistogram("h");
+		
+		assertEquals(0, h.getCount());
+		assertEquals(0, h.getPercentile(50));
+		
+		for (int i=1; i<=100; i++) {
+			h.record(i);
+		}
+		
+		assertEquals(100, h.getCount());
+		assertEquals(5050, h.getSum());
+		assertEquals(1, h.getMin());
+		assertEquals(100, h.getMax());
+		assertEquals(50, h.getMean());
+		
+		// Percentiles are bucketed to within a factor of two
+		long p50 = h.getPercentile(50);
+		assertTrue("p50=" + p50, p50 >= 50 && p50 <= 100);
+		assertEquals(100, h.getPercentile(100));
+		
+		long start = h.start();
+		long elapsed = h.stop(start);
+		assertTrue(elapsed >= 0);
+		assertEquals(101, h.getCount());
+	}
+	
+	public void testDump() {
+		MetricsRegistry reg = new MetricsRegistry();
+		reg.getCounter("cache.hit").add(1);
+		reg.getCounter("cache.miss").add(1);
+		reg.getHistogram("time").record(10);
+		
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		PrintStream ps = new PrintStream(bos);
+		reg.dump(ps);
+		ps.flush();
+		String out = bos.toString();
+		
+		assertTrue(out, out.contains("counter cache.hit 1"));
+		assertTrue(out, out.contains("counter cache.miss 1"));
+		assertTrue(out, out.contains("ratio cache.hit_ratio 0.500"));
+		assertTrue(out, out.contains("histogram time count=1 sum=10 min=10"));
+	}
+
+}
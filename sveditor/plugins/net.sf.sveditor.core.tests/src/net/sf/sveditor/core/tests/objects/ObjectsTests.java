@@ -13,6 +13,7 @@
 package net.sf.sveditor.core.tests.objects;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 
 import junit.framework.Test;
@@ -24,8 +25,10 @@ import net.sf.sveditor.core.db.index.SVDBIndexCollection;
 import net.sf.sveditor.core.db.project.SVDBProjectData;
 import net.sf.sveditor.core.db.project.SVDBProjectManager;
 import net.sf.sveditor.core.db.project.SVProjectFileWrapper;
+import net.sf.sveditor.core.objects.IObjectsTreeBuildListener;
 import net.sf.sveditor.core.objects.ObjectsTreeFactory;
 import net.sf.sveditor.core.objects.ObjectsTreeNode;
+import net.sf.sveditor.core.objects.ObjectsTreePackageNode;
 import net.sf.sveditor.core.tests.CoreReleaseTests;
 import net.sf.sveditor.core.tests.utils.TestUtils;
 
@@ -48,6 +51,7 @@ public class ObjectsTests extends TestCase {
 	private ObjectsTreeNode 		fTopNode ;
 	private	ObjectsTreeNode 		fpkgsNode=null, fmodulesNode=null, finterfacesNode=null ;
 	private	ObjectsTreeNode 		fpkgA=null, fpkgB=null, fpkgRoot=null ;
+	private List<ISVDBIndex>		fAllProjIndexList ;
 	
 	@Override
 	protected void setUp() throws Exception {
@@ -96,6 +100,7 @@ public class ObjectsTests extends TestCase {
 		List<ISVDBIndex> allProjIndexList = p1_index.getIndexList() ;
 		
 		allProjIndexList.addAll(p2_index.getIndexList()) ;
+		fAllProjIndexList = allProjIndexList ;
 		
 		ObjectsTreeFactory of = new ObjectsTreeFactory(allProjIndexList) ;
 		
@@ -201,4 +206,62 @@ public class ObjectsTests extends TestCase {
 	
 	}
 
+	public void testBackgroundBuild() throws Exception {
+		final List<ISVDBIndex> contributions = new ArrayList<ISVDBIndex>() ;
+		final boolean complete[] = new boolean[1] ;
+		
+		ObjectsTreeFactory of = new ObjectsTreeFactory(fAllProjIndexList) ;
+		ObjectsTreeNode top = of.build(new IObjectsTreeBuildListener() {
+			public void contributionAdded(ObjectsTreeNode topNode, ISVDBIndex index) {
+				synchronized(contributions) {
+					contributions.add(index) ;
+				}
+			}
+			public void buildComplete(ObjectsTreeNode topNode, boolean cancelled) {
+				synchronized(complete) {
+					complete[0] = true ;
+					complete.notifyAll() ;
+				}
+			}
+		}) ;
+		
+		// Top-level nodes are available before the build completes
+		assertNotNull(top) ;
+		assertNotNull(top.getChildByName(ObjectsTreeNode.PACKAGES_NODE)) ;
+		assertNotNull(top.getChildByName(ObjectsTreeNode.MODULES_NODE)) ;
+		assertNotNull(top.getChildByName(ObjectsTreeNode.INTERFACES_NODE)) ;
+		
+		synchronized(complete) {
+			long end = System.currentTimeMillis() + 30000 ;
+			while(!complete[0] && System.currentTimeMillis() < end) {
+				complete.wait(1000) ;
+			}
+		}
+		assertTrue("build did not complete", complete[0]) ;
+		// Contributions are merged in index order
+		assertEquals(fAllProjIndexList, contributions) ;
+		
+		ObjectsTreeNode pkgA = top.getChildByName(ObjectsTreeNode.PACKAGES_NODE).getChildByName("pkgA") ;
+		assertNotNull("pkg A not found", pkgA) ;
+		assertTrue(pkgA instanceof ObjectsTreePackageNode) ;
+		
+		// Package content is collected on first access
+		assertFalse(((ObjectsTreePackageNode)pkgA).isExpanded()) ;
+		assertTrue(pkgA.hasChildren()) ;
+		assertNotNull("class cA not found in pkgA", pkgA.getChildByName("cA")) ;
+		assertTrue(((ObjectsTreePackageNode)pkgA).isExpanded()) ;
+	}
+	
+	public void testCancelledBuild() throws CoreException {
+		ObjectsTreeFactory of = new ObjectsTreeFactory(fAllProjIndexList) ;
+		of.cancel() ;
+		
+		ObjectsTreeNode top = of.build() ;
+		
+		assertTrue(of.isCancelled()) ;
+		assertNotNull(top) ;
+		assertEquals(0, top.getChildByName(ObjectsTreeNode.MODULES_NODE).getChildren().size()) ;
+		assertEquals(0, top.getChildByName(ObjectsTreeNode.INTERFACES_NODE).getChildren().size()) ;
+	}
+
 }
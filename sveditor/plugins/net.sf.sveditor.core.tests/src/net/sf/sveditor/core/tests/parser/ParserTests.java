@@ -56,6 +56,10 @@ public class ParserTests extends TestSuite {
 		s.addTest(new TestSuite(TestParseAssertions.class));
 		s.addTest(new TestSuite(TestParseBind.class));
 		s.addTest(new TestSuite(TestParseCovergroups.class));
+		s.addTest(new TestSuite(TestSVDBFileTreeDiff.class));
+		s.addTest(new TestSuite(TestSemanticHighlighting.class));
+		s.addTest(new TestSuite(TestParallelParse.class));
+		s.addTest(new TestSuite(TestSkimParse.class));
 		
 		return s;
 	}
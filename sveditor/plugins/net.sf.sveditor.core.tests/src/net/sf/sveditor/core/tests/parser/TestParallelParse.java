@@ -0,0 +1,222 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.tests.parser;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.sf.sveditor.core.StringInputStream;
+import net.sf.sveditor.core.db.ISVDBChildItem;
+import net.sf.sveditor.core.db.ISVDBChildParent;
+import net.sf.sveditor.core.db.ISVDBEndLocation;
+import net.sf.sveditor.core.db.SVDBFile;
+import net.sf.sveditor.core.db.SVDBItem;
+import net.sf.sveditor.core.db.SVDBMacroDef;
+import net.sf.sveditor.core.db.SVDBMarker;
+import net.sf.sveditor.core.parser.ParserSVDBFileFactory;
+import net.sf.sveditor.core.parser.SVTopLevelScanner;
+import net.sf.sveditor.core.scanner.IPreProcMacroProvider;
+import net.sf.sveditor.core.scanner.SVPreProcDefineProvider;
+
+public class TestParallelParse extends TestCase {
+
+	public void testItemBoundaries() {
+		String content =
+			"typedef class c2;\n" +
+			"module m1(input a);\n" +
+			"  string s = \"endmodule\";\n" +
+			"  virtual interface i1 vif;\n" +
+			"endmodule : m1\n" +
+			"package p1;\n" +
+			"  class c1;\n" +
+			"  endclass\n" +
+			"endpackage\n" +
+			"interface class ic1;\n" +
+			"endclass\n" +
+			"extern module m2(input a);\n";
+		List<Integer> boundaries = SVTopLevelScanner.findItemBoundaries(content);
+
+		assertEquals(3, boundaries.size());
+		assertEquals(content.indexOf("endmodule : m1") + "endmodule : m1".length(),
+				(int)boundaries.get(0));
+		assertEquals(content.indexOf("endpackage") + "endpackage".length(),
+				(int)boundaries.get(1));
+		assertEquals(content.lastIndexOf("endclass") + "endclass".length(),
+				(int)boundaries.get(2));
+	}
+
+	public void testUnbalancedNotSplit() {
+		String content =
+			"module m1;\n" +
+			"endmodule\n" +
+			"module m2;\n" +
+			"endclass\n";
+
+		assertEquals(0, SVTopLevelScanner.findItemBoundaries(content).size());
+	}
+
+	public void testParallelMatchesSequential() {
+		String content = createContent(400, -1);
+		List<SVDBMarker> seq_markers = new ArrayList<SVDBMarker>();
+		List<SVDBMarker> par_markers = new ArrayList<SVDBMarker>();
+
+		SVDBFile seq = parse(content, 0, seq_markers);
+		SVDBFile par = parse(content, 1, par_markers);
+
+		assertEquals(0, seq_markers.size());
+		assertEquals(0, par_markers.size());
+		assertEquals(800, count(seq));
+		assertItemsEqual(seq, par);
+	}
+
+	public void testParseErrorMatchesSequential() {
+		checkMatchesSequential(createContent(400, 300));
+	}
+
+	public void testTopLevelErrorMatchesSequential() {
+		// Parsing stops at an unknown top-level element
+		String content = createContent(400, -1);
+		int idx = content.indexOf("module m300");
+		content = content.substring(0, idx) + "+ + ;\n" + content.substring(idx);
+
+		checkMatchesSequential(content);
+	}
+
+	public void testErrorAtPieceBoundaryMatchesSequential() {
+		String content = createContent(400, -1);
+		List<Integer> splits = ParserSVDBFileFactory.findParallelSplitPoints(content);
+		assertTrue(splits.size() > 0);
+		int split = splits.get(0);
+		int fn_end = content.lastIndexOf("  endfunction\n", split);
+
+		// Unexpected tokens after the end label of the last item of a piece
+		checkInsertMatchesSequential(content, split, split, " + ;");
+		// Unknown element at the start of the next piece
+		checkInsertMatchesSequential(content, split, split, "\n+ + ;");
+		// Error in the last item of a piece
+		checkInsertMatchesSequential(content, split, fn_end, "    f = ;\n");
+		// Function left open in the last item of a piece
+		String open_fn = content.substring(0, fn_end) +
+				content.substring(fn_end + "  endfunction\n".length());
+		assertTrue(ParserSVDBFileFactory.findParallelSplitPoints(open_fn).contains(
+				split - "  endfunction\n".length()));
+		checkMatchesSequential(open_fn);
+	}
+
+	/**
+	 * Inserts 'text' at 'offset', at or before the split point 'split'
+	 * of 'content', and checks that the parallel parse matches
+	 */
+	private void checkInsertMatchesSequential(
+			String content, int split, int offset, String text) {
+		content = content.substring(0, offset) + text + content.substring(offset);
+		if (offset < split) {
+			split += text.length();
+		}
+
+		// The file is still split next to the error
+		assertTrue(ParserSVDBFileFactory.findParallelSplitPoints(content).contains(split));
+
+		checkMatchesSequential(content);
+	}
+
+	private void checkMatchesSequential(String content) {
+		List<SVDBMarker> seq_markers = new ArrayList<SVDBMarker>();
+		List<SVDBMarker> par_markers = new ArrayList<SVDBMarker>();
+
+		SVDBFile seq = parse(content, 0, seq_markers);
+		SVDBFile par = parse(content, 1, par_markers);
+
+		assertTrue(seq_markers.size() > 0);
+		assertEquals(seq_markers.size(), par_markers.size());
+		for (int i=0; i<seq_markers.size(); i++) {
+			assertEquals(seq_markers.get(i).getMessage(), par_markers.get(i).getMessage());
+			assertEquals(seq_markers.get(i).getLocation(), par_markers.get(i).getLocation());
+		}
+		assertItemsEqual(seq, par);
+	}
+
+	private static String createContent(int n_items, int error_item) {
+		StringBuilder sb = new StringBuilder();
+
+		for (int i=0; i<n_items; i++) {
+			sb.append("module m" + i + "(input clk, output reg [7:0] q);\n");
+			sb.append("  always @(posedge clk) begin\n");
+			sb.append("    q <= q + " + i + ";\n");
+			if (i == error_item) {
+				sb.append("    q <= ;\n");
+			}
+			sb.append("  end\n");
+			sb.append("endmodule\n");
+			sb.append("\n");
+			sb.append("class c" + i + ";\n");
+			sb.append("  int f" + i + ";\n");
+			sb.append("  function void set(int v);\n");
+			sb.append("    f" + i + " = v;\n");
+			sb.append("  endfunction\n");
+			sb.append("endclass : c" + i + "\n");
+		}
+
+		return sb.toString();
+	}
+
+	private static SVDBFile parse(String content, int min_size, List<SVDBMarker> markers) {
+		SVPreProcDefineProvider dp = new SVPreProcDefineProvider(new IPreProcMacroProvider() {
+			public void setMacro(String key, String value) {}
+			public void addMacro(SVDBMacroDef macro) {}
+			public SVDBMacroDef findMacro(String name, int lineno) {
+				return null;
+			}
+		});
+		ParserSVDBFileFactory factory = new ParserSVDBFileFactory(dp);
+		factory.setParallelParseMinSize(min_size);
+
+		return factory.parse(new StringInputStream(content), "test.sv", markers);
+	}
+
+	private static int count(ISVDBChildParent p) {
+		int ret = 0;
+		for (Iterator<ISVDBChildItem> it = p.getChildren().iterator(); it.hasNext(); ) {
+			it.next();
+			ret++;
+		}
+		return ret;
+	}
+
+	private static void assertItemsEqual(ISVDBChildItem exp, ISVDBChildItem act) {
+		assertEquals(exp.getType(), act.getType());
+		assertEquals(SVDBItem.getName(exp), SVDBItem.getName(act));
+		assertEquals(exp.getLocation(), act.getLocation());
+
+		if (exp instanceof ISVDBEndLocation) {
+			assertEquals(((ISVDBEndLocation)exp).getEndLocation(),
+					((ISVDBEndLocation)act).getEndLocation());
+		}
+
+		if (exp instanceof ISVDBChildParent) {
+			Iterator<ISVDBChildItem> exp_it = ((ISVDBChildParent)exp).getChildren().iterator();
+			Iterator<ISVDBChildItem> act_it = ((ISVDBChildParent)act).getChildren().iterator();
+
+			while (exp_it.hasNext()) {
+				assertTrue("Missing item after " + SVDBItem.getName(exp), act_it.hasNext());
+				ISVDBChildItem act_c = act_it.next();
+				assertItemsEqual(exp_it.next(), act_c);
+				assertTrue(act_c.getParent() == act);
+			}
+			assertFalse(act_it.hasNext());
+		}
+	}
+
+}
@@ -12,6 +12,9 @@
 
 package net.sf.sveditor.core.tests.parser;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import junit.framework.TestCase;
 import net.sf.sveditor.core.db.ISVDBItemBase;
 import net.sf.sveditor.core.db.SVDBClassDecl;
@@ -19,6 +22,11 @@ import net.sf.sveditor.core.db.SVDBFile;
 import net.sf.sveditor.core.db.SVDBItem;
 import net.sf.sveditor.core.db.SVDBTask;
 import net.sf.sveditor.core.db.SVDBUtil;
+import net.sf.sveditor.core.parser.ParserSVDBFileFactory;
+import net.sf.sveditor.core.parser.SVLexer;
+import net.sf.sveditor.core.parser.SVParseException;
+import net.sf.sveditor.core.parser.SVToken;
+import net.sf.sveditor.core.scanutils.StringTextScanner;
 import net.sf.sveditor.core.tests.SVDBTestUtils;
 
 public class TestParseLineNumbers extends TestCase {
@@ -101,5 +109,35 @@ public class TestParseLineNumbers extends TestCase {
 		assertEquals("Wrong foobar_f2 start location", 10, f2.getLocation().getLine());
 		assertEquals("Wrong foobar_f2 end location", 13, f2.getEndLocation().getLine());
 	}
+	
+	public void testUngetTokenLineNumbers() throws SVParseException {
+		String content =
+			"class foobar;\n" +				// 1
+			"    int a;\n" +					// 2
+			"\n" +							// 3
+			"    int b;\n" +					// 4
+			"endclass\n"						// 5
+			;
+		int lines[] = {1, 1, 1, 2, 2, 2, 4, 4, 4, 5};
+		SVLexer lexer = new SVLexer();
+		lexer.init(new ParserSVDBFileFactory(null), new StringTextScanner(content));
+		
+		List<SVToken> tokens = new ArrayList<SVToken>();
+		for (int i=0; i<lines.length; i++) {
+			SVToken tok = lexer.consumeToken();
+			assertEquals("Wrong line for \"" + tok.getImage() + "\"", 
+					lines[i], tok.getStartLocation().getLine());
+			tokens.add(tok);
+		}
+		
+		// Tokens pushed back report their original locations
+		lexer.ungetToken(tokens.subList(2, tokens.size()));
+		for (int i=2; i<lines.length; i++) {
+			assertEquals(tokens.get(i).getImage(), lexer.peek());
+			assertEquals(lines[i], lexer.getStartLocation().getLine());
+			lexer.eatToken();
+		}
+		assertNull(lexer.peek());
+	}
 
 }
@@ -0,0 +1,264 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.tests.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.sf.sveditor.core.SVCorePlugin;
+import net.sf.sveditor.core.db.ISVDBChildItem;
+import net.sf.sveditor.core.db.ISVDBChildParent;
+import net.sf.sveditor.core.db.ISVDBEndLocation;
+import net.sf.sveditor.core.db.ISVDBItemBase;
+import net.sf.sveditor.core.db.ISVDBScopeItem;
+import net.sf.sveditor.core.db.SVDBFile;
+import net.sf.sveditor.core.db.SVDBItem;
+import net.sf.sveditor.core.db.utils.SVDBFileTreeDiff;
+import net.sf.sveditor.core.db.utils.SVDBSearchUtils;
+import net.sf.sveditor.core.tests.SVDBTestUtils;
+
+public class TestSVDBFileTreeDiff extends TestCase {
+	
+	public void testAddRemove() {
+		SVCorePlugin.getDefault().enableDebug(false);
+		String doc1 = 
+			"class c1;\n" +
+			"	int a;\n" +
+			"	function void f1();\n" +
+			"	endfunction\n" +
+			"endclass\n" +
+			"\n" +
+			"class c2;\n" +
+			"endclass\n"
+			;
+		String doc2 = 
+			"class c1;\n" +
+			"	int a;\n" +
+			"	int b;\n" +
+			"endclass\n" +
+			"\n" +
+			"class c3;\n" +
+			"	int x;\n" +
+			"endclass\n"
+			;
+		
+		SVDBFile f1 = SVDBTestUtils.parse(doc1, "testAddRemove");
+		SVDBFile f2 = SVDBTestUtils.parse(doc2, "testAddRemove");
+		
+		List<ISVDBItemBase> adds = new ArrayList<ISVDBItemBase>();
+		List<ISVDBItemBase> removes = new ArrayList<ISVDBItemBase>();
+		List<ISVDBItemBase> changes = new ArrayList<ISVDBItemBase>();
+		
+		new SVDBFileTreeDiff().diff(f1, f2, adds, removes, changes);
+		
+		// Direct children only: int b is inside a VarDeclStmt
+		assertEquals(getNames(adds), 2, adds.size());
+		assertEquals("c3", SVDBItem.getName(adds.get(1)));
+		
+		// Only the top of a removed sub-tree is reported
+		assertEquals(getNames(removes), 2, removes.size());
+		assertTrue(getNames(removes).contains("f1"));
+		assertTrue(getNames(removes).contains("c2"));
+		
+		assertEquals(0, changes.size());
+	}
+	
+	public void testSameItem() {
+		SVCorePlugin.getDefault().enableDebug(false);
+		String doc1 = 
+			"class c1;\n" +
+			"	function void f1();\n" +
+			"	endfunction\n" +
+			"endclass\n"
+			;
+		String doc2 = 
+			"// Comment moves everything down\n" +
+			"\n" +
+			"class c1;\n" +
+			"	function void f1();\n" +
+			"	endfunction\n" +
+			"endclass\n" +
+			"class c2;\n" +
+			"	function void f1();\n" +
+			"	endfunction\n" +
+			"endclass\n"
+			;
+		
+		SVDBFile f1 = SVDBTestUtils.parse(doc1, "testSameItem");
+		SVDBFile f2 = SVDBTestUtils.parse(doc2, "testSameItem");
+		
+		ISVDBItemBase c1_f1_1 = SVDBSearchUtils.findItemsByName(
+				(ISVDBScopeItem)SVDBSearchUtils.findItemsByName(f1, "c1").get(0), "f1").get(0);
+		ISVDBItemBase c1_f1_2 = SVDBSearchUtils.findItemsByName(
+				(ISVDBScopeItem)SVDBSearchUtils.findItemsByName(f2, "c1").get(0), "f1").get(0);
+		ISVDBItemBase c2_f1_2 = SVDBSearchUtils.findItemsByName(
+				(ISVDBScopeItem)SVDBSearchUtils.findItemsByName(f2, "c2").get(0), "f1").get(0);
+		
+		SVDBFileTreeDiff diff = new SVDBFileTreeDiff();
+		diff.diff(f1, f2, new ArrayList<ISVDBItemBase>(), 
+				new ArrayList<ISVDBItemBase>(), new ArrayList<ISVDBItemBase>());
+		
+		assertTrue(diff.isSameItem(c1_f1_1, c1_f1_2));
+		assertEquals(diff.hashCode(c1_f1_1), diff.hashCode(c1_f1_2));
+		assertSame(c1_f1_2, diff.findCurrent(c1_f1_1));
+		
+		// Same name and type, but in a different scope
+		assertFalse(diff.isSameItem(c1_f1_1, c2_f1_2));
+		
+		// Items of a version of the tree that was not compared are
+		// identified through their parents
+		SVDBFile f3 = SVDBTestUtils.parse(doc1, "testSameItem");
+		ISVDBItemBase c1_f1_3 = SVDBSearchUtils.findItemsByName(
+				(ISVDBScopeItem)SVDBSearchUtils.findItemsByName(f3, "c1").get(0), "f1").get(0);
+		assertTrue(diff.isSameItem(c1_f1_3, c1_f1_2));
+	}
+	
+	public void testSameNameOrdinal() {
+		SVCorePlugin.getDefault().enableDebug(false);
+		String doc1 = 
+			"module m;\n" +
+			"	initial begin\n" +
+			"	end\n" +
+			"	initial begin\n" +
+			"	end\n" +
+			"endmodule\n"
+			;
+		String doc2 = 
+			"module m;\n" +
+			"	initial begin\n" +
+			"	end\n" +
+			"	initial begin\n" +
+			"	end\n" +
+			"	initial begin\n" +
+			"	end\n" +
+			"endmodule\n"
+			;
+		
+		SVDBFile f1 = SVDBTestUtils.parse(doc1, "testSameNameOrdinal");
+		SVDBFile f2 = SVDBTestUtils.parse(doc2, "testSameNameOrdinal");
+		
+		List<ISVDBItemBase> adds = new ArrayList<ISVDBItemBase>();
+		List<ISVDBItemBase> removes = new ArrayList<ISVDBItemBase>();
+		List<ISVDBItemBase> changes = new ArrayList<ISVDBItemBase>();
+		
+		SVDBFileTreeDiff diff = new SVDBFileTreeDiff();
+		diff.diff(f1, f2, adds, removes, changes);
+		
+		// Unnamed items of the same type are matched in order
+		List<ISVDBItemBase> m1 = children(f1, "m");
+		List<ISVDBItemBase> m2 = children(f2, "m");
+		assertEquals(2, m1.size());
+		assertEquals(3, m2.size());
+		
+		assertEquals(1, adds.size());
+		assertSame(m2.get(2), adds.get(0));
+		assertEquals(0, removes.size());
+		
+		assertTrue(diff.isSameItem(m1.get(0), m2.get(0)));
+		assertTrue(diff.isSameItem(m1.get(1), m2.get(1)));
+		assertFalse(diff.isSameItem(m1.get(0), m2.get(1)));
+	}
+	
+	public void testLocationsCopied() {
+		SVCorePlugin.getDefault().enableDebug(false);
+		String doc1 = 
+			"class c1;\n" +
+			"	function void f1();\n" +
+			"	endfunction\n" +
+			"endclass\n"
+			;
+		String doc2 = 
+			"// Comment moves everything down\n" +
+			"\n" +
+			"class c1;\n" +
+			"	function void f1();\n" +
+			"	endfunction\n" +
+			"endclass\n"
+			;
+		
+		SVDBFile f1 = SVDBTestUtils.parse(doc1, "testLocationsCopied");
+		SVDBFile f2 = SVDBTestUtils.parse(doc2, "testLocationsCopied");
+		
+		ISVDBItemBase c1_1 = SVDBSearchUtils.findItemsByName(f1, "c1").get(0);
+		ISVDBItemBase f1_1 = SVDBSearchUtils.findItemsByName((ISVDBScopeItem)c1_1, "f1").get(0);
+		ISVDBItemBase c1_2 = SVDBSearchUtils.findItemsByName(f2, "c1").get(0);
+		ISVDBItemBase f1_2 = SVDBSearchUtils.findItemsByName((ISVDBScopeItem)c1_2, "f1").get(0);
+		
+		assertEquals(1, c1_1.getLocation().getLine());
+		
+		new SVDBFileTreeDiff().diff(f1, f2, new ArrayList<ISVDBItemBase>(), 
+				new ArrayList<ISVDBItemBase>(), new ArrayList<ISVDBItemBase>());
+		
+		// Retained items of the old tree take the new locations
+		assertEquals(3, c1_1.getLocation().getLine());
+		assertEquals(c1_2.getLocation(), c1_1.getLocation());
+		assertEquals(((ISVDBEndLocation)c1_2).getEndLocation(), 
+				((ISVDBEndLocation)c1_1).getEndLocation());
+		assertEquals(f1_2.getLocation(), f1_1.getLocation());
+	}
+	
+	public void testChanged() {
+		SVCorePlugin.getDefault().enableDebug(false);
+		String doc1 = 
+			"class c1;\n" +
+			"	function void f1();\n" +
+			"	endfunction\n" +
+			"endclass\n"
+			;
+		String doc2 = 
+			"class c1;\n" +
+			"	function int f1();\n" +
+			"	endfunction\n" +
+			"endclass\n"
+			;
+		
+		SVDBFile f1 = SVDBTestUtils.parse(doc1, "testChanged");
+		SVDBFile f2 = SVDBTestUtils.parse(doc2, "testChanged");
+		
+		List<ISVDBItemBase> adds = new ArrayList<ISVDBItemBase>();
+		List<ISVDBItemBase> removes = new ArrayList<ISVDBItemBase>();
+		List<ISVDBItemBase> changes = new ArrayList<ISVDBItemBase>();
+		
+		// Report every matched function as changed
+		new SVDBFileTreeDiff() {
+			@Override
+			protected boolean isChanged(ISVDBItemBase old_it, ISVDBItemBase new_it) {
+				return SVDBItem.getName(new_it).equals("f1");
+			}
+		}.diff(f1, f2, adds, removes, changes);
+		
+		assertEquals(0, adds.size());
+		assertEquals(0, removes.size());
+		assertEquals(1, changes.size());
+		assertEquals("f1", SVDBItem.getName(changes.get(0)));
+	}
+	
+	private static List<ISVDBItemBase> children(ISVDBScopeItem p, String name) {
+		List<ISVDBItemBase> ret = new ArrayList<ISVDBItemBase>();
+		ISVDBChildParent scope = (ISVDBChildParent)SVDBSearchUtils.findItemsByName(p, name).get(0);
+		for (ISVDBChildItem c : scope.getChildren()) {
+			ret.add(c);
+		}
+		return ret;
+	}
+	
+	private static List<String> getNames(List<ISVDBItemBase> items) {
+		List<String> ret = new ArrayList<String>();
+		for (ISVDBItemBase it : items) {
+			ret.add(SVDBItem.getName(it));
+		}
+		return ret;
+	}
+
+}
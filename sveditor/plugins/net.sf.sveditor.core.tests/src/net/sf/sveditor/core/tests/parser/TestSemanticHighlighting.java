@@ -0,0 +1,175 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.tests.parser;
+
+import junit.framework.TestCase;
+import net.sf.sveditor.core.SVCorePlugin;
+import net.sf.sveditor.core.db.SVDBFile;
+import net.sf.sveditor.core.highlight.SVHighlightTable;
+import net.sf.sveditor.core.highlight.SVSemanticHighlighter;
+import net.sf.sveditor.core.tests.FileIndexIterator;
+import net.sf.sveditor.core.tests.SVDBTestUtils;
+
+public class TestSemanticHighlighting extends TestCase {
+
+	public void testClassify() {
+		SVCorePlugin.getDefault().enableDebug(false);
+		String doc =
+			"class c1;\n" +
+			"	int count; // count c1\n" +
+			"	function void inc();\n" +
+			"		count = count + `INCR;\n" +
+			"		$display(\"c1 count\");\n" +
+			"	endfunction\n" +
+			"endclass\n"
+			;
+
+		SVDBFile file = SVDBTestUtils.parse(doc, "testClassify");
+		SVSemanticHighlighter h = new SVSemanticHighlighter();
+		h.setFile(file);
+		SVHighlightTable t = h.compute(doc);
+
+		// Names in comments and strings are not highlighted
+		assertRange(doc, t, 0, "c1", SVSemanticHighlighter.KIND_TYPE);
+		assertRange(doc, t, 1, "count", SVSemanticHighlighter.KIND_FIELD);
+		assertRange(doc, t, 2, "inc", SVSemanticHighlighter.KIND_FUNCTION);
+		assertRange(doc, t, 3, "count", SVSemanticHighlighter.KIND_FIELD);
+		assertRange(doc, t, 4, "count", SVSemanticHighlighter.KIND_FIELD);
+		assertRange(doc, t, 5, "`INCR", SVSemanticHighlighter.KIND_MACRO);
+		assertEquals(6, t.size());
+	}
+
+	public void testScopes() {
+		SVCorePlugin.getDefault().enableDebug(false);
+		String doc =
+			"class c1;\n" +
+			"	int v;\n" +
+			"	function void f();\n" +
+			"		int tmp;\n" +
+			"		tmp = v;\n" +
+			"	endfunction\n" +
+			"endclass\n" +
+			"class c2;\n" +
+			"	function void v();\n" +
+			"	endfunction\n" +
+			"	function void g();\n" +
+			"		v();\n" +
+			"		tmp = 1;\n" +
+			"	endfunction\n" +
+			"endclass\n"
+			;
+
+		SVDBFile file = SVDBTestUtils.parse(doc, "testScopes");
+		SVSemanticHighlighter h = new SVSemanticHighlighter();
+		h.setFile(file);
+		SVHighlightTable t = h.compute(doc);
+
+		// 'v' is a field in c1 and a function in c2. 'tmp' is 
+		// only declared in c1::f
+		assertRange(doc, t, 0, "c1", SVSemanticHighlighter.KIND_TYPE);
+		assertRange(doc, t, 1, "v", SVSemanticHighlighter.KIND_FIELD);
+		assertRange(doc, t, 2, "f", SVSemanticHighlighter.KIND_FUNCTION);
+		assertRange(doc, t, 3, "tmp", SVSemanticHighlighter.KIND_FIELD);
+		assertRange(doc, t, 4, "tmp", SVSemanticHighlighter.KIND_FIELD);
+		assertRange(doc, t, 5, "v", SVSemanticHighlighter.KIND_FIELD);
+		assertRange(doc, t, 6, "c2", SVSemanticHighlighter.KIND_TYPE);
+		assertRange(doc, t, 7, "v", SVSemanticHighlighter.KIND_FUNCTION);
+		assertRange(doc, t, 8, "g", SVSemanticHighlighter.KIND_FUNCTION);
+		assertRange(doc, t, 9, "v", SVSemanticHighlighter.KIND_FUNCTION);
+		assertEquals(10, t.size());
+	}
+
+	public void testIndexTypes() {
+		SVCorePlugin.getDefault().enableDebug(false);
+		String base =
+			"class base_c;\n" +
+			"endclass\n"
+			;
+		String doc =
+			"class c1 extends base_c;\n" +
+			"	other_c o;\n" +
+			"endclass\n"
+			;
+
+		SVDBFile base_file = SVDBTestUtils.parse(base, "base_c.svh");
+		SVDBFile file = SVDBTestUtils.parse(doc, "testIndexTypes");
+		SVSemanticHighlighter h = new SVSemanticHighlighter();
+		h.setFile(file, new FileIndexIterator(base_file));
+		SVHighlightTable t = h.compute(doc);
+
+		// Types declared in other files are found through the index
+		assertRange(doc, t, 0, "c1", SVSemanticHighlighter.KIND_TYPE);
+		assertRange(doc, t, 1, "base_c", SVSemanticHighlighter.KIND_TYPE);
+		assertRange(doc, t, 2, "o", SVSemanticHighlighter.KIND_FIELD);
+		assertEquals(3, t.size());
+	}
+
+	public void testDocumentChanged() {
+		SVHighlightTable t = new SVHighlightTable();
+		t.add(0, 2, 1);
+		t.add(10, 3, 2);
+		t.add(20, 4, 3);
+
+		// Replace 2 characters with 5 inside the second range
+		t.documentChanged(11, 2, 5);
+
+		assertEquals(2, t.size());
+		assertEquals(0, t.getOffset(0));
+		assertEquals(23, t.getOffset(1));
+		assertEquals(4, t.getLength(1));
+		assertEquals(1, t.find(5));
+		assertEquals(2, t.find(30));
+	}
+
+	public void testChangedRegions() {
+		SVHighlightTable t1 = new SVHighlightTable();
+		SVHighlightTable t2 = new SVHighlightTable();
+
+		t1.add(0, 2, 1);
+		t1.add(10, 3, 2);
+		t1.add(20, 4, 3);
+
+		t2.add(0, 2, 1);
+		t2.add(10, 3, 1);
+		t2.add(20, 4, 3);
+		t2.add(30, 2, 4);
+
+		int r[] = t1.getChangedRegions(t2, 10);
+		assertEquals(4, r.length);
+		assertEquals(10, r[0]);
+		assertEquals(13, r[1]);
+		assertEquals(30, r[2]);
+		assertEquals(32, r[3]);
+
+		// Too many regions collapse to a single region
+		r = t1.getChangedRegions(t2, 1);
+		assertEquals(2, r.length);
+		assertEquals(10, r[0]);
+		assertEquals(32, r[1]);
+
+		assertEquals(0, t1.getChangedRegions(t1, 10).length);
+	}
+
+	private static void assertRange(
+			String				doc,
+			SVHighlightTable	t,
+			int					idx,
+			String				text,
+			int					kind) {
+		assertTrue("Missing range " + idx, idx < t.size());
+		int off = t.getOffset(idx);
+		assertEquals(text, doc.substring(off, off+t.getLength(idx)));
+		assertEquals(kind, t.getKind(idx));
+	}
+
+}
@@ -0,0 +1,246 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.tests.parser;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.sf.sveditor.core.StringInputStream;
+import net.sf.sveditor.core.db.ISVDBChildItem;
+import net.sf.sveditor.core.db.ISVDBChildParent;
+import net.sf.sveditor.core.db.ISVDBEndLocation;
+import net.sf.sveditor.core.db.SVDBFile;
+import net.sf.sveditor.core.db.SVDBItem;
+import net.sf.sveditor.core.db.SVDBItemType;
+import net.sf.sveditor.core.db.SVDBMacroDef;
+import net.sf.sveditor.core.db.SVDBMarker;
+import net.sf.sveditor.core.db.SVDBTask;
+import net.sf.sveditor.core.db.stmt.SVDBBodyStmt;
+import net.sf.sveditor.core.db.stmt.SVDBForkStmt;
+import net.sf.sveditor.core.db.stmt.SVDBForkStmt.JoinType;
+import net.sf.sveditor.core.db.stmt.SVDBStmt;
+import net.sf.sveditor.core.parser.ParserSVDBFileFactory;
+import net.sf.sveditor.core.scanner.IPreProcMacroProvider;
+import net.sf.sveditor.core.scanner.SVPreProcDefineProvider;
+
+public class TestSkimParse extends TestCase {
+
+	public void testClassBodiesSkipped() {
+		String content =
+			"class c1 #(type T=int) extends base;\n" +
+			"  rand int f1;\n" +
+			"  virtual interface ifc vif;\n" +
+			"  constraint c_f1 {\n" +
+			"    f1 inside {[1:10]};\n" +
+			"    if (f1 > 2) { f1 < 8; }\n" +
+			"  }\n" +
+			"  extern function void ext(int a);\n" +
+			"  function int get(int a, string b=\"endfunction\");\n" +
+			"    virtual interface ifc v = vif;\n" +
+			"    int tmp = a;\n" +
+			"    begin\n" +
+			"      tmp++;\n" +
+			"    end\n" +
+			"    return tmp;\n" +
+			"  endfunction : get\n" +
+			"  task run();\n" +
+			"    fork\n" +
+			"      begin #1; end\n" +
+			"    join_none\n" +
+			"    wait fork;\n" +
+			"    disable fork;\n" +
+			"  endtask\n" +
+			"  task old_style;\n" +
+			"    input int a;\n" +
+			"    #a;\n" +
+			"  endtask\n" +
+			"endclass\n";
+		List<SVDBMarker> markers = new ArrayList<SVDBMarker>();
+
+		SVDBFile full = parse(content, false, null);
+		SVDBFile skim = parse(content, true, markers);
+
+		assertEquals(0, markers.size());
+		assertDeclsEqual(full, skim);
+
+		ISVDBChildParent c1 = (ISVDBChildParent)find(skim, "c1");
+		assertEquals(0, count((ISVDBChildParent)find(c1, "c_f1")));
+		assertEquals(0, count((SVDBTask)find(c1, "get")));
+		assertEquals(2, count(((SVDBTask)find(c1, "get")).getParams()));
+		assertEquals(0, count((SVDBTask)find(c1, "run")));
+
+		// Port declarations of non-ANSI tasks are kept
+		assertTrue(count((SVDBTask)find(full, "old_style")) > 0);
+		assertEquals(count((SVDBTask)find(full, "old_style")),
+				count((SVDBTask)find(skim, "old_style")));
+	}
+
+	public void testProceduralBlocksSkipped() {
+		String content =
+			"module m1(input clk, output reg [7:0] q);\n" +
+			"  reg [7:0] r;\n" +
+			"  initial begin : init\n" +
+			"    q = 0;\n" +
+			"    fork\n" +
+			"      begin r = 0; end\n" +
+			"    join\n" +
+			"  end : init\n" +
+			"  always @(posedge clk) begin\n" +
+			"    if (q > 1) begin q <= q + 1; end else q <= 0;\n" +
+			"  end\n" +
+			"  always_comb r = q;\n" +
+			"  final fork\n" +
+			"    wait fork;\n" +
+			"  join_any\n" +
+			"endmodule\n";
+		List<SVDBMarker> markers = new ArrayList<SVDBMarker>();
+
+		SVDBFile full = parse(content, false, null);
+		SVDBFile skim = parse(content, true, markers);
+
+		assertEquals(0, markers.size());
+		assertDeclsEqual(full, skim);
+
+		List<SVDBBodyStmt> stmts = new ArrayList<SVDBBodyStmt>();
+		for (ISVDBChildItem it : ((ISVDBChildParent)find(skim, "m1")).getChildren()) {
+			if (it instanceof SVDBBodyStmt) {
+				stmts.add((SVDBBodyStmt)it);
+			}
+		}
+		assertEquals(4, stmts.size());
+
+		// Blocks are kept, without their statements
+		assertEquals(SVDBItemType.BlockStmt, stmts.get(0).getBody().getType());
+		assertEquals(0, count((ISVDBChildParent)stmts.get(0).getBody()));
+		assertEquals(SVDBItemType.BlockStmt, stmts.get(1).getBody().getType());
+		assertEquals(0, count((ISVDBChildParent)stmts.get(1).getBody()));
+		// Other statements are parsed
+		assertNotNull(stmts.get(2).getBody());
+		assertEquals(SVDBItemType.ForkStmt, stmts.get(3).getBody().getType());
+		assertEquals(JoinType.JoinAny, ((SVDBForkStmt)stmts.get(3).getBody()).getJoinType());
+	}
+
+	public void testMissingEnd() {
+		String content =
+			"class c1;\n" +
+			"  function void f();\n" +
+			"    int a;\n" +
+			"class c2;\n" +
+			"endclass\n";
+		List<SVDBMarker> full_markers = new ArrayList<SVDBMarker>();
+		List<SVDBMarker> skim_markers = new ArrayList<SVDBMarker>();
+
+		parse(content, false, full_markers);
+		parse(content, true, skim_markers);
+
+		assertTrue(full_markers.size() > 0);
+		assertEquals(full_markers.size(), skim_markers.size());
+		assertEquals(full_markers.get(0).getMessage(), skim_markers.get(0).getMessage());
+		assertEquals(full_markers.get(0).getLocation(), skim_markers.get(0).getLocation());
+	}
+
+	private static SVDBFile parse(String content, boolean skim, List<SVDBMarker> markers) {
+		SVPreProcDefineProvider dp = new SVPreProcDefineProvider(new IPreProcMacroProvider() {
+			public void setMacro(String key, String value) {}
+			public void addMacro(SVDBMacroDef macro) {}
+			public SVDBMacroDef findMacro(String name, int lineno) {
+				return null;
+			}
+		});
+		ParserSVDBFileFactory factory = new ParserSVDBFileFactory(dp);
+		factory.setSkimBodies(skim);
+
+		if (markers == null) {
+			markers = new ArrayList<SVDBMarker>();
+		}
+
+		return factory.parse(new StringInputStream(content), "test.sv", markers);
+	}
+
+	private static ISVDBChildItem find(ISVDBChildParent p, String name) {
+		ISVDBChildItem ret = find_item(p, name);
+		assertNotNull("Failed to find " + name, ret);
+		return ret;
+	}
+
+	private static ISVDBChildItem find_item(ISVDBChildParent p, String name) {
+		for (ISVDBChildItem it : p.getChildren()) {
+			if (name.equals(SVDBItem.getName(it))) {
+				return it;
+			} else if (it instanceof ISVDBChildParent &&
+					!(it instanceof SVDBTask)) {
+				ISVDBChildItem ret = find_item((ISVDBChildParent)it, name);
+				if (ret != null) {
+					return ret;
+				}
+			}
+		}
+		return null;
+	}
+
+	private static int count(Iterable<?> items) {
+		int ret = 0;
+		for (Iterator<?> it = items.iterator(); it.hasNext(); ) {
+			it.next();
+			ret++;
+		}
+		return ret;
+	}
+
+	private static int count(ISVDBChildParent p) {
+		return count(p.getChildren());
+	}
+
+	/**
+	 * Checks that the declarations, outside task and function bodies
+	 * and procedural blocks, and the end locations are the same
+	 */
+	private static void assertDeclsEqual(ISVDBChildItem exp, ISVDBChildItem act) {
+		assertEquals(exp.getType(), act.getType());
+		assertEquals(SVDBItem.getName(exp), SVDBItem.getName(act));
+		assertEquals(exp.getLocation(), act.getLocation());
+
+		if (exp instanceof ISVDBEndLocation) {
+			assertEquals(((ISVDBEndLocation)exp).getEndLocation(),
+					((ISVDBEndLocation)act).getEndLocation());
+		}
+
+		if (exp instanceof SVDBBodyStmt) {
+			SVDBStmt exp_b = ((SVDBBodyStmt)exp).getBody();
+			SVDBStmt act_b = ((SVDBBodyStmt)act).getBody();
+
+			assertEquals(exp_b.getType(), act_b.getType());
+			assertEquals(exp_b.getLocation(), act_b.getLocation());
+			if (exp_b instanceof ISVDBEndLocation) {
+				assertEquals(((ISVDBEndLocation)exp_b).getEndLocation(),
+						((ISVDBEndLocation)act_b).getEndLocation());
+			}
+		}
+
+		if (exp instanceof ISVDBChildParent && !(exp instanceof SVDBTask) &&
+				!(exp instanceof SVDBBodyStmt) &&
+				exp.getType() != SVDBItemType.Constraint) {
+			Iterator<ISVDBChildItem> exp_it = ((ISVDBChildParent)exp).getChildren().iterator();
+			Iterator<ISVDBChildItem> act_it = ((ISVDBChildParent)act).getChildren().iterator();
+
+			while (exp_it.hasNext()) {
+				assertTrue("Missing item after " + SVDBItem.getName(exp), act_it.hasNext());
+				assertDeclsEqual(exp_it.next(), act_it.next());
+			}
+			assertFalse(act_it.hasNext());
+		}
+	}
+
+}
@@ -26,12 +26,16 @@ import java.util.Map;
 
 import net.sf.sveditor.core.db.ISVDBFileFactory;
 import net.sf.sveditor.core.db.SVDB;
+import net.sf.sveditor.core.db.index.SVDBIndexImage;
 import net.sf.sveditor.core.db.index.SVDBIndexRegistry;
+import net.sf.sveditor.core.db.index.cache.ISVDBFS;
 import net.sf.sveditor.core.db.index.cache.ISVDBIndexCache;
 import net.sf.sveditor.core.db.index.cache.ISVDBIndexCacheFactory;
 import net.sf.sveditor.core.db.index.cache.SVDBDirFS;
-import net.sf.sveditor.core.db.index.cache.SVDBFileIndexCache;
+import net.sf.sveditor.core.db.index.cache.SVDBSharedFileStore;
+import net.sf.sveditor.core.db.index.cache.SVDBSharedIndexCache;
 import net.sf.sveditor.core.db.index.plugin_lib.SVDBPluginLibDescriptor;
+import net.sf.sveditor.core.db.index.plugin_lib.SVDBPluginLibIndex;
 import net.sf.sveditor.core.db.project.SVDBProjectManager;
 import net.sf.sveditor.core.db.project.SVDBSourceCollection;
 import net.sf.sveditor.core.fileset.SVFileSet;
@@ -43,6 +47,8 @@ import net.sf.sveditor.core.log.ILogHandle;
 import net.sf.sveditor.core.log.ILogLevel;
 import net.sf.sveditor.core.log.ILogListener;
 import net.sf.sveditor.core.log.LogFactory;
+import net.sf.sveditor.core.log.LogHandle;
+import net.sf.sveditor.core.metrics.MetricsRegistry;
 import net.sf.sveditor.core.parser.ParserSVDBFileFactory;
 import net.sf.sveditor.core.scanner.IDefineProvider;
 import net.sf.sveditor.core.templates.TemplateRegistry;
@@ -83,10 +89,16 @@ public class SVCorePlugin extends Plugin
 	private static Map<String, String>		fLocalEnvMap = new HashMap<String, String>();
 	private SVMarkerPropagationJob			fMarkerPropagationJob;
 	private static IJobMgr					fJobMgr;
+	private static int						fParallelParseMinSize = 
+		Integer.getInteger(ParserSVDBFileFactory.PARALLEL_PARSE_PROPERTY, 0);
+	private static boolean					fSkimLibraryBodies = Boolean.parseBoolean(
+			System.getProperty(SVDBPluginLibIndex.SKIM_BODIES_PROPERTY, "true"));
 	private int							fNumIndexCacheThreads = 0;
 	private int							fMaxIndexThreads = 0;
 	private TemplateRegistry				fTemplateRgy;
 	private boolean						fEnableAsyncCacheClear;
+	private SVDBSharedFileStore				fSharedFileStore;
+	private LogHandle						fLog;
 	
 	/**
 	 * The constructor
@@ -123,6 +135,7 @@ public class SVCorePlugin extends Plugin
 		fEnableAsyncCacheClear = true;
 		
 		LogFactory.getDefault().addLogListener(this);
+		fLog = LogFactory.getLogHandle("SVCorePlugin");
 	}
 	
 	public void setTestMode() {
@@ -139,13 +152,15 @@ public class SVCorePlugin extends Plugin
 	 * @param en
 	 */
 	public void enableDebug(boolean en) {
-		fDebugLevel = (en)?ILogLevel.LEVEL_MAX:0;
-		LogFactory.getDefault().setLogLevel(null, fDebugLevel);
+		setDebugLevel((en)?ILogLevel.LEVEL_MAX:0);
 	}
 	
 	public void setDebugLevel(int level) {
 		fDebugLevel = level;
 		LogFactory.getDefault().setLogLevel(null, fDebugLevel);
+		// Write debug output from a separate thread, rather than
+		// serializing the threads that log
+		LogFactory.getDefault().setAsync(fDebugLevel > ILogLevel.LEVEL_OFF);
 	}
 	
 	public int getDebugLevel() {
@@ -153,7 +168,35 @@ public class SVCorePlugin extends Plugin
 	}
 	
 	public static ISVDBFileFactory createFileFactory(IDefineProvider dp) {
-		return new ParserSVDBFileFactory(dp);
+		ParserSVDBFileFactory factory = new ParserSVDBFileFactory(dp);
+		factory.setParallelParseMinSize(fParallelParseMinSize);
+		return factory;
+	}
+	
+	/**
+	 * Sets the size, in pre-processed characters, from which files are
+	 * split at top-level design elements and parsed in parallel. A size
+	 * <= 0 (the default) disables parallel parsing
+	 */
+	public static void setParallelParseMinSize(int size) {
+		fParallelParseMinSize = size;
+	}
+	
+	public static int getParallelParseMinSize() {
+		return fParallelParseMinSize;
+	}
+	
+	/**
+	 * Controls whether plugin-library indexes skim-parse their files, 
+	 * skipping task, function and constraint bodies. Enabled by default.
+	 * Other indexes always parse bodies fully
+	 */
+	public static void setSkimLibraryBodies(boolean skim) {
+		fSkimLibraryBodies = skim;
+	}
+	
+	public static boolean getSkimLibraryBodies() {
+		return fSkimLibraryBodies;
 	}
 	
 	public ISVIndenter createIndenter() {
@@ -193,6 +236,16 @@ public class SVCorePlugin extends Plugin
 			fIndexRegistry.save_state();
 		}
 		
+		String metrics_file = System.getProperty(MetricsRegistry.METRICS_FILE_PROPERTY);
+		if (metrics_file != null && !metrics_file.trim().equals("")) {
+			try {
+				MetricsRegistry.getDefault().dump(new File(metrics_file.trim()));
+			} catch (IOException e) {
+				fLog.error("Failed to write metrics to \"" + metrics_file + "\"", e);
+			}
+		}
+		
+		LogFactory.getDefault().setAsync(false);
 		LogFactory.getDefault().removeLogListener(this);
 		
 		if (fLogStream != null) {
@@ -286,20 +339,37 @@ public class SVCorePlugin extends Plugin
 		File file = getStateLocation().toFile();
 		File cache = new File(file, "cache");
 		File cache_dir = new File(cache, project_name + "_" + SVFileUtils.computeMD5(base_location));
+		boolean is_new = false;
 
 		if (!cache_dir.exists()) {
 			if (!cache_dir.mkdirs()) {
 				System.out.println("Failed to create cache directory");
 			}
+			is_new = true;
 		}
 		
 		SVDBDirFS fs = new SVDBDirFS(cache_dir);
 		fs.setEnableAsyncClear(fEnableAsyncCacheClear);
-		ISVDBIndexCache ret = new SVDBFileIndexCache(fs);
+		
+		// A new cache starts from a pre-built image of the index, if one
+		// has been provided. An existing cache has newer content.
+		ISVDBFS cache_fs = (is_new)?SVDBIndexImage.createFS(project_name, base_location, fs):fs;
+		ISVDBIndexCache ret = new SVDBSharedIndexCache(cache_fs, getSharedFileStore());
 
 		return ret;
 	}
 	
+	/**
+	 * Returns the store of parsed files shared by all index caches
+	 */
+	public synchronized SVDBSharedFileStore getSharedFileStore() {
+		if (fSharedFileStore == null) {
+			File file = getStateLocation().toFile();
+			fSharedFileStore = new SVDBSharedFileStore(new File(file, "shared_cache"));
+		}
+		return fSharedFileStore;
+	}
+	
 	public void compactCache(List<ISVDBIndexCache> cache_list) {
 		File file = getStateLocation().toFile();
 		File cache = new File(file, "cache");
@@ -319,6 +389,9 @@ public class SVCorePlugin extends Plugin
 				SVFileUtils.delete(f);
 			}
 		}
+		
+		// Release shared entries no longer referenced by any cache
+		getSharedFileStore().gc();
 	}
 	
 	public List<String> getDefaultSVExts() {
@@ -368,10 +441,22 @@ public class SVCorePlugin extends Plugin
 	}
 	
 	public void propagateMarker(IFile file, int severity, int lineno, String msg) {
+		getMarkerPropagationJob().addMarker(file, severity, lineno, msg);
+	}
+	
+	/**
+	 * Replaces the markers on the file with those subsequently 
+	 * propagated for it
+	 */
+	public void clearMarkers(IFile file) {
+		getMarkerPropagationJob().clearMarkers(file);
+	}
+	
+	private synchronized SVMarkerPropagationJob getMarkerPropagationJob() {
 		if (fMarkerPropagationJob == null) {
 			fMarkerPropagationJob = new SVMarkerPropagationJob();
 		}
-		fMarkerPropagationJob.addMarker(file, severity, lineno, msg);
+		return fMarkerPropagationJob;
 	}
 
 	public void message(ILogHandle handle, int type, int level, String message) {
@@ -14,10 +14,16 @@ package net.sf.sveditor.core;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
@@ -28,50 +34,105 @@ import org.eclipse.ui.actions.WorkspaceModifyOperation;
 /**
  * The marker propagation job is a singleton that queues up and
  * propagates markers. Markers are often created during event-propagation,
- * when they cannot be immediately applied to the workspace. 
- * 
+ * when they cannot be immediately applied to the workspace.
+ *
+ * Clearing the markers of a file starts a new marker set for the file.
+ * When the set is applied, it is compared with the markers already on
+ * the file, and only the markers that were added or removed are
+ * changed. Changes are applied in batches, each in a single workspace
+ * operation, with a delay between batches.
+ *
  * @author ballance
  *
  */
 public class SVMarkerPropagationJob extends Job {
-	private class MarkerInfo {
-		IFile				fFile;
+	// Approximate number of markers handled by a single batch
+	private static final int				BATCH_SIZE  = 2000;
+
+	// Delay before a batch is applied, allowing markers to accumulate
+	private static final int				BATCH_DELAY = 100;
+
+	private static final String				fAttrNames[] = {
+		IMarker.SEVERITY, IMarker.LINE_NUMBER, IMarker.MESSAGE
+	};
+
+	private static class MarkerInfo {
 		int					fSeverity;
 		int					fLineno;
 		String				fMsg;
+
+		public MarkerInfo(int severity, int lineno, String msg) {
+			fSeverity = severity;
+			fLineno = lineno;
+			fMsg = (msg != null)?msg:"";
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof MarkerInfo) {
+				MarkerInfo o = (MarkerInfo)obj;
+				return (o.fSeverity == fSeverity && o.fLineno == fLineno &&
+						o.fMsg.equals(fMsg));
+			}
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			return (fMsg.hashCode() + 31*fLineno + 7*fSeverity);
+		}
 	}
-	
-	private List<MarkerInfo>		fMarkerList;
-	
+
+	private static class FileMarkers {
+		IFile				fFile;
+		// When set, the markers replace those on the file
+		boolean				fReplace;
+		List<MarkerInfo>	fMarkers;
+
+		public FileMarkers(IFile file, boolean replace) {
+			fFile = file;
+			fReplace = replace;
+			fMarkers = new ArrayList<MarkerInfo>();
+		}
+	}
+
+	private Map<IFile, FileMarkers>		fPendingMap;
+
 	public SVMarkerPropagationJob() {
 		super("SVEditor Marker Propagation");
-		fMarkerList = new ArrayList<SVMarkerPropagationJob.MarkerInfo>();
+		fPendingMap = new LinkedHashMap<IFile, FileMarkers>();
 	}
 
 	@Override
 	protected IStatus run(IProgressMonitor monitor) {
-		final List<MarkerInfo> markers = new ArrayList<SVMarkerPropagationJob.MarkerInfo>(); 
-		synchronized (fMarkerList) {
-			markers.addAll(fMarkerList);
-			fMarkerList.clear();
+		final List<FileMarkers> batch = new ArrayList<FileMarkers>();
+		boolean more;
+
+		synchronized (fPendingMap) {
+			int n_markers = 0;
+			Iterator<FileMarkers> it = fPendingMap.values().iterator();
+			while (it.hasNext() && (batch.size() == 0 || n_markers < BATCH_SIZE)) {
+				FileMarkers fm = it.next();
+				n_markers += fm.fMarkers.size() + 1;
+				batch.add(fm);
+				it.remove();
+			}
+			more = (fPendingMap.size() > 0);
 		}
-		
+
 		WorkspaceModifyOperation op = new WorkspaceModifyOperation() {
 
 			@Override
 			protected void execute(IProgressMonitor monitor) throws CoreException,
 				InvocationTargetException, InterruptedException {
-				IMarker marker = null;
-				for (MarkerInfo info : markers) {
+				for (FileMarkers fm : batch) {
+					if (monitor.isCanceled()) {
+						break;
+					}
 					try {
-						marker = info.fFile.createMarker(IMarker.PROBLEM);
-						marker.setAttribute(IMarker.SEVERITY, info.fSeverity);
-						marker.setAttribute(IMarker.LINE_NUMBER, info.fLineno);
-						marker.setAttribute(IMarker.MESSAGE, info.fMsg);
+						apply(fm);
 					} catch (CoreException e) {
-						if (marker != null) {
-							marker.delete();
-						}
+						// The file may have been removed
 					}
 				}
 			}
@@ -82,25 +143,110 @@ public class SVMarkerPropagationJob extends Job {
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
-		
+
+		if (more) {
+			schedule(BATCH_DELAY);
+		}
+
 		return Status.OK_STATUS;
 	}
-	
-	
+
+	/**
+	 * Applies the differences between the file's new marker set and
+	 * the markers on the file
+	 */
+	private static void apply(FileMarkers fm) throws CoreException {
+		if (!fm.fFile.exists()) {
+			return;
+		}
+
+		// Count of each new marker not yet found on the file
+		Map<MarkerInfo, Integer> added = new HashMap<MarkerInfo, Integer>();
+		for (MarkerInfo info : fm.fMarkers) {
+			Integer cnt = added.get(info);
+			added.put(info, (cnt != null)?(cnt+1):1);
+		}
+
+		if (fm.fReplace) {
+			List<IMarker> removed = new ArrayList<IMarker>();
+
+			for (IMarker m : fm.fFile.findMarkers(
+					IMarker.PROBLEM, true, IResource.DEPTH_ZERO)) {
+				MarkerInfo info = new MarkerInfo(
+						m.getAttribute(IMarker.SEVERITY, -1),
+						m.getAttribute(IMarker.LINE_NUMBER, -1),
+						m.getAttribute(IMarker.MESSAGE, ""));
+				Integer cnt = added.get(info);
+
+				if (cnt == null) {
+					removed.add(m);
+				} else if (cnt == 1) {
+					added.remove(info);
+				} else {
+					added.put(info, (cnt-1));
+				}
+			}
+
+			if (removed.size() > 0) {
+				ResourcesPlugin.getWorkspace().deleteMarkers(
+						removed.toArray(new IMarker[removed.size()]));
+			}
+		}
+
+		for (MarkerInfo info : fm.fMarkers) {
+			Integer cnt = added.get(info);
+
+			if (cnt == null) {
+				continue;
+			} else if (cnt == 1) {
+				added.remove(info);
+			} else {
+				added.put(info, (cnt-1));
+			}
+
+			IMarker marker = fm.fFile.createMarker(IMarker.PROBLEM);
+			try {
+				marker.setAttributes(fAttrNames, new Object[] {
+						info.fSeverity, info.fLineno, info.fMsg});
+			} catch (CoreException e) {
+				marker.delete();
+			}
+		}
+	}
+
+	/**
+	 * Starts a new marker set for the file. Markers added after this
+	 * call replace the markers currently on the file.
+	 */
+	public void clearMarkers(IFile file) {
+		synchronized (fPendingMap) {
+			// Re-insert, so the file is ordered after earlier changes
+			fPendingMap.remove(file);
+			fPendingMap.put(file, new FileMarkers(file, true));
+		}
+
+		scheduleBatch();
+	}
+
 	public void addMarker(IFile file, int severity, int lineno, String msg) {
-		MarkerInfo info = new MarkerInfo();
-		info.fFile = file;
-		info.fSeverity = severity;
-		info.fLineno = lineno;
-		info.fMsg = msg;
-		
-		synchronized (fMarkerList) {
-			fMarkerList.add(info);
+		synchronized (fPendingMap) {
+			FileMarkers fm = fPendingMap.get(file);
+			if (fm == null) {
+				fm = new FileMarkers(file, false);
+				fPendingMap.put(file, fm);
+			}
+			fm.fMarkers.add(new MarkerInfo(severity, lineno, msg));
 		}
 
+		scheduleBatch();
+	}
+
+	private void scheduleBatch() {
 		synchronized (this) {
-			if (getState() == Job.NONE) {
-				schedule(1);
+			// A running job is re-scheduled once it completes, so
+			// markers added while a batch is applied are not missed
+			if (getState() == Job.NONE || getState() == Job.RUNNING) {
+				schedule(BATCH_DELAY);
 			}
 		}
 	}
@@ -17,7 +17,6 @@ import java.util.List;
 import java.util.Set;
 import java.util.Stack;
 
-import net.sf.sveditor.core.db.SVDBLocation;
 import net.sf.sveditor.core.log.LogFactory;
 import net.sf.sveditor.core.log.LogHandle;
 import net.sf.sveditor.core.parser.ISVParser;
@@ -27,7 +26,6 @@ import net.sf.sveditor.core.parser.SVToken;
 import net.sf.sveditor.core.scanner.SVCharacter;
 import net.sf.sveditor.core.scanner.SVKeywords;
 import net.sf.sveditor.core.scanutils.ITextScanner;
-import net.sf.sveditor.core.scanutils.ScanLocation;
 
 public class SVArgFileLexer extends SVToken {
 	private ITextScanner fScanner;
@@ -159,7 +157,8 @@ public class SVArgFileLexer extends SVToken {
 		fIsOperator = tok.isOperator();
 		fIsString = tok.isString();
 		fIsTime = tok.isTime();
-		fStartLocation = tok.getStartLocation().duplicate();
+		fStartLine = tok.getStartLine();
+		fStartPos = tok.getStartPos();
 	}
 
 	public SVToken peekToken() {
@@ -674,9 +673,8 @@ public class SVArgFileLexer extends SVToken {
 			append_ch(ch);
 		}
 
-		// TODO: should fix
-		ScanLocation loc = fScanner.getLocation();
-		fStartLocation = new SVDBLocation(loc.getLineNo(), loc.getLinePos());
+		fStartLine = fScanner.getLineno();
+		fStartPos = fScanner.getLinepos();
 
 		if (ch == -1) {
 			fEOF = true;
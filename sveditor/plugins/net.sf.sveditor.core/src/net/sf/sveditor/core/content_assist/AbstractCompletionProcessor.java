@@ -13,7 +13,19 @@
 package net.sf.sveditor.core.content_assist;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import net.sf.sveditor.core.db.IFieldItemAttr;
 import net.sf.sveditor.core.db.ISVDBChildItem;
@@ -40,8 +52,11 @@ import net.sf.sveditor.core.db.SVDBTypeInfo;
 import net.sf.sveditor.core.db.SVDBTypeInfoEnum;
 import net.sf.sveditor.core.db.SVDBTypeInfoEnumerator;
 import net.sf.sveditor.core.db.expr.SVDBExpr;
+import net.sf.sveditor.core.db.index.ISVDBIndex;
 import net.sf.sveditor.core.db.index.ISVDBIndexIterator;
 import net.sf.sveditor.core.db.index.SVDBDeclCacheItem;
+import net.sf.sveditor.core.db.index.SVDBFileOverrideIndex;
+import net.sf.sveditor.core.db.index.SVDBIndexCollection;
 import net.sf.sveditor.core.db.search.SVDBFindByName;
 import net.sf.sveditor.core.db.search.SVDBFindByNameInClassHierarchy;
 import net.sf.sveditor.core.db.search.SVDBFindByNameInScopes;
@@ -64,6 +79,8 @@ import net.sf.sveditor.core.expr_utils.SVExprScanner;
 import net.sf.sveditor.core.expr_utils.SVExprUtilsParser;
 import net.sf.sveditor.core.log.ILogLevel;
 import net.sf.sveditor.core.log.LogHandle;
+import net.sf.sveditor.core.metrics.MetricsHistogram;
+import net.sf.sveditor.core.metrics.MetricsRegistry;
 import net.sf.sveditor.core.parser.SVParseException;
 import net.sf.sveditor.core.scanutils.IBIDITextScanner;
 
@@ -71,7 +88,27 @@ import org.eclipse.core.runtime.NullProgressMonitor;
 
 
 public abstract class AbstractCompletionProcessor implements ILogLevel {
+	/**
+	 * Default maximum number of proposals made for an identifier prefix
+	 */
+	public static final int						DEFAULT_MAX_PROPOSALS = 256;
+
+	// Relevance of the sources of proposals for an identifier prefix
+	private static final int					RELEVANCE_SCOPE = 3;
+	private static final int					RELEVANCE_CLASS = 2;
+	private static final int					RELEVANCE_GLOBAL_TYPE = 1;
+	private static final int					RELEVANCE_GLOBAL = 0;
+	
+	// Number of threads searching the sources of proposals. Shared by
+	// all completion processors
+	private static final int					MAX_SOURCE_THREADS = 4;
+	private static ExecutorService				fSourceExecutor;
+
 	protected List<SVCompletionProposal>		fCompletionProposals;
+	private Map<ISVDBItemBase, SVCompletionProposal>	fProposalItemMap;
+	private int									fLatencyBudget;
+	private int									fMaxProposals;
+	private SVCompletionResultCache				fResultCache;
 	
 	protected LogHandle							fLog;
 	/**
@@ -80,8 +117,62 @@ public abstract class AbstractCompletionProcessor implements ILogLevel {
 	};
 	 */
 	
+	private static synchronized ExecutorService getSourceExecutor() {
+		if (fSourceExecutor == null) {
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(
+					MAX_SOURCE_THREADS, MAX_SOURCE_THREADS, 30, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(),
+					new ThreadFactory() {
+						public Thread newThread(Runnable r) {
+							Thread t = new Thread(r, "Content Assist");
+							t.setDaemon(true);
+							return t;
+						}
+					});
+			executor.allowCoreThreadTimeOut(true);
+			fSourceExecutor = executor;
+		}
+		return fSourceExecutor;
+	}
+	
 	public AbstractCompletionProcessor() {
 		fCompletionProposals = new ArrayList<SVCompletionProposal>();
+		fProposalItemMap = new IdentityHashMap<ISVDBItemBase, SVCompletionProposal>();
+		fMaxProposals = DEFAULT_MAX_PROPOSALS;
+		fResultCache = new SVCompletionResultCache();
+	}
+	
+	/**
+	 * Sets the time, in milliseconds, allowed for finding the proposals
+	 * for an identifier prefix. When the budget expires, the proposals
+	 * found thus far are returned. 0 (the default) waits for all proposals 
+	 */
+	public void setLatencyBudget(int budget_ms) {
+		fLatencyBudget = budget_ms;
+	}
+	
+	public int getLatencyBudget() {
+		return fLatencyBudget;
+	}
+	
+	/**
+	 * Sets the maximum number of proposals made for an identifier 
+	 * prefix. Only the most relevant proposals are kept. 0 is unbounded
+	 */
+	public void setMaxProposals(int max) {
+		fMaxProposals = max;
+	}
+	
+	public int getMaxProposals() {
+		return fMaxProposals;
+	}
+	
+	/**
+	 * Discards the proposals cached during a content-assist session.
+	 * Should be called when the session ends
+	 */
+	public void clearResultCache() {
+		fResultCache.clear();
 	}
 	
 	protected abstract ISVDBIndexIterator getIndexIterator();
@@ -92,15 +183,22 @@ public abstract class AbstractCompletionProcessor implements ILogLevel {
 		boolean found = false;
 	
 		synchronized (fCompletionProposals) {
-			for (SVCompletionProposal p_t : fCompletionProposals) {
-				if (p_t.equals(p)) {
-					found = true;
-					break;
+			if (p.getItem() != null) {
+				found = fProposalItemMap.containsKey(p.getItem());
+			} else {
+				for (SVCompletionProposal p_t : fCompletionProposals) {
+					if (p_t.equals(p)) {
+						found = true;
+						break;
+					}
 				}
 			}
 
 			if (!found) {
 				fCompletionProposals.add(p);
+				if (p.getItem() != null) {
+					fProposalItemMap.put(p.getItem(), p);
+				}
 			}
 		}
 	}
@@ -121,10 +219,26 @@ public abstract class AbstractCompletionProcessor implements ILogLevel {
 			SVDBFile			active_file,
 			int					lineno,
 			int					linepos) {
+		MetricsHistogram h = MetricsRegistry.histogram(MetricsRegistry.CONTENT_ASSIST);
+		long start = h.start();
+		
+		try {
+			computeProposalsInt(scanner, active_file, lineno, linepos);
+		} finally {
+			h.stop(start);
+		}
+	}
+
+	private void computeProposalsInt(
+			IBIDITextScanner 	scanner,
+			SVDBFile			active_file,
+			int					lineno,
+			int					linepos) {
 		SVExprScanner expr_scan = new SVExprScanner();
 	
 		synchronized (fCompletionProposals) {
 			fCompletionProposals.clear();
+			fProposalItemMap.clear();
 		}
 		
 		// Trigger characters and string prior to the trigger (if any)
@@ -790,73 +904,211 @@ public abstract class AbstractCompletionProcessor implements ILogLevel {
 		}
 	}
 
+	/**
+	 * Finds proposals for an identifier prefix. The enclosing scopes, the
+	 * class hierarchy, global types and other global declarations are 
+	 * searched concurrently, and the most relevant results are kept. 
+	 * If the latency budget expires, the results found thus far are used.
+	 * When the prefix extends the one last completed in the same context,
+	 * the previous results are filtered instead.
+	 */
 	private void findUntriggeredProposals(
-			SVExprContext			ctxt,
-			ISVDBChildItem			src_scope) {
+			final SVExprContext			ctxt,
+			final ISVDBChildItem		src_scope) {
 		fLog.debug("Looking for un-ctxt.fTriggered identifier \"" + ctxt.fLeaf + "\"");
-		List<ISVDBItemBase> result = null;
-		SVDBFindContentAssistNameMatcher matcher = new SVDBFindContentAssistNameMatcher();
+		ISVDBIndexIterator index_it = getIndexIterator();
+		SVDBFile active_file = getSVDBFile();
+		List<SVCompletionProposal> cached = fResultCache.find(
+				index_it, active_file, src_scope, ctxt, fMaxProposals);
+		
+		if (cached != null) {
+			fLog.debug("Refining " + cached.size() + " cached proposals");
+			for (SVCompletionProposal p : cached) {
+				ISVDBItemBase it = p.getItem();
+				
+				if (p.getRelevance() == RELEVANCE_SCOPE &&
+						SVDBItem.getName(it).equals(ctxt.fLeaf) &&
+						isSameScopeVarDecl(src_scope, it)) {
+					continue;
+				}
+				if (p.getRelevance() == RELEVANCE_CLASS && isDeferredNew(ctxt, it)) {
+					continue;
+				}
+				addProposal(createProposal(ctxt, it, p.getRelevance()));
+			}
+			return;
+		}
+		
+		int generation = fResultCache.getGeneration(index_it);
+		final SVDBFindContentAssistNameMatcher matcher = new SVDBFindContentAssistNameMatcher();
+		final SVCompletionProposalQueue queue = 
+			new SVCompletionProposalQueue(ctxt.fLeaf, fMaxProposals);
+		List<Runnable> sources = new ArrayList<Runnable>();
+		
+		sources.add(new Runnable() {
+			public void run() {
+				findScopeProposals(ctxt, src_scope, matcher, queue);
+			}
+		});
+		sources.add(new Runnable() {
+			public void run() {
+				findClassHierarchyProposals(ctxt, src_scope, matcher, queue);
+			}
+		});
+		sources.add(new Runnable() {
+			public void run() {
+				findGlobalTypeProposals(ctxt, matcher, queue);
+			}
+		});
+		if (ctxt.fType != ContextType.Extends) {
+			sources.add(new Runnable() {
+				public void run() {
+					findGlobalProposals(ctxt, matcher, queue);
+				}
+			});
+		}
+		
+		// Loading an index may wait on job-manager jobs. Do this here,
+		// so the sources only ever read loaded indexes and need not be
+		// interrupted
+		loadIndexes(index_it);
+		
+		ExecutorService executor = getSourceExecutor();
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (Runnable r : sources) {
+			futures.add(executor.submit(r));
+		}
+		
+		long deadline = (fLatencyBudget > 0)?
+				(System.currentTimeMillis() + fLatencyBudget):0;
+		boolean complete = true;
+		
+		for (Future<?> f : futures) {
+			try {
+				if (deadline == 0) {
+					f.get();
+				} else {
+					long remaining = deadline - System.currentTimeMillis();
+					if (remaining > 0) {
+						f.get(remaining, TimeUnit.MILLISECONDS);
+					}
+				}
+			} catch (InterruptedException e) {
+			} catch (TimeoutException e) {
+			} catch (ExecutionException e) {
+				fLog.error("Content-assist source failed", e);
+			}
+			
+			if (!f.isDone()) {
+				complete = false;
+			}
+		}
+		
+		// Sources not yet started need not run. Running sources stop 
+		// once the queue is closed
+		for (Future<?> f : futures) {
+			f.cancel(false);
+		}
+		
+		// Results from sources that have not completed are discarded
+		queue.close();
+		
+		if (!complete) {
+			fLog.debug("Latency budget of " + fLatencyBudget + 
+					"ms expired; using " + queue.size() + " proposals");
+		}
+		
+		List<SVCompletionProposal> proposals = queue.getProposals();
+		for (SVCompletionProposal p : proposals) {
+			addProposal(p);
+		}
+		
+		// Only a complete set of results can be refined later
+		if (complete && !queue.isTruncated()) {
+			fResultCache.put(generation, index_it, active_file, 
+					src_scope, ctxt, fMaxProposals, proposals);
+		}
+	}
+	
+	/**
+	 * Loads the indexes that 'index_it' searches
+	 */
+	private static void loadIndexes(ISVDBIndexIterator index_it) {
+		if (index_it instanceof SVDBFileOverrideIndex) {
+			((SVDBFileOverrideIndex)index_it).loadIndex(new NullProgressMonitor());
+			index_it = ((SVDBFileOverrideIndex)index_it).getSuperIterator();
+		}
+		if (index_it instanceof SVDBIndexCollection) {
+			((SVDBIndexCollection)index_it).loadIndex(new NullProgressMonitor());
+		} else if (index_it instanceof ISVDBIndex) {
+			((ISVDBIndex)index_it).loadIndex(new NullProgressMonitor());
+		}
+	}
+	
+	private void findScopeProposals(
+			SVExprContext						ctxt,
+			ISVDBChildItem						src_scope,
+			SVDBFindContentAssistNameMatcher	matcher,
+			SVCompletionProposalQueue			queue) {
 		SVDBFindByNameInScopes finder_s =
 			new SVDBFindByNameInScopes(getIndexIterator(), matcher);
 
 		fLog.debug("Searching in scope hierarchy");
-		result = finder_s.find(src_scope, ctxt.fLeaf, false);
+		List<ISVDBItemBase> result = finder_s.find(src_scope, ctxt.fLeaf, false);
 		
 		fLog.debug("    " + result.size() + " results");
-		for (int i=0; i<result.size(); i++) {
+		for (int i=0; i<result.size() && !queue.isClosed(); i++) {
 			// It's possible that the local variable that we're declaring
 			// will appear in the proposals. Don't add these proposals. 
 			if (!(SVDBItem.getName(result.get(i)).equals(ctxt.fLeaf) &&
 					isSameScopeVarDecl(src_scope, result.get(i)))) {
-				addProposal(result.get(i), ctxt.fLeaf, ctxt.fStart, ctxt.fLeaf.length());
+				queue.add(createProposal(ctxt, result.get(i), RELEVANCE_SCOPE));
 			}
 		}
-
+	}
+	
+	private void findClassHierarchyProposals(
+			SVExprContext						ctxt,
+			ISVDBChildItem						src_scope,
+			SVDBFindContentAssistNameMatcher	matcher,
+			SVCompletionProposalQueue			queue) {
 		SVDBFindByNameInClassHierarchy finder_h =
 			new SVDBFindByNameInClassHierarchy(getIndexIterator(), matcher);
 
-		result = finder_h.find(src_scope, ctxt.fLeaf);
+		List<ISVDBItemBase> result = finder_h.find(src_scope, ctxt.fLeaf);
 
-		if (result.size() > 0) {
-			for (int i=0; i<result.size(); i++) {
-				boolean add = true;
-				
-				if (ctxt.fTrigger != null && ctxt.fTrigger.equals("=") &&
-						"new".startsWith(ctxt.fLeaf)) {
-					// This is possibly a call to 'new'. We'll add
-					// a proposal for this later based on the base type
-					if (result.get(i).getType() == SVDBItemType.Function &&
-							((ISVDBNamedItem)result.get(i)).getName().equals("new")) {
-						add = false;
-					}
-				}
-			
-				// Filter out non-class proposals when we're dealing with
-				// content-assist for a base class
-				if (ctxt.fType == ContextType.Extends) {
-					fLog.debug("Extends: " + result.get(i).getType());
-					if (result.get(i).getType() != SVDBItemType.ClassDecl) {
-						add = false;
-					}
-				}
-			
-				// Transform any module-instance proposals to module-inst-item proposals
-				if (result.get(i).getType() == SVDBItemType.ModIfcInst) {
-					SVDBModIfcInst mi = (SVDBModIfcInst)result.get(i);
-					
-					for (ISVDBChildItem ci : mi.getChildren()) {
-						addProposal(ci, ctxt.fLeaf, ctxt.fStart, ctxt.fLeaf.length());
-					}
+		for (int i=0; i<result.size() && !queue.isClosed(); i++) {
+			boolean add = !isDeferredNew(ctxt, result.get(i));
+
+			// Filter out non-class proposals when we're dealing with
+			// content-assist for a base class
+			if (ctxt.fType == ContextType.Extends) {
+				fLog.debug("Extends: " + result.get(i).getType());
+				if (result.get(i).getType() != SVDBItemType.ClassDecl) {
 					add = false;
 				}
-				
-				if (add) {
-					addProposal(result.get(i), ctxt.fLeaf, ctxt.fStart, ctxt.fLeaf.length());
+			}
+
+			// Transform any module-instance proposals to module-inst-item proposals
+			if (result.get(i).getType() == SVDBItemType.ModIfcInst) {
+				SVDBModIfcInst mi = (SVDBModIfcInst)result.get(i);
+
+				for (ISVDBChildItem ci : mi.getChildren()) {
+					queue.add(createProposal(ctxt, ci, RELEVANCE_CLASS));
 				}
+				add = false;
+			}
+
+			if (add) {
+				queue.add(createProposal(ctxt, result.get(i), RELEVANCE_CLASS));
 			}
 		}
+	}
 
-		// Try type names
+	private void findGlobalTypeProposals(
+			SVExprContext						ctxt,
+			SVDBFindContentAssistNameMatcher	matcher,
+			SVCompletionProposalQueue			queue) {
 		SVDBFindNamedModIfcClassIfc finder_cls =
 			new SVDBFindNamedModIfcClassIfc(getIndexIterator(), matcher);
 
@@ -865,78 +1117,91 @@ public abstract class AbstractCompletionProcessor implements ILogLevel {
 		if (cl_l.size() > 0) {
 			fLog.debug("Global type search for \"" + ctxt.fLeaf + 
 					"\" returned " + cl_l.size());
-			for (ISVDBChildItem cl : cl_l) {
-				fLog.debug("    " + cl.getType() + " " + SVDBItem.getName(cl));
-			}
 			
 			for (ISVDBItemBase it : cl_l) {
-				if (ctxt.fType == ContextType.Extends) {
-					if (it.getType() == SVDBItemType.ClassDecl) {
-						addProposal(it, ctxt.fLeaf, ctxt.fStart, ctxt.fLeaf.length());
-					}
-				} else {
-					addProposal(it, ctxt.fLeaf, ctxt.fStart, ctxt.fLeaf.length());
+				if (queue.isClosed()) {
+					break;
+				}
+				if (ctxt.fType != ContextType.Extends || 
+						it.getType() == SVDBItemType.ClassDecl) {
+					queue.add(createProposal(ctxt, it, RELEVANCE_GLOBAL_TYPE));
 				}
 			}
 		} else {
 			fLog.debug("Global class find for \"" + ctxt.fLeaf + 
 			"\" returned no results");
 		}
-
+	}
+	
+	private void findGlobalProposals(
+			SVExprContext						ctxt,
+			SVDBFindContentAssistNameMatcher	matcher,
+			SVCompletionProposalQueue			queue) {
 		// Try global task/function/variables 
-		if (ctxt.fType != ContextType.Extends) {
-			SVDBFindByName finder_tf = new SVDBFindByName(getIndexIterator(), matcher);
-
-			List<ISVDBItemBase> it_l = finder_tf.find(ctxt.fLeaf,
-					SVDBItemType.Task, SVDBItemType.Function, SVDBItemType.VarDeclStmt,
-					SVDBItemType.PackageDecl, SVDBItemType.TypedefStmt, SVDBItemType.VarDeclItem);
-
-			// Remove any definitions of extern tasks/functions, 
-			// since the name prefix was incorrectly matched
-			for (int i=0; i<it_l.size(); i++) {
-				if (it_l.get(i).getType() == SVDBItemType.Function || 
-						it_l.get(i).getType() == SVDBItemType.Task) {
-					SVDBTask tf = (SVDBTask)it_l.get(i);
-					if ((tf.getAttr() & IFieldItemAttr.FieldAttr_Extern) == 0 &&
-							tf.getName().contains("::")) {
-						it_l.remove(i);
-						i--;
-					}
+		SVDBFindByName finder_tf = new SVDBFindByName(getIndexIterator(), matcher);
 
-					// Do not include tasks/functions unless they are completely
-					// global or members of a package
-					ISVDBItemBase scope_t = tf;
-					while (scope_t != null && 
-							scope_t.getType() != SVDBItemType.ClassDecl &&
-							scope_t.getType() != SVDBItemType.ModuleDecl) {
-						scope_t = ((ISVDBChildItem)scope_t).getParent();
-					}
+		List<ISVDBItemBase> it_l = finder_tf.find(ctxt.fLeaf,
+				SVDBItemType.Task, SVDBItemType.Function, SVDBItemType.VarDeclStmt,
+				SVDBItemType.PackageDecl, SVDBItemType.TypedefStmt, SVDBItemType.VarDeclItem);
+		
+		fLog.debug("Global find-by-name \"" + ctxt.fLeaf + "\" returned " + 
+				it_l.size() + " results");
 
-					if (scope_t != null && 
-							(scope_t.getType() == SVDBItemType.ClassDecl ||
-							scope_t.getType() == SVDBItemType.ModuleDecl)) {
-						it_l.remove(i);
-						i--;
-					}
-				}
+		for (ISVDBItemBase it : it_l) {
+			if (queue.isClosed()) {
+				break;
 			}
+			
+			if (it.getType() == SVDBItemType.Function || 
+					it.getType() == SVDBItemType.Task) {
+				SVDBTask tf = (SVDBTask)it;
+				
+				// Skip any definitions of extern tasks/functions, 
+				// since the name prefix was incorrectly matched
+				if ((tf.getAttr() & IFieldItemAttr.FieldAttr_Extern) == 0 &&
+						tf.getName().contains("::")) {
+					continue;
+				}
 
-			if (it_l != null && it_l.size() > 0) {
-				fLog.debug("Global find-by-name \"" + ctxt.fLeaf + "\" returned:");
-				for (ISVDBItemBase it : it_l) {
-					fLog.debug("    " + it.getType() + " " + ((ISVDBNamedItem)it).getName());
+				// Do not include tasks/functions unless they are completely
+				// global or members of a package
+				ISVDBItemBase scope_t = tf;
+				while (scope_t != null && 
+						scope_t.getType() != SVDBItemType.ClassDecl &&
+						scope_t.getType() != SVDBItemType.ModuleDecl) {
+					scope_t = ((ISVDBChildItem)scope_t).getParent();
 				}
 
-				for (ISVDBItemBase it : it_l) {
-					addProposal(it, ctxt.fLeaf, ctxt.fStart, ctxt.fLeaf.length());
+				if (scope_t != null) {
+					continue;
 				}
-			} else {
-				fLog.debug("Global find-by-name \"" + ctxt.fLeaf + 
-						"\" (2) returned no results");
 			}
+			
+			queue.add(createProposal(ctxt, it, RELEVANCE_GLOBAL));
 		}
 	}
 	
+	/**
+	 * Checks whether the item is the constructor of a possible call 
+	 * to 'new'. Such a proposal is made later, based on the base type
+	 */
+	private boolean isDeferredNew(SVExprContext ctxt, ISVDBItemBase it) {
+		return (ctxt.fTrigger != null && ctxt.fTrigger.equals("=") &&
+				"new".startsWith(ctxt.fLeaf) &&
+				it.getType() == SVDBItemType.Function &&
+				((ISVDBNamedItem)it).getName().equals("new"));
+	}
+	
+	private SVCompletionProposal createProposal(
+			SVExprContext		ctxt,
+			ISVDBItemBase		it,
+			int					relevance) {
+		SVCompletionProposal p = new SVCompletionProposal(
+				it, ctxt.fLeaf, ctxt.fStart, ctxt.fLeaf.length());
+		p.setRelevance(relevance);
+		return p;
+	}
+	
 	private boolean isSameScopeVarDecl(
 			ISVDBChildItem		src_scope,
 			ISVDBItemBase		proposal) {
@@ -1270,7 +1535,7 @@ public abstract class AbstractCompletionProcessor implements ILogLevel {
 	/**
 	 * order_proposals()
 	 * 
-	 * Re-order the proposals to be in alphabetical order
+	 * Re-order the proposals from most to least relevant
 	 * 
 	 * @param proposals
 	 */
@@ -1278,77 +1543,31 @@ public abstract class AbstractCompletionProcessor implements ILogLevel {
 	
 		synchronized (proposals) {
 			// First eliminate any class typedefs for which the actual class is available
+			Map<String, Integer> name_count = new HashMap<String, Integer>();
+			for (SVCompletionProposal p : proposals) {
+				if (p.getItem() != null) {
+					String name = SVDBItem.getName(p.getItem());
+					Integer count = name_count.get(name);
+					name_count.put(name, (count == null)?1:(count+1));
+				}
+			}
+			
 			for (int i=0; i<proposals.size(); i++) {
 				SVCompletionProposal p = proposals.get(i);
 				if (p.getItem() != null && SVDBStmt.isType(p.getItem(), SVDBItemType.TypedefStmt)) {
-					boolean found = false;
-
-					for (SVCompletionProposal p_t : proposals) {
-						if (p_t != p && p_t.getItem() != null && 
-								SVDBItem.getName(p_t.getItem()).equals(SVDBItem.getName(p.getItem()))) {
-							found = true;
-							break;
-						}
-					}
+					String name = SVDBItem.getName(p.getItem());
+					int count = name_count.get(name);
 
-					if (found) {
+					if (count > 1) {
+						name_count.put(name, count-1);
+						fProposalItemMap.remove(p.getItem());
 						proposals.remove(i);
 						i--;
 					}
 				}
 			}
-			for (int i = 0; i < proposals.size(); i++) {
-				SVCompletionProposal p_i = proposals.get(i);
-				for (int j = i + 1; j < proposals.size(); j++) {
-					SVCompletionProposal p_j = proposals.get(j);
-					String s_i, s_j;
-
-					if (p_i.getItem() != null) {
-						s_i = SVDBItem.getName(p_i.getItem());
-					} else {
-						s_i = p_i.getReplacement();
-					}
-
-					if (p_j.getItem() != null) {
-						s_j = SVDBItem.getName(p_j.getItem());
-					} else {
-						s_j = p_j.getReplacement();
-					}
-
-					if (s_i.compareTo(s_j) > 0) {
-						proposals.set(i, p_j);
-						proposals.set(j, p_i);
-						p_i = p_j;
-					}
-				}
-			}
-
-			for (int i=0; i<proposals.size(); i++) {
-				SVCompletionProposal p_i = proposals.get(i);
-				for (int j=i+1; j<proposals.size(); j++) {
-					SVCompletionProposal p_j = proposals.get(j);
-
-					String s_i, s_j;
-
-					if (p_i.getItem() != null) {
-						s_i = SVDBItem.getName(p_i.getItem());
-					} else {
-						s_i = p_i.getReplacement();
-					}
-
-					if (p_j.getItem() != null) {
-						s_j = SVDBItem.getName(p_j.getItem());
-					} else {
-						s_j = p_j.getReplacement();
-					}
-
-					if (prefix.compareTo(s_i) < prefix.compareTo(s_j)) {
-						proposals.set(i, p_j);
-						proposals.set(j, p_i);
-						p_i = p_j;
-					}
-				}
-			}
+			
+			Collections.sort(proposals, new SVCompletionProposalComparator(prefix));
 		}
 	}
 
@@ -1370,25 +1589,22 @@ public abstract class AbstractCompletionProcessor implements ILogLevel {
 		
 		synchronized (fCompletionProposals) {
 			// Check if we already have it in the proposal list?
-			for (SVCompletionProposal p : fCompletionProposals) {
-				if (p.getItem() != null) {
-					if (p.getItem() == it) {
-						found = true;
-						break;
-					} else if (name_based_check) {
-						if (p.getItem() instanceof ISVDBNamedItem &&
-								it instanceof ISVDBNamedItem) {
-							ISVDBNamedItem i1 = (ISVDBNamedItem)p.getItem();
-							ISVDBNamedItem i2 = (ISVDBNamedItem)it;
-							if (i1.getName() == null || i1.getName() == null) {
-								if (i1.getName() == i2.getName()) {
-									found = true;
-									break;
-								}
-							} else if (i1.getName().equals(i2.getName())) {
+			found = fProposalItemMap.containsKey(it);
+			
+			if (!found && name_based_check) {
+				for (SVCompletionProposal p : fCompletionProposals) {
+					if (p.getItem() instanceof ISVDBNamedItem &&
+							it instanceof ISVDBNamedItem) {
+						ISVDBNamedItem i1 = (ISVDBNamedItem)p.getItem();
+						ISVDBNamedItem i2 = (ISVDBNamedItem)it;
+						if (i1.getName() == null || i1.getName() == null) {
+							if (i1.getName() == i2.getName()) {
 								found = true;
 								break;
 							}
+						} else if (i1.getName().equals(i2.getName())) {
+							found = true;
+							break;
 						}
 					}
 				}
@@ -23,6 +23,7 @@ public class SVCompletionProposal {
 	private int							fReplacementOffset;
 	private int							fReplacementLength;
 	private SVCompletionProposalType	fType;
+	private int							fRelevance;
 	
 	
 	public SVCompletionProposal(
@@ -86,5 +87,18 @@ public class SVCompletionProposal {
 	public int getReplacementLength() {
 		return fReplacementLength;
 	}
+	
+	/**
+	 * Returns the relevance of the proposal's source. Proposals from
+	 * more relevant sources (eg the enclosing scope) are ordered first
+	 * among proposals that match the prefix equally well
+	 */
+	public int getRelevance() {
+		return fRelevance;
+	}
+	
+	public void setRelevance(int relevance) {
+		fRelevance = relevance;
+	}
 
 }
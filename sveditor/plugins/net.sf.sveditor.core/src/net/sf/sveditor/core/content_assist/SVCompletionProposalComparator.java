@@ -0,0 +1,82 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.content_assist;
+
+import java.util.Comparator;
+
+import net.sf.sveditor.core.db.SVDBItem;
+
+/**
+ * Orders proposals from most to least relevant. Proposals are ranked
+ * first by how well they match the prefix (exact, prefix, prefix ignoring
+ * case), then by the relevance of their source, then by name length and
+ * finally alphabetically.
+ */
+public class SVCompletionProposalComparator implements Comparator<SVCompletionProposal> {
+	private static final int			MATCH_EXACT			= 0;
+	private static final int			MATCH_PREFIX		= 1;
+	private static final int			MATCH_PREFIX_NOCASE	= 2;
+	private static final int			MATCH_NONE			= 3;
+
+	private String						fPrefix;
+	private String						fPrefixLower;
+
+	public SVCompletionProposalComparator(String prefix) {
+		fPrefix = (prefix != null)?prefix:"";
+		fPrefixLower = fPrefix.toLowerCase();
+	}
+
+	public int compare(SVCompletionProposal p1, SVCompletionProposal p2) {
+		String n1 = getName(p1), n2 = getName(p2);
+		int ret;
+
+		if ((ret = (getMatch(n1) - getMatch(n2))) != 0) {
+			return ret;
+		}
+
+		if ((ret = (p2.getRelevance() - p1.getRelevance())) != 0) {
+			return ret;
+		}
+
+		if ((ret = (n1.length() - n2.length())) != 0) {
+			return ret;
+		}
+
+		return n1.compareTo(n2);
+	}
+
+	public static String getName(SVCompletionProposal p) {
+		String name = null;
+
+		if (p.getItem() != null) {
+			name = SVDBItem.getName(p.getItem());
+		} else {
+			name = p.getReplacement();
+		}
+
+		return (name != null)?name:"";
+	}
+
+	private int getMatch(String name) {
+		if (name.equals(fPrefix)) {
+			return MATCH_EXACT;
+		} else if (name.startsWith(fPrefix)) {
+			return MATCH_PREFIX;
+		} else if (name.toLowerCase().startsWith(fPrefixLower)) {
+			return MATCH_PREFIX_NOCASE;
+		} else {
+			return MATCH_NONE;
+		}
+	}
+
+}
@@ -0,0 +1,132 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.content_assist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import net.sf.sveditor.core.db.ISVDBItemBase;
+
+/**
+ * Collects the most relevant proposals offered by a set of concurrent
+ * proposal sources. At most 'max' proposals are kept; once the queue is
+ * full, a new proposal replaces the least-relevant one if it ranks higher.
+ * A proposal for an item that is already queued is kept only if it comes
+ * from a more relevant source. Once closed, the queue ignores further
+ * proposals, allowing sources that outlive the latency budget to finish
+ * without affecting the result.
+ */
+public class SVCompletionProposalQueue {
+	private int											fMaxProposals;
+	private SVCompletionProposalComparator				fComparator;
+	private PriorityQueue<SVCompletionProposal>			fQueue;
+	private Map<ISVDBItemBase, SVCompletionProposal>	fItemMap;
+	private boolean									fClosed;
+	private boolean									fTruncated;
+
+	/**
+	 * @param prefix prefix the proposals are ranked against
+	 * @param max    maximum number of proposals to keep. 0 is unbounded
+	 */
+	public SVCompletionProposalQueue(String prefix, int max) {
+		fMaxProposals = max;
+		fComparator = new SVCompletionProposalComparator(prefix);
+
+		// Head of the queue is the least-relevant proposal
+		fQueue = new PriorityQueue<SVCompletionProposal>(16,
+				new Comparator<SVCompletionProposal>() {
+					public int compare(SVCompletionProposal p1, SVCompletionProposal p2) {
+						return fComparator.compare(p2, p1);
+					}
+				});
+		fItemMap = new IdentityHashMap<ISVDBItemBase, SVCompletionProposal>();
+	}
+
+	/**
+	 * Offers a proposal to the queue
+	 *
+	 * @return false if the proposal was not queued
+	 */
+	public synchronized boolean add(SVCompletionProposal p) {
+		if (fClosed) {
+			return false;
+		}
+
+		if (p.getItem() != null) {
+			SVCompletionProposal p_t = fItemMap.get(p.getItem());
+			if (p_t != null) {
+				if (p_t.getRelevance() >= p.getRelevance()) {
+					return false;
+				}
+				fQueue.remove(p_t);
+				fItemMap.remove(p.getItem());
+			}
+		}
+
+		if (fMaxProposals > 0 && fQueue.size() >= fMaxProposals) {
+			fTruncated = true;
+			if (fComparator.compare(p, fQueue.peek()) >= 0) {
+				return false;
+			}
+			SVCompletionProposal evicted = fQueue.poll();
+			if (evicted.getItem() != null) {
+				fItemMap.remove(evicted.getItem());
+			}
+		}
+
+		fQueue.add(p);
+		if (p.getItem() != null) {
+			fItemMap.put(p.getItem(), p);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Stops the queue from accepting further proposals
+	 */
+	public synchronized void close() {
+		fClosed = true;
+	}
+
+	public synchronized boolean isClosed() {
+		return fClosed;
+	}
+
+	/**
+	 * Indicates whether proposals were dropped because the queue was full
+	 */
+	public synchronized boolean isTruncated() {
+		return fTruncated;
+	}
+
+	public synchronized int size() {
+		return fQueue.size();
+	}
+
+	/**
+	 * Returns the queued proposals, most relevant first
+	 */
+	public synchronized List<SVCompletionProposal> getProposals() {
+		List<SVCompletionProposal> ret = new ArrayList<SVCompletionProposal>(fQueue);
+		Collections.sort(ret, fComparator);
+
+		return ret;
+	}
+
+}
@@ -0,0 +1,177 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.content_assist;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.sveditor.core.db.ISVDBChildItem;
+import net.sf.sveditor.core.db.SVDBFile;
+import net.sf.sveditor.core.db.index.ISVDBIndex;
+import net.sf.sveditor.core.db.index.ISVDBIndexChangeListener;
+import net.sf.sveditor.core.db.index.ISVDBIndexIterator;
+import net.sf.sveditor.core.db.index.SVDBIndexCollection;
+import net.sf.sveditor.core.expr_utils.SVExprContext;
+
+/**
+ * Holds the candidate proposals for the last identifier prefix completed
+ * during a content-assist session. The candidates are identified by the
+ * index, the active file, the enclosing scope, the expression context and
+ * the prefix. When the prefix is extended, the candidates are filtered
+ * rather than searched for again. The candidates are discarded when the
+ * index changes.
+ */
+public class SVCompletionResultCache implements ISVDBIndexChangeListener {
+	private ISVDBIndexIterator					fIndexIt;
+	private SVDBFile							fFile;
+	private ISVDBChildItem						fScope;
+	private String								fRoot;
+	private String								fTrigger;
+	private SVExprContext.ContextType			fType;
+	private int									fStart;
+	private int									fMaxProposals;
+	private String								fPrefix;
+	private List<SVCompletionProposal>			fCandidates;
+	private Object								fListenTarget;
+	private Object								fListenLock = new Object();
+	private int									fGeneration;
+
+	/**
+	 * Returns the cached candidates whose name starts with the context's
+	 * prefix, or null if the candidates for the context are not known
+	 */
+	public synchronized List<SVCompletionProposal> find(
+			ISVDBIndexIterator		index_it,
+			SVDBFile				file,
+			ISVDBChildItem			scope,
+			SVExprContext			ctxt,
+			int						max) {
+		if (fCandidates == null || fIndexIt != index_it || fFile != file ||
+				fScope != scope || fStart != ctxt.fStart ||
+				fMaxProposals != max || fType != ctxt.fType ||
+				!equals(fRoot, ctxt.fRoot) || !equals(fTrigger, ctxt.fTrigger)) {
+			return null;
+		}
+
+		String prefix = ctxt.fLeaf.toLowerCase();
+		if (!prefix.startsWith(fPrefix)) {
+			return null;
+		}
+
+		List<SVCompletionProposal> ret = new ArrayList<SVCompletionProposal>();
+		for (SVCompletionProposal p : fCandidates) {
+			if (SVCompletionProposalComparator.getName(p).toLowerCase().startsWith(prefix)) {
+				ret.add(p);
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Starts listening for changes to the index and returns the current
+	 * generation of the cache. The generation changes whenever the index
+	 * changes
+	 */
+	public int getGeneration(ISVDBIndexIterator index_it) {
+		// Listeners are (un)registered without holding the cache lock,
+		// since the index holds its listener lock while notifying
+		listen(index_it);
+
+		synchronized (this) {
+			return fGeneration;
+		}
+	}
+
+	/**
+	 * Caches the complete set of candidates for the context. The 
+	 * candidates are dropped if the index changed since 'generation'
+	 * was obtained, since they may no longer be accurate
+	 */
+	public synchronized void put(
+			int							generation,
+			ISVDBIndexIterator			index_it,
+			SVDBFile					file,
+			ISVDBChildItem				scope,
+			SVExprContext				ctxt,
+			int							max,
+			List<SVCompletionProposal>	candidates) {
+		if (generation != fGeneration) {
+			return;
+		}
+
+		fIndexIt = index_it;
+		fFile = file;
+		fScope = scope;
+		fRoot = ctxt.fRoot;
+		fTrigger = ctxt.fTrigger;
+		fType = ctxt.fType;
+		fStart = ctxt.fStart;
+		fMaxProposals = max;
+		fPrefix = ctxt.fLeaf.toLowerCase();
+		fCandidates = new ArrayList<SVCompletionProposal>(candidates);
+	}
+
+	/**
+	 * Discards the candidates and stops listening for index changes
+	 */
+	public void clear() {
+		listen(null);
+
+		synchronized (this) {
+			fIndexIt = null;
+			fFile = null;
+			fScope = null;
+			fCandidates = null;
+			fGeneration++;
+		}
+	}
+
+	public synchronized void index_changed(int reason, SVDBFile file) {
+		fCandidates = null;
+		fGeneration++;
+	}
+
+	public synchronized void index_rebuilt() {
+		fCandidates = null;
+		fGeneration++;
+	}
+
+	private void listen(ISVDBIndexIterator index_it) {
+		synchronized (fListenLock) {
+			if (fListenTarget == index_it) {
+				return;
+			}
+			
+			if (fListenTarget instanceof SVDBIndexCollection) {
+				((SVDBIndexCollection)fListenTarget).removeIndexChangeListener(this);
+			} else if (fListenTarget instanceof ISVDBIndex) {
+				((ISVDBIndex)fListenTarget).removeChangeListener(this);
+			}
+			fListenTarget = null;
+
+			if (index_it instanceof SVDBIndexCollection) {
+				((SVDBIndexCollection)index_it).addIndexChangeListener(this);
+				fListenTarget = index_it;
+			} else if (index_it instanceof ISVDBIndex) {
+				((ISVDBIndex)index_it).addChangeListener(this);
+				fListenTarget = index_it;
+			}
+		}
+	}
+
+	private static boolean equals(String s1, String s2) {
+		return (s1 == null)?(s2 == null):s1.equals(s2);
+	}
+
+}
@@ -46,6 +46,7 @@ import net.sf.sveditor.core.db.SVDBPreProcObserver;
 import net.sf.sveditor.core.db.SVDBTypeInfoEnum;
 import net.sf.sveditor.core.db.SVDBTypeInfoEnumerator;
 import net.sf.sveditor.core.db.index.cache.ISVDBIndexCache;
+import net.sf.sveditor.core.db.index.cache.SVDBSharedIndexCache;
 import net.sf.sveditor.core.db.refs.ISVDBRefFinder;
 import net.sf.sveditor.core.db.refs.ISVDBRefMatcher;
 import net.sf.sveditor.core.db.refs.SVDBFileRefCollector;
@@ -54,6 +55,9 @@ import net.sf.sveditor.core.db.refs.SVDBRefCacheItem;
 import net.sf.sveditor.core.db.refs.SVDBRefFinder;
 import net.sf.sveditor.core.db.refs.SVDBRefItem;
 import net.sf.sveditor.core.db.search.ISVDBFindNameMatcher;
+import net.sf.sveditor.core.db.search.SVDBClassMemberTableCache;
+import net.sf.sveditor.core.db.search.SVDBFindContentAssistNameMatcher;
+import net.sf.sveditor.core.db.search.SVDBFindDefaultNameMatcher;
 import net.sf.sveditor.core.db.search.SVDBSearchResult;
 import net.sf.sveditor.core.db.stmt.SVDBTypedefStmt;
 import net.sf.sveditor.core.db.stmt.SVDBVarDeclItem;
@@ -63,6 +67,9 @@ import net.sf.sveditor.core.log.ILogLevel;
 import net.sf.sveditor.core.log.ILogLevelListener;
 import net.sf.sveditor.core.log.LogFactory;
 import net.sf.sveditor.core.log.LogHandle;
+import net.sf.sveditor.core.metrics.MetricsHistogram;
+import net.sf.sveditor.core.metrics.MetricsRegistry;
+import net.sf.sveditor.core.parser.ParserSVDBFileFactory;
 import net.sf.sveditor.core.preproc.SVPreProcDirectiveScanner;
 import net.sf.sveditor.core.preproc.SVPreProcessor;
 import net.sf.sveditor.core.scanner.FileContextSearchMacroProvider;
@@ -95,6 +102,7 @@ public abstract class AbstractSVDBIndex implements ISVDBIndex,
 	private String 									fBaseLocationDir;
 
 	private SVDBBaseIndexCacheData 					fIndexCacheData;
+	private SVDBDeclPrefixIndex						fDeclPrefixIndex;
 	private boolean								fCacheDataValid;
 	
 	protected Set<String>							fMissingIncludes;
@@ -124,6 +132,8 @@ public abstract class AbstractSVDBIndex implements ISVDBIndex,
 	
 	// Controls indexing parallelism
 	private int									fMaxIndexThreads = 0;
+	private long									fPhaseTimes[] = 
+		new long[PhaseNames.length];
 	protected boolean								fDebugEn;
 
 	protected boolean								fInWorkspaceOk;
@@ -151,6 +161,8 @@ public abstract class AbstractSVDBIndex implements ISVDBIndex,
 		
 		fFileDirs = new HashSet<String>();
 		fDeferredPkgCacheFiles = new ArrayList<Tuple<String,List<String>>>();
+
+		fDeclPrefixIndex = new SVDBDeclPrefixIndex();
 	}
 
 	public AbstractSVDBIndex(String project, String base_location,
@@ -177,8 +189,50 @@ public abstract class AbstractSVDBIndex implements ISVDBIndex,
 	public boolean isDirty() {
 		return fIsDirty;
 	}
+	
+	/**
+	 * Returns the maximum number of threads this index may use
+	 * for indexing work
+	 */
+	protected int getMaxIndexThreads() {
+		return fMaxIndexThreads;
+	}
+	
+	/**
+	 * Sets the maximum number of threads this index may use for 
+	 * indexing work. Defaults to the core plugin setting
+	 */
+	public void setMaxIndexThreads(int n) {
+		fMaxIndexThreads = n;
+	}
+	
+	/**
+	 * Returns the time, in milliseconds, spent in each build phase 
+	 * the last time the index was built
+	 */
+	public long[] getPhaseTimes() {
+		return fPhaseTimes.clone();
+	}
 
 	protected abstract String getLogName();
+	
+	/**
+	 * Returns true if the bodies of tasks, functions, constraints and
+	 * procedural blocks are skipped when indexing files. Full bodies
+	 * remain available from parse(), which is used for open files
+	 */
+	protected boolean isSkimParse() {
+		return false;
+	}
+	
+	/**
+	 * Returns the version recorded with the cache. Files parsed with and
+	 * without skimming are not interchangeable, so the skim mode is part 
+	 * of the version
+	 */
+	private String getCacheVersion() {
+		return SVCorePlugin.getVersion() + ((isSkimParse())?"/skim":"");
+	}
 
 	/**
 	 * Called when the index is initialized to determine whether the cached
@@ -189,7 +243,7 @@ public abstract class AbstractSVDBIndex implements ISVDBIndex,
 	@SuppressWarnings("unchecked")
 	protected boolean checkCacheValid() {
 		boolean valid = true;
-		String version = SVCorePlugin.getVersion();
+		String version = getCacheVersion();
 		
 		if (fDebugEn) {
 			fLog.debug("Cached version=" + fIndexCacheData.getVersion() + " version=" + version);
@@ -355,7 +409,7 @@ public abstract class AbstractSVDBIndex implements ISVDBIndex,
 			invalidateIndex(m, "Cache is invalid", true);
 		}
 		// set the version to check later
-		fIndexCacheData.setVersion(SVCorePlugin.getVersion());
+		fIndexCacheData.setVersion(getCacheVersion());
 
 		// Set the global settings anyway
 		if (fConfig != null
@@ -389,7 +443,6 @@ public abstract class AbstractSVDBIndex implements ISVDBIndex,
 	 * @param state
 	 */
 	public synchronized void ensureIndexState(IProgressMonitor super_monitor, int state) {
-		long start_time=0, end_time=0;
 		SubProgressMonitor monitor = new SubProgressMonitor(super_monitor, 1);
 		monitor.beginTask("Ensure Index State for " + getBaseLocation(), 4);
 		if (fIndexState < IndexState_RootFilesDiscovered
@@ -397,17 +450,20 @@ public abstract class AbstractSVDBIndex implements ISVDBIndex,
 			if (fDebugEn) {
 				fLog.debug("Moving index to state RootFilesDiscovered from "
 						+ fIndexState);
-				start_time = System.currentTimeMillis();
 			}
+			MetricsHistogram phase_h = MetricsRegistry.histogram(
+					MetricsRegistry.INDEX_PHASE + PhaseNames[0]);
+			long start = phase_h.start();
 			SubProgressMonitor m = new SubProgressMonitor(monitor, 1);
 			discoverRootFiles(m);
 			// Flush file-list back to backing store
 			fCache.sync();
 			fIndexState = IndexState_RootFilesDiscovered;
 			fIsDirty = false;
+			long elapsed = phase_h.stop(start) / 1000;
+			fPhaseTimes[0] = elapsed;
 			if (fDebugEn) {
-				end_time = System.currentTimeMillis();
-				fLog.debug(LEVEL_MID, "Move to RootFilesDiscovered: " + (end_time-start_time));
+				fLog.debug(LEVEL_MID, "Move to RootFilesDiscovered: " + elapsed);
 			}
 		}
 		if (fIndexState < IndexState_FilesPreProcessed
@@ -415,16 +471,19 @@ public abstract class AbstractSVDBIndex implements ISVDBIndex,
 			if (fDebugEn) {
 				fLog.debug("Moving index to state FilesPreProcessed from "
 						+ fIndexState);
-				start_time = System.currentTimeMillis();
 			}
+			MetricsHistogram phase_h = MetricsRegistry.histogram(
+					MetricsRegistry.INDEX_PHASE + PhaseNames[1]);
+			long start = phase_h.start();
 			SubProgressMonitor m = new SubProgressMonitor(monitor, 1);
 			preProcessFiles(m);
 			fIndexState = IndexState_FilesPreProcessed;
 			fIsDirty = false;
 			
+			long elapsed = phase_h.stop(start) / 1000;
+			fPhaseTimes[1] = elapsed;
 			if (fDebugEn) {
-				end_time = System.currentTimeMillis();
-				fLog.debug(LEVEL_MID, "Move to FilesPreProcessed: " + (end_time-start_time));
+				fLog.debug(LEVEL_MID, "Move to FilesPreProcessed: " + elapsed);
 			}
 		}
 		if (fIndexState < IndexState_FileTreeValid
@@ -432,8 +491,10 @@ public abstract class AbstractSVDBIndex implements ISVDBIndex,
 			if (fDebugEn) {
 				fLog.debug("Moving index to state FileTreeValid from "
 						+ fIndexState);
-				start_time = System.currentTimeMillis();
 			}
+			MetricsHistogram phase_h = MetricsRegistry.histogram(
+					MetricsRegistry.INDEX_PHASE + PhaseNames[2]);
+			long start = phase_h.start();
 			SubProgressMonitor m = new SubProgressMonitor(monitor, 1);
 			buildFileTree(m);
 			fIndexState = IndexState_FileTreeValid;
@@ -442,16 +503,17 @@ public abstract class AbstractSVDBIndex implements ISVDBIndex,
 			notifyIndexRebuilt();
 			fIsDirty = false;
 			
+			long elapsed = phase_h.stop(start) / 1000;
+			fPhaseTimes[2] = elapsed;
 			if (fDebugEn) {
-				end_time = System.currentTimeMillis();
-				fLog.debug(LEVEL_MID, "Move to FileTreeValid: " + (end_time-start_time));
+				fLog.debug(LEVEL_MID, "Move to FileTreeValid: " + elapsed);
 			}
 		}
 		if (fIndexState < IndexState_AllFilesParsed
 				&& state >= IndexState_AllFilesParsed) {
-			if (fDebugEn) {
-				start_time = System.currentTimeMillis();
-			}
+			MetricsHistogram phase_h = MetricsRegistry.histogram(
+					MetricsRegistry.INDEX_PHASE + PhaseNames[3]);
+			long start = phase_h.start();
 			
 			if (fCacheDataValid) {
 				SubProgressMonitor m = new SubProgressMonitor(monitor, 1);
@@ -473,8 +535,10 @@ public abstract class AbstractSVDBIndex implements ISVDBIndex,
 				}
 			}
 			
+			long elapsed = phase_h.stop(start) / 1000;
+			fPhaseTimes[3] = elapsed;
 			if (fDebugEn) {
-				fLog.debug(LEVEL_MID, "Move to AllFilesParsed: " + (end_time-start_time));
+				fLog.debug(LEVEL_MID, "Move to AllFilesParsed: " + elapsed);
 			}
 		}
 	
@@ -585,8 +649,12 @@ public abstract class AbstractSVDBIndex implements ISVDBIndex,
 						
 				} 
 				if(ft_root != null) {
+					MetricsHistogram parse_h = MetricsRegistry.histogram(
+							MetricsRegistry.INDEX_FILE_PARSE);
+					long start = parse_h.start();
 					IPreProcMacroProvider mp = createMacroProvider(ft_root);
 					processFile(ft_root, mp);
+					parse_h.stop(start);
 				}
 				
 				synchronized (fCache) {
@@ -616,6 +684,7 @@ public abstract class AbstractSVDBIndex implements ISVDBIndex,
 			fIndexState = IndexState_AllInvalid;
 			fCacheDataValid = false;
 			fIndexCacheData.clear();
+			fDeclPrefixIndex.invalidate();
 			fCache.clear(monitor);
 			fMissingIncludes.clear();
 			fDeferredPkgCacheFiles.clear();
@@ -657,6 +726,7 @@ public abstract class AbstractSVDBIndex implements ISVDBIndex,
 	}
 
 	public void fileChanged(String path) {
+		boolean changed = false;
 		synchronized (fCache) {
 			if (fCache.getFileList().contains(path)) {
 //				invalidateIndex();
@@ -666,8 +736,15 @@ public abstract class AbstractSVDBIndex implements ISVDBIndex,
 				fCache.setFile(path, null);
 				fCache.setLastModified(path, 
 						getFileSystemProvider().getLastModifiedTime(path));
+				changed = true;
 			}
 		}
+		
+		if (changed) {
+			// The file is re-parsed on demand, so listeners 
+			// are not passed the new file content
+			notifyIndexChanged(ISVDBIndexChangeListener.FILE_CHANGED, null);
+		}
 	}
 
 	public void fileRemoved(String path) {
@@ -811,8 +888,12 @@ public abstract class AbstractSVDBIndex implements ISVDBIndex,
 			}
 
 			if (ft_root != null) {
+				MetricsHistogram parse_h = MetricsRegistry.histogram(
+						MetricsRegistry.INDEX_FILE_PARSE);
+				long start = parse_h.start();
 				IPreProcMacroProvider mp = createMacroProvider(ft_root);
 				processFile(ft_root, mp);
+				parse_h.stop(start);
 				
 				synchronized (fCache) {
 					ret = fCache.getFile(monitor, path);
@@ -1017,7 +1098,11 @@ public abstract class AbstractSVDBIndex implements ISVDBIndex,
 				m.beginTask("Process " + path, 1);
 			}
 			
+			MetricsHistogram preproc_h = MetricsRegistry.histogram(
+					MetricsRegistry.INDEX_FILE_PREPROC);
+			long start = preproc_h.start();
 			SVDBFile file = processPreProcFile(path);
+			preproc_h.stop(start);
 			synchronized (fCache) {
 				fCache.setPreProcFile(path, file);
 				fCache.setLastModified(path, 
@@ -1520,6 +1605,7 @@ public abstract class AbstractSVDBIndex implements ISVDBIndex,
 	}
 
 	protected void notifyIndexRebuilt() {
+		SVDBClassMemberTableCache.getDefault().invalidate();
 		synchronized (fIndexChangeListeners) {
 			for (ISVDBIndexChangeListener l : fIndexChangeListeners) {
 				l.index_rebuilt();
@@ -1527,6 +1613,19 @@ public abstract class AbstractSVDBIndex implements ISVDBIndex,
 		}
 	}
 
+	protected void notifyIndexChanged(int reason, SVDBFile file) {
+		if (file != null && file.getFilePath() != null) {
+			SVDBClassMemberTableCache.getDefault().invalidate(file.getFilePath());
+		} else {
+			SVDBClassMemberTableCache.getDefault().invalidate();
+		}
+		synchronized (fIndexChangeListeners) {
+			for (ISVDBIndexChangeListener l : fIndexChangeListeners) {
+				l.index_changed(reason, file);
+			}
+		}
+	}
+
 	protected IPreProcMacroProvider createMacroProvider(SVDBFileTree file_tree) {
 		SVFileTreeMacroProvider mp = new SVFileTreeMacroProvider(fCache, file_tree, fMissingIncludes);
 
@@ -1681,9 +1780,6 @@ public abstract class AbstractSVDBIndex implements ISVDBIndex,
 	}
 
 	protected void processFile(SVDBFileTree path, IPreProcMacroProvider mp) {
-		SVPreProcDefineProvider dp = new SVPreProcDefineProvider(mp);
-		ISVDBFileFactory factory = SVCorePlugin.createFileFactory(dp);
-		
 		fLog.debug(LEVEL_MAX, "processFile: " + path.getFilePath());
 
 		String path_s = path.getFilePath();
@@ -1708,7 +1804,40 @@ public abstract class AbstractSVDBIndex implements ISVDBIndex,
 			}
 		}
 
-		SVDBFile svdb_f = factory.parse(in, path.getFilePath(), markers);
+		final boolean skim = isSkimParse();
+		final SVDBFileTree file_tree = path;
+		SVDBSharedIndexCache.IFileParser parser = new SVDBSharedIndexCache.IFileParser() {
+			
+			public IPreProcMacroProvider createMacroProvider() {
+				return AbstractSVDBIndex.this.createMacroProvider(file_tree);
+			}
+			
+			public SVDBFile parse(InputStream in, IPreProcMacroProvider mp,
+					List<SVDBMarker> markers) {
+				SVPreProcDefineProvider dp = new SVPreProcDefineProvider(mp);
+				ISVDBFileFactory factory = SVCorePlugin.createFileFactory(dp);
+				if (skim && factory instanceof ParserSVDBFileFactory) {
+					((ParserSVDBFileFactory)factory).setSkimBodies(true);
+				}
+				return factory.parse(in, file_tree.getFilePath(), markers);
+			}
+		};
+		SVDBFile svdb_f;
+		
+		if (fCache instanceof SVDBSharedIndexCache && in != null) {
+			// Identical content parsed in an equivalent macro environment
+			// is shared with other indexes rather than parsed again
+			try {
+				svdb_f = ((SVDBSharedIndexCache)fCache).parseFile(path_s, in,
+						(skim)?"-skim":null, mp, parser, markers);
+			} catch (IOException e) {
+				fLog.error("ProcessFile: Failed to read file \"" + path_s + "\"", e);
+				fFileSystemProvider.closeStream(in);
+				return;
+			}
+		} else {
+			svdb_f = parser.parse(in, mp, markers);
+		}
 
 		// Problem parsing the file..
 		if (svdb_f == null) {
@@ -1733,6 +1862,7 @@ public abstract class AbstractSVDBIndex implements ISVDBIndex,
 		
 		cacheDeclarations(svdb_f);
 		cacheReferences(svdb_f);
+		cacheModuleInstances(svdb_f);
 	}
 
 	public synchronized SVDBFile findPreProcFile(String path) {
@@ -1887,6 +2017,8 @@ public abstract class AbstractSVDBIndex implements ISVDBIndex,
 					ft.getSVDBFile(),
 					true);
 		}
+		
+		fDeclPrefixIndex.invalidate();
 	}
 
 	/**
@@ -2138,6 +2270,25 @@ public abstract class AbstractSVDBIndex implements ISVDBIndex,
 		ref_map.put(file.getFilePath(), ref);
 	}
 
+	/**
+	 * Updates this file's slice of the module-instance graph
+	 */
+	protected void cacheModuleInstances(SVDBFile file) {
+		Map<String, SVDBModInstCacheEntry> inst_map = getCacheData().getModInstCacheMap();
+		
+		synchronized (inst_map) {
+			inst_map.put(file.getFilePath(), SVDBModInstCacheEntry.build(file));
+		}
+	}
+	
+	public List<Tuple<String, String>> findModuleInstances(
+			IProgressMonitor	monitor,
+			String				module) {
+		ensureIndexState(monitor, IndexState_AllFilesParsed);
+		
+		return fIndexCacheData.findModuleInstances(module);
+	}
+
 	public List<SVDBDeclCacheItem> findPackageDecl(
 			IProgressMonitor	monitor,
 			SVDBDeclCacheItem 	pkg_item) {
@@ -2163,6 +2314,13 @@ public abstract class AbstractSVDBIndex implements ISVDBIndex,
 		Map<String, List<SVDBDeclCacheItem>> decl_cache = fIndexCacheData.getDeclCacheMap();
 		ensureIndexState(monitor, IndexState_AllFilesParsed);
 		
+		// Name and prefix matches are found via the prefix index
+		if (matcher instanceof SVDBFindContentAssistNameMatcher ||
+				matcher.getClass() == SVDBFindDefaultNameMatcher.class) {
+			fDeclPrefixIndex.find(ret, decl_cache, name, matcher);
+			return ret;
+		}
+		
 		for (Entry<String, List<SVDBDeclCacheItem>> e : decl_cache.entrySet()) {
 			for (SVDBDeclCacheItem item : e.getValue()) {
 				if (matcher.match(item, name)) {
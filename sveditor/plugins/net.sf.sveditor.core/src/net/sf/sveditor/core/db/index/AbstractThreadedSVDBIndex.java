@@ -44,10 +44,14 @@ import net.sf.sveditor.core.db.SVDBPackageDecl;
 import net.sf.sveditor.core.db.SVDBPreProcCond;
 import net.sf.sveditor.core.db.SVDBPreProcObserver;
 import net.sf.sveditor.core.db.index.cache.ISVDBIndexCache;
+import net.sf.sveditor.core.db.index.cache.SVDBSharedIndexCache;
 import net.sf.sveditor.core.db.refs.ISVDBRefMatcher;
 import net.sf.sveditor.core.db.refs.SVDBRefCacheEntry;
 import net.sf.sveditor.core.db.refs.SVDBRefCacheItem;
 import net.sf.sveditor.core.db.search.ISVDBFindNameMatcher;
+import net.sf.sveditor.core.db.search.SVDBClassMemberTableCache;
+import net.sf.sveditor.core.db.search.SVDBFindContentAssistNameMatcher;
+import net.sf.sveditor.core.db.search.SVDBFindDefaultNameMatcher;
 import net.sf.sveditor.core.db.search.SVDBSearchResult;
 import net.sf.sveditor.core.job_mgr.IJob;
 import net.sf.sveditor.core.job_mgr.IJobMgr;
@@ -56,6 +60,8 @@ import net.sf.sveditor.core.log.ILogLevel;
 import net.sf.sveditor.core.log.ILogLevelListener;
 import net.sf.sveditor.core.log.LogFactory;
 import net.sf.sveditor.core.log.LogHandle;
+import net.sf.sveditor.core.metrics.MetricsHistogram;
+import net.sf.sveditor.core.metrics.MetricsRegistry;
 import net.sf.sveditor.core.preproc.SVPreProcDirectiveScanner;
 import net.sf.sveditor.core.scanner.FileContextSearchMacroProvider;
 import net.sf.sveditor.core.scanner.IPreProcMacroProvider;
@@ -87,6 +93,7 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 	private String 									fBaseLocationDir;
 
 	private SVDBBaseIndexCacheData 					fIndexCacheData;
+	private SVDBDeclPrefixIndex						fDeclPrefixIndex;
 	private boolean								fCacheDataValid;
 	
 	protected Set<String>							fMissingIncludes;
@@ -122,6 +129,8 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 	protected boolean								fIsDirty;
 	
 	protected boolean								fEnableThreads = false;
+	
+	private long									fPhaseTimes[] = new long[PhaseNames.length];
 
 	static {
 		fWinPathPattern = Pattern.compile("\\\\");
@@ -138,6 +147,8 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 		fAutoRebuildEn = true;
 		
 		fFileDirs = new HashSet<String>();
+
+		fDeclPrefixIndex = new SVDBDeclPrefixIndex();
 	}
 
 	public AbstractThreadedSVDBIndex(String project, String base_location,
@@ -160,6 +171,22 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 	public void setEnableAutoRebuild(boolean en) {
 		fAutoRebuildEn = en;
 	}
+	
+	/**
+	 * Controls whether index-build phases run on the job manager's 
+	 * worker threads rather than the calling thread
+	 */
+	public void setEnableThreads(boolean en) {
+		fEnableThreads = en;
+	}
+	
+	/**
+	 * Returns the time, in milliseconds, spent in each build phase 
+	 * the last time the index was built. Phases are named by PhaseNames
+	 */
+	public long[] getPhaseTimes() {
+		return fPhaseTimes.clone();
+	}
 
 	public boolean isDirty() {
 		return fIsDirty;
@@ -342,6 +369,9 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 				fLog.debug("Moving index to state RootFilesDiscovered from "
 						+ fIndexState);
 			}
+			MetricsHistogram phase_h = MetricsRegistry.histogram(
+					MetricsRegistry.INDEX_PHASE + PhaseNames[0]);
+			long start = phase_h.start();
 			SubProgressMonitor m = new SubProgressMonitor(monitor, 1);
 			discoverRootFiles(jobs);
 			// Flush file-list back to backing store
@@ -351,6 +381,7 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 			// TODO:
 			jobs.clear();
 			fIndexState = IndexState_RootFilesDiscovered;
+			fPhaseTimes[0] = phase_h.stop(start) / 1000;
 		}
 		if (fIndexState < IndexState_FilesPreProcessed
 				&& state >= IndexState_FilesPreProcessed) {
@@ -358,12 +389,16 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 				fLog.debug("Moving index to state FilesPreProcessed from "
 						+ fIndexState);
 			}
+			MetricsHistogram phase_h = MetricsRegistry.histogram(
+					MetricsRegistry.INDEX_PHASE + PhaseNames[1]);
+			long start = phase_h.start();
 			SubProgressMonitor m = new SubProgressMonitor(monitor, 1);
 			preProcessFiles(jobs);
 			fIsDirty = false;
 			join(m, jobs);
 			jobs.clear();
 			fIndexState = IndexState_FilesPreProcessed;
+			fPhaseTimes[1] = phase_h.stop(start) / 1000;
 		}
 		if (fIndexState < IndexState_FileTreeValid
 				&& state >= IndexState_FileTreeValid) {
@@ -371,6 +406,9 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 				fLog.debug("Moving index to state FileTreeValid from "
 						+ fIndexState);
 			}
+			MetricsHistogram phase_h = MetricsRegistry.histogram(
+					MetricsRegistry.INDEX_PHASE + PhaseNames[2]);
+			long start = phase_h.start();
 			SubProgressMonitor m = new SubProgressMonitor(monitor, 1);
 			List<String> missing_includes = new ArrayList<String>();
 			
@@ -388,9 +426,13 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 			notifyIndexRebuilt();
 			fIsDirty = false;
 			fIndexState = IndexState_FileTreeValid;
+			fPhaseTimes[2] = phase_h.stop(start) / 1000;
 		}
 		if (fIndexState < IndexState_AllFilesParsed
 				&& state >= IndexState_AllFilesParsed) {
+			MetricsHistogram phase_h = MetricsRegistry.histogram(
+					MetricsRegistry.INDEX_PHASE + PhaseNames[3]);
+			long start = phase_h.start();
 			if (fCacheDataValid) {
 				SubProgressMonitor m = new SubProgressMonitor(monitor, 1);
 				fCache.initLoad(m);
@@ -403,6 +445,7 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 			
 			join(new NullProgressMonitor(), jobs);
 			jobs.clear();
+			fPhaseTimes[3] = phase_h.stop(start) / 1000;
 		}
 		
 		monitor.done();
@@ -463,17 +506,22 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 					fLog.error("File Path \"" + fPath + "\" not in index " +
 							getBaseLocation(), 
 							e);
-					for (String p : getFileList(new NullProgressMonitor())) {
-						fLog.error("path: " + p);
+					// The index is locked by the thread waiting on this job
+					synchronized (fCache) {
+						for (String p : fCache.getFileList()) {
+							fLog.error("path: " + p);
+						}
 					}
 				}
 					
 			}
 			
-			long start = System.currentTimeMillis();
+			MetricsHistogram parse_h = MetricsRegistry.histogram(
+					MetricsRegistry.INDEX_FILE_PARSE);
+			long start = parse_h.start();
 			IPreProcMacroProvider mp = createMacroProvider(ft_root);
 			processFile(ft_root, mp);
-			long end = System.currentTimeMillis();
+			parse_h.stop(start);
 			
 			// TODO: why?
 			synchronized (fCache) {
@@ -498,6 +546,7 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 			fIndexState = IndexState_AllInvalid;
 			fCacheDataValid = false;
 			fIndexCacheData.clear();
+			fDeclPrefixIndex.invalidate();
 			fCache.clear(new NullProgressMonitor());
 			fMissingIncludes.clear();
 		} else {
@@ -540,6 +589,7 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 	}
 
 	public void fileChanged(String path) {
+		boolean changed = false;
 		synchronized (fCache) {
 			if (fCache.getFileList().contains(path)) {
 //				invalidateIndex();
@@ -549,8 +599,15 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 				fCache.setFile(path, null);
 				fCache.setLastModified(path, 
 						getFileSystemProvider().getLastModifiedTime(path));
+				changed = true;
 			}
 		}
+		
+		if (changed) {
+			// The file is re-parsed on demand, so listeners 
+			// are not passed the new file content
+			notifyIndexChanged(ISVDBIndexChangeListener.FILE_CHANGED, null);
+		}
 	}
 
 	public void fileRemoved(String path) {
@@ -679,9 +736,8 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 		synchronized (fCache) {
 			fCache.addFile(path);
 			fCache.setLastModified(path, getFileSystemProvider().getLastModifiedTime(path));
+			addFileDir(path);
 		}
-		
-		addFileDir(path);
 	}
 	
 	protected void addFileDir(String file_path) {
@@ -708,7 +764,10 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 	}
 	
 	protected void propagateMarkers(String path) {
-		List<SVDBMarker> ml = fCache.getMarkers(path);
+		List<SVDBMarker> ml;
+		synchronized (fCache) {
+			ml = fCache.getMarkers(path);
+		}
 		getFileSystemProvider().clearMarkers(path);
 		
 		if (ml != null) {
@@ -776,10 +835,12 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 		}
 		
 		public void run() {
-			long start = System.currentTimeMillis();
+			MetricsHistogram preproc_h = MetricsRegistry.histogram(
+					MetricsRegistry.INDEX_FILE_PREPROC);
+			long start = preproc_h.start();
 			
 			SVDBFile file = processPreProcFile(fPath);
-			long end = System.currentTimeMillis();
+			preproc_h.stop(start);
 			
 			synchronized (fCache) {
 				fCache.setPreProcFile(fPath, file);
@@ -977,8 +1038,11 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 				fLog.debug("Include Path: \"" + inc_path + "\"");
 			}
 
-			if ((file = fCache.getPreProcFile(new NullProgressMonitor(),
-					inc_path)) != null) {
+			synchronized (fCache) {
+				file = fCache.getPreProcFile(new NullProgressMonitor(), inc_path);
+			}
+			
+			if (file != null) {
 				if (fDebugEn) {
 					fLog.debug("findIncludedFile: \"" + inc_path
 							+ "\" already in map");
@@ -992,9 +1056,11 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 
 					file = processPreProcFile(inc_path);
 					addFile(inc_path);
-					fCache.setPreProcFile(inc_path, file);
-					fCache.setLastModified(inc_path, 
-							fFileSystemProvider.getLastModifiedTime(inc_path));
+					synchronized (fCache) {
+						fCache.setPreProcFile(inc_path, file);
+						fCache.setLastModified(inc_path, 
+								fFileSystemProvider.getLastModifiedTime(inc_path));
+					}
 				} else {
 					if (fDebugEn) {
 						fLog.debug("findIncludedFile: file \"" + inc_path
@@ -1208,6 +1274,7 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 	}
 
 	protected void notifyIndexRebuilt() {
+		SVDBClassMemberTableCache.getDefault().invalidate();
 		synchronized (fIndexChangeListeners) {
 			for (ISVDBIndexChangeListener l : fIndexChangeListeners) {
 				l.index_rebuilt();
@@ -1215,6 +1282,19 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 		}
 	}
 
+	protected void notifyIndexChanged(int reason, SVDBFile file) {
+		if (file != null && file.getFilePath() != null) {
+			SVDBClassMemberTableCache.getDefault().invalidate(file.getFilePath());
+		} else {
+			SVDBClassMemberTableCache.getDefault().invalidate();
+		}
+		synchronized (fIndexChangeListeners) {
+			for (ISVDBIndexChangeListener l : fIndexChangeListeners) {
+				l.index_changed(reason, file);
+			}
+		}
+	}
+
 	public boolean isLoaded() {
 		/**
 		 * return (fIndexFileMapValid && fPreProcFileMapValid);
@@ -1421,10 +1501,7 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 	}
 
 	protected void processFile(SVDBFileTree path, IPreProcMacroProvider mp) {
-		SVPreProcDefineProvider dp = new SVPreProcDefineProvider(mp);
-		ISVDBFileFactory factory = SVCorePlugin.createFileFactory(dp);
-		
-		fLog.debug(LEVEL_MAX, "processFile: " + path.getFilePath());
+		fLog.debugf(LEVEL_MAX, "processFile: %s", path.getFilePath());
 
 		String path_s = path.getFilePath();
 
@@ -1436,9 +1513,14 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 
 		BufferedInputStream in_b = new BufferedInputStream(in);
 
-		List<SVDBMarker> markers = fCache.getMarkers(path.getFilePath());
+		List<SVDBMarker> markers;
+		synchronized (fCache) {
+			markers = fCache.getMarkers(path.getFilePath());
+		}
 		if (markers == null) {
 			markers = new ArrayList<SVDBMarker>();
+		} else {
+			markers = new ArrayList<SVDBMarker>(markers);
 		}
 
 		// Remove any undefined-macro or parse errors
@@ -1450,14 +1532,48 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 			}
 		}
 
-		SVDBFile svdb_f = factory.parse(in_b, path.getFilePath(), markers);
+		final SVDBFileTree file_tree = path;
+		SVDBSharedIndexCache.IFileParser parser = new SVDBSharedIndexCache.IFileParser() {
+			
+			public IPreProcMacroProvider createMacroProvider() {
+				return AbstractThreadedSVDBIndex.this.createMacroProvider(file_tree);
+			}
+			
+			public SVDBFile parse(InputStream in, IPreProcMacroProvider mp,
+					List<SVDBMarker> markers) {
+				SVPreProcDefineProvider dp = new SVPreProcDefineProvider(mp);
+				ISVDBFileFactory factory = SVCorePlugin.createFileFactory(dp);
+				return factory.parse(in, file_tree.getFilePath(), markers);
+			}
+		};
+		SVDBFile svdb_f;
+		
+		if (fCache instanceof SVDBSharedIndexCache && in != null) {
+			// Identical content parsed in an equivalent macro environment
+			// is shared with other indexes rather than parsed again
+			try {
+				svdb_f = ((SVDBSharedIndexCache)fCache).parseFile(path_s, in_b,
+						null, mp, parser, markers);
+			} catch (IOException e) {
+				fLog.error("ProcessFile: Failed to read file \"" + path_s + "\"", e);
+				fFileSystemProvider.closeStream(in);
+				return;
+			}
+		} else {
+			svdb_f = parser.parse(in_b, mp, markers);
+		}
 
 		// Problem parsing the file..
 		if (svdb_f == null) {
 			return;
 		}
 		
-		cacheDeclarations(svdb_f);
+		// Files may be processed concurrently, so updates to the 
+		// declaration cache and the index cache are serialized
+		synchronized (fCache) {
+			cacheDeclarations(svdb_f);
+		}
+		cacheModuleInstances(svdb_f);
 
 		/** TMP:
 		svdb_f.setLastModified(fFileSystemProvider.getLastModifiedTime(path
@@ -1466,11 +1582,13 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 
 		fFileSystemProvider.clearMarkers(path_s);
 
-		fCache.setFile(path.getFilePath(), svdb_f);
-		fCache.setLastModified(path.getFilePath(), 
-				fFileSystemProvider.getLastModifiedTime(
-						path.getFilePath()));
-		fCache.setMarkers(path.getFilePath(), markers);
+		synchronized (fCache) {
+			fCache.setFile(path.getFilePath(), svdb_f);
+			fCache.setLastModified(path.getFilePath(), 
+					fFileSystemProvider.getLastModifiedTime(
+							path.getFilePath()));
+			fCache.setMarkers(path.getFilePath(), markers);
+		}
 
 		fFileSystemProvider.closeStream(in);
 		propagateMarkers(path.getFilePath());
@@ -1487,7 +1605,7 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 
 		sc.setObserver(ob);
 
-		fLog.debug("processPreProcFile: path=" + path);
+		fLog.debugf("processPreProcFile: path=%s", path);
 		InputStream in = fFileSystemProvider.openStream(path);
 
 		if (in == null) {
@@ -1553,6 +1671,13 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 		Map<String, List<SVDBDeclCacheItem>> decl_cache = fIndexCacheData.getDeclCacheMap();
 		ensureIndexState(monitor, IndexState_AllFilesParsed);
 		
+		// Name and prefix matches are found via the prefix index
+		if (matcher instanceof SVDBFindContentAssistNameMatcher ||
+				matcher.getClass() == SVDBFindDefaultNameMatcher.class) {
+			fDeclPrefixIndex.find(ret, decl_cache, name, matcher);
+			return ret;
+		}
+		
 		for (Entry<String, List<SVDBDeclCacheItem>> e : decl_cache.entrySet()) {
 			for (SVDBDeclCacheItem item : e.getValue()) {
 				if (matcher.match(item, name)) {
@@ -1577,6 +1702,25 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 		return ret;
 	}
 	
+	public List<Tuple<String, String>> findModuleInstances(
+			IProgressMonitor		monitor,
+			String					module) {
+		ensureIndexState(monitor, IndexState_AllFilesParsed);
+		
+		return fIndexCacheData.findModuleInstances(module);
+	}
+	
+	/**
+	 * Updates this file's slice of the module-instance graph
+	 */
+	protected void cacheModuleInstances(SVDBFile file) {
+		Map<String, SVDBModInstCacheEntry> inst_map = fIndexCacheData.getModInstCacheMap();
+		
+		synchronized (inst_map) {
+			inst_map.put(file.getFilePath(), SVDBModInstCacheEntry.build(file));
+		}
+	}
+	
 	public Iterable<String> getFileNames(IProgressMonitor monitor) {
 		return new Iterable<String>() {
 			public Iterator<String> iterator() {
@@ -1605,6 +1749,8 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 		}
 		
 		cacheDeclarations(file.getFilePath(), file, false);
+		
+		fDeclPrefixIndex.invalidate();
 	}
 	
 	private void cacheDeclarations(String filename, ISVDBChildParent scope, boolean is_ft) {
@@ -1620,7 +1766,7 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 					SVDBItemType.ClassDecl, SVDBItemType.ModuleDecl, 
 					SVDBItemType.InterfaceDecl, SVDBItemType.ProgramDecl, 
 					SVDBItemType.TypedefStmt)) {
-				fLog.debug("Adding " + item.getType() + " " + ((ISVDBNamedItem)item).getName() + " to cache");
+				fLog.debugf("Adding %s %s to cache", item.getType(), ((ISVDBNamedItem)item).getName());
 				decl_list.add(new SVDBDeclCacheItem(this, filename, 
 						((ISVDBNamedItem)item).getName(), item.getType(), is_ft));
 			} else if (item.getType() == SVDBItemType.PreProcCond) {
@@ -1643,7 +1789,7 @@ public abstract class AbstractThreadedSVDBIndex implements ISVDBIndex,
 				SVDBPreProcCond c = (SVDBPreProcCond)item;
 				cachePreProcDeclarations(filename, c);
 			} else if (item.getType().isElemOf(SVDBItemType.MacroDef)) {
-				fLog.debug("Adding " + item.getType() + " " + ((ISVDBNamedItem)item).getName() + " to cache");
+				fLog.debugf("Adding %s %s to cache", item.getType(), ((ISVDBNamedItem)item).getName());
 				decl_cache.get(filename).add(new SVDBDeclCacheItem(this, filename, 
 						((ISVDBNamedItem)item).getName(), item.getType()));
 			}
@@ -14,15 +14,15 @@ package net.sf.sveditor.core.db.index;
 
 import java.util.List;
 
+import net.sf.sveditor.core.db.ISVDBItemBase;
 import net.sf.sveditor.core.db.SVDBFile;
-import net.sf.sveditor.core.db.SVDBItem;
 
 public interface ISVDBChangeListener {
 	
 	void SVDBFileChanged(
 			SVDBFile 			file,
-			List<SVDBItem>		adds,
-			List<SVDBItem>		removes,
-			List<SVDBItem>		changes);
+			List<ISVDBItemBase>	adds,
+			List<ISVDBItemBase>	removes,
+			List<ISVDBItemBase>	changes);
 
 }
@@ -14,6 +14,7 @@ package net.sf.sveditor.core.db.index;
 
 import java.util.List;
 
+import net.sf.sveditor.core.Tuple;
 import net.sf.sveditor.core.db.ISVDBItemBase;
 import net.sf.sveditor.core.db.SVDBFile;
 import net.sf.sveditor.core.db.refs.ISVDBRefMatcher;
@@ -86,5 +87,15 @@ public interface ISVDBDeclCache {
 	SVDBFile getDeclFilePP(IProgressMonitor monitor, SVDBDeclCacheItem item);
 
 	List<SVDBRefCacheItem> findReferences(IProgressMonitor monitor, String name, ISVDBRefMatcher matcher);
+	
+	/**
+	 * Returns the instances declared directly within the specified module 
+	 * or interface, as (instance name, type name) pairs
+	 * 
+	 * @param monitor
+	 * @param module
+	 * @return instance list, or null if the module is not declared in this cache
+	 */
+	List<Tuple<String, String>> findModuleInstances(IProgressMonitor monitor, String module);
 
 }
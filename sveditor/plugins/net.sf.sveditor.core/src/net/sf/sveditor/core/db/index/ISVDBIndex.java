@@ -26,6 +26,14 @@ import org.eclipse.core.runtime.IProgressMonitor;
 public interface ISVDBIndex extends 
 	ISVDBIndexIterator, ISVDBIncludeFileProvider, ISVDBDeclCache {
 	
+	/**
+	 * Names of the index-build phases, in the order in which
+	 * per-phase build times are reported
+	 */
+	String PhaseNames[] = {
+		"Discover", "PreProcess", "FileTree", "Parse"
+	};
+	
 	public void init(IProgressMonitor monitor);
 
 	Tuple<SVDBFile, SVDBFile> parse(
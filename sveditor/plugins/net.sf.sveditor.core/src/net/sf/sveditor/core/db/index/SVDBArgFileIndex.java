@@ -13,15 +13,19 @@
 package net.sf.sveditor.core.db.index;
 
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
 import net.sf.sveditor.core.SVFileUtils;
 import net.sf.sveditor.core.db.index.cache.ISVDBIndexCache;
-import net.sf.sveditor.core.scanutils.ITextScanner;
-import net.sf.sveditor.core.scanutils.InputStreamTextScanner;
-import net.sf.sveditor.core.svf_scanner.SVFScanner;
+import net.sf.sveditor.core.metrics.MetricsHistogram;
+import net.sf.sveditor.core.metrics.MetricsRegistry;
+import net.sf.sveditor.core.svf_scanner.SVFBufferScanner;
 
 import org.apache.tools.ant.filters.StringInputStream;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -31,6 +35,10 @@ import org.eclipse.core.runtime.SubProgressMonitor;
 public class SVDBArgFileIndex extends AbstractSVDBIndex {
 	private StringBuilder				fArguments;
 	
+	// Per-discovery memoization of directory listings and variable expansion
+	private Map<String, List<String>>	fDirListCache;
+	private Map<String, String>			fExpandVarsCache;
+	
 	public SVDBArgFileIndex(
 			String						project,
 			String						root,
@@ -38,6 +46,8 @@ public class SVDBArgFileIndex extends AbstractSVDBIndex {
 			ISVDBIndexCache				cache,
 			SVDBIndexConfig				config) {
 		super(project, root, fs_provider, cache, config);
+		fDirListCache = new HashMap<String, List<String>>();
+		fExpandVarsCache = new HashMap<String, String>();
 		fInWorkspaceOk = (root.startsWith("${workspace_loc}"));
 	}
 
@@ -50,6 +60,8 @@ public class SVDBArgFileIndex extends AbstractSVDBIndex {
 			SVDBIndexConfig				config) {
 		super(project, root, fs_provider, cache, config);
 		fArguments = arguments;
+		fDirListCache = new HashMap<String, List<String>>();
+		fExpandVarsCache = new HashMap<String, String>();
 		fInWorkspaceOk = (root.startsWith("${workspace_loc}"));
 	}
 	
@@ -96,112 +108,459 @@ public class SVDBArgFileIndex extends AbstractSVDBIndex {
 		monitor.beginTask("Discover Root Files", 4);
 		
 		SVDBArgFileIndexCacheData cd = (SVDBArgFileIndexCacheData)getCacheData();
-		cd.getArgFileTimestamps().clear();
-		cd.getArgFilePaths().clear();
 		
 		// Add an include path for the arg file location
 		addIncludePath(getResolvedBaseLocationDir());
 		
-		processArgFile(new SubProgressMonitor(monitor, 4), getResolvedBaseLocation());
+		fDirListCache.clear();
+		fExpandVarsCache.clear();
+		
+		if (checkFlatArgsValid()) {
+			fLog.debug("Using cached argument-file expansion for " + getBaseLocation());
+			applyFlatArgs();
+		} else {
+			cd.getArgFileTimestamps().clear();
+			cd.getArgFilePaths().clear();
+			cd.clearFlatArgs();
+			
+			processArgFiles(new SubProgressMonitor(monitor, 4), 
+					SVFileUtils.normalize(getResolvedBaseLocation()));
+			
+			// Only a file-backed argument list can be validated 
+			// against timestamps on the next discovery pass
+			cd.setFlatArgsValid(fArguments == null);
+		}
+		
+		fDirListCache.clear();
+		fExpandVarsCache.clear();
 		
 		monitor.done();
 	}
 	
-	private void processArgFile(IProgressMonitor monitor, String path) {
-		InputStream in = null;
+	/**
+	 * Checks whether the flattened argument set saved by the last
+	 * discovery pass is still usable. The set is valid as long as
+	 * all argument files that contributed to it are unchanged since
+	 * they were scanned
+	 */
+	private boolean checkFlatArgsValid() {
+		SVDBArgFileIndexCacheData cd = (SVDBArgFileIndexCacheData)getCacheData();
+		Map<String, SVDBArgFileScanCacheEntry> scan_map = cd.getArgFileScanMap();
 		
-		path = SVFileUtils.normalize(path);
+		if (fArguments != null || !cd.isFlatArgsValid() ||
+				cd.getArgFilePaths().size() == 0) {
+			return false;
+		}
 		
-		if (fArguments != null) {
-			in = new StringInputStream(fArguments.toString());
-		} else if (getFileSystemProvider().fileExists(path)) {
-			// Fully-specified path
-			in = getFileSystemProvider().openStream(path);
-		} else if (getFileSystemProvider().fileExists(getResolvedBaseLocationDir() + "/" + path)) {
-			// Try base location-relative
-			in = getFileSystemProvider().openStream(getResolvedBaseLocationDir() + "/" + path);
+		for (String arg_file : cd.getArgFilePaths()) {
+			long ts = getFileSystemProvider().getLastModifiedTime(arg_file);
+			SVDBArgFileScanCacheEntry entry;
+			synchronized (scan_map) {
+				entry = scan_map.get(arg_file);
+			}
+			
+			if (entry == null || entry.getTimestamp() != ts) {
+				if (fDebugEn) {
+					fLog.debug("Flattened arguments invalid: arg_file " + arg_file + 
+							" ts=" + ts + " scanned ts=" + 
+							((entry != null)?entry.getTimestamp():-1));
+				}
+				return false;
+			}
 		}
 		
-		monitor.beginTask("Process arg file " + path, 4);
+		return true;
+	}
+	
+	/**
+	 * Re-creates the file list, include paths, and defines from the
+	 * flattened argument set without re-reading the argument files. 
+	 * Library directories are re-listed, since their content may change
+	 * without any argument file changing
+	 */
+	private void applyFlatArgs() {
+		SVDBArgFileIndexCacheData cd = (SVDBArgFileIndexCacheData)getCacheData();
+		Set<String> exts = new HashSet<String>(cd.getFlatLibExts());
 		
-		if (in != null) {
-			SVDBArgFileIndexCacheData cd = (SVDBArgFileIndexCacheData)getCacheData();
-			cd.getArgFilePaths().add(path);
-			cd.getArgFileTimestamps().add(getFileSystemProvider().getLastModifiedTime(path));
-			
-			ITextScanner sc = new InputStreamTextScanner(in, path);
-			SVFScanner scanner = new SVFScanner();
+		for (String path : cd.getFlatFilePaths()) {
+			if (getFileSystemProvider().fileExists(path)) {
+				addFile(path);
+			} else {
+				fLog.error("Expanded path \"" + path + "\" does not exist");
+			}
+		}
 		
-			monitor.worked(1);
-			try {
-				scanner.scan(sc);
-			} catch (Exception e) {
-				fLog.error("Failed to read argument file \"" + 
-						getResolvedBaseLocation() + "\"", e);
+		for (String lib_p : cd.getFlatLibPaths()) {
+			addLibFiles(lib_p, exts);
+		}
+		
+		for (String inc : cd.getFlatIncludePaths()) {
+			addIncludePath(inc);
+		}
+		
+		for (Entry<String, String> entry : cd.getFlatDefines().entrySet()) {
+			addDefine(entry.getKey(), entry.getValue());
+		}
+	}
+	
+	/**
+	 * Reads the root argument file and all nested argument files, then 
+	 * applies their content to the index in command-line order. 
+	 * 
+	 * Reading and scanning the argument files is done in parallel, since
+	 * this is dominated by file I/O. Applying the results is done serially,
+	 * since the result of resolving a path depends on the include paths
+	 * specified by the argument files processed before it.
+	 */
+	private void processArgFiles(IProgressMonitor monitor, String root) {
+		final ArgFileCollector collector = new ArgFileCollector(root);
+		
+		monitor.beginTask("Process arg file " + root, 2);
+		
+		// Scan the root file first to find out how much work there is
+		scanArgFilesJob(collector, 1);
+		
+		int num_threads;
+		synchronized (collector) {
+			num_threads = Math.min(getMaxIndexThreads(), collector.fPending.size());
+		}
+		
+		if (num_threads <= 1) {
+			scanArgFilesJob(collector, -1);
+		} else {
+			Thread threads[] = new Thread[num_threads];
+			for (int i=0; i<threads.length; i++) {
+				threads[i] = new Thread(new Runnable() {
+					
+					public void run() {
+						scanArgFilesJob(collector, -1);
+					}
+				}, "argfile_" + getBaseLocation() + "_" + i);
+				threads[i].start();
 			}
 			
-			monitor.worked(1);
-			for (String f : scanner.getFilePaths()) {
-				String exp_f = SVDBIndexUtil.expandVars(f, fProjectName, fInWorkspaceOk);
-				fLog.debug("[FILE PATH] " + f + " (" + exp_f + ")");
-				String res_f = resolvePath(exp_f, fInWorkspaceOk);
+			for (int i=0; i<threads.length; i++) {
+				try {
+					threads[i].join();
+				} catch (InterruptedException e) {}
+			}
+		}
+		monitor.worked(1);
+		
+		applyArgFile(root, collector.fResults, new HashSet<String>());
+		
+		// Drop the scans of argument files that are no longer referenced
+		SVDBArgFileIndexCacheData cd = (SVDBArgFileIndexCacheData)getCacheData();
+		synchronized (cd.getArgFileScanMap()) {
+			cd.getArgFileScanMap().keySet().retainAll(cd.getArgFilePaths());
+		}
+		
+		monitor.done();
+	}
+	
+	/**
+	 * Worker loop that scans argument files until there are no more
+	 * pending argument files and no other worker is running. Argument
+	 * files discovered while scanning are added to the pending list.
+	 * 
+	 * @param collector
+	 * @param max_files maximum number of files to scan. -1 for unlimited
+	 */
+	private void scanArgFilesJob(ArgFileCollector collector, int max_files) {
+		int n_files = 0;
+		
+		while (max_files == -1 || n_files < max_files) {
+			String key = null;
+			synchronized (collector) {
+				while (collector.fPending.size() == 0 && collector.fActive > 0) {
+					try {
+						collector.wait();
+					} catch (InterruptedException e) {
+						break;
+					}
+				}
 				
-				if (getFileSystemProvider().fileExists(res_f)) {
-					addFile(res_f);
-				} else {
-					fLog.error("Expanded path \"" + exp_f + "\" does not exist");
+				if (collector.fPending.size() == 0) {
+					break;
 				}
+				key = collector.fPending.remove(0);
+				collector.fActive++;
 			}
 			
-			for (String lib_p : scanner.getLibPaths()) {
-				String exp_p = SVDBIndexUtil.expandVars(lib_p, fProjectName, fInWorkspaceOk);
-				fLog.debug("[LIB PATH] " + lib_p + " (" + exp_p + ")");
-				String res_p = resolvePath(exp_p, fInWorkspaceOk);
-				
-				if (getFileSystemProvider().isDir(res_p)) {
-					List<String> paths = getFileSystemProvider().getFiles(res_p);
-					Set<String> exts = scanner.getSrcExts();
-					for (String file_p : paths) {
-						int last_dot = file_p.lastIndexOf('.');
-						if (last_dot != -1) {
-							String ext = file_p.substring(last_dot);
-							if (exts.contains(ext)) {
-								addFile(file_p);
+			ArgFileScanResult result = null;
+			try {
+				result = scanArgFile(key, key.equals(collector.fRoot));
+			} finally {
+				synchronized (collector) {
+					if (result != null) {
+						collector.fResults.put(key, result);
+						for (String arg_file : result.fEntry.getArgFiles()) {
+							if (collector.fSeen.add(arg_file)) {
+								collector.fPending.add(arg_file);
 							}
 						}
 					}
-				} else {
-					fLog.error("Expanded library path \"" + exp_p + "\" does not exist");
+					collector.fActive--;
+					collector.notifyAll();
 				}
 			}
+			n_files++;
+		}
+	}
+	
+	/**
+	 * Opens and scans a single argument file. The scan of an argument
+	 * file that is unchanged since it was last scanned is re-used
+	 * 
+	 * @param path
+	 * @param is_root
+	 * @return scan result, or null if the file could not be opened
+	 */
+	private ArgFileScanResult scanArgFile(String path, boolean is_root) {
+		SVDBArgFileIndexCacheData cd = (SVDBArgFileIndexCacheData)getCacheData();
+		Map<String, SVDBArgFileScanCacheEntry> scan_map = cd.getArgFileScanMap();
+		InputStream in = null;
+		
+		if (is_root && fArguments != null) {
+			in = new StringInputStream(fArguments.toString());
+		} else {
+			if (!getFileSystemProvider().fileExists(path) && 
+					getFileSystemProvider().fileExists(getResolvedBaseLocationDir() + "/" + path)) {
+				// Try base location-relative
+				path = getResolvedBaseLocationDir() + "/" + path;
+			}
 			
-			monitor.worked(1);
-			for (String inc : scanner.getIncludePaths()) {
-				String inc_path = SVDBIndexUtil.expandVars(inc, fProjectName, fInWorkspaceOk);
-				fLog.debug("[INC PATH] " + inc + " (" + inc_path + ")");
+			if (getFileSystemProvider().fileExists(path)) {
+				long ts = getFileSystemProvider().getLastModifiedTime(path);
+				SVDBArgFileScanCacheEntry entry;
+				synchronized (scan_map) {
+					entry = scan_map.get(path);
+				}
 				
-				addIncludePath(inc_path);
+				if (entry != null && entry.getTimestamp() == ts) {
+					if (fDebugEn) {
+						fLog.debug("Re-using scan of argument file " + path);
+					}
+					return new ArgFileScanResult(path, entry);
+				}
+				
+				in = getFileSystemProvider().openStream(path);
+			}
+		}
+		
+		if (in == null) {
+			fLog.error("failed to open file \"" + path + "\"");
+			return null;
+		}
+		
+		MetricsHistogram scan_h = MetricsRegistry.histogram(
+				MetricsRegistry.INDEX_ARGFILE_SCAN);
+		long start = scan_h.start();
+		long ts = getFileSystemProvider().getLastModifiedTime(path);
+		SVFBufferScanner scanner = new SVFBufferScanner();
+			
+		try {
+			scanner.scan(in);
+		} catch (Exception e) {
+			fLog.error("Failed to read argument file \"" + path + "\"", e);
+		} finally {
+			getFileSystemProvider().closeStream(in);
+		}
+		
+		SVDBArgFileScanCacheEntry entry = new SVDBArgFileScanCacheEntry(ts, scanner);
+		for (String arg_file : scanner.getArgFilePaths()) {
+			arg_file = SVFileUtils.normalize(arg_file);
+			arg_file = expandVars(arg_file);
+			entry.getArgFiles().add(arg_file);
+		}
+		scan_h.stop(start);
+		
+		if (!(is_root && fArguments != null)) {
+			synchronized (scan_map) {
+				scan_map.put(path, entry);
 			}
+		}
+		
+		return new ArgFileScanResult(path, entry);
+	}
+	
+	/**
+	 * Applies the content of a scanned argument file, followed by the
+	 * content of its nested argument files, to the index
+	 */
+	private void applyArgFile(
+			String 							key, 
+			Map<String, ArgFileScanResult> 	results,
+			Set<String>						applied) {
+		SVDBArgFileIndexCacheData cd = (SVDBArgFileIndexCacheData)getCacheData();
+		ArgFileScanResult result = results.get(key);
+		applied.add(key);
+		
+		if (result == null) {
+			// Failed to open. Error already reported
+			return;
+		}
+		
+		SVDBArgFileScanCacheEntry scan = result.fEntry;
+		cd.getArgFilePaths().add(result.fPath);
+		cd.getArgFileTimestamps().add(scan.getTimestamp());
+		
+		for (String f : scan.getFilePaths()) {
+			String exp_f = expandVars(f);
+			fLog.debug("[FILE PATH] " + f + " (" + exp_f + ")");
+			String res_f = resolvePath(exp_f, fInWorkspaceOk);
 			
-			monitor.worked(1);
-			for (Entry<String, String> entry : scanner.getDefineMap().entrySet()) {
-				fLog.debug("[DEFINE] " + entry.getKey() + "=" + entry.getValue());
-				addDefine(entry.getKey(), entry.getValue());
+			if (getFileSystemProvider().fileExists(res_f)) {
+				addFile(res_f);
+				cd.getFlatFilePaths().add(res_f);
+			} else {
+				fLog.error("Expanded path \"" + exp_f + "\" does not exist");
 			}
+		}
+		
+		for (String lib_p : scan.getLibPaths()) {
+			String exp_p = expandVars(lib_p);
+			fLog.debug("[LIB PATH] " + lib_p + " (" + exp_p + ")");
+			String res_p = resolvePath(exp_p, fInWorkspaceOk);
 			
-			getFileSystemProvider().closeStream(in);
+			if (addLibFiles(res_p, new HashSet<String>(scan.getSrcExts()))) {
+				cd.getFlatLibPaths().add(res_p);
+				for (String ext : scan.getSrcExts()) {
+					if (!cd.getFlatLibExts().contains(ext)) {
+						cd.getFlatLibExts().add(ext);
+					}
+				}
+			}
+		}
+		
+		for (String inc : scan.getIncludePaths()) {
+			String inc_path = expandVars(inc);
+			fLog.debug("[INC PATH] " + inc + " (" + inc_path + ")");
 			
-			for (String arg_file : scanner.getArgFilePaths()) {
-				arg_file = SVFileUtils.normalize(arg_file);
-				arg_file = SVDBIndexUtil.expandVars(arg_file, fProjectName, fInWorkspaceOk);
-				if (!cd.getArgFilePaths().contains(arg_file)) {
-					processArgFile(new SubProgressMonitor(monitor, 4), arg_file); 
+			addIncludePath(inc_path);
+			cd.getFlatIncludePaths().add(inc_path);
+		}
+		
+		for (Entry<String, String> entry : scan.getDefineMap().entrySet()) {
+			fLog.debug("[DEFINE] " + entry.getKey() + "=" + entry.getValue());
+			addDefine(entry.getKey(), entry.getValue());
+			cd.getFlatDefines().put(entry.getKey(), entry.getValue());
+		}
+		
+		for (String arg_file : scan.getArgFiles()) {
+			if (!applied.contains(arg_file)) {
+				applyArgFile(arg_file, results, applied);
+			}
+		}
+	}
+	
+	/**
+	 * Adds the source files in a library directory to the index
+	 * 
+	 * @return false if the library directory does not exist
+	 */
+	private boolean addLibFiles(String lib_p, Set<String> exts) {
+		List<String> paths = getDirFiles(lib_p);
+		
+		if (paths == null) {
+			fLog.error("Expanded library path \"" + lib_p + "\" does not exist");
+			return false;
+		}
+		
+		for (String file_p : paths) {
+			int last_dot = file_p.lastIndexOf('.');
+			if (last_dot != -1) {
+				String ext = file_p.substring(last_dot);
+				if (exts.contains(ext)) {
+					addFile(file_p);
 				}
 			}
-			monitor.done();
-		} else {
-			monitor.done();
-			fLog.error("failed to open file \"" + path + "\"");
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Memoized directory listing. Returns null if the path is not a directory
+	 */
+	private List<String> getDirFiles(String path) {
+		synchronized (fDirListCache) {
+			if (fDirListCache.containsKey(path)) {
+				return fDirListCache.get(path);
+			}
+		}
+		
+		List<String> ret = null;
+		if (getFileSystemProvider().isDir(path)) {
+			ret = getFileSystemProvider().getFiles(path);
+		}
+		
+		synchronized (fDirListCache) {
+			fDirListCache.put(path, ret);
+		}
+		
+		return ret;
+	}
+	
+	/**
+	 * Memoized variable expansion
+	 */
+	private String expandVars(String path) {
+		String ret;
+		synchronized (fExpandVarsCache) {
+			ret = fExpandVarsCache.get(path);
+		}
+		
+		if (ret == null) {
+			ret = SVDBIndexUtil.expandVars(path, fProjectName, fInWorkspaceOk);
+			synchronized (fExpandVarsCache) {
+				fExpandVarsCache.put(path, ret);
+			}
+		}
+		
+		return ret;
+	}
+	
+	@Override
+	public void rebuildIndex(IProgressMonitor monitor) {
+		// An explicit rebuild re-reads all argument files 
+		if (getCacheData() != null) {
+			SVDBArgFileIndexCacheData cd = (SVDBArgFileIndexCacheData)getCacheData();
+			cd.setFlatArgsValid(false);
+			synchronized (cd.getArgFileScanMap()) {
+				cd.getArgFileScanMap().clear();
+			}
+		}
+		super.rebuildIndex(monitor);
+	}
+	
+	/**
+	 * Work-sharing state for scanning a tree of argument files
+	 */
+	private static class ArgFileCollector {
+		public String							fRoot;
+		public List<String>						fPending;
+		public Set<String>						fSeen;
+		public Map<String, ArgFileScanResult>	fResults;
+		public int								fActive;
+		
+		public ArgFileCollector(String root) {
+			fRoot = root;
+			fPending = new ArrayList<String>();
+			fSeen = new HashSet<String>();
+			fResults = new HashMap<String, ArgFileScanResult>();
+			fPending.add(root);
+			fSeen.add(root);
+		}
+	}
+	
+	private static class ArgFileScanResult {
+		public String							fPath;
+		public SVDBArgFileScanCacheEntry		fEntry;
+		
+		public ArgFileScanResult(String path, SVDBArgFileScanCacheEntry entry) {
+			fPath = path;
+			fEntry = entry;
 		}
 	}
 
@@ -220,7 +579,12 @@ public class SVDBArgFileIndex extends AbstractSVDBIndex {
 
 	@Override
 	public void fileChanged(String path) {
+		SVDBArgFileIndexCacheData cd = (SVDBArgFileIndexCacheData)getCacheData();
 		fLog.debug("File changed: " + path);
+		if (cd.getArgFilePaths().contains(path)) {
+			// Force the argument files to be re-expanded
+			cd.setFlatArgsValid(false);
+		}
 		if (path.equals(getResolvedBaseLocation())) {
 			// Invalidate, since this is the root file
 			invalidateIndex(new NullProgressMonitor(), "Argument File Changed: " + path, false);
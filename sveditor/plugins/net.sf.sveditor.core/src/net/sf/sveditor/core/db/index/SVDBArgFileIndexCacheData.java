@@ -13,17 +13,40 @@
 package net.sf.sveditor.core.db.index;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class SVDBArgFileIndexCacheData extends SVDBBaseIndexCacheData {
 	
 	public List<String>			fArgFilePaths;
 	public List<Long>			fArgFileTimestamps;
 	
+	// Flattened result of expanding the argument-file tree. Valid
+	// as long as none of the argument files have changed
+	public boolean				fFlatArgsValid;
+	public List<String>			fFlatFilePaths;
+	public List<String>			fFlatLibPaths;
+	public List<String>			fFlatLibExts;
+	public List<String>			fFlatIncludePaths;
+	public Map<String, String>	fFlatDefines;
+	
+	// Scanned content of each argument file, keyed by path. Lets
+	// changed argument files be re-scanned without the others
+	public Map<String, SVDBArgFileScanCacheEntry>	fArgFileScanMap;
+	
 	public SVDBArgFileIndexCacheData(String base_location) {
 		super(base_location);
 		fArgFileTimestamps = new ArrayList<Long>();
 		fArgFilePaths = new ArrayList<String>();
+		
+		fFlatFilePaths = new ArrayList<String>();
+		fFlatLibPaths = new ArrayList<String>();
+		fFlatLibExts = new ArrayList<String>();
+		fFlatIncludePaths = new ArrayList<String>();
+		fFlatDefines = new HashMap<String, String>();
+		
+		fArgFileScanMap = new HashMap<String, SVDBArgFileScanCacheEntry>();
 	}
 	
 	public List<Long> getArgFileTimestamps() {
@@ -34,4 +57,45 @@ public class SVDBArgFileIndexCacheData extends SVDBBaseIndexCacheData {
 		return fArgFilePaths;
 	}
 	
+	public boolean isFlatArgsValid() {
+		return fFlatArgsValid;
+	}
+	
+	public void setFlatArgsValid(boolean valid) {
+		fFlatArgsValid = valid;
+	}
+	
+	public List<String> getFlatFilePaths() {
+		return fFlatFilePaths;
+	}
+	
+	public List<String> getFlatLibPaths() {
+		return fFlatLibPaths;
+	}
+	
+	public List<String> getFlatLibExts() {
+		return fFlatLibExts;
+	}
+	
+	public List<String> getFlatIncludePaths() {
+		return fFlatIncludePaths;
+	}
+	
+	public Map<String, String> getFlatDefines() {
+		return fFlatDefines;
+	}
+	
+	public Map<String, SVDBArgFileScanCacheEntry> getArgFileScanMap() {
+		return fArgFileScanMap;
+	}
+	
+	public void clearFlatArgs() {
+		fFlatArgsValid = false;
+		fFlatFilePaths.clear();
+		fFlatLibPaths.clear();
+		fFlatLibExts.clear();
+		fFlatIncludePaths.clear();
+		fFlatDefines.clear();
+	}
+	
 }
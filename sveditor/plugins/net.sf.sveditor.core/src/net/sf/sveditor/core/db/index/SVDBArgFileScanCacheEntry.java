@@ -0,0 +1,86 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.db.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.sveditor.core.svf_scanner.SVFBufferScanner;
+
+/**
+ * Scanned content of a single argument file. Paths are recorded as
+ * written in the file, except for nested argument files, which are
+ * normalized and variable-expanded.
+ */
+public class SVDBArgFileScanCacheEntry {
+	
+	// Timestamp of the argument file when it was scanned
+	public long							fTimestamp;
+	
+	public List<String>					fFilePaths;
+	public List<String>					fLibPaths;
+	public List<String>					fSrcExts;
+	public List<String>					fIncludePaths;
+	public Map<String, String>			fDefineMap;
+	public List<String>					fArgFiles;
+	
+	public SVDBArgFileScanCacheEntry() {
+		fFilePaths = new ArrayList<String>();
+		fLibPaths = new ArrayList<String>();
+		fSrcExts = new ArrayList<String>();
+		fIncludePaths = new ArrayList<String>();
+		fDefineMap = new HashMap<String, String>();
+		fArgFiles = new ArrayList<String>();
+	}
+	
+	public SVDBArgFileScanCacheEntry(long timestamp, SVFBufferScanner scanner) {
+		this();
+		fTimestamp = timestamp;
+		fFilePaths.addAll(scanner.getFilePaths());
+		fLibPaths.addAll(scanner.getLibPaths());
+		fSrcExts.addAll(scanner.getSrcExts());
+		fIncludePaths.addAll(scanner.getIncludePaths());
+		fDefineMap.putAll(scanner.getDefineMap());
+	}
+	
+	public long getTimestamp() {
+		return fTimestamp;
+	}
+	
+	public List<String> getFilePaths() {
+		return fFilePaths;
+	}
+	
+	public List<String> getLibPaths() {
+		return fLibPaths;
+	}
+	
+	public List<String> getSrcExts() {
+		return fSrcExts;
+	}
+	
+	public List<String> getIncludePaths() {
+		return fIncludePaths;
+	}
+	
+	public Map<String, String> getDefineMap() {
+		return fDefineMap;
+	}
+	
+	public List<String> getArgFiles() {
+		return fArgFiles;
+	}
+
+}
@@ -16,7 +16,9 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
+import net.sf.sveditor.core.Tuple;
 import net.sf.sveditor.core.db.refs.SVDBRefCacheEntry;
 
 public class SVDBBaseIndexCacheData {
@@ -30,6 +32,7 @@ public class SVDBBaseIndexCacheData {
 	public Map<String, List<SVDBDeclCacheItem>>		fDeclCacheMap;
 	public Map<String, List<SVDBDeclCacheItem>>		fPackageCacheMap;
 	public Map<String, SVDBRefCacheEntry>			fReferenceCacheMap;
+	public Map<String, SVDBModInstCacheEntry>		fModInstCacheMap;
 
 	public SVDBBaseIndexCacheData(String base) {
 		fBaseLocation = base;
@@ -40,6 +43,7 @@ public class SVDBBaseIndexCacheData {
 		fDeclCacheMap = new HashMap<String, List<SVDBDeclCacheItem>>();
 		fPackageCacheMap = new HashMap<String, List<SVDBDeclCacheItem>>();
 		fReferenceCacheMap = new HashMap<String, SVDBRefCacheEntry>();
+		fModInstCacheMap = new HashMap<String, SVDBModInstCacheEntry>();
 	}
 	
 	public String getVersion() {
@@ -125,7 +129,42 @@ public class SVDBBaseIndexCacheData {
 		return fReferenceCacheMap;
 	}
 	
+	public Map<String, SVDBModInstCacheEntry> getModInstCacheMap() {
+		return fModInstCacheMap;
+	}
+	
+	/**
+	 * Returns the (instance name, type name) pairs for instances declared
+	 * within the specified module. When more than one file declares the
+	 * module, the file with the lowest path wins, so the result does not
+	 * depend on the order in which files were parsed
+	 * 
+	 * @return list of instances, or null if no file declares the module
+	 */
+	public List<Tuple<String, String>> findModuleInstances(String module) {
+		List<Tuple<String, String>> ret = null;
+		String ret_path = null;
+		
+		synchronized (fModInstCacheMap) {
+			for (Entry<String, SVDBModInstCacheEntry> e : fModInstCacheMap.entrySet()) {
+				if (ret_path != null && e.getKey().compareTo(ret_path) > 0) {
+					continue;
+				}
+				List<Tuple<String, String>> insts = e.getValue().getInstances(module);
+				if (insts != null) {
+					ret = insts;
+					ret_path = e.getKey();
+				}
+			}
+		}
+		
+		return ret;
+	}
+	
 	public void clear() {
 		fDeclCacheMap.clear();
+		synchronized (fModInstCacheMap) {
+			fModInstCacheMap.clear();
+		}
 	}
 }
@@ -0,0 +1,118 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.db.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.sveditor.core.db.search.ISVDBFindNameMatcher;
+
+/**
+ * Name-sorted view of a declaration cache. Supports finding the
+ * declarations whose name starts with a prefix (ignoring case) without
+ * scanning the whole cache. The view is rebuilt on first use after the
+ * declaration cache changes.
+ */
+public class SVDBDeclPrefixIndex {
+	private Map<String, List<SVDBDeclCacheItem>>		fDeclCache;
+	private String									fNames[];
+	private SVDBDeclCacheItem							fItems[];
+	private boolean									fValid;
+
+	private static class Entry implements Comparable<Entry> {
+		public String									fName;
+		public SVDBDeclCacheItem						fItem;
+
+		public Entry(SVDBDeclCacheItem item) {
+			fName = item.getName().toLowerCase();
+			fItem = item;
+		}
+
+		public int compareTo(Entry o) {
+			return fName.compareTo(o.fName);
+		}
+	}
+
+	public SVDBDeclPrefixIndex() {
+		fNames = new String[0];
+		fItems = new SVDBDeclCacheItem[0];
+	}
+
+	/**
+	 * Marks the view out-of-date. Must be called whenever the content
+	 * of the declaration cache changes
+	 */
+	public synchronized void invalidate() {
+		fValid = false;
+	}
+
+	/**
+	 * Adds the declarations whose name starts with 'prefix' and that
+	 * are accepted by the matcher to the result list
+	 */
+	public synchronized void find(
+			List<SVDBDeclCacheItem>					result,
+			Map<String, List<SVDBDeclCacheItem>>	decl_cache,
+			String									prefix,
+			ISVDBFindNameMatcher					matcher) {
+		if (!fValid || fDeclCache != decl_cache) {
+			build(decl_cache);
+		}
+
+		String lc_prefix = prefix.toLowerCase();
+		int i = Arrays.binarySearch(fNames, lc_prefix);
+
+		if (i < 0) {
+			i = -(i+1);
+		} else {
+			// Move back to the first of several identical names
+			while (i > 0 && fNames[i-1].equals(lc_prefix)) {
+				i--;
+			}
+		}
+
+		for (; i<fNames.length && fNames[i].startsWith(lc_prefix); i++) {
+			if (matcher.match(fItems[i], prefix)) {
+				result.add(fItems[i]);
+			}
+		}
+	}
+
+	private void build(Map<String, List<SVDBDeclCacheItem>> decl_cache) {
+		List<Entry> entries = new ArrayList<Entry>();
+
+		for (List<SVDBDeclCacheItem> l : decl_cache.values()) {
+			for (SVDBDeclCacheItem item : l) {
+				if (item.getName() != null) {
+					entries.add(new Entry(item));
+				}
+			}
+		}
+
+		Entry sorted[] = entries.toArray(new Entry[entries.size()]);
+		Arrays.sort(sorted);
+
+		fNames = new String[sorted.length];
+		fItems = new SVDBDeclCacheItem[sorted.length];
+		for (int i=0; i<sorted.length; i++) {
+			fNames[i] = sorted[i].fName;
+			fItems[i] = sorted[i].fItem;
+		}
+
+		fDeclCache = decl_cache;
+		fValid = true;
+	}
+
+}
@@ -15,6 +15,7 @@ import net.sf.sveditor.core.db.index.cache.ISVDBIndexCache;
 import net.sf.sveditor.core.db.refs.ISVDBRefMatcher;
 import net.sf.sveditor.core.db.refs.SVDBRefCacheItem;
 import net.sf.sveditor.core.db.search.ISVDBFindNameMatcher;
+import net.sf.sveditor.core.db.search.SVDBClassMemberTableCache;
 import net.sf.sveditor.core.db.search.SVDBSearchResult;
 import net.sf.sveditor.core.log.ILogLevel;
 import net.sf.sveditor.core.log.LogFactory;
@@ -48,12 +49,20 @@ public class SVDBFileOverrideIndex
 	
 	public void setFile(SVDBFile file) {
 		fFile = file;
+		SVDBClassMemberTableCache.getDefault().invalidate(this);
 	}
 	
 	public void setFilePP(SVDBFile file) {
 		fFilePP = file;
 	}
 
+	/**
+	 * Returns the index collection this index overlays
+	 */
+	public ISVDBIndexIterator getSuperIterator() {
+		return fSuperIterator;
+	}
+
 	public ISVDBItemIterator getItemIterator(IProgressMonitor monitor) {
 		if (fSuperIterator != null) {
 			ISVDBItemIterator super_it = fSuperIterator.getItemIterator(monitor);
@@ -167,6 +176,24 @@ public class SVDBFileOverrideIndex
 		return fSuperIterator.findReferences(monitor, name, matcher);
 	}
 
+	public List<Tuple<String, String>> findModuleInstances(
+			IProgressMonitor monitor, String module) {
+		// The override file reflects the editor content, so consult it first
+		if (fFile != null) {
+			List<Tuple<String, String>> ret = 
+					SVDBModInstCacheEntry.build(fFile).getInstances(module);
+			if (ret != null) {
+				return ret;
+			}
+		}
+		
+		if (fSuperIterator != null) {
+			return fSuperIterator.findModuleInstances(monitor, module);
+		} else {
+			return null;
+		}
+	}
+
 	public SVDBSearchResult<SVDBFile> findIncludedFile(String leaf) {
 		return fIndex.findIncludedFile(leaf);
 	}
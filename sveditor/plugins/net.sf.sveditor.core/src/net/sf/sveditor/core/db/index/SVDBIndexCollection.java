@@ -16,8 +16,10 @@ import java.io.InputStream;
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import net.sf.sveditor.core.SVFileUtils;
@@ -51,6 +53,7 @@ public class SVDBIndexCollection implements ISVDBPreProcIndexSearcher, ISVDBInde
 	private Set<String>								fProjectRefs;
 	private ISVDBProjectRefProvider					fProjectRefProvider;
 	private List<ISVDBIndexChangeListener>			fIndexChangeListeners;
+	private SVDBIndexRouteTable						fRouteTable;
 	private LogHandle								fLog;
 
 	// Constructor primary for testing
@@ -75,6 +78,7 @@ public class SVDBIndexCollection implements ISVDBPreProcIndexSearcher, ISVDBInde
 		fFileSearchOrder.add(fPluginLibraryList);
 		
 		fIndexChangeListeners = new ArrayList<ISVDBIndexChangeListener>();
+		fRouteTable = new SVDBIndexRouteTable();
 		
 		fLog = LogFactory.getLogHandle("IndexCollectionMgr");
 		
@@ -269,6 +273,7 @@ public class SVDBIndexCollection implements ISVDBPreProcIndexSearcher, ISVDBInde
 	
 	public void clear() {
 		fLog.debug("clear");
+		fRouteTable.clear();
 		for (ISVDBIndex index : fSourceCollectionList) {
 			index.setIncludeFileProvider(null);
 		}
@@ -371,6 +376,7 @@ public class SVDBIndexCollection implements ISVDBPreProcIndexSearcher, ISVDBInde
 		p.addSearchPath(fPluginLibraryList);
 		index.setIncludeFileProvider(p);
 		fSourceCollectionList.add(index);
+		fRouteTable.addIndex(index);
 		
 		for (ISVDBIndexChangeListener l : fIndexChangeListeners) {
 			index.addChangeListener(l);
@@ -411,6 +417,7 @@ public class SVDBIndexCollection implements ISVDBPreProcIndexSearcher, ISVDBInde
 		p.addSearchPath(fPluginLibraryList);
 		index.setIncludeFileProvider(p);
 		fIncludePathList.add(index);
+		fRouteTable.addIndex(index);
 	}
 	
 	public void addLibraryPath(ISVDBIndex index) {
@@ -421,6 +428,7 @@ public class SVDBIndexCollection implements ISVDBPreProcIndexSearcher, ISVDBInde
 		p.addSearchPath(fPluginLibraryList);
 		index.setIncludeFileProvider(p);
 		fLibraryPathList.add(index);
+		fRouteTable.addIndex(index);
 		
 		for (ISVDBIndexChangeListener l : fIndexChangeListeners) {
 			index.addChangeListener(l);
@@ -445,6 +453,7 @@ public class SVDBIndexCollection implements ISVDBPreProcIndexSearcher, ISVDBInde
 		 */
 		index.setIncludeFileProvider(p);
 		fPluginLibraryList.add(index);
+		fRouteTable.addIndex(index);
 
 		for (ISVDBIndexChangeListener l : fIndexChangeListeners) {
 			index.addChangeListener(l);
@@ -452,19 +461,18 @@ public class SVDBIndexCollection implements ISVDBPreProcIndexSearcher, ISVDBInde
 	}
 	
 	
-	public List<SVDBSearchResult<SVDBFile>> findPreProcFile(String path, boolean search_shadow) {
-		List<SVDBSearchResult<SVDBFile>> ret = new ArrayList<SVDBSearchResult<SVDBFile>>();
+	public List<SVDBSearchResult<SVDBFile>> findPreProcFile(final String path, boolean search_shadow) {
+		List<SVDBSearchResult<SVDBFile>> ret;
 		SVDBFile result;
 
 		synchronized (fFileSearchOrder) {
-			// Search the indexes in order
-			for (List<ISVDBIndex> index_l : fFileSearchOrder) {
-				for (ISVDBIndex index : index_l) {
-					if ((result = index.findPreProcFile(path)) != null) {
-						ret.add(new SVDBSearchResult<SVDBFile>(result, index));
-					}
-				}
-			}
+			// Search the indexes that hold the file, in order
+			ret = fRouteTable.find(path, getIndexList(), false, search_shadow,
+					new SVDBIndexRouteTable.IFileProbe() {
+						public SVDBFile probe(ISVDBIndex index) {
+							return index.findPreProcFile(path);
+						}
+					});
 		}
 
 		if (ret.size() == 0 && search_shadow) {
@@ -488,19 +496,18 @@ public class SVDBIndexCollection implements ISVDBPreProcIndexSearcher, ISVDBInde
 		return findFile(path, true);
 	}
 	
-	public List<SVDBSearchResult<SVDBFile>> findFile(String path, boolean search_shadow) {
-		List<SVDBSearchResult<SVDBFile>> ret = new ArrayList<SVDBSearchResult<SVDBFile>>();
+	public List<SVDBSearchResult<SVDBFile>> findFile(final String path, boolean search_shadow) {
+		List<SVDBSearchResult<SVDBFile>> ret;
 		SVDBFile result;
 		
-		// Search the indexes in order
+		// Search the indexes that hold the file, in order
 		synchronized (fFileSearchOrder) {
-			for (List<ISVDBIndex> index_l : fFileSearchOrder) {
-				for (ISVDBIndex index : index_l) {
-					if ((result = index.findFile(path)) != null) {
-						ret.add(new SVDBSearchResult<SVDBFile>(result, index));
-					}
-				}
-			}
+			ret = fRouteTable.find(path, getIndexList(), false, search_shadow,
+					new SVDBIndexRouteTable.IFileProbe() {
+						public SVDBFile probe(ISVDBIndex index) {
+							return index.findFile(path);
+						}
+					});
 		}
 		
 		if (ret.size() == 0 && search_shadow) {
@@ -599,15 +606,25 @@ public class SVDBIndexCollection implements ISVDBPreProcIndexSearcher, ISVDBInde
 	
 	public List<SVDBDeclCacheItem> findGlobalScopeDecl(
 			IProgressMonitor monitor, String name, ISVDBFindNameMatcher matcher) {
-		List<SVDBDeclCacheItem> ret = new ArrayList<SVDBDeclCacheItem>();
-		for (List<ISVDBIndex> index_l : fFileSearchOrder) {
-			for (ISVDBIndex index : index_l) {
-				List<SVDBDeclCacheItem> tmp = index.findGlobalScopeDecl(monitor, name, matcher);
-				ret.addAll(tmp);
-			}
-		}
+		return findGlobalScopeDecl(monitor, name, matcher, false);
+	}
+	
+	/**
+	 * Finds global-scope declarations in this collection and in the 
+	 * collections of referenced projects. The indexes are searched in
+	 * parallel, and the results are ordered by index search order. A
+	 * declaration found by more than one index is returned once. When 
+	 * 'first_match' is set, only the declarations from the first index
+	 * with matching declarations are returned.
+	 */
+	public List<SVDBDeclCacheItem> findGlobalScopeDecl(
+			final IProgressMonitor		monitor, 
+			final String				name, 
+			final ISVDBFindNameMatcher	matcher,
+			boolean						first_match) {
+		List<ISVDBIndex> indexes = new ArrayList<ISVDBIndex>();
 		Set<SVDBIndexCollection>	already_searched = new HashSet<SVDBIndexCollection>();
-		findGlobalScopeDeclProjRef(ret, name, matcher, already_searched, false);
+		getDeclSearchIndexes(indexes, already_searched, true);
 		
 		/**
 		 * TODO: Shadow indexes do not contribute
@@ -616,23 +633,100 @@ public class SVDBIndexCollection implements ISVDBPreProcIndexSearcher, ISVDBInde
 			ret.addAll(tmp);
 		}
 		 */
+		
+		final Thread caller = Thread.currentThread();
+		List<List<SVDBDeclCacheItem>> results = SVDBIndexQueryRunner.run(monitor, indexes,
+				new SVDBIndexQueryRunner.IIndexQuery<SVDBDeclCacheItem>() {
+					public List<SVDBDeclCacheItem> query(ISVDBIndex index) {
+						return index.findGlobalScopeDecl(
+								getMonitor(caller, monitor), name, matcher);
+					}
+				}, first_match);
+		
+		List<SVDBDeclCacheItem> ret = new ArrayList<SVDBDeclCacheItem>();
+		Map<String, Integer> found = new HashMap<String, Integer>();
+		for (int i=0; i<results.size(); i++) {
+			for (SVDBDeclCacheItem it : results.get(i)) {
+				String key = it.getFilename() + ":" + it.getType() + ":" + it.getName();
+				if (is_duplicate(found, key, i)) {
+					continue;
+				}
+				ret.add(it);
+			}
+		}
+		
 		return ret;
 	}
 	
+	/**
+	 * Finds references in the indexes of this collection. The indexes 
+	 * are searched in parallel, and the results ordered by index search
+	 * order. A reference found by more than one index is returned once.
+	 */
 	public List<SVDBRefCacheItem> findReferences(
-			IProgressMonitor			monitor,
-			String						name,
-			ISVDBRefMatcher				matcher) {
+			final IProgressMonitor		monitor,
+			final String				name,
+			final ISVDBRefMatcher		matcher) {
+		final Thread caller = Thread.currentThread();
+		List<List<SVDBRefCacheItem>> results = SVDBIndexQueryRunner.run(monitor, getIndexList(),
+				new SVDBIndexQueryRunner.IIndexQuery<SVDBRefCacheItem>() {
+					public List<SVDBRefCacheItem> query(ISVDBIndex index) {
+						return index.findReferences(
+								getMonitor(caller, monitor), name, matcher);
+					}
+				}, false);
+
 		List<SVDBRefCacheItem> ret = new ArrayList<SVDBRefCacheItem>();
+		Map<String, Integer> found = new HashMap<String, Integer>();
+		for (int i=0; i<results.size(); i++) {
+			for (SVDBRefCacheItem it : results.get(i)) {
+				String key = it.getFilename() + ":" + it.getRefType() + ":" + it.getRefName();
+				if (is_duplicate(found, key, i)) {
+					continue;
+				}
+				ret.add(it);
+			}
+		}
 		
+		return ret;
+	}
+	
+	/**
+	 * Indicates whether 'key' was already found by an index other than 
+	 * the index at 'idx'. Results from a single index are not filtered
+	 */
+	private static boolean is_duplicate(Map<String, Integer> found, String key, int idx) {
+		Integer first = found.get(key);
+		
+		if (first == null) {
+			found.put(key, idx);
+			return false;
+		}
+		
+		return (first.intValue() != idx);
+	}
+	
+	/**
+	 * Progress monitors are not thread safe, so only the calling thread
+	 * reports progress
+	 */
+	private static IProgressMonitor getMonitor(Thread caller, IProgressMonitor monitor) {
+		return (Thread.currentThread() == caller)?monitor:new NullProgressMonitor();
+	}
+	
+	public List<Tuple<String, String>> findModuleInstances(
+			IProgressMonitor			monitor,
+			String						module) {
 		for (List<ISVDBIndex> index_l : fFileSearchOrder) {
 			for (ISVDBIndex index : index_l) {
-				List<SVDBRefCacheItem> r = index.findReferences(monitor, name, matcher);
-				ret.addAll(r);
+				List<Tuple<String, String>> ret = index.findModuleInstances(monitor, module);
+				if (ret != null) {
+					return ret;
+				}
 			}
 		}
 		
-		return ret;
+		return null;
 	}
 	
 	public Iterable<String> getFileList(IProgressMonitor monitor) {
@@ -657,19 +751,19 @@ public class SVDBIndexCollection implements ISVDBPreProcIndexSearcher, ISVDBInde
 		return ret;
 	}
 	
-	public SVDBFile findFile(IProgressMonitor monitor, String path) {
+	public SVDBFile findFile(final IProgressMonitor monitor, final String path) {
 		SVDBFile ret = null;
 		
-		// Search the indexes in order
-		for (List<ISVDBIndex> index_l : fFileSearchOrder) {
-			for (ISVDBIndex index : index_l) {
-				if ((ret = index.findFile(monitor, path)) != null) {
-					break;
-				}
-			}
-			if (ret != null) {
-				break;
-			}
+		// Search the indexes that hold the file, in order
+		List<SVDBSearchResult<SVDBFile>> result = fRouteTable.find(
+				path, getIndexList(), true, false,
+				new SVDBIndexRouteTable.IFileProbe() {
+					public SVDBFile probe(ISVDBIndex index) {
+						return index.findFile(monitor, path);
+					}
+				});
+		if (result.size() > 0) {
+			ret = result.get(0).getItem();
 		}
 	
 		if (ret == null) {
@@ -689,19 +783,19 @@ public class SVDBIndexCollection implements ISVDBPreProcIndexSearcher, ISVDBInde
 		return ret;
 	}
 	
-	public SVDBFile findPreProcFile(IProgressMonitor monitor, String path) {
+	public SVDBFile findPreProcFile(final IProgressMonitor monitor, final String path) {
 		SVDBFile ret = null;
 		
-		// Search the indexes in order
-		for (List<ISVDBIndex> index_l : fFileSearchOrder) {
-			for (ISVDBIndex index : index_l) {
-				if ((ret = index.findPreProcFile(monitor, path)) != null) {
-					break;
-				}
-			}
-			if (ret != null) {
-				break;
-			}
+		// Search the indexes that hold the file, in order
+		List<SVDBSearchResult<SVDBFile>> result = fRouteTable.find(
+				path, getIndexList(), true, false,
+				new SVDBIndexRouteTable.IFileProbe() {
+					public SVDBFile probe(ISVDBIndex index) {
+						return index.findPreProcFile(monitor, path);
+					}
+				});
+		if (result.size() > 0) {
+			ret = result.get(0).getItem();
 		}
 	
 		if (ret == null) {
@@ -721,10 +815,12 @@ public class SVDBIndexCollection implements ISVDBPreProcIndexSearcher, ISVDBInde
 		return ret;		
 	}
 	
-	private void findGlobalScopeDeclProjRef(
-			List<SVDBDeclCacheItem>			ret,
-			String							name,
-			ISVDBFindNameMatcher			matcher,
+	/**
+	 * Collects the indexes searched for global-scope declarations: those
+	 * of this collection, followed by those of referenced projects
+	 */
+	private void getDeclSearchIndexes(
+			List<ISVDBIndex>				ret,
 			Set<SVDBIndexCollection>		already_searched,
 			boolean							search_local) {
 		if (!already_searched.contains(this)) {
@@ -732,21 +828,14 @@ public class SVDBIndexCollection implements ISVDBPreProcIndexSearcher, ISVDBInde
 		}
 		
 		if (search_local) {
-			// Search for matches in the local indexes
-			for (List<ISVDBIndex> index_l : fFileSearchOrder) {
-				for (ISVDBIndex index : index_l) {
-					List<SVDBDeclCacheItem> tmp = index.findGlobalScopeDecl(
-							new NullProgressMonitor(), name, matcher);
-					ret.addAll(tmp);
-				}
-			}
+			ret.addAll(getIndexList());
 		}
 		
 		if (fProjectRefProvider != null) {
 			for (String ref : fProjectRefs) {
 				SVDBIndexCollection mgr_t = fProjectRefProvider.resolveProjectRef(ref);
 				if (mgr_t != null && !already_searched.contains(mgr_t)) {
-					mgr_t.findGlobalScopeDeclProjRef(ret, name, matcher, already_searched, true);
+					mgr_t.getDeclSearchIndexes(ret, already_searched, true);
 				}
 			}
 		}
@@ -0,0 +1,282 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.db.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.sveditor.core.SVCorePlugin;
+import net.sf.sveditor.core.SVFileUtils;
+import net.sf.sveditor.core.db.index.cache.ISVDBFS;
+import net.sf.sveditor.core.db.index.cache.SVDBArchiveFS;
+import net.sf.sveditor.core.db.index.cache.SVDBDirFS;
+import net.sf.sveditor.core.db.index.cache.SVDBFileIndexCache;
+import net.sf.sveditor.core.db.project.SVDBSourceCollection;
+import net.sf.sveditor.core.fileset.AbstractSVFileMatcher;
+import net.sf.sveditor.core.fileset.SVFileSet;
+import net.sf.sveditor.core.fileset.SVFilesystemFileMatcher;
+import net.sf.sveditor.core.log.LogFactory;
+import net.sf.sveditor.core.log.LogHandle;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.SubProgressMonitor;
+
+/**
+ * Builds and locates pre-built index images for argument-file and
+ * source-directory indexes. An image is the packed content of the
+ * index cache, named by the index base location. Images are built
+ * headless, for example by a nightly job, and imported from the
+ * directory named by the IMAGE_DIR_PROPERTY system property when the
+ * cache for an index with the same base location is created. Base 
+ * locations are compared after variable expansion, so an IDE index 
+ * whose location is written using variables or as a workspace path
+ * finds the image built from the file-system location.
+ *
+ * The cached files are only used while their timestamps are no newer
+ * than those recorded in the image, so images are useful for sources
+ * at the same location on shared storage.
+ */
+public class SVDBIndexImage {
+	public static final String				IMAGE_EXT = ".svdbimg";
+	public static final String				IMAGE_DIR_PROPERTY = "sveditor.index.images";
+
+	private static LogHandle				fLog = LogFactory.getLogHandle("SVDBIndexImage");
+
+	private String							fBaseLocation;
+	private int								fNumFiles;
+	private long							fNumBytes;
+	private long							fPhaseTimes[];
+	private long							fWriteTime;
+	private int								fMaxThreads;
+
+	public SVDBIndexImage(String base_location) {
+		fBaseLocation = resolveLocation(SVDBIndexRegistry.GLOBAL_PROJECT, base_location);
+		fPhaseTimes = new long[ISVDBIndex.PhaseNames.length];
+		fMaxThreads = SVCorePlugin.getMaxIndexThreads();
+	}
+
+	/**
+	 * Sets the maximum number of threads used by build()
+	 */
+	public void setMaxThreads(int n) {
+		fMaxThreads = n;
+	}
+
+	/**
+	 * An image is only usable for the same base location and core
+	 * (persistence format) version it was built from
+	 */
+	public static String getVersion(String base_location) {
+		return getVersion(SVDBIndexRegistry.GLOBAL_PROJECT, base_location);
+	}
+
+	public static String getVersion(String project, String base_location) {
+		return resolveLocation(project, base_location) + "/" + SVCorePlugin.getVersion();
+	}
+
+	public static String getImageName(String base_location) {
+		return getImageName(SVDBIndexRegistry.GLOBAL_PROJECT, base_location);
+	}
+
+	public static String getImageName(String project, String base_location) {
+		return SVFileUtils.computeMD5(resolveLocation(project, base_location)) + IMAGE_EXT;
+	}
+
+	/**
+	 * Expands variables in 'base_location' and maps workspace paths
+	 * to their file-system location
+	 */
+	public static String resolveLocation(String project, String base_location) {
+		String path = SVDBIndexUtil.expandVars(base_location, project, false);
+
+		if (path.startsWith("${workspace_loc}")) {
+			String ws_path = path.substring("${workspace_loc}".length());
+			IResource r = null;
+			try {
+				r = ResourcesPlugin.getWorkspace().getRoot().findMember(ws_path);
+			} catch (IllegalStateException e) {
+				// No workspace when running headless
+			}
+			IPath loc = (r != null)?r.getLocation():null;
+
+			if (loc != null) {
+				path = loc.toOSString();
+			}
+		}
+
+		return SVFileUtils.normalize(path);
+	}
+
+	/**
+	 * Returns the directory from which images are imported, or null
+	 */
+	public static File getImageDir() {
+		String dir = System.getProperty(IMAGE_DIR_PROPERTY);
+
+		return (dir != null && !dir.trim().equals(""))?new File(dir.trim()):null;
+	}
+
+	/**
+	 * Layers the image for the index at 'base_location', if one is
+	 * available and its version matches, beneath the supplied cache
+	 * storage.
+	 *
+	 * @return storage backed by the image, or the original storage
+	 */
+	public static ISVDBFS createFS(String base_location, ISVDBFS fs) {
+		return createFS(SVDBIndexRegistry.GLOBAL_PROJECT, base_location, fs);
+	}
+
+	public static ISVDBFS createFS(String project, String base_location, ISVDBFS fs) {
+		File dir = getImageDir();
+
+		if (dir == null) {
+			return fs;
+		}
+
+		File image = new File(dir, getImageName(project, base_location));
+		if (!image.isFile()) {
+			return fs;
+		}
+
+		String version = getVersion(project, base_location);
+		if (!version.equals(SVDBArchiveFS.readVersion(image))) {
+			fLog.debug("Index image \"" + image + "\" does not match version " + version);
+			return fs;
+		}
+
+		try {
+			SVDBArchiveFS archive_fs = new SVDBArchiveFS(image, fs);
+			fLog.debug("Using index image \"" + image + "\" for " + base_location);
+			return archive_fs;
+		} catch (IOException e) {
+			fLog.error("Failed to load index image \"" + image + "\"", e);
+		}
+
+		return fs;
+	}
+
+	/**
+	 * Fully indexes the argument file or source directory and packs the
+	 * resulting cache into an image within the specified directory. The
+	 * index is the same type that the IDE creates for the location.
+	 *
+	 * @return the image file
+	 */
+	public File build(
+			IProgressMonitor		monitor,
+			File					out_dir) throws IOException {
+		monitor.beginTask("Build index image for " + fBaseLocation, 4);
+
+		String image_name = getImageName(fBaseLocation);
+		File cache_dir = new File(out_dir, image_name + ".cache");
+		if (cache_dir.exists()) {
+			SVFileUtils.delete(cache_dir);
+		}
+		if (!cache_dir.mkdirs()) {
+			throw new IOException("Failed to create directory \"" + cache_dir + "\"");
+		}
+
+		try {
+			SVDBDirFS fs = new SVDBDirFS(cache_dir);
+			fs.setEnableAsyncClear(false);
+			AbstractSVDBIndex index = createIndex(new SVDBFileIndexCache(fs));
+			index.setMaxIndexThreads(fMaxThreads);
+
+			index.init(new SubProgressMonitor(monitor, 1));
+			index.loadIndex(new SubProgressMonitor(monitor, 2));
+
+			fPhaseTimes = index.getPhaseTimes();
+			fNumFiles = 0;
+			fNumBytes = 0;
+			for (String path : index.getFileList(new NullProgressMonitor())) {
+				fNumFiles++;
+				fNumBytes += new File(path).length();
+			}
+
+			// Writes the file list and index data
+			long start = System.currentTimeMillis();
+			index.dispose();
+
+			File image = new File(out_dir, image_name);
+			SVDBArchiveFS.writeImage(cache_dir, image, getVersion(fBaseLocation));
+			fWriteTime = System.currentTimeMillis() - start;
+			monitor.worked(1);
+
+			return image;
+		} finally {
+			SVFileUtils.delete(cache_dir);
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Returns the number of files in the index built by build()
+	 */
+	public int getNumFiles() {
+		return fNumFiles;
+	}
+
+	/**
+	 * Returns the total size, in bytes, of the files in the index
+	 * built by build()
+	 */
+	public long getNumBytes() {
+		return fNumBytes;
+	}
+
+	/**
+	 * Returns the time spent in each index-build phase by build().
+	 * Phases are named by ISVDBIndex.PhaseNames
+	 */
+	public long[] getPhaseTimes() {
+		return fPhaseTimes.clone();
+	}
+
+	/**
+	 * Returns the time spent writing the cache and image by build()
+	 */
+	public long getWriteTime() {
+		return fWriteTime;
+	}
+
+	private AbstractSVDBIndex createIndex(SVDBFileIndexCache cache) {
+		ISVDBFileSystemProvider fs_provider = new SVDBFSFileSystemProvider();
+
+		if (new File(fBaseLocation).isDirectory()) {
+			SVFileSet fs = new SVFileSet(fBaseLocation);
+			fs.getIncludes().addAll(SVDBSourceCollection.parsePatternList(
+					SVCorePlugin.getDefault().getDefaultSourceCollectionIncludes()));
+			fs.getExcludes().addAll(SVDBSourceCollection.parsePatternList(
+					SVCorePlugin.getDefault().getDefaultSourceCollectionExcludes()));
+
+			AbstractSVFileMatcher matcher = new SVFilesystemFileMatcher();
+			matcher.addFileSet(fs);
+			List<AbstractSVFileMatcher> matcher_list = new ArrayList<AbstractSVFileMatcher>();
+			matcher_list.add(matcher);
+
+			return new SVDBSourceCollectionIndex(SVDBIndexRegistry.GLOBAL_PROJECT,
+					fBaseLocation, matcher_list, fs_provider, cache, null);
+		} else {
+			return new SVDBArgFileIndex(SVDBIndexRegistry.GLOBAL_PROJECT,
+					fBaseLocation, fs_provider, cache, null);
+		}
+	}
+
+}
@@ -15,6 +15,7 @@ package net.sf.sveditor.core.db.index;
 import java.util.ArrayList;
 import java.util.List;
 
+import net.sf.sveditor.core.Tuple;
 import net.sf.sveditor.core.StringIterableIterator;
 import net.sf.sveditor.core.db.SVDBFile;
 import net.sf.sveditor.core.db.refs.ISVDBRefMatcher;
@@ -68,6 +69,17 @@ public class SVDBIndexListIterator implements ISVDBIndexIterator {
 		return ret;
 	}
 	
+	public List<Tuple<String, String>> findModuleInstances(
+			IProgressMonitor monitor, String module) {
+		for (ISVDBIndexIterator index_it : fIndexIteratorList) {
+			List<Tuple<String, String>> ret = index_it.findModuleInstances(monitor, module);
+			if (ret != null) {
+				return ret;
+			}
+		}
+		return null;
+	}
+	
 	public Iterable<String> getFileList(IProgressMonitor monitor) {
 		StringIterableIterator ret = new StringIterableIterator();
 		
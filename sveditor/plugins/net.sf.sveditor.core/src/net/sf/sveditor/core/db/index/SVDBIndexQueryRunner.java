@@ -0,0 +1,223 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.db.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.sveditor.core.job_mgr.JobMgrWorkerThread;
+import net.sf.sveditor.core.log.LogFactory;
+import net.sf.sveditor.core.log.LogHandle;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Runs a query against a list of indexes in parallel. The indexes are
+ * brought up to date on the calling thread first. The calling thread
+ * then queries the first index while the remaining indexes are queried
+ * by a small pool of query threads. Results are returned in the order
+ * of the indexes.
+ *
+ * The query threads are separate from the job manager's workers, which
+ * load and parse indexes. A query thread never waits for another query
+ * thread, and queries made from a job-manager thread or a query thread
+ * are run sequentially.
+ */
+public class SVDBIndexQueryRunner<T> {
+
+	public interface IIndexQuery<T> {
+		List<T> query(ISVDBIndex index);
+	}
+
+	private static final int				MAX_THREADS = 4;
+
+	private static LogHandle				fLog;
+	private static ExecutorService			fExecutor;
+
+	private List<ISVDBIndex>				fIndexes;
+	private IIndexQuery<T>					fQuery;
+	private List<List<T>>					fResults;
+	private boolean							fDone[];
+	private boolean							fFirstMatch;
+
+	static {
+		fLog = LogFactory.getLogHandle("SVDBIndexQueryRunner");
+	}
+
+	private static class QueryThread extends Thread {
+		public QueryThread(Runnable r) {
+			super(r, "SVDBIndexQuery");
+			setDaemon(true);
+		}
+	}
+
+	private static synchronized ExecutorService getExecutor() {
+		if (fExecutor == null) {
+			int n_threads = Math.max(1, Math.min(MAX_THREADS,
+					Runtime.getRuntime().availableProcessors()-1));
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(
+					n_threads, n_threads, 30, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(),
+					new ThreadFactory() {
+						public Thread newThread(Runnable r) {
+							return new QueryThread(r);
+						}
+					});
+			executor.allowCoreThreadTimeOut(true);
+			fExecutor = executor;
+		}
+		return fExecutor;
+	}
+
+	private SVDBIndexQueryRunner(
+			List<ISVDBIndex>		indexes,
+			IIndexQuery<T>			query,
+			boolean					first_match) {
+		fIndexes = indexes;
+		fQuery = query;
+		fFirstMatch = first_match;
+		fResults = new ArrayList<List<T>>();
+		fDone = new boolean[indexes.size()];
+		for (int i=0; i<indexes.size(); i++) {
+			fResults.add(null);
+		}
+	}
+
+	/**
+	 * Queries each index in 'indexes'. Returns the results of each index,
+	 * in the order of 'indexes'. When 'first_match' is set, only the
+	 * results of the first index that returns results are returned, and
+	 * the query completes as soon as that index and the indexes before
+	 * it have answered.
+	 */
+	public static <T> List<List<T>> run(
+			IProgressMonitor		monitor,
+			List<ISVDBIndex>		indexes,
+			IIndexQuery<T>			query,
+			boolean					first_match) {
+		SVDBIndexQueryRunner<T> runner =
+			new SVDBIndexQueryRunner<T>(indexes, query, first_match);
+		Thread t = Thread.currentThread();
+
+		if (indexes.size() < 2 || t instanceof JobMgrWorkerThread ||
+				t instanceof QueryThread) {
+			runner.run_sequential();
+		} else {
+			// Loading an index may wait on job-manager jobs. Do this
+			// here, so the query threads only ever read loaded indexes
+			for (ISVDBIndex index : indexes) {
+				index.loadIndex(monitor);
+			}
+			runner.run_parallel();
+		}
+
+		return runner.getResults();
+	}
+
+	private void run_sequential() {
+		for (int i=0; i<fIndexes.size(); i++) {
+			query(i);
+			if (fFirstMatch && fResults.get(i).size() > 0) {
+				break;
+			}
+		}
+	}
+
+	private void run_parallel() {
+		ExecutorService executor = getExecutor();
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+
+		for (int i=1; i<fIndexes.size(); i++) {
+			final int idx = i;
+			futures.add(executor.submit(new Runnable() {
+				public void run() {
+					query(idx);
+				}
+			}));
+		}
+
+		query(0);
+
+		synchronized (this) {
+			while (!isComplete()) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					break;
+				}
+			}
+		}
+
+		// Queries not yet started need not run
+		for (Future<?> f : futures) {
+			f.cancel(false);
+		}
+	}
+
+	private void query(int idx) {
+		List<T> result = null;
+
+		try {
+			result = fQuery.query(fIndexes.get(idx));
+		} catch (RuntimeException e) {
+			fLog.error("Query of index \"" +
+					fIndexes.get(idx).getBaseLocation() + "\" failed", e);
+		}
+
+		if (result == null) {
+			result = new ArrayList<T>();
+		}
+
+		synchronized (this) {
+			fResults.set(idx, result);
+			fDone[idx] = true;
+			notifyAll();
+		}
+	}
+
+	private boolean isComplete() {
+		for (int i=0; i<fDone.length; i++) {
+			if (!fDone[i]) {
+				return false;
+			} else if (fFirstMatch && fResults.get(i) != null &&
+					fResults.get(i).size() > 0) {
+				return true;
+			}
+		}
+		return true;
+	}
+
+	private synchronized List<List<T>> getResults() {
+		List<List<T>> ret = new ArrayList<List<T>>();
+
+		for (int i=0; i<fResults.size(); i++) {
+			List<T> r = (fDone[i])?fResults.get(i):null;
+			if (r == null) {
+				r = new ArrayList<T>();
+			}
+			ret.add(r);
+			if (fFirstMatch && r.size() > 0) {
+				break;
+			}
+		}
+
+		return ret;
+	}
+
+}
@@ -0,0 +1,320 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.db.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.sveditor.core.db.SVDBFile;
+import net.sf.sveditor.core.db.search.SVDBSearchResult;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+/**
+ * Routes file lookups in an index collection to the indexes that hold
+ * the file, rather than probing every index in turn.
+ *
+ * Routes are added from the file list of each index once the list is
+ * loaded, and from the results of lookups. The routes of an index are
+ * dropped when the index is rebuilt. An index whose file list is not
+ * loaded is always probed. A lookup that finds the file in none of the
+ * indexes is remembered until one of the indexes changes. Only the 
+ * most recent misses are remembered.
+ */
+public class SVDBIndexRouteTable {
+
+	public interface IFileProbe {
+		SVDBFile probe(ISVDBIndex index);
+	}
+
+	private static final int						MAX_MISSES = 1024;
+
+	private Map<String, List<ISVDBIndex>>			fRoutes;
+	// Paths routed to each index
+	private Map<ISVDBIndex, Set<String>>			fIndexPaths;
+	private Map<ISVDBIndex, RouteListener>			fListeners;
+	private Map<ISVDBIndex, Boolean>				fRouted;
+	private Map<ISVDBIndex, Boolean>				fStale;
+	private Map<String, Boolean>					fMisses;
+	private int										fMissGeneration;
+	private AtomicInteger							fGeneration;
+
+	public SVDBIndexRouteTable() {
+		fRoutes 	= new ConcurrentHashMap<String, List<ISVDBIndex>>();
+		fIndexPaths	= new HashMap<ISVDBIndex, Set<String>>();
+		fListeners 	= new ConcurrentHashMap<ISVDBIndex, RouteListener>();
+		fRouted 	= new ConcurrentHashMap<ISVDBIndex, Boolean>();
+		fStale		= new ConcurrentHashMap<ISVDBIndex, Boolean>();
+		fMisses		= new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+				return (size() > MAX_MISSES);
+			}
+		};
+		fGeneration	= new AtomicInteger();
+	}
+
+	public synchronized void addIndex(ISVDBIndex index) {
+		if (!fListeners.containsKey(index)) {
+			RouteListener l = new RouteListener(index);
+			fListeners.put(index, l);
+			index.addChangeListener(l);
+		}
+		fGeneration.incrementAndGet();
+	}
+
+	public synchronized void clear() {
+		for (Map.Entry<ISVDBIndex, RouteListener> e : fListeners.entrySet()) {
+			e.getKey().removeChangeListener(e.getValue());
+		}
+		fListeners.clear();
+		fRoutes.clear();
+		fIndexPaths.clear();
+		fRouted.clear();
+		fStale.clear();
+		fMisses.clear();
+		fGeneration.incrementAndGet();
+	}
+
+	/**
+	 * Probes the indexes that hold 'path', in the order of 'indexes'.
+	 * When 'first_only' is set, the search stops at the first index that
+	 * returns the file. When 'full_probe' is set, a remembered miss is
+	 * not trusted and every index is probed if the routed indexes do not
+	 * hold the file. Callers that fall back to other indexes on a miss 
+	 * set 'full_probe'.
+	 */
+	public List<SVDBSearchResult<SVDBFile>> find(
+			String				path,
+			List<ISVDBIndex>	indexes,
+			boolean				first_only,
+			boolean				full_probe,
+			IFileProbe			probe) {
+		List<SVDBSearchResult<SVDBFile>> ret = new ArrayList<SVDBSearchResult<SVDBFile>>();
+		int generation = fGeneration.get();
+
+		boolean all_routed = update(indexes);
+
+		if (all_routed && !full_probe && isMiss(path, generation)) {
+			return ret;
+		}
+
+		List<ISVDBIndex> owners = fRoutes.get(path);
+
+		if (owners != null) {
+			for (ISVDBIndex index : indexes) {
+				if (owners.contains(index) || !isRouted(index)) {
+					if (probe(index, probe, ret) && first_only) {
+						break;
+					}
+				}
+			}
+
+			if (ret.size() > 0) {
+				return ret;
+			}
+
+			// The route is stale
+			synchronized (this) {
+				remove_route(path);
+			}
+		}
+
+		for (ISVDBIndex index : indexes) {
+			if (probe(index, probe, ret) && first_only) {
+				break;
+			}
+		}
+
+		if (ret.size() == 0) {
+			if (all_routed) {
+				addMiss(path, generation);
+			}
+		} else if (!first_only) {
+			// Only a complete search finds all the owners
+			List<ISVDBIndex> found = new ArrayList<ISVDBIndex>();
+			for (SVDBSearchResult<SVDBFile> r : ret) {
+				found.add(r.getIndex());
+			}
+			synchronized (this) {
+				if (fGeneration.get() == generation && !fRoutes.containsKey(path)) {
+					fRoutes.put(path, found);
+					for (ISVDBIndex index : found) {
+						add_path(index, path);
+					}
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Returns the number of paths with a route
+	 */
+	public int size() {
+		return fRoutes.size();
+	}
+
+	private synchronized boolean isMiss(String path, int generation) {
+		return (fMissGeneration == generation && fMisses.containsKey(path));
+	}
+
+	private synchronized void addMiss(String path, int generation) {
+		if (fMissGeneration != generation) {
+			// Older misses are no longer valid
+			fMisses.clear();
+			fMissGeneration = generation;
+		}
+		fMisses.put(path, true);
+	}
+
+	private static boolean probe(
+			ISVDBIndex							index,
+			IFileProbe							probe,
+			List<SVDBSearchResult<SVDBFile>>	ret) {
+		SVDBFile file = probe.probe(index);
+
+		if (file != null) {
+			ret.add(new SVDBSearchResult<SVDBFile>(file, index));
+			return true;
+		}
+
+		return false;
+	}
+
+	private boolean isRouted(ISVDBIndex index) {
+		return (fRouted.containsKey(index) && index.isFileListLoaded());
+	}
+
+	/**
+	 * Drops the routes of rebuilt indexes and adds the routes of indexes
+	 * whose file list has been loaded. Returns whether all the indexes
+	 * are routed.
+	 */
+	private synchronized boolean update(List<ISVDBIndex> indexes) {
+		boolean all_routed = true;
+
+		for (ISVDBIndex index : fStale.keySet()) {
+			fStale.remove(index);
+			remove_routes(index);
+		}
+
+		for (ISVDBIndex index : indexes) {
+			if (!fRouted.containsKey(index) && index.isFileListLoaded()) {
+				add_routes(index);
+			}
+			all_routed &= isRouted(index);
+		}
+
+		return all_routed;
+	}
+
+	private void add_routes(ISVDBIndex index) {
+		fRouted.put(index, true);
+
+		for (String path : index.getFileList(new NullProgressMonitor())) {
+			List<ISVDBIndex> owners = fRoutes.get(path);
+
+			if (owners == null) {
+				owners = new ArrayList<ISVDBIndex>(1);
+			} else if (owners.contains(index)) {
+				continue;
+			} else {
+				owners = new ArrayList<ISVDBIndex>(owners);
+			}
+			owners.add(index);
+			fRoutes.put(path, owners);
+			add_path(index, path);
+		}
+	}
+
+	private void add_path(ISVDBIndex index, String path) {
+		Set<String> paths = fIndexPaths.get(index);
+		if (paths == null) {
+			paths = new HashSet<String>();
+			fIndexPaths.put(index, paths);
+		}
+		paths.add(path);
+	}
+
+	private void remove_route(String path) {
+		List<ISVDBIndex> owners = fRoutes.remove(path);
+		if (owners != null) {
+			for (ISVDBIndex index : owners) {
+				Set<String> paths = fIndexPaths.get(index);
+				if (paths != null) {
+					paths.remove(path);
+				}
+			}
+		}
+	}
+
+	private void remove_routes(ISVDBIndex index) {
+		if (fRouted.remove(index) == null) {
+			return;
+		}
+
+		Set<String> paths = fIndexPaths.remove(index);
+		if (paths == null) {
+			return;
+		}
+
+		for (String path : paths) {
+			List<ISVDBIndex> owners = fRoutes.get(path);
+			if (owners != null && owners.contains(index)) {
+				if (owners.size() == 1) {
+					fRoutes.remove(path);
+				} else {
+					owners = new ArrayList<ISVDBIndex>(owners);
+					owners.remove(index);
+					fRoutes.put(path, owners);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Notes changes to an index. Listeners must not call into the index,
+	 * so routes are updated by the next lookup.
+	 */
+	private class RouteListener implements ISVDBIndexChangeListener {
+		private ISVDBIndex				fIndex;
+
+		public RouteListener(ISVDBIndex index) {
+			fIndex = index;
+		}
+
+		public void index_changed(int reason, SVDBFile file) {
+			if (reason != FILE_CHANGED) {
+				fStale.put(fIndex, true);
+			}
+			fGeneration.incrementAndGet();
+		}
+
+		public void index_rebuilt() {
+			fStale.put(fIndex, true);
+			fGeneration.incrementAndGet();
+		}
+	}
+
+}
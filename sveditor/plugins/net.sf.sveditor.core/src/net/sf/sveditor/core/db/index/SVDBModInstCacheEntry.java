@@ -0,0 +1,141 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.db.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.sveditor.core.Tuple;
+import net.sf.sveditor.core.db.ISVDBChildItem;
+import net.sf.sveditor.core.db.ISVDBChildParent;
+import net.sf.sveditor.core.db.SVDBItemType;
+import net.sf.sveditor.core.db.SVDBModIfcDecl;
+import net.sf.sveditor.core.db.SVDBModIfcInst;
+import net.sf.sveditor.core.db.SVDBModIfcInstItem;
+
+/**
+ * Per-file slice of the module instance graph. Records, for each module
+ * and interface declared in a file, the name and type of each instance
+ * declared directly within it.
+ */
+public class SVDBModInstCacheEntry {
+
+	// Module and interface names declared in the file
+	public List<String>						fModules;
+
+	// Number of instances within each module. Parallel to fModules
+	public List<Integer>					fInstCount;
+
+	// Instance and type names of all instances, in module order
+	public List<String>						fInstNames;
+	public List<String>						fInstTypes;
+
+	public SVDBModInstCacheEntry() {
+		fModules = new ArrayList<String>();
+		fInstCount = new ArrayList<Integer>();
+		fInstNames = new ArrayList<String>();
+		fInstTypes = new ArrayList<String>();
+	}
+
+	public List<String> getModules() {
+		return fModules;
+	}
+
+	public boolean containsModule(String module) {
+		return fModules.contains(module);
+	}
+
+	public void addModule(String module, List<Tuple<String, String>> insts) {
+		fModules.add(module);
+		fInstCount.add(insts.size());
+		for (Tuple<String, String> inst : insts) {
+			fInstNames.add(inst.first());
+			fInstTypes.add(inst.second());
+		}
+	}
+
+	/**
+	 * Returns the (instance name, type name) pairs for instances
+	 * declared directly within the specified module
+	 *
+	 * @param module
+	 * @return list of instances, or null if the module is not declared in this file
+	 */
+	public List<Tuple<String, String>> getInstances(String module) {
+		int offset = 0;
+
+		for (int i=0; i<fModules.size(); i++) {
+			int count = fInstCount.get(i);
+			if (fModules.get(i).equals(module)) {
+				List<Tuple<String, String>> ret = new ArrayList<Tuple<String,String>>();
+				for (int j=offset; j<offset+count; j++) {
+					ret.add(new Tuple<String, String>(fInstNames.get(j), fInstTypes.get(j)));
+				}
+				return ret;
+			}
+			offset += count;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Builds the module-instance entry for the module and interface
+	 * declarations within the specified scope
+	 */
+	public static SVDBModInstCacheEntry build(ISVDBChildParent scope) {
+		SVDBModInstCacheEntry ret = new SVDBModInstCacheEntry();
+
+		build(ret, scope);
+
+		return ret;
+	}
+
+	private static void build(SVDBModInstCacheEntry entry, ISVDBChildParent scope) {
+		for (ISVDBChildItem item : scope.getChildren()) {
+			if (item.getType() == SVDBItemType.ModuleDecl ||
+					item.getType() == SVDBItemType.InterfaceDecl) {
+				SVDBModIfcDecl decl = (SVDBModIfcDecl)item;
+				List<Tuple<String, String>> insts = new ArrayList<Tuple<String,String>>();
+
+				collectInstances(insts, decl);
+
+				entry.addModule(decl.getName(), insts);
+			} else if (item.getType() == SVDBItemType.PreProcCond) {
+				build(entry, (ISVDBChildParent)item);
+			}
+		}
+	}
+
+	/**
+	 * Collects the (instance name, type name) pairs for the instances
+	 * declared directly within the specified module declaration
+	 */
+	public static void collectInstances(
+			List<Tuple<String, String>>		insts,
+			SVDBModIfcDecl					decl) {
+		for (ISVDBChildItem it : decl.getChildren()) {
+			if (it.getType() == SVDBItemType.ModIfcInst) {
+				SVDBModIfcInst inst = (SVDBModIfcInst)it;
+				if (inst.getTypeInfo() == null) {
+					continue;
+				}
+				for (SVDBModIfcInstItem inst_i : inst.getInstList()) {
+					insts.add(new Tuple<String, String>(
+							inst_i.getName(), inst.getTypeInfo().getName()));
+				}
+			}
+		}
+	}
+
+}
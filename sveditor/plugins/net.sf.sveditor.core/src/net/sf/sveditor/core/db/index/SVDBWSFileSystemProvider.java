@@ -146,17 +146,10 @@ public class SVDBWSFileSystemProvider implements ISVDBFileSystemProvider,
 			
 			IFile file = root.getFile(new Path(path));
 			
+			// Markers are replaced by those subsequently added, once
+			// the differences with the current markers are known
 			if (file.exists()) {
-				try {
-					IMarker markers[] = file.findMarkers(
-							IMarker.PROBLEM, true, IResource.DEPTH_INFINITE);
-
-					for (IMarker m : markers) {
-						m.delete();
-					}
-				} catch (CoreException e) {
-					// e.printStackTrace();
-				}
+				SVCorePlugin.getDefault().clearMarkers(file);
 			}
 		}
 	}
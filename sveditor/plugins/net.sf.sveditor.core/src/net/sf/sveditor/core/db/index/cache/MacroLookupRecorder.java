@@ -0,0 +1,163 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.db.index.cache;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import net.sf.sveditor.core.SVFileUtils;
+import net.sf.sveditor.core.db.SVDBMacroDef;
+import net.sf.sveditor.core.db.SVDBMacroDefParam;
+import net.sf.sveditor.core.scanner.IPreProcMacroProvider;
+
+/**
+ * Records the macro lookups made while a file is parsed. The recorded
+ * lookups are the part of the macro environment the parse result
+ * depends on, and are replayed against another environment to decide
+ * whether the result can be reused there.
+ */
+public class MacroLookupRecorder implements IPreProcMacroProvider {
+	private IPreProcMacroProvider				fProvider;
+	private List<String>						fNames;
+	private List<Integer>						fLines;
+	private List<String>						fValues;
+	private Set<String>						fSeen;
+	private Set<String>						fLocalNames;
+	private boolean							fPathDependent;
+
+	public MacroLookupRecorder(IPreProcMacroProvider provider) {
+		fProvider = provider;
+		fNames = new ArrayList<String>();
+		fLines = new ArrayList<Integer>();
+		fValues = new ArrayList<String>();
+		fSeen = new HashSet<String>();
+		fLocalNames = new HashSet<String>();
+	}
+
+	public SVDBMacroDef findMacro(String name, int lineno) {
+		SVDBMacroDef m = fProvider.findMacro(name, lineno);
+
+		if (fLocalNames.contains(name)) {
+			// Set by the pre-processor during the parse (__FILE__, __LINE__).
+			// Only __FILE__ differs between two files with the same content
+			if (name.equals("__FILE__")) {
+				fPathDependent = true;
+			}
+		} else if (!fSeen.contains(name)) {
+			fSeen.add(name);
+			fNames.add(name);
+			fLines.add(lineno);
+			fValues.add(fingerprint(m));
+		}
+
+		return m;
+	}
+
+	public void addMacro(SVDBMacroDef macro) {
+		fLocalNames.add(macro.getName());
+		fProvider.addMacro(macro);
+	}
+
+	public void setMacro(String key, String value) {
+		fLocalNames.add(key);
+		fProvider.setMacro(key, value);
+	}
+
+	/**
+	 * Indicates whether the parse result embeds the path of the file
+	 */
+	public boolean isPathDependent() {
+		return fPathDependent;
+	}
+
+	public List<String> getNames() {
+		return fNames;
+	}
+
+	public List<Integer> getLines() {
+		return fLines;
+	}
+
+	public List<String> getValues() {
+		return fValues;
+	}
+
+	/**
+	 * Computes the fingerprint of the recorded macro environment
+	 */
+	public String getFingerprint() {
+		return fingerprint(fNames, fLines, fValues);
+	}
+
+	public static String fingerprint(
+			List<String>		names,
+			List<Integer>		lines,
+			List<String>		values) {
+		StringBuilder sb = new StringBuilder();
+
+		for (int i=0; i<names.size(); i++) {
+			sb.append(names.get(i));
+			sb.append('@');
+			sb.append(lines.get(i));
+			sb.append('=');
+			sb.append(values.get(i));
+			sb.append('\n');
+		}
+
+		return SVFileUtils.computeMD5(sb.toString());
+	}
+
+	/**
+	 * Computes the fingerprint of a single macro lookup result
+	 */
+	public static String fingerprint(SVDBMacroDef m) {
+		if (m == null) {
+			return "U";
+		}
+
+		StringBuilder sb = new StringBuilder();
+		sb.append('D');
+		if (m.getParameters() != null) {
+			sb.append('(');
+			for (SVDBMacroDefParam p : m.getParameters()) {
+				sb.append(p.getName());
+				sb.append(',');
+			}
+			sb.append(')');
+		}
+		sb.append(m.getDef());
+
+		return SVFileUtils.computeMD5(sb.toString());
+	}
+
+	/**
+	 * Checks whether the recorded lookups resolve identically in
+	 * the specified environment
+	 */
+	public static boolean matches(
+			IPreProcMacroProvider	mp,
+			List<String>			names,
+			List<Integer>			lines,
+			List<String>			values) {
+		for (int i=0; i<names.size(); i++) {
+			SVDBMacroDef m = mp.findMacro(names.get(i), lines.get(i));
+			if (!fingerprint(m).equals(values.get(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
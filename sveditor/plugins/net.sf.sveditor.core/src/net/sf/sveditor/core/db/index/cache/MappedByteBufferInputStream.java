@@ -35,15 +35,27 @@ public class MappedByteBufferInputStream extends InputStream {
 //		fBufferMax = (int)channel.size();
 		fBufferIdx = 0;
 	}
+	
+	/**
+	 * Reads from a region of an already-mapped buffer. The stream 
+	 * does not own the buffer, so close() has no effect
+	 */
+	public MappedByteBufferInputStream(ByteBuffer buffer) {
+		fIn = null;
+		fByteBuffer = buffer;
+		fBufferIdx = 0;
+	}
 
 	@Override
 	public int available() throws IOException {
-		return (fByteBuffer.limit()-fBufferIdx);
+		return fByteBuffer.remaining();
 	}
 
 	@Override
 	public void close() throws IOException {
-		fIn.close();
+		if (fIn != null) {
+			fIn.close();
+		}
 	}
 
 	@Override
@@ -58,7 +70,7 @@ public class MappedByteBufferInputStream extends InputStream {
 		if (ret <= 0) {
 			return -1;
 		} else {
-			return fTmp[0];
+			return (fTmp[0] & 0xFF);
 		}
 	}
 
@@ -69,7 +81,6 @@ public class MappedByteBufferInputStream extends InputStream {
 		if (fByteBuffer.remaining() > 0) {
 			ret = (fByteBuffer.remaining() >= len)?len:fByteBuffer.remaining();
 			fByteBuffer.get(b, off, ret);
-			System.out.println("Read " + ret + " bytes");
 		}
 		return ret;
 	}
@@ -0,0 +1,325 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.db.index.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Serves index-cache content from a read-only, memory-mapped index
+ * image, with a writable filesystem layered on top. Content written
+ * after the image is loaded is stored in, and read back from, the
+ * writable filesystem.
+ *
+ * Image Layout:
+ * |===================================================
+ * | int     MAGIC
+ * | int     FORMAT_VERSION
+ * | UTF     image version
+ * | int     number of entries
+ * | { UTF path ; long offset ; int length } * entries
+ * |===================================================
+ * | entry data. Offsets are relative to the start of this section
+ * |===================================================
+ */
+public class SVDBArchiveFS implements ISVDBFS {
+	public static final int					MAGIC          = 0x53564449; // SVDI
+	public static final int					FORMAT_VERSION = 1;
+
+	private File							fImage;
+	private String							fVersion;
+	private ByteBuffer						fData;
+	private Map<String, long[]>				fEntryMap;
+	private boolean						fImageEnabled;
+	private List<String>					fDeletedPaths;
+	private ISVDBFS							fWritableFS;
+
+	public SVDBArchiveFS(File image, ISVDBFS writable_fs) throws IOException {
+		fImage = image;
+		fWritableFS = writable_fs;
+		fEntryMap = new HashMap<String, long[]>();
+		fDeletedPaths = new ArrayList<String>();
+
+		RandomAccessFile in = new RandomAccessFile(image, "r");
+		try {
+			FileChannel channel = in.getChannel();
+			ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+
+			// The header is read through the stream directly, so the
+			// buffer position is the start of the data section afterwards
+			DataInputStream hdr = new DataInputStream(
+					new MappedByteBufferInputStream(buffer));
+			if (hdr.readInt() != MAGIC) {
+				throw new IOException("\"" + image + "\" is not an index image");
+			}
+			if (hdr.readInt() != FORMAT_VERSION) {
+				throw new IOException("Index image \"" + image +
+						"\" has an unsupported format");
+			}
+			fVersion = hdr.readUTF();
+			int n_entries = hdr.readInt();
+			for (int i=0; i<n_entries; i++) {
+				String path = hdr.readUTF();
+				long offset = hdr.readLong();
+				int length = hdr.readInt();
+				fEntryMap.put(path, new long[] {offset, length});
+			}
+			fData = buffer.slice();
+		} finally {
+			// The mapping remains valid once the file is closed
+			in.close();
+		}
+
+		fImageEnabled = true;
+	}
+
+	/**
+	 * Returns the version string recorded when the image was written
+	 */
+	public String getVersion() {
+		return fVersion;
+	}
+
+	public File getImage() {
+		return fImage;
+	}
+
+	public String getRoot() {
+		return fWritableFS.getRoot();
+	}
+
+	public void removeStoragePath(List<File> db_file_list) {
+		fWritableFS.removeStoragePath(db_file_list);
+	}
+
+	private synchronized boolean inImage(String path) {
+		if (!fImageEnabled || !fEntryMap.containsKey(path)) {
+			return false;
+		}
+		for (String d : fDeletedPaths) {
+			if (path.equals(d) || path.startsWith(d + "/")) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private InputStream openImageEntry(String path) {
+		long entry[] = fEntryMap.get(path);
+		ByteBuffer buffer = fData.duplicate();
+		buffer.position((int)entry[0]);
+		buffer.limit((int)(entry[0] + entry[1]));
+
+		return new MappedByteBufferInputStream(buffer.slice());
+	}
+
+	public InputStream openFileRead(String path) throws IOException {
+		if (fWritableFS.fileExists(path) || !inImage(path)) {
+			return fWritableFS.openFileRead(path);
+		} else {
+			return openImageEntry(path);
+		}
+	}
+
+	public RandomAccessFile openChannelRead(String path) {
+		return fWritableFS.openChannelRead(path);
+	}
+
+	public DataInput openDataInput(String path) {
+		if (fWritableFS.fileExists(path) || !inImage(path)) {
+			return fWritableFS.openDataInput(path);
+		} else {
+			// Image entries are read directly from the mapped buffer
+			return new DataInputStream(openImageEntry(path));
+		}
+	}
+
+	public void closeChannel(RandomAccessFile ch) {
+		fWritableFS.closeChannel(ch);
+	}
+
+	public void close(InputStream in) {
+		try {
+			in.close();
+		} catch (IOException e) {}
+	}
+
+	public void closeInput(DataInput in) {
+		try {
+			if (in instanceof DataInputStream) {
+				((DataInputStream)in).close();
+			}
+		} catch (IOException e) {}
+	}
+
+	public OutputStream openFileWrite(String path) {
+		return fWritableFS.openFileWrite(path);
+	}
+
+	public RandomAccessFile openChannelWrite(String path) {
+		return fWritableFS.openChannelWrite(path);
+	}
+
+	public DataOutput openDataOutput(String path) {
+		return fWritableFS.openDataOutput(path);
+	}
+
+	public void closeOutput(DataOutput out) {
+		fWritableFS.closeOutput(out);
+	}
+
+	public boolean fileExists(String path) {
+		return (fWritableFS.fileExists(path) || inImage(path));
+	}
+
+	public long lastModified(String path) {
+		if (fWritableFS.fileExists(path) || !inImage(path)) {
+			return fWritableFS.lastModified(path);
+		} else {
+			return fImage.lastModified();
+		}
+	}
+
+	public void delete(IProgressMonitor monitor, String path) {
+		synchronized (this) {
+			if (path.equals("")) {
+				// Clearing the cache discards the image as well
+				fImageEnabled = false;
+			} else {
+				fDeletedPaths.add(path);
+			}
+		}
+		fWritableFS.delete(monitor, path);
+	}
+
+	public void mkdirs(String path) {
+		fWritableFS.mkdirs(path);
+	}
+
+	public void sync() throws IOException {
+		fWritableFS.sync();
+	}
+
+	/**
+	 * Reads the version string from an index image without mapping
+	 * the image
+	 *
+	 * @return version string, or null if the file is not a valid image
+	 */
+	public static String readVersion(File image) {
+		String ret = null;
+
+		try {
+			DataInputStream in = new DataInputStream(new FileInputStream(image));
+			try {
+				if (in.readInt() == MAGIC && in.readInt() == FORMAT_VERSION) {
+					ret = in.readUTF();
+				}
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {}
+
+		return ret;
+	}
+
+	/**
+	 * Packs the content of an index-cache directory into an image
+	 *
+	 * @param cache_dir root of an SVDBDirFS cache
+	 * @param image     image file to create
+	 * @param version   version string recorded in the image
+	 */
+	public static void writeImage(
+			File			cache_dir,
+			File			image,
+			String			version) throws IOException {
+		List<String> paths = new ArrayList<String>();
+		collectPaths(cache_dir, "", paths);
+
+		DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(image), 1024*64));
+
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeUTF(version);
+			out.writeInt(paths.size());
+
+			long offset = 0;
+			for (String path : paths) {
+				long length = new File(cache_dir, path).length();
+				out.writeUTF(path);
+				out.writeLong(offset);
+				out.writeInt((int)length);
+				offset += length;
+			}
+
+			byte buf[] = new byte[1024*64];
+			for (String path : paths) {
+				InputStream in = new FileInputStream(new File(cache_dir, path));
+				try {
+					int len;
+					while ((len = in.read(buf, 0, buf.length)) > 0) {
+						out.write(buf, 0, len);
+					}
+				} finally {
+					in.close();
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	private static void collectPaths(File dir, String prefix, List<String> paths) {
+		File file_l[] = dir.listFiles();
+
+		if (file_l == null) {
+			return;
+		}
+
+		for (File f : file_l) {
+			String path = (prefix.equals(""))?f.getName():(prefix + "/" + f.getName());
+			if (f.isDirectory()) {
+				collectPaths(f, path, paths);
+			} else if (f.isFile()) {
+				paths.add(path);
+			}
+		}
+	}
+
+	public String toString() {
+		return "SVDBArchiveFS(" + fImage + " ; " + fEntryMap.size() + " entries)";
+	}
+
+}
@@ -51,6 +51,7 @@ public class SVDBFileIndexCache implements ISVDBIndexCache, ILogLevelListener {
 	private List<IDBReader>					fPersistenceRdrSet;
 	private List<IDBWriter>					fPersistenceWriterSet;
 	private long							fNumFilesRead = 0;
+
 	private boolean						fDebugEn = false;
 
 	private int							fMaxCacheSize = 100;
@@ -122,6 +123,10 @@ public class SVDBFileIndexCache implements ISVDBIndexCache, ILogLevelListener {
 		fPersistenceWriterSet = new ArrayList<IDBWriter>();
 	}
 	
+	public ISVDBFS getSVDBFS() {
+		return fSVDBFS;
+	}
+	
 	public void logLevelChanged(ILogHandle handle) {
 		fDebugEn = handle.isEnabled();
 	}
@@ -313,7 +318,10 @@ public class SVDBFileIndexCache implements ISVDBIndexCache, ILogLevelListener {
 		CacheFileInfo cfi = getCacheFileInfo(path, false);
 		SVDBFile pp_file = (cfi != null)?cfi.fSVDBPreProcFile.get():null;
 		
-		if (pp_file == null) {
+		if (pp_file != null) {
+			SVDBIndexCacheMetrics.fPreProcFileHits.inc();
+		} else {
+			SVDBIndexCacheMetrics.fPreProcFileMisses.inc();
 			String target_dir = computePathDir(path);
 			
 			if (fSVDBFS.fileExists(target_dir + "/preProcFile")) {
@@ -334,14 +342,14 @@ public class SVDBFileIndexCache implements ISVDBIndexCache, ILogLevelListener {
 
 		SVDBFile file = (cfi != null)?cfi.fSVDBFile.get():null;
 		
-		if (file == null) {
-			String target_dir = computePathDir(path);
+		if (file != null) {
+			SVDBIndexCacheMetrics.fFileHits.inc();
+		} else {
+			SVDBIndexCacheMetrics.fFileMisses.inc();
+			file = readBackFile(path);
 			
-			if (fSVDBFS.fileExists(target_dir + "/file")) {
+			if (file != null) {
 				cfi = getCacheFileInfo(path, true);
-				DataInput in = fSVDBFS.openDataInput(target_dir + "/file");
-				file = readFile(in, path);
-				fSVDBFS.closeInput(in);
 				cfi.fSVDBFile = (Reference<SVDBFile>)createRef(file);
 				cfi.fSVDBFileRef = file;
 				fNumFilesRead++;
@@ -350,6 +358,24 @@ public class SVDBFileIndexCache implements ISVDBIndexCache, ILogLevelListener {
 		
 		return file;
 	}
+	
+	/**
+	 * Reads the parsed file from the backing store
+	 * 
+	 * @return the file, or null if the store does not contain the file
+	 */
+	protected SVDBFile readBackFile(String path) {
+		String target_dir = computePathDir(path);
+		SVDBFile file = null;
+		
+		if (fSVDBFS.fileExists(target_dir + "/file")) {
+			DataInput in = fSVDBFS.openDataInput(target_dir + "/file");
+			file = readFile(in, path);
+			fSVDBFS.closeInput(in);
+		}
+		
+		return file;
+	}
 
 	public void setPreProcFile(String path, SVDBFile file) {
 		if (file == null) {
@@ -406,7 +432,10 @@ public class SVDBFileIndexCache implements ISVDBIndexCache, ILogLevelListener {
 		
 		SVDBFileTree ft = (cfi != null)?cfi.fSVDBFileTree.get():null;
 		
-		if (ft == null) {
+		if (ft != null) {
+			SVDBIndexCacheMetrics.fFileTreeHits.inc();
+		} else {
+			SVDBIndexCacheMetrics.fFileTreeMisses.inc();
 			String target_dir = computePathDir(path);
 			
 			if (fSVDBFS.fileExists(target_dir + "/fileTreeMap")) {
@@ -437,7 +466,7 @@ public class SVDBFileIndexCache implements ISVDBIndexCache, ILogLevelListener {
 		fSVDBFS.delete(null, target_dir);
 	}
 	
-	private String computePathDir(String path) {
+	protected String computePathDir(String path) {
 		/*
 		String ret = path;
 		ret = ret.replace('/', '_');
@@ -587,7 +616,7 @@ public class SVDBFileIndexCache implements ISVDBIndexCache, ILogLevelListener {
 		writeBackFileWorker(target_dir, file_path, file);
 	}
 
-	private void writeBackFile(String path, SVDBFile file) {
+	protected void writeBackFile(String path, SVDBFile file) {
 		String target_dir = computePathDir(path);
 		String file_path = target_dir + "/file";
 		
@@ -609,6 +638,7 @@ public class SVDBFileIndexCache implements ISVDBIndexCache, ILogLevelListener {
 	}
 
 	private void writeBackFileWorker(String target_dir, String file_path, SVDBFile file) {
+		long start = SVDBIndexCacheMetrics.fWriteTime.start();
 		IDBWriter writer = allocWriter();
 		
 		fSVDBFS.mkdirs(target_dir);
@@ -623,6 +653,7 @@ public class SVDBFileIndexCache implements ISVDBIndexCache, ILogLevelListener {
 			e.printStackTrace();
 		} finally {
 			freeWriter(writer);
+			SVDBIndexCacheMetrics.fWriteTime.stop(start);
 		}
 	}
 
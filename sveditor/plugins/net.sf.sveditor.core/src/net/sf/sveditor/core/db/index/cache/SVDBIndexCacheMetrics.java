@@ -0,0 +1,40 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.db.index.cache;
+
+import net.sf.sveditor.core.metrics.MetricsCounter;
+import net.sf.sveditor.core.metrics.MetricsHistogram;
+import net.sf.sveditor.core.metrics.MetricsRegistry;
+
+/**
+ * Metrics shared by the file-backed index caches. Hits are requests
+ * satisfied from memory, and misses are reads from the backing store,
+ * across all caches
+ */
+class SVDBIndexCacheMetrics {
+	static final MetricsCounter			fFileHits = MetricsRegistry.counter(
+			MetricsRegistry.CACHE_FILE + MetricsRegistry.HIT_SUFFIX);
+	static final MetricsCounter			fFileMisses = MetricsRegistry.counter(
+			MetricsRegistry.CACHE_FILE + MetricsRegistry.MISS_SUFFIX);
+	static final MetricsCounter			fPreProcFileHits = MetricsRegistry.counter(
+			MetricsRegistry.CACHE_PREPROC_FILE + MetricsRegistry.HIT_SUFFIX);
+	static final MetricsCounter			fPreProcFileMisses = MetricsRegistry.counter(
+			MetricsRegistry.CACHE_PREPROC_FILE + MetricsRegistry.MISS_SUFFIX);
+	static final MetricsCounter			fFileTreeHits = MetricsRegistry.counter(
+			MetricsRegistry.CACHE_FILE_TREE + MetricsRegistry.HIT_SUFFIX);
+	static final MetricsCounter			fFileTreeMisses = MetricsRegistry.counter(
+			MetricsRegistry.CACHE_FILE_TREE + MetricsRegistry.MISS_SUFFIX);
+	static final MetricsHistogram		fWriteTime = MetricsRegistry.histogram(
+			MetricsRegistry.CACHE_FILE_WRITE);
+
+}
@@ -0,0 +1,543 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.db.index.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.sveditor.core.SVFileUtils;
+import net.sf.sveditor.core.db.SVDBFile;
+import net.sf.sveditor.core.db.persistence.DBFormatException;
+import net.sf.sveditor.core.db.persistence.DBWriteException;
+import net.sf.sveditor.core.db.persistence.SVDBPersistenceRW;
+import net.sf.sveditor.core.log.LogFactory;
+import net.sf.sveditor.core.log.LogHandle;
+import net.sf.sveditor.core.scanner.IPreProcMacroProvider;
+
+/**
+ * Content-addressed store of parsed files, shared by all index caches.
+ * An entry is keyed by the hash of the file content plus the fingerprint
+ * of the macro lookups made while parsing it, so a file that is included
+ * by several projects is parsed and stored once.
+ *
+ * Entries are reference counted. A referrer is the path of the file
+ * that records the reference, and a reference is only considered live
+ * while that file exists and names the entry. Entries without live
+ * references are removed by gc(). An entry returned by find() or
+ * publish() is pinned, and not collected, until the caller binds it
+ * and calls unpin().
+ *
+ * Store Layout:
+ * - refs                         - entry key -> referrers
+ * - <content>/<env>/manifest     - recorded macro lookups
+ * - <content>/<env>/file         - the parsed SVDBFile
+ */
+public class SVDBSharedFileStore {
+	private File								fRoot;
+	private Map<String, List<Variant>>			fVariantMap;
+	private Map<String, Set<String>>			fRefMap;
+	// Entries handed out, but not yet bound by the caller
+	private Map<String, Integer>				fPinMap;
+	private boolean							fRefsDirty;
+	private LogHandle							fLog;
+
+	private static class Variant {
+		public String							fKey;
+		public List<String>						fNames;
+		public List<Integer>					fLines;
+		public List<String>						fValues;
+	}
+
+	public SVDBSharedFileStore(File root) {
+		fRoot = root;
+		fVariantMap = new HashMap<String, List<Variant>>();
+		fRefMap = new HashMap<String, Set<String>>();
+		fPinMap = new HashMap<String, Integer>();
+		fLog = LogFactory.getLogHandle("SVDBSharedFileStore");
+
+		if (!fRoot.isDirectory() && !fRoot.mkdirs()) {
+			fLog.error("Failed to create shared store \"" + fRoot + "\"");
+		}
+
+		readRefs();
+	}
+
+	public File getRoot() {
+		return fRoot;
+	}
+
+	/**
+	 * Reads the content of a file, which is hashed to form the content key
+	 */
+	public static byte[] readContent(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte buf[] = new byte[1024*16];
+		int len;
+
+		while ((len = in.read(buf, 0, buf.length)) > 0) {
+			out.write(buf, 0, len);
+		}
+
+		return out.toByteArray();
+	}
+
+	public static String computeContentKey(byte content[]) throws IOException {
+		// ISO-8859-1 maps each byte to one character, so this is 
+		// the MD5 of the raw content
+		return SVFileUtils.computeMD5(new String(content, "ISO-8859-1"));
+	}
+
+	/**
+	 * Finds an entry for the content parsed in a macro environment
+	 * that resolves all recorded lookups identically to the
+	 * supplied environment
+	 *
+	 * @return pinned entry key, or null if no entry matches
+	 */
+	public String find(String content_key, IPreProcMacroProvider mp) {
+		List<Variant> variants = getVariants(content_key);
+
+		for (Variant v : variants) {
+			if (MacroLookupRecorder.matches(mp, v.fNames, v.fLines, v.fValues)) {
+				pin(v.fKey);
+				return v.fKey;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Indicates whether any entries exist for the content
+	 */
+	public boolean hasContent(String content_key) {
+		return (getVariants(content_key).size() > 0);
+	}
+
+	/**
+	 * Stores a parse result
+	 *
+	 * @return pinned entry key, or null if the result could not be stored
+	 */
+	public String publish(String content_key, MacroLookupRecorder rec, SVDBFile file) {
+		String key = content_key + "/" + rec.getFingerprint();
+
+		// Pinned before writing, so gc() doesn't remove a partial entry
+		pin(key);
+
+		for (Variant v : getVariants(content_key)) {
+			if (v.fKey.equals(key)) {
+				// Another index already stored the identical result
+				return key;
+			}
+		}
+
+		File dir = new File(fRoot, key);
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			fLog.error("Failed to create shared entry \"" + dir + "\"");
+			unpin(key);
+			return null;
+		}
+
+		// Entries are written to temporary files and renamed, so that
+		// an entry is only visible once complete. The manifest is
+		// written last, since it is what makes a variant visible
+		String tmp_ext = ".tmp" + Thread.currentThread().getId();
+		try {
+			File file_tmp = new File(dir, "file" + tmp_ext);
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(file_tmp), 1024*64));
+			SVDBPersistenceRW writer = new SVDBPersistenceRW();
+			try {
+				writer.init(out);
+				writer.writeObject(file.getClass(), file);
+				writer.close();
+			} finally {
+				out.close();
+			}
+			rename(file_tmp, new File(dir, "file"));
+
+			File manifest_tmp = new File(dir, "manifest" + tmp_ext);
+			out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(manifest_tmp)));
+			try {
+				out.writeInt(rec.getNames().size());
+				for (int i=0; i<rec.getNames().size(); i++) {
+					out.writeUTF(rec.getNames().get(i));
+					out.writeInt(rec.getLines().get(i));
+					out.writeUTF(rec.getValues().get(i));
+				}
+			} finally {
+				out.close();
+			}
+			rename(manifest_tmp, new File(dir, "manifest"));
+		} catch (IOException e) {
+			fLog.error("Failed to write shared entry \"" + key + "\"", e);
+			unpin(key);
+			return null;
+		} catch (DBWriteException e) {
+			fLog.error("Failed to write shared entry \"" + key + "\"", e);
+			unpin(key);
+			return null;
+		}
+
+		Variant v = new Variant();
+		v.fKey = key;
+		v.fNames = new ArrayList<String>(rec.getNames());
+		v.fLines = new ArrayList<Integer>(rec.getLines());
+		v.fValues = new ArrayList<String>(rec.getValues());
+
+		synchronized (fVariantMap) {
+			List<Variant> variants = fVariantMap.get(content_key);
+			if (variants == null) {
+				variants = new ArrayList<Variant>();
+				fVariantMap.put(content_key, variants);
+			}
+			variants.add(v);
+		}
+
+		return key;
+	}
+
+	/**
+	 * Reads a private copy of the parse result stored in an entry
+	 *
+	 * @return the parsed file, or null if the entry does not exist
+	 */
+	public SVDBFile readFile(String key) {
+		File file = new File(new File(fRoot, key), "file");
+
+		if (!file.isFile()) {
+			return null;
+		}
+
+		SVDBFile ret = new SVDBFile();
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(file), 1024*64));
+			try {
+				SVDBPersistenceRW reader = new SVDBPersistenceRW();
+				reader.init(in);
+				reader.readObject(null, ret.getClass(), ret);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			fLog.error("Failed to read shared entry \"" + key + "\"", e);
+			ret = null;
+		} catch (DBFormatException e) {
+			fLog.error("Failed to read shared entry \"" + key + "\"", e);
+			ret = null;
+		}
+
+		return ret;
+	}
+
+	public void acquire(String key, String referrer) {
+		synchronized (fRefMap) {
+			Set<String> refs = fRefMap.get(key);
+			if (refs == null) {
+				refs = new HashSet<String>();
+				fRefMap.put(key, refs);
+			}
+			fRefsDirty |= refs.add(referrer);
+		}
+	}
+
+	public void release(String key, String referrer) {
+		synchronized (fRefMap) {
+			Set<String> refs = fRefMap.get(key);
+			if (refs != null) {
+				fRefsDirty |= refs.remove(referrer);
+			}
+		}
+	}
+
+	/**
+	 * Releases all references from referrers under the specified prefix
+	 */
+	public void releaseAll(String referrer_prefix) {
+		synchronized (fRefMap) {
+			for (Set<String> refs : fRefMap.values()) {
+				for (String ref : new ArrayList<String>(refs)) {
+					if (ref.startsWith(referrer_prefix)) {
+						refs.remove(ref);
+						fRefsDirty = true;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Protects an entry from gc() while a cache holds it without
+	 * a reference
+	 */
+	public void pin(String key) {
+		synchronized (fRefMap) {
+			Integer n = fPinMap.get(key);
+			fPinMap.put(key, (n != null)?n+1:1);
+		}
+	}
+
+	public void unpin(String key) {
+		synchronized (fRefMap) {
+			Integer n = fPinMap.get(key);
+			if (n != null) {
+				if (n > 1) {
+					fPinMap.put(key, n-1);
+				} else {
+					fPinMap.remove(key);
+				}
+			}
+		}
+	}
+
+	public int getRefCount(String key) {
+		synchronized (fRefMap) {
+			Set<String> refs = fRefMap.get(key);
+			return (refs != null)?refs.size():0;
+		}
+	}
+
+	/**
+	 * Removes entries that are no longer referenced or pinned. References
+	 * whose referrer no longer names the entry (for example, because the
+	 * referring cache was deleted) are dropped first
+	 *
+	 * @return number of entries removed
+	 */
+	public int gc() {
+		int n_removed = 0;
+
+		synchronized (fRefMap) {
+			for (Map.Entry<String, Set<String>> e : fRefMap.entrySet()) {
+				for (String ref : new ArrayList<String>(e.getValue())) {
+					if (!isLive(e.getKey(), ref)) {
+						e.getValue().remove(ref);
+						fRefsDirty = true;
+					}
+				}
+			}
+		}
+
+		File content_l[] = fRoot.listFiles();
+		if (content_l == null) {
+			return 0;
+		}
+
+		for (File content_d : content_l) {
+			if (!content_d.isDirectory()) {
+				continue;
+			}
+			File env_l[] = content_d.listFiles();
+			if (env_l != null) {
+				for (File env_d : env_l) {
+					String key = content_d.getName() + "/" + env_d.getName();
+					synchronized (fRefMap) {
+						if (getRefCount(key) == 0 && !fPinMap.containsKey(key)) {
+							fRefMap.remove(key);
+							SVFileUtils.delete(env_d);
+							n_removed++;
+						}
+					}
+				}
+			}
+			synchronized (fVariantMap) {
+				fVariantMap.remove(content_d.getName());
+			}
+			String remaining[] = content_d.list();
+			if (remaining == null || remaining.length == 0) {
+				content_d.delete();
+			}
+		}
+
+		if (n_removed > 0) {
+			fLog.debug("Removed " + n_removed + " unreferenced entries");
+		}
+
+		sync();
+
+		return n_removed;
+	}
+
+	/**
+	 * Persists the reference counts
+	 */
+	public void sync() {
+		synchronized (fRefMap) {
+			if (!fRefsDirty) {
+				return;
+			}
+
+			try {
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+						new FileOutputStream(new File(fRoot, "refs"))));
+				try {
+					int n_keys = 0;
+					for (Set<String> refs : fRefMap.values()) {
+						if (refs.size() > 0) {
+							n_keys++;
+						}
+					}
+					out.writeInt(n_keys);
+					for (Map.Entry<String, Set<String>> e : fRefMap.entrySet()) {
+						if (e.getValue().size() > 0) {
+							out.writeUTF(e.getKey());
+							out.writeInt(e.getValue().size());
+							for (String ref : e.getValue()) {
+								out.writeUTF(ref);
+							}
+						}
+					}
+				} finally {
+					out.close();
+				}
+				fRefsDirty = false;
+			} catch (IOException e) {
+				fLog.error("Failed to write shared-store references", e);
+			}
+		}
+	}
+
+	private void readRefs() {
+		File refs_f = new File(fRoot, "refs");
+
+		if (!refs_f.isFile()) {
+			return;
+		}
+
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(refs_f)));
+			try {
+				int n_keys = in.readInt();
+				for (int i=0; i<n_keys; i++) {
+					String key = in.readUTF();
+					int n_refs = in.readInt();
+					Set<String> refs = new HashSet<String>();
+					for (int j=0; j<n_refs; j++) {
+						refs.add(in.readUTF());
+					}
+					fRefMap.put(key, refs);
+				}
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			// Live references are recovered as indexes re-bind their files
+			fLog.error("Failed to read shared-store references", e);
+			fRefMap.clear();
+		}
+	}
+
+	private List<Variant> getVariants(String content_key) {
+		synchronized (fVariantMap) {
+			List<Variant> variants = fVariantMap.get(content_key);
+
+			if (variants == null) {
+				variants = new ArrayList<Variant>();
+				File env_l[] = new File(fRoot, content_key).listFiles();
+				if (env_l != null) {
+					for (File env_d : env_l) {
+						Variant v = readManifest(content_key + "/" + env_d.getName(),
+								new File(env_d, "manifest"));
+						if (v != null) {
+							variants.add(v);
+						}
+					}
+				}
+				fVariantMap.put(content_key, variants);
+			}
+
+			return new ArrayList<Variant>(variants);
+		}
+	}
+
+	private Variant readManifest(String key, File manifest) {
+		if (!manifest.isFile()) {
+			return null;
+		}
+
+		Variant v = new Variant();
+		v.fKey = key;
+		v.fNames = new ArrayList<String>();
+		v.fLines = new ArrayList<Integer>();
+		v.fValues = new ArrayList<String>();
+
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(manifest)));
+			try {
+				int n = in.readInt();
+				for (int i=0; i<n; i++) {
+					v.fNames.add(in.readUTF());
+					v.fLines.add(in.readInt());
+					v.fValues.add(in.readUTF());
+				}
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			fLog.error("Failed to read manifest for \"" + key + "\"", e);
+			return null;
+		}
+
+		return v;
+	}
+
+	private static boolean isLive(String key, String referrer) {
+		File ref_f = new File(referrer);
+
+		if (!ref_f.isFile()) {
+			return false;
+		}
+
+		try {
+			DataInputStream in = new DataInputStream(new FileInputStream(ref_f));
+			try {
+				return key.equals(in.readUTF());
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private static void rename(File src, File dst) throws IOException {
+		if (!src.renameTo(dst)) {
+			if (dst.isFile()) {
+				// Written concurrently by another index
+				src.delete();
+			} else {
+				throw new IOException("Failed to rename \"" + src + "\" to \"" + dst + "\"");
+			}
+		}
+	}
+
+}
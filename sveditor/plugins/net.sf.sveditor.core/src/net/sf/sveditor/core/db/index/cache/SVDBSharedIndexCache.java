@@ -0,0 +1,281 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.db.index.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.sveditor.core.db.SVDBFile;
+import net.sf.sveditor.core.db.SVDBMarker;
+import net.sf.sveditor.core.log.LogFactory;
+import net.sf.sveditor.core.log.LogHandle;
+import net.sf.sveditor.core.scanner.IPreProcMacroProvider;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Index cache that stores parsed files in a shared, content-addressed
+ * store. A path bound to a shared entry records only the entry key in
+ * its 'fileRef' file, rather than a private copy of the parsed file.
+ * Pre-processor views, file trees and markers remain private to the
+ * cache.
+ */
+public class SVDBSharedIndexCache extends SVDBFileIndexCache {
+	private SVDBSharedFileStore				fStore;
+	private Map<String, PendingFile>		fPendingMap;
+	private LogHandle						fLog;
+
+	private static class PendingFile {
+		public String						fKey;
+		public SVDBFile						fFile;
+
+		public PendingFile(String key, SVDBFile file) {
+			fKey = key;
+			fFile = file;
+		}
+	}
+
+	/**
+	 * Parses files on behalf of parseFile()
+	 */
+	public interface IFileParser {
+
+		IPreProcMacroProvider createMacroProvider();
+
+		SVDBFile parse(InputStream in, IPreProcMacroProvider mp, List<SVDBMarker> markers);
+
+	}
+
+	public SVDBSharedIndexCache(ISVDBFS fs, SVDBSharedFileStore store) {
+		super(fs);
+		fStore = store;
+		fPendingMap = new HashMap<String, PendingFile>();
+		fLog = LogFactory.getLogHandle("SVDBSharedIndexCache");
+	}
+
+	public SVDBSharedFileStore getStore() {
+		return fStore;
+	}
+
+	/**
+	 * Parses the content of a file, reusing the result stored for
+	 * identical content parsed in an equivalent macro environment.
+	 * New results are published to the store, and the subsequent
+	 * setFile() of the same file binds the path to the shared entry.
+	 * Results with parse markers are kept private, since marker
+	 * messages may refer to the file path.
+	 *
+	 * @param variant distinguishes results of different parse modes
+	 * @return the parsed file, or null if the file could not be parsed
+	 */
+	public SVDBFile parseFile(
+			String					path,
+			InputStream				in,
+			String					variant,
+			IPreProcMacroProvider	mp,
+			IFileParser				parser,
+			List<SVDBMarker>		markers) throws IOException {
+		byte content[] = SVDBSharedFileStore.readContent(in);
+		String content_key = SVDBSharedFileStore.computeContentKey(content);
+		if (variant != null) {
+			content_key += variant;
+		}
+
+		String key = fStore.find(content_key, mp);
+		if (key != null) {
+			SVDBFile file = fStore.readFile(key);
+			if (file != null) {
+				setPath(file, path);
+				setPending(path, key, file);
+				return file;
+			}
+			fStore.unpin(key);
+		}
+
+		if (fStore.hasContent(content_key)) {
+			// Checking the environment advanced the macro provider
+			mp = parser.createMacroProvider();
+		}
+
+		MacroLookupRecorder recorder = new MacroLookupRecorder(mp);
+		int n_markers = markers.size();
+		SVDBFile file = parser.parse(new ByteArrayInputStream(content), 
+				recorder, markers);
+
+		if (file != null && markers.size() == n_markers &&
+				!recorder.isPathDependent()) {
+			key = fStore.publish(content_key, recorder, file);
+			if (key != null) {
+				setPending(path, key, file);
+			}
+		}
+
+		return file;
+	}
+
+	@Override
+	public void setFile(String path, SVDBFile file) {
+		if (file == null) {
+			unbind(path);
+		}
+		super.setFile(path, file);
+	}
+
+	@Override
+	public void removeFile(String path) {
+		PendingFile pending;
+		synchronized (fPendingMap) {
+			pending = fPendingMap.remove(path);
+		}
+		if (pending != null) {
+			fStore.unpin(pending.fKey);
+		}
+		unbind(path);
+		super.removeFile(path);
+	}
+
+	@Override
+	public void clear(IProgressMonitor monitor) {
+		fStore.releaseAll(getSVDBFS().getRoot() + "/");
+		List<PendingFile> pending;
+		synchronized (fPendingMap) {
+			pending = new ArrayList<PendingFile>(fPendingMap.values());
+			fPendingMap.clear();
+		}
+		for (PendingFile p : pending) {
+			fStore.unpin(p.fKey);
+		}
+		super.clear(monitor);
+	}
+
+	@Override
+	public void sync() {
+		super.sync();
+		fStore.sync();
+	}
+
+	@Override
+	protected void writeBackFile(String path, SVDBFile file) {
+		PendingFile pending;
+		synchronized (fPendingMap) {
+			pending = fPendingMap.remove(path);
+		}
+
+		if (pending != null && pending.fFile == file) {
+			bind(path, pending.fKey);
+		} else {
+			unbind(path);
+			super.writeBackFile(path, file);
+		}
+
+		if (pending != null) {
+			fStore.unpin(pending.fKey);
+		}
+	}
+
+	@Override
+	protected SVDBFile readBackFile(String path) {
+		String key = readRef(path);
+
+		if (key != null) {
+			SVDBFile file = fStore.readFile(key);
+			if (file != null) {
+				setPath(file, path);
+				return file;
+			}
+			fLog.debug("Shared entry \"" + key + "\" for \"" + path + "\" is missing");
+		}
+
+		return super.readBackFile(path);
+	}
+
+	private void setPending(String path, String key, SVDBFile file) {
+		PendingFile old;
+		synchronized (fPendingMap) {
+			old = fPendingMap.put(path, new PendingFile(key, file));
+		}
+		if (old != null) {
+			fStore.unpin(old.fKey);
+		}
+	}
+
+	private void bind(String path, String key) {
+		String target_dir = computePathDir(path);
+		String old_key = readRef(path);
+
+		getSVDBFS().mkdirs(target_dir);
+		DataOutput out = getSVDBFS().openDataOutput(target_dir + "/fileRef");
+		try {
+			out.writeUTF(key);
+		} catch (IOException e) {
+			fLog.error("Failed to write reference for \"" + path + "\"", e);
+		} finally {
+			getSVDBFS().closeOutput(out);
+		}
+
+		// Discard any private copy
+		if (getSVDBFS().fileExists(target_dir + "/file")) {
+			getSVDBFS().delete(null, target_dir + "/file");
+		}
+
+		if (old_key != null && !old_key.equals(key)) {
+			fStore.release(old_key, getReferrer(path));
+		}
+		fStore.acquire(key, getReferrer(path));
+	}
+
+	private void unbind(String path) {
+		String key = readRef(path);
+
+		if (key != null) {
+			getSVDBFS().delete(null, computePathDir(path) + "/fileRef");
+			fStore.release(key, getReferrer(path));
+		}
+	}
+
+	private String readRef(String path) {
+		String ref_path = computePathDir(path) + "/fileRef";
+		String key = null;
+
+		if (getSVDBFS().fileExists(ref_path)) {
+			DataInput in = getSVDBFS().openDataInput(ref_path);
+			try {
+				key = in.readUTF();
+			} catch (IOException e) {
+				fLog.error("Failed to read reference for \"" + path + "\"", e);
+			} finally {
+				getSVDBFS().closeInput(in);
+			}
+		}
+
+		return key;
+	}
+
+	private String getReferrer(String path) {
+		return getSVDBFS().getRoot() + "/" + computePathDir(path) + "/fileRef";
+	}
+
+	private static void setPath(SVDBFile file, String path) {
+		file.setFilePath(path);
+		file.setName(new File(path).getName());
+	}
+
+}
@@ -287,7 +287,10 @@ public class SVDBThreadedFileIndexCache implements ISVDBIndexCache, ILogLevelLis
 		CacheFileInfo cfi = getCacheFileInfo(path, false);
 		SVDBFile pp_file = (cfi != null)?cfi.fSVDBPreProcFile.get():null;
 		
-		if (pp_file == null) {
+		if (pp_file != null) {
+			SVDBIndexCacheMetrics.fPreProcFileHits.inc();
+		} else {
+			SVDBIndexCacheMetrics.fPreProcFileMisses.inc();
 			String target_dir = computePathDir(path);
 			
 			if (fSVDBFS.fileExists(target_dir + "/preProcFile")) {
@@ -308,7 +311,10 @@ public class SVDBThreadedFileIndexCache implements ISVDBIndexCache, ILogLevelLis
 
 		SVDBFile file = (cfi != null)?cfi.fSVDBFile.get():null;
 		
-		if (file == null) {
+		if (file != null) {
+			SVDBIndexCacheMetrics.fFileHits.inc();
+		} else {
+			SVDBIndexCacheMetrics.fFileMisses.inc();
 			String target_dir = computePathDir(path);
 			
 			if (fSVDBFS.fileExists(target_dir + "/file")) {
@@ -382,7 +388,10 @@ public class SVDBThreadedFileIndexCache implements ISVDBIndexCache, ILogLevelLis
 		
 		SVDBFileTree ft = (cfi != null)?cfi.fSVDBFileTree.get():null;
 		
-		if (ft == null) {
+		if (ft != null) {
+			SVDBIndexCacheMetrics.fFileTreeHits.inc();
+		} else {
+			SVDBIndexCacheMetrics.fFileTreeMisses.inc();
 			String target_dir = computePathDir(path);
 			
 			if (fSVDBFS.fileExists(target_dir + "/fileTreeMap")) {
@@ -651,6 +660,7 @@ public class SVDBThreadedFileIndexCache implements ISVDBIndexCache, ILogLevelLis
 		}
 		
 		public void run() {
+			long start = SVDBIndexCacheMetrics.fWriteTime.start();
 			IDBWriter writer = allocWriter();
 			
 			fSVDBFS.mkdirs(fTargetDir);
@@ -665,6 +675,7 @@ public class SVDBThreadedFileIndexCache implements ISVDBIndexCache, ILogLevelLis
 				e.printStackTrace();
 			} finally {
 				freeWriter(writer);
+				SVDBIndexCacheMetrics.fWriteTime.stop(start);
 				// Remove reference to allow storage to be collected
 				fInfo.fSVDBFileRef = null;
 				synchronized (fWritebackJobs) {
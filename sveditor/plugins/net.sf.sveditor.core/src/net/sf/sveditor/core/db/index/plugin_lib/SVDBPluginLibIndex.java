@@ -31,6 +31,12 @@ import org.osgi.framework.Bundle;
 import org.osgi.framework.Version;
 
 public class SVDBPluginLibIndex extends SVDBLibIndex implements ISVDBFileSystemProvider {
+	/**
+	 * System property that disables skim parsing of plugin libraries
+	 * when set to 'false'. See SVCorePlugin.setSkimLibraryBodies()
+	 */
+	public static final String SKIM_BODIES_PROPERTY = "sveditor.index.skim_library_bodies";
+	
 	private Bundle					fBundle;
 	private String					fPluginNS;
 	private String					fRootFile;
@@ -78,6 +84,16 @@ public class SVDBPluginLibIndex extends SVDBLibIndex implements ISVDBFileSystemP
 		return SVDBPluginLibIndexFactory.TYPE;
 	}
 	
+	/**
+	 * Plugin libraries are bundled, read-only code. Only their 
+	 * declarations, signatures and class structure are used, so their
+	 * bodies are skipped when indexing
+	 */
+	@Override
+	protected boolean isSkimParse() {
+		return SVCorePlugin.getSkimLibraryBodies();
+	}
+	
 	@Override
 	protected void discoverRootFiles(IProgressMonitor monitor) {
 		clearFilesList();
@@ -29,6 +29,9 @@ public class SVDBPluginLibIndexFactory implements ISVDBIndexFactory {
 			SVDBIndexConfig			config) {
 		for (SVDBPluginLibDescriptor d : SVCorePlugin.getDefault().getPluginLibList()) {
 			if (d.getId().equals(base_location)) {
+				// Load from the pre-built index image when the library
+				// provides one, rather than parsing the library sources
+				cache = SVDBPluginLibIndexImage.createCache(d, cache);
 				return new SVDBPluginLibIndex(project, d.getNamespace(), d.getPath(), cache);
 			}
 		}
@@ -0,0 +1,170 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.db.index.plugin_lib;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+
+import net.sf.sveditor.core.SVCorePlugin;
+import net.sf.sveditor.core.SVFileUtils;
+import net.sf.sveditor.core.db.index.cache.ISVDBIndexCache;
+import net.sf.sveditor.core.db.index.cache.SVDBArchiveFS;
+import net.sf.sveditor.core.db.index.cache.SVDBDirFS;
+import net.sf.sveditor.core.db.index.cache.SVDBFileIndexCache;
+import net.sf.sveditor.core.log.LogFactory;
+import net.sf.sveditor.core.log.LogHandle;
+
+import org.eclipse.core.runtime.FileLocator;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.SubProgressMonitor;
+import org.osgi.framework.Bundle;
+
+/**
+ * Builds and locates pre-built index images for plugin libraries. An
+ * image is the packed content of the library's index cache (file list,
+ * index data, pre-processor views, file trees and parsed files). Images
+ * are shipped in the library's bundle under IMAGE_DIR and named by
+ * library id.
+ */
+public class SVDBPluginLibIndexImage {
+	public static final String				IMAGE_DIR = "index_images";
+	public static final String				IMAGE_EXT = ".svdbimg";
+
+	private static LogHandle				fLog = LogFactory.getLogHandle("SVDBPluginLibIndexImage");
+
+	/**
+	 * An image is only usable with the same core (persistence format),
+	 * library bundle version and skim mode it was built with
+	 */
+	public static String getVersion(SVDBPluginLibDescriptor d) {
+		Bundle bundle = Platform.getBundle(d.getNamespace());
+		String lib_version = (bundle != null)?bundle.getVersion().toString():"";
+
+		return d.getId() + "/" + lib_version + "/" + SVCorePlugin.getVersion() +
+				((SVCorePlugin.getSkimLibraryBodies())?"/skim":"");
+	}
+
+	public static String getImageName(SVDBPluginLibDescriptor d) {
+		return d.getId() + IMAGE_EXT;
+	}
+
+	/**
+	 * Locates the image for the library within its bundle. Bundles
+	 * installed as jars are extracted, since the image must be a file
+	 * to be mapped
+	 *
+	 * @return image file, or null if the bundle does not provide one
+	 */
+	public static File findImage(SVDBPluginLibDescriptor d) {
+		Bundle bundle = Platform.getBundle(d.getNamespace());
+		if (bundle == null) {
+			return null;
+		}
+
+		URL url = bundle.getEntry(IMAGE_DIR + "/" + getImageName(d));
+		if (url == null) {
+			return null;
+		}
+
+		try {
+			File image = new File(FileLocator.toFileURL(url).getFile());
+			return (image.isFile())?image:null;
+		} catch (IOException e) {
+			fLog.error("Failed to locate index image for \"" + d.getId() + "\"", e);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Layers the library's index image, if one is available and its
+	 * version matches, beneath the supplied workspace cache.
+	 *
+	 * @return a cache backed by the image, or the original cache
+	 */
+	public static ISVDBIndexCache createCache(
+			SVDBPluginLibDescriptor		d,
+			ISVDBIndexCache				cache) {
+		if (!(cache instanceof SVDBFileIndexCache)) {
+			return cache;
+		}
+
+		File image = findImage(d);
+		if (image == null) {
+			return cache;
+		}
+
+		String version = getVersion(d);
+		if (!version.equals(SVDBArchiveFS.readVersion(image))) {
+			fLog.debug("Index image \"" + image + "\" does not match version " + version);
+			return cache;
+		}
+
+		try {
+			SVDBArchiveFS fs = new SVDBArchiveFS(image,
+					((SVDBFileIndexCache)cache).getSVDBFS());
+			fLog.debug("Using index image \"" + image + "\" for " + d.getId());
+			return new SVDBFileIndexCache(fs);
+		} catch (IOException e) {
+			fLog.error("Failed to load index image \"" + image + "\"", e);
+		}
+
+		return cache;
+	}
+
+	/**
+	 * Fully indexes the library and packs the resulting cache into
+	 * an image within the specified directory
+	 *
+	 * @return the image file
+	 */
+	public static File build(
+			IProgressMonitor			monitor,
+			SVDBPluginLibDescriptor		d,
+			File						out_dir) throws IOException {
+		monitor.beginTask("Build index image for " + d.getName(), 4);
+
+		File cache_dir = new File(out_dir, d.getId() + ".cache");
+		if (cache_dir.exists()) {
+			SVFileUtils.delete(cache_dir);
+		}
+		if (!cache_dir.mkdirs()) {
+			throw new IOException("Failed to create directory \"" + cache_dir + "\"");
+		}
+
+		try {
+			SVDBDirFS fs = new SVDBDirFS(cache_dir);
+			fs.setEnableAsyncClear(false);
+			SVDBPluginLibIndex index = new SVDBPluginLibIndex("GLOBAL",
+					d.getNamespace(), d.getPath(), new SVDBFileIndexCache(fs));
+
+			index.init(new SubProgressMonitor(monitor, 1));
+			index.loadIndex(new SubProgressMonitor(monitor, 2));
+
+			// Writes the file list and index data
+			index.dispose();
+
+			File image = new File(out_dir, getImageName(d));
+			SVDBArchiveFS.writeImage(cache_dir, image, getVersion(d));
+			monitor.worked(1);
+
+			return image;
+		} finally {
+			SVFileUtils.delete(cache_dir);
+			monitor.done();
+		}
+	}
+
+}
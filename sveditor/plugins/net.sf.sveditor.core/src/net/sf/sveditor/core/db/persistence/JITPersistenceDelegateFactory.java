@@ -31,10 +31,14 @@ import net.sf.sveditor.core.db.SVDBLocation;
 import net.sf.sveditor.core.db.attr.SVDBDoNotSaveAttr;
 import net.sf.sveditor.core.db.attr.SVDBParentAttr;
 import net.sf.sveditor.core.db.index.SVDBArgFileIndexCacheData;
+import net.sf.sveditor.core.db.index.SVDBArgFileScanCacheEntry;
 import net.sf.sveditor.core.db.index.SVDBBaseIndexCacheData;
 import net.sf.sveditor.core.db.index.SVDBDeclCacheItem;
+import net.sf.sveditor.core.db.index.SVDBModInstCacheEntry;
 import net.sf.sveditor.core.db.index.SVDBFileTree;
 import net.sf.sveditor.core.db.refs.SVDBRefCacheEntry;
+import net.sf.sveditor.core.metrics.MetricsHistogram;
+import net.sf.sveditor.core.metrics.MetricsRegistry;
 
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Label;
@@ -126,6 +130,8 @@ public class JITPersistenceDelegateFactory implements Opcodes {
 		fClassList.add(SVDBArgFileIndexCacheData.class);
 		fClassList.add(SVDBDeclCacheItem.class);
 		fClassList.add(SVDBRefCacheEntry.class);
+		fClassList.add(SVDBModInstCacheEntry.class);
+		fClassList.add(SVDBArgFileScanCacheEntry.class);
 		
 		fClassSet.addAll(fClassList);
 	}
@@ -153,7 +159,9 @@ public class JITPersistenceDelegateFactory implements Opcodes {
 			}
 		}
 		
-		long start = System.currentTimeMillis();
+		MetricsHistogram build_h = MetricsRegistry.histogram(
+				MetricsRegistry.PERSISTENCE_CLASS_BUILD);
+		long start = build_h.start();
 		build_boilerplate(cw);
 		
 		for (SVDBItemType t : fTypeClassMap.keySet()) {
@@ -175,10 +183,11 @@ public class JITPersistenceDelegateFactory implements Opcodes {
 			e.printStackTrace();
 		}
 		
-		long end = System.currentTimeMillis();
+		build_h.stop(start);
 		
-		System.out.println("Class-build time: " + (end-start));
-		System.out.println("Size: " + cw.toByteArray().length);
+		if (fDebugEn) {
+			debug("Delegate class size: " + cw.toByteArray().length);
+		}
 	}
 	
 	private void build_boilerplate(ClassWriter cw) {
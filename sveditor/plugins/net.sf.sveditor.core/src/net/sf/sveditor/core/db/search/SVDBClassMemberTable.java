@@ -0,0 +1,139 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.db.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.sveditor.core.db.ISVDBChildItem;
+import net.sf.sveditor.core.db.ISVDBItemBase;
+import net.sf.sveditor.core.db.ISVDBNamedItem;
+import net.sf.sveditor.core.db.SVDBClassDecl;
+import net.sf.sveditor.core.db.SVDBItemType;
+import net.sf.sveditor.core.db.stmt.SVDBVarDeclStmt;
+
+/**
+ * Flattened member table of a class. Holds the members declared by the
+ * class followed by those inherited from its super-classes, in the order
+ * a walk up the class hierarchy would visit them. Members are also
+ * indexed by name.
+ */
+public class SVDBClassMemberTable {
+	private SVDBClassDecl						fClass;
+	private SVDBClassMemberTable				fSuperTable;
+	private List<Member>						fMembers;
+	private Map<String, List<Member>>			fNameMap;
+
+	public static class Member {
+		private ISVDBItemBase					fItem;
+		private SVDBItemType					fType;
+		private boolean						fStatic;
+
+		public Member(ISVDBItemBase item, SVDBItemType type, boolean is_static) {
+			fItem = item;
+			fType = type;
+			fStatic = is_static;
+		}
+
+		/**
+		 * Returns the member item. For fields, this is the variable
+		 * rather than its declaration statement
+		 */
+		public ISVDBItemBase getItem() {
+			return fItem;
+		}
+
+		/**
+		 * Returns the type of the class child that declares the
+		 * member (eg VarDeclStmt for fields)
+		 */
+		public SVDBItemType getType() {
+			return fType;
+		}
+
+		public boolean isStatic() {
+			return fStatic;
+		}
+	}
+
+	public SVDBClassMemberTable(SVDBClassDecl cls, SVDBClassMemberTable super_table) {
+		fClass = cls;
+		fSuperTable = super_table;
+		fMembers = new ArrayList<Member>();
+		fNameMap = new HashMap<String, List<Member>>();
+
+		for (ISVDBChildItem it : cls.getChildren()) {
+			if (it.getType() == SVDBItemType.VarDeclStmt) {
+				SVDBVarDeclStmt var = (SVDBVarDeclStmt)it;
+				boolean is_static = (var.getAttr() & SVDBVarDeclStmt.FieldAttr_Static) != 0;
+				for (ISVDBChildItem it_t : var.getChildren()) {
+					addMember(new Member(it_t, it.getType(), is_static));
+				}
+			} else if (it instanceof ISVDBNamedItem) {
+				addMember(new Member(it, it.getType(), false));
+			}
+		}
+
+		if (super_table != null) {
+			for (Member m : super_table.fMembers) {
+				addMember(m);
+			}
+		}
+	}
+
+	public SVDBClassDecl getClassDecl() {
+		return fClass;
+	}
+
+	public SVDBClassMemberTable getSuperTable() {
+		return fSuperTable;
+	}
+
+	/**
+	 * Returns all members, including inherited members
+	 */
+	public List<Member> getMembers() {
+		return fMembers;
+	}
+
+	/**
+	 * Returns the members with the specified name
+	 */
+	public List<Member> getMembers(String name) {
+		List<Member> ret = fNameMap.get(name);
+
+		if (ret == null) {
+			ret = Collections.emptyList();
+		}
+
+		return ret;
+	}
+
+	private void addMember(Member m) {
+		fMembers.add(m);
+
+		String name = ((ISVDBNamedItem)m.getItem()).getName();
+		if (name != null) {
+			List<Member> l = fNameMap.get(name);
+			if (l == null) {
+				l = new ArrayList<Member>(1);
+				fNameMap.put(name, l);
+			}
+			l.add(m);
+		}
+	}
+
+}
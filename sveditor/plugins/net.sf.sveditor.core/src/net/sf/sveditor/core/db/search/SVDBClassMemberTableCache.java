@@ -0,0 +1,285 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.db.search;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import net.sf.sveditor.core.db.ISVDBChildItem;
+import net.sf.sveditor.core.db.ISVDBNamedItem;
+import net.sf.sveditor.core.db.SVDBClassDecl;
+import net.sf.sveditor.core.db.SVDBFile;
+import net.sf.sveditor.core.db.SVDBItemType;
+import net.sf.sveditor.core.db.SVDBParamValueAssign;
+import net.sf.sveditor.core.db.SVDBParamValueAssignList;
+import net.sf.sveditor.core.db.SVDBTypeInfoClassType;
+import net.sf.sveditor.core.db.index.ISVDBIndexIterator;
+import net.sf.sveditor.core.log.LogFactory;
+import net.sf.sveditor.core.log.LogHandle;
+
+/**
+ * Caches the flattened member tables of classes, per index iterator.
+ * Tables are keyed by the qualified name of the class and, for 
+ * super-classes, its parameter values, so each specialization of a 
+ * parameterized class has its own table. 
+ * 
+ * A table is discarded when a file declaring the class or one of its 
+ * super-classes changes. A table whose super-class could not be found
+ * is discarded when any file changes. The tables of an iterator are 
+ * discarded when its content is overridden.
+ */
+public class SVDBClassMemberTableCache {
+	private static SVDBClassMemberTableCache				fDefault;
+	private static final int								MAX_DEPTH = 64;
+
+	private Map<ISVDBIndexIterator, Map<String, TableEntry>>	fIteratorMap;
+	private int											fGeneration;
+	private LogHandle										fLog;
+
+	private static class TableEntry {
+		public SVDBClassMemberTable							fTable;
+		// Files declaring the class and its super-classes
+		public Set<String>									fFiles;
+		// Set when the hierarchy is incomplete
+		public boolean										fAnyFile;
+
+		public TableEntry(SVDBClassMemberTable table) {
+			fTable = table;
+			fFiles = new HashSet<String>();
+		}
+	}
+
+	public SVDBClassMemberTableCache() {
+		fIteratorMap = new WeakHashMap<ISVDBIndexIterator, Map<String, TableEntry>>();
+		fLog = LogFactory.getLogHandle("SVDBClassMemberTableCache");
+	}
+
+	public synchronized static SVDBClassMemberTableCache getDefault() {
+		if (fDefault == null) {
+			fDefault = new SVDBClassMemberTableCache();
+		}
+		return fDefault;
+	}
+
+	/**
+	 * Discards all tables. Called when an index is rebuilt
+	 */
+	public synchronized void invalidate() {
+		fGeneration++;
+		fIteratorMap.clear();
+	}
+
+	/**
+	 * Discards the tables that depend on the specified file. Called
+	 * when a file is added, removed or changed
+	 */
+	public synchronized void invalidate(String path) {
+		fGeneration++;
+		for (Map<String, TableEntry> tables : fIteratorMap.values()) {
+			Iterator<TableEntry> it = tables.values().iterator();
+			while (it.hasNext()) {
+				TableEntry e = it.next();
+				if (e.fAnyFile || e.fFiles.contains(path)) {
+					it.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Discards the tables built through the specified iterator
+	 */
+	public synchronized void invalidate(ISVDBIndexIterator index_it) {
+		fGeneration++;
+		fIteratorMap.remove(index_it);
+	}
+
+	/**
+	 * Returns the member table for the class, building it and
+	 * the tables of its super-classes as needed
+	 */
+	public SVDBClassMemberTable getTable(ISVDBIndexIterator index_it, SVDBClassDecl cls) {
+		String key = getQualifiedName(cls);
+		TableEntry entry = get(index_it, key);
+
+		// The class may be a newer version than the indexed one (eg
+		// from an editor), in which case its own members are re-collected
+		if (entry == null || entry.fTable.getClassDecl() != cls) {
+			int generation = getGeneration();
+			entry = build(index_it, cls, generation, 0);
+			// Tables built while the cache was invalidated may be stale
+			if (getGeneration() == generation) {
+				put(index_it, key, entry);
+			}
+		}
+
+		return entry.fTable;
+	}
+
+	private TableEntry build(
+			ISVDBIndexIterator		index_it,
+			SVDBClassDecl			cls,
+			int						generation,
+			int						depth) {
+		TableEntry super_e = getSuperEntry(index_it, cls, generation, depth);
+		TableEntry entry = new TableEntry(new SVDBClassMemberTable(cls, 
+				(super_e != null)?super_e.fTable:null));
+		String path = getFilePath(cls);
+
+		if (path != null) {
+			entry.fFiles.add(path);
+		} else {
+			entry.fAnyFile = true;
+		}
+
+		if (super_e != null) {
+			entry.fFiles.addAll(super_e.fFiles);
+			entry.fAnyFile |= super_e.fAnyFile;
+		} else if (cls.getSuperClass() != null) {
+			// The super-class may be declared later
+			entry.fAnyFile = true;
+		}
+
+		return entry;
+	}
+
+	private TableEntry getSuperEntry(
+			ISVDBIndexIterator		index_it,
+			SVDBClassDecl			cls,
+			int						generation,
+			int						depth) {
+		SVDBTypeInfoClassType super_t = cls.getSuperClass();
+
+		if (super_t == null) {
+			return null;
+		}
+
+		if (depth >= MAX_DEPTH) {
+			fLog.error("Class hierarchy of \"" + cls.getName() +
+					"\" exceeds " + MAX_DEPTH + " levels. Recursive inheritance?");
+			return null;
+		}
+
+		SVDBFindSuperClass finder = new SVDBFindSuperClass(index_it,
+				SVDBFindDefaultNameMatcher.getDefault());
+		SVDBClassDecl super_cls = finder.find(cls);
+
+		if (super_cls == null) {
+			fLog.debug("Failed to find super-class \"" + super_t.getName() + "\"");
+			return null;
+		}
+
+		String key = getKey(getQualifiedName(super_cls), super_t);
+		TableEntry entry = get(index_it, key);
+
+		if (entry == null) {
+			SVDBParamValueAssignList params = super_t.getParamAssignList();
+			if (params != null && params.getParameters().size() > 0 &&
+					super_cls.getParameters() != null &&
+					super_cls.getParameters().size() > 0) {
+				super_cls = new SVDBFindParameterizedClass(index_it).specialize(
+						super_cls, params);
+			}
+
+			entry = build(index_it, super_cls, generation, depth+1);
+			if (getGeneration() == generation) {
+				put(index_it, key, entry);
+			}
+		}
+
+		return entry;
+	}
+
+	private synchronized int getGeneration() {
+		return fGeneration;
+	}
+
+	private synchronized TableEntry get(ISVDBIndexIterator index_it, String key) {
+		Map<String, TableEntry> tables = fIteratorMap.get(index_it);
+
+		return (tables != null)?tables.get(key):null;
+	}
+
+	private synchronized void put(
+			ISVDBIndexIterator 		index_it,
+			String 					key,
+			TableEntry			 	entry) {
+		Map<String, TableEntry> tables = fIteratorMap.get(index_it);
+
+		if (tables == null) {
+			tables = new HashMap<String, TableEntry>();
+			fIteratorMap.put(index_it, tables);
+		}
+
+		tables.put(key, entry);
+	}
+
+	/**
+	 * Returns the name of the class qualified by the names of its
+	 * enclosing scopes, such as its package
+	 */
+	private static String getQualifiedName(SVDBClassDecl cls) {
+		StringBuilder sb = new StringBuilder(cls.getName());
+		ISVDBChildItem p = cls.getParent();
+
+		while (p != null && p.getType() != SVDBItemType.File) {
+			String name = (p instanceof ISVDBNamedItem)?((ISVDBNamedItem)p).getName():null;
+			if (name != null && !name.equals("")) {
+				sb.insert(0, "::");
+				sb.insert(0, name);
+			}
+			p = p.getParent();
+		}
+
+		return sb.toString();
+	}
+
+	private static String getFilePath(SVDBClassDecl cls) {
+		ISVDBChildItem p = cls.getParent();
+
+		while (p != null && p.getType() != SVDBItemType.File) {
+			p = p.getParent();
+		}
+
+		return (p != null)?((SVDBFile)p).getFilePath():null;
+	}
+
+	private static String getKey(String name, SVDBTypeInfoClassType type) {
+		SVDBParamValueAssignList params = type.getParamAssignList();
+
+		if (params == null || params.getParameters().size() == 0) {
+			return name;
+		}
+
+		StringBuilder sb = new StringBuilder(name);
+		sb.append("#(");
+		for (SVDBParamValueAssign p : params.getParameters()) {
+			if (p.getValue() != null) {
+				sb.append(p.getValue().toString());
+			} else if (p.getTypeInfo() != null) {
+				sb.append(p.getTypeInfo().getName());
+			} else {
+				sb.append(p.getName());
+			}
+			sb.append(',');
+		}
+		sb.append(')');
+
+		return sb.toString();
+	}
+
+}
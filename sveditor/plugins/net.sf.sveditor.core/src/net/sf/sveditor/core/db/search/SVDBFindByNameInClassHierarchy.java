@@ -36,7 +36,6 @@ public class SVDBFindByNameInClassHierarchy {
 	private ISVDBIndexIterator				fIndexIterator;
 	private LogHandle						fLog;
 	private ISVDBFindNameMatcher			fMatcher;
-	private SVDBFindDefaultNameMatcher		fDefaultMatcher;
 	
 	
 	public SVDBFindByNameInClassHierarchy(
@@ -44,7 +43,6 @@ public class SVDBFindByNameInClassHierarchy {
 			ISVDBFindNameMatcher	matcher) {
 		fIndexIterator = index_it;
 		fMatcher = matcher;
-		fDefaultMatcher = new SVDBFindDefaultNameMatcher();
 		fLog = LogFactory.getLogHandle("FindByNameInClassHierarchy");
 	}
 	
@@ -104,8 +102,42 @@ public class SVDBFindByNameInClassHierarchy {
 			return ret;
 		}
 		
-		// Now, search through the scope and the class hierarchy
-		while (scope != null && scope instanceof ISVDBChildParent) {
+		if (scope instanceof SVDBClassDecl) {
+			// Search the flattened member table of the class, which
+			// includes the members of the entire class hierarchy
+			SVDBClassMemberTable table = SVDBClassMemberTableCache.getDefault().getTable(
+					fIndexIterator, (SVDBClassDecl)scope);
+			List<SVDBClassMemberTable.Member> members;
+			
+			if (fMatcher instanceof SVDBFindDefaultNameMatcher) {
+				members = table.getMembers(id);
+			} else {
+				members = table.getMembers();
+			}
+			
+			for (SVDBClassMemberTable.Member m : members) {
+				boolean matches = (types.length == 0);
+				
+				for (SVDBItemType type : types) {
+					if (m.getType() == type) {
+						matches = true;
+						break;
+					}
+				}
+				
+				if (matches) {
+					if (m.getType() == SVDBItemType.VarDeclStmt) {
+						boolean is_static = m.isStatic();
+						if ((is_static && exclude_static) || (!is_static && exclude_nonstatic)) {
+							continue;
+						}
+					}
+					if (fMatcher.match((ISVDBNamedItem)m.getItem(), id)) {
+						ret.add(m.getItem());
+					}
+				}
+			}
+		} else if (scope instanceof ISVDBChildParent) {
 			fLog.debug("Searching scope \"" + ((ISVDBNamedItem)scope).getName() + "\"");
 			for (ISVDBItemBase it : ((ISVDBChildParent)scope).getChildren()) {
 				boolean matches = (types.length == 0);
@@ -136,27 +168,6 @@ public class SVDBFindByNameInClassHierarchy {
 					}
 				}
 			}
-
-			// Always match exact
-			if (scope instanceof SVDBClassDecl) {
-				SVDBFindSuperClass finder = new SVDBFindSuperClass(fIndexIterator, fDefaultMatcher);
-				if (((SVDBClassDecl)scope).getSuperClass() != null) {
-					String super_name = ((SVDBClassDecl)scope).getSuperClass().getName();
-					fLog.debug("Searching for super-class \"" +  super_name + "\""); 
-					scope = finder.find((SVDBClassDecl)scope);
-					if (scope != null) {
-						fLog.debug("Find super-class \"" + 
-								((SVDBClassDecl)scope).getSuperClass() + "\" returns " + scope);
-					} else {
-						fLog.debug("Failed to find super-class \"" +  super_name + "\""); 
-					}
-				} else {
-					fLog.debug("No super-class");
-					scope = null;
-				}
-			} else {
-				scope = null;
-			}
 		}
 		
 		fLog.debug("<-- find(\"" + id + "\") returns " + ret.size() + " results");
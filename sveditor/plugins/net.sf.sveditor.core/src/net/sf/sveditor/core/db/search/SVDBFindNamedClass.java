@@ -16,9 +16,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 import net.sf.sveditor.core.db.SVDBClassDecl;
+import net.sf.sveditor.core.db.ISVDBNamedItem;
 import net.sf.sveditor.core.db.SVDBItemType;
 import net.sf.sveditor.core.db.index.ISVDBIndexIterator;
 import net.sf.sveditor.core.db.index.SVDBDeclCacheItem;
+import net.sf.sveditor.core.db.index.SVDBIndexCollection;
 
 import org.eclipse.core.runtime.NullProgressMonitor;
 
@@ -51,5 +53,34 @@ public class SVDBFindNamedClass {
 		
 		return ret;
 	}
+	
+	/**
+	 * Returns the first class named 'type_name' in search order, or null.
+	 * An index collection stops searching at the first index that holds
+	 * a matching class.
+	 */
+	public SVDBClassDecl findFirst(String type_name) {
+		if (fIndexIt instanceof SVDBIndexCollection) {
+			List<SVDBDeclCacheItem> found = ((SVDBIndexCollection)fIndexIt).findGlobalScopeDecl(
+					new NullProgressMonitor(), type_name, new ISVDBFindNameMatcher() {
+						public boolean match(ISVDBNamedItem it, String name) {
+							return (it.getType() == SVDBItemType.ClassDecl &&
+									fMatcher.match(it, name));
+						}
+					}, true);
+			
+			for (SVDBDeclCacheItem ci : found) {
+				if (ci.getType() == SVDBItemType.ClassDecl) {
+					return (SVDBClassDecl)ci.getSVDBItem();
+				}
+			}
+			
+			return null;
+		} else {
+			List<SVDBClassDecl> result = find(type_name);
+			
+			return (result.size() > 0)?result.get(0):null;
+		}
+	}
 
 }
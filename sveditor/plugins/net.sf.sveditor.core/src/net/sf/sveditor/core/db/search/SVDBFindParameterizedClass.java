@@ -14,7 +14,6 @@ package net.sf.sveditor.core.db.search;
 
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -32,6 +31,8 @@ import net.sf.sveditor.core.db.SVDBTypeInfoUserDef;
 import net.sf.sveditor.core.db.index.ISVDBIndexIterator;
 import net.sf.sveditor.core.db.stmt.SVDBParamPortDecl;
 import net.sf.sveditor.core.db.stmt.SVDBVarDeclStmt;
+import net.sf.sveditor.core.log.LogFactory;
+import net.sf.sveditor.core.log.LogHandle;
 import net.sf.sveditor.core.scanner.SVKeywords;
 
 /**
@@ -44,8 +45,10 @@ public class SVDBFindParameterizedClass {
 	private ISVDBIndexIterator									fIndexIt;
 	private Set<Tuple<SVDBClassDecl, SVDBTypeInfoUserDef>>		fParamClassCache;
 	private SVDBFindNamedClass									fFindNamedClass;
+	private LogHandle											fLog;
 	
 	public SVDBFindParameterizedClass(ISVDBIndexIterator it) {
+		fLog = LogFactory.getLogHandle("SVDBFindParameterizedClass");
 		fIndexIt = it;
 		fParamClassCache = new HashSet<Tuple<SVDBClassDecl,SVDBTypeInfoUserDef>>();
 		fFindNamedClass = new SVDBFindNamedClass(fIndexIt);
@@ -90,10 +93,10 @@ public class SVDBFindParameterizedClass {
 		}
 		
 		if (ret == null) {
-			List<SVDBClassDecl> result = fFindNamedClass.find(type_info.getName());
+			SVDBClassDecl cls = fFindNamedClass.findFirst(type_info.getName());
 			
-			if (result.size() > 0) {
-				ret = specialize(result.get(0), type_info);
+			if (cls != null) {
+				ret = specialize(cls, type_info);
 				fParamClassCache.add(
 						new Tuple<SVDBClassDecl, SVDBTypeInfoUserDef>(ret, type_info));
 			}
@@ -105,21 +108,33 @@ public class SVDBFindParameterizedClass {
 	private SVDBClassDecl specialize(
 			SVDBClassDecl 			decl,
 			SVDBTypeInfoUserDef		type_info) {
+		return specialize(decl, type_info.getParameters());
+	}
+
+	/**
+	 * Creates a copy of the class declaration with its parameters 
+	 * replaced by the supplied values. Parameters without a 
+	 * value retain their names
+	 */
+	public SVDBClassDecl specialize(
+			SVDBClassDecl				decl,
+			SVDBParamValueAssignList	param_list) {
 		Map<String, String> param_map = new HashMap<String, String>();
 		SVDBClassDecl s_decl = (SVDBClassDecl)decl.duplicate();
 		
-		SVDBParamValueAssignList param_list = type_info.getParameters();
-		for (int i=0; i<decl.getParameters().size(); i++) {
+		for (int i=0; i<decl.getParameters().size() && 
+				i<param_list.getParameters().size(); i++) {
 			String p_name = decl.getParameters().get(i).getName();
-			// TODO:
 			SVDBParamValueAssign assign = param_list.getParameters().get(i);
-			String p_val  = ""; 
-			if (assign.getValue() == null) {
-				System.out.println("[ERROR] parameter \"" + assign.getName() + "\" has null value");
+			if (assign.getValue() != null) {
+				param_map.put(p_name, assign.getValue().toString());
+			} else if (assign.getTypeInfo() != null) {
+				// Type parameter
+				param_map.put(p_name, assign.getTypeInfo().getName());
 			} else {
-				p_val = assign.getValue().toString();
+				fLog.error("Parameter \"" + assign.getName() + "\" of class \"" + 
+						decl.getName() + "\" has no value");
 			}
-			param_map.put(p_name, p_val);
 		}
 		
 		specialize_int(s_decl, param_map);
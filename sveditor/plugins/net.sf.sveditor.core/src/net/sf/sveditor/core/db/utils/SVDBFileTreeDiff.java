@@ -0,0 +1,278 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.db.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.sveditor.core.db.ISVDBChildItem;
+import net.sf.sveditor.core.db.ISVDBChildParent;
+import net.sf.sveditor.core.db.ISVDBEndLocation;
+import net.sf.sveditor.core.db.ISVDBItemBase;
+import net.sf.sveditor.core.db.ISVDBNamedItem;
+
+/**
+ * Computes the differences between two versions of an SVDB item tree,
+ * typically the previous and new parse of a file. Items are matched by
+ * their identity: type, name and ordinal among the same-named items of
+ * the enclosing scope, and the identity of the enclosing scope.
+ *
+ * Items present only in the new tree are reported as adds, and items
+ * present only in the old tree as removes. Only the top-most item of
+ * an added or removed sub-tree is reported. Matched items are reported
+ * as changes when isChanged() says so. Matched items of the old tree
+ * take the locations of their new counterpart, so that clients that
+ * retain old items, such as viewers, see current locations.
+ *
+ * The identities of the items of the last compared trees are kept,
+ * so that clients can compare items of successive versions with 
+ * getId() and find the current version of an item with findCurrent().
+ */
+public class SVDBFileTreeDiff {
+	private Map<ISVDBItemBase, String>			fIdMap;
+	private Map<String, ISVDBItemBase>			fItemMap;
+	
+	public SVDBFileTreeDiff() {
+		fIdMap = new IdentityHashMap<ISVDBItemBase, String>();
+		fItemMap = new HashMap<String, ISVDBItemBase>();
+	}
+
+	/**
+	 * Compares the trees below 'old_root' and 'new_root'
+	 *
+	 * @param adds    receives items from the new tree
+	 * @param removes receives items from the old tree
+	 * @param changes receives items from the new tree
+	 */
+	public void diff(
+			ISVDBItemBase				old_root,
+			ISVDBItemBase				new_root,
+			List<ISVDBItemBase>			adds,
+			List<ISVDBItemBase>			removes,
+			List<ISVDBItemBase>			changes) {
+		fIdMap.clear();
+		fItemMap.clear();
+		fIdMap.put(old_root, "");
+		fIdMap.put(new_root, "");
+		fItemMap.put("", new_root);
+		
+		diff(old_root, new_root, "", adds, removes, changes);
+	}
+	
+	/**
+	 * Records the identities of the items of 'root', which becomes
+	 * the current version of the tree
+	 */
+	public void setRoot(ISVDBItemBase root) {
+		fIdMap.clear();
+		fItemMap.clear();
+		fIdMap.put(root, "");
+		fItemMap.put("", root);
+		add_ids(root, "");
+	}
+	
+	/**
+	 * Returns the identity of 'it'. Items of different versions of the 
+	 * tree with the same identity correspond to each other
+	 */
+	public String getId(ISVDBItemBase it) {
+		String id = fIdMap.get(it);
+		
+		if (id == null) {
+			// Item of an earlier version of the tree
+			ISVDBItemBase p = getParent(it);
+			if (p == null) {
+				id = "";
+			} else {
+				Map<String, Integer> ordinals = new HashMap<String, Integer>();
+				String prefix = getPrefix(getId(p));
+				for (ISVDBItemBase c : getChildren(p)) {
+					String c_id = prefix + next_key(ordinals, c);
+					if (c == it) {
+						id = c_id;
+						break;
+					}
+				}
+				if (id == null) {
+					id = prefix + getKey(it);
+				}
+			}
+			fIdMap.put(it, id);
+		}
+		
+		return id;
+	}
+	
+	/**
+	 * Returns a hash code consistent with isSameItem()
+	 */
+	public int hashCode(ISVDBItemBase it) {
+		return getId(it).hashCode();
+	}
+
+	/**
+	 * Indicates whether two items, possibly from different versions of
+	 * the same tree, have the same identity
+	 */
+	public boolean isSameItem(ISVDBItemBase i1, ISVDBItemBase i2) {
+		if (i1 == i2) {
+			return true;
+		} else if (i1 == null || i2 == null) {
+			return false;
+		}
+		return getId(i1).equals(getId(i2));
+	}
+
+	/**
+	 * Returns the item of the current version of the tree with
+	 * the same identity as 'it', or 'it' if there is none
+	 */
+	public ISVDBItemBase findCurrent(ISVDBItemBase it) {
+		ISVDBItemBase ret = fItemMap.get(getId(it));
+		return (ret != null)?ret:it;
+	}
+
+	private void diff(
+			ISVDBItemBase				old_p,
+			ISVDBItemBase				new_p,
+			String						id,
+			List<ISVDBItemBase>			adds,
+			List<ISVDBItemBase>			removes,
+			List<ISVDBItemBase>			changes) {
+		Map<String, ISVDBItemBase> old_map = new LinkedHashMap<String, ISVDBItemBase>();
+		Map<String, Integer> ordinals = new HashMap<String, Integer>();
+		String prefix = getPrefix(id);
+
+		for (ISVDBItemBase it : getChildren(old_p)) {
+			String c_id = prefix + next_key(ordinals, it);
+			old_map.put(c_id, it);
+			fIdMap.put(it, c_id);
+		}
+
+		ordinals.clear();
+		for (ISVDBItemBase new_it : getChildren(new_p)) {
+			String c_id = prefix + next_key(ordinals, new_it);
+			ISVDBItemBase old_it = old_map.remove(c_id);
+			
+			fIdMap.put(new_it, c_id);
+			fItemMap.put(c_id, new_it);
+
+			if (old_it == null) {
+				adds.add(new_it);
+				add_ids(new_it, c_id);
+			} else {
+				if (isChanged(old_it, new_it)) {
+					changes.add(new_it);
+				}
+				copyLocations(old_it, new_it);
+				diff(old_it, new_it, c_id, adds, removes, changes);
+			}
+		}
+
+		removes.addAll(old_map.values());
+	}
+	
+	private void add_ids(ISVDBItemBase p, String id) {
+		Map<String, Integer> ordinals = new HashMap<String, Integer>();
+		String prefix = getPrefix(id);
+		
+		for (ISVDBItemBase it : getChildren(p)) {
+			String c_id = prefix + next_key(ordinals, it);
+			fIdMap.put(it, c_id);
+			fItemMap.put(c_id, it);
+			add_ids(it, c_id);
+		}
+	}
+	
+	private static String getPrefix(String parent_id) {
+		return (parent_id.equals(""))?"":(parent_id + "/");
+	}
+	
+	/**
+	 * Returns the key of 'it' qualified by its ordinal among the 
+	 * items with the same key seen so far
+	 */
+	private static String next_key(Map<String, Integer> ordinals, ISVDBItemBase it) {
+		String key = getKey(it);
+		Integer n = ordinals.get(key);
+		int ordinal = (n != null)?n:0;
+		
+		ordinals.put(key, ordinal+1);
+		
+		return key + "#" + ordinal;
+	}
+	
+	private static void copyLocations(ISVDBItemBase old_it, ISVDBItemBase new_it) {
+		if (old_it == new_it) {
+			return;
+		}
+		old_it.setLocation(new_it.getLocation());
+		if (old_it instanceof ISVDBEndLocation && new_it instanceof ISVDBEndLocation) {
+			((ISVDBEndLocation)old_it).setEndLocation(
+					((ISVDBEndLocation)new_it).getEndLocation());
+		}
+	}
+
+	/**
+	 * Returns the children of 'parent' that take part in the comparison.
+	 * By default, these are the direct children of the item
+	 */
+	protected List<ISVDBItemBase> getChildren(ISVDBItemBase parent) {
+		List<ISVDBItemBase> ret = new ArrayList<ISVDBItemBase>();
+
+		if (parent instanceof ISVDBChildParent) {
+			for (ISVDBChildItem ci : ((ISVDBChildParent)parent).getChildren()) {
+				ret.add(ci);
+			}
+		}
+
+		return ret;
+	}
+	
+	/**
+	 * Returns the parent of 'it' in the structure presented by 
+	 * getChildren(), or null for a root
+	 */
+	protected ISVDBItemBase getParent(ISVDBItemBase it) {
+		if (it instanceof ISVDBChildItem) {
+			return ((ISVDBChildItem)it).getParent();
+		}
+		return null;
+	}
+
+	/**
+	 * Indicates whether the content of a matched item has changed.
+	 * Differences in the children of the item are reported separately.
+	 * By default, matched items are considered unchanged. Clients
+	 * override this method to compare the content they present
+	 */
+	protected boolean isChanged(ISVDBItemBase old_it, ISVDBItemBase new_it) {
+		return false;
+	}
+
+	/**
+	 * Returns the key that items are matched on within a scope
+	 */
+	public static String getKey(ISVDBItemBase it) {
+		if (it instanceof ISVDBNamedItem && ((ISVDBNamedItem)it).getName() != null) {
+			return it.getType() + ":" + ((ISVDBNamedItem)it).getName();
+		} else {
+			return it.getType().toString();
+		}
+	}
+
+}
@@ -11,25 +11,28 @@
 
 package net.sf.sveditor.core.diagrams;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 
+import net.sf.sveditor.core.Tuple;
 import net.sf.sveditor.core.db.ISVDBChildItem;
+import net.sf.sveditor.core.db.ISVDBChildParent;
+import net.sf.sveditor.core.db.ISVDBItemBase;
 import net.sf.sveditor.core.db.SVDBClassDecl;
-import net.sf.sveditor.core.db.SVDBFunction;
 import net.sf.sveditor.core.db.SVDBItemType;
 import net.sf.sveditor.core.db.SVDBModIfcDecl;
-import net.sf.sveditor.core.db.SVDBModIfcInst;
-import net.sf.sveditor.core.db.SVDBModIfcInstItem;
 import net.sf.sveditor.core.db.SVDBModuleDecl;
-import net.sf.sveditor.core.db.SVDBTask;
 import net.sf.sveditor.core.db.index.ISVDBIndex;
+import net.sf.sveditor.core.db.index.SVDBModInstCacheEntry;
 import net.sf.sveditor.core.db.search.SVDBFindClassDefaultNameMatcher;
 import net.sf.sveditor.core.db.search.SVDBFindNamedClass;
 import net.sf.sveditor.core.db.search.SVDBFindNamedModIfcClassIfc;
-import net.sf.sveditor.core.db.stmt.SVDBVarDeclItem;
+import net.sf.sveditor.core.db.search.SVDBFindSuperClass;
 import net.sf.sveditor.core.db.stmt.SVDBVarDeclStmt;
 
+import org.eclipse.core.runtime.NullProgressMonitor;
+
 public abstract class AbstractDiagModelFactory implements IDiagModelFactory {
 	
 	protected ISVDBIndex fIndex ;
@@ -39,31 +42,42 @@ public abstract class AbstractDiagModelFactory implements IDiagModelFactory {
 		fIndex = index ;
 	}
 
+	public String getCacheKey() {
+		return getClass().getName() ;
+	}
+	
+	/**
+	 * Adds the super class and contained classes of a class node, or
+	 * the instantiated modules of a module node, to the model. Nodes
+	 * are only expanded once
+	 */
+	public void expandNode(DiagModel model, DiagNode node) {
+		if(node.isExpanded()) {
+			return ;
+		}
+		node.setExpanded(true) ;
+		
+		ISVDBItemBase item = node.getSVDBItem() ;
+		if(item == null) {
+			return ;
+		}
+		
+		if(item.getType() == SVDBItemType.ClassDecl) {
+			createNodeAndConnectionForSuperClass(model, node) ;
+			createNodesAndConnectionsForContainedClasses(model, node) ;
+		} else if(item.getType() == SVDBItemType.ModuleDecl) {
+			createNodesAndConnectionsForContainedModules(model, node) ;
+		}
+	}
+
 	public DiagNode createNodeForClass(DiagModel model, SVDBClassDecl classDecl) {
 		DiagNode node = model.getVisitedClass(classDecl.getName()) ;
 		if(node != null) {
 			return node ;
 		}
+		// Members are collected by the node when first displayed
 		node = new DiagNode(classDecl.getName(), classDecl) ;
 		model.addNode(node) ;
-		for(ISVDBChildItem child: classDecl.getChildren()) {
-			if(child.getType() == SVDBItemType.VarDeclStmt) {
-				SVDBVarDeclStmt childVarDecl = (SVDBVarDeclStmt)child ;
-				for(ISVDBChildItem var: childVarDecl.getChildren()) {
-					if(var instanceof SVDBVarDeclItem) {
-						SVDBVarDeclItem declItem = (SVDBVarDeclItem)var ;
-						node.addMember(declItem) ;
-					}
-				}
-			} else if(child.getType() == SVDBItemType.Function) {
-				SVDBFunction funcItem = (SVDBFunction)child ;
-				node.addFunction(funcItem) ;
-			} else if(child.getType() == SVDBItemType.Task) {
-				SVDBTask taskItem = (SVDBTask)child ;
-				node.addTask(taskItem) ;
-			}
-			
-		}		
 		return node ;
 	}
 
@@ -72,32 +86,34 @@ public abstract class AbstractDiagModelFactory implements IDiagModelFactory {
 		if(node != null) {
 			return node ;
 		}
+		// TODO: show ports?
 		node = new DiagNode(moduleDecl.getName(), moduleDecl) ;
 		model.addNode(node) ;
-		// TODO: show ports?
-		if (moduleDecl.getPorts() != null) {
-			
+		return node ;
+	}
+	
+	public void createNodeAndConnectionForSuperClass(DiagModel model, DiagNode node) {
+		if(node.getSVDBItem() == null || node.getSVDBItem().getType() != SVDBItemType.ClassDecl) {
+			return ;
 		}
-		for(ISVDBChildItem child: moduleDecl.getChildren()) {
-			if(child.getType() == SVDBItemType.VarDeclStmt) {
-				SVDBVarDeclStmt childVarDecl = (SVDBVarDeclStmt)child ;
-				for(ISVDBChildItem var: childVarDecl.getChildren()) {
-					if(var instanceof SVDBVarDeclItem) {
-						SVDBVarDeclItem declItem = (SVDBVarDeclItem)var ;
-						node.addMember(declItem) ;
-					}
-				}
-			} else if(child.getType() == SVDBItemType.Function) {
-				SVDBFunction funcItem = (SVDBFunction)child ;
-				node.addFunction(funcItem) ;
-			} else if(child.getType() == SVDBItemType.Task) {
-				SVDBTask taskItem = (SVDBTask)child ;
-				node.addTask(taskItem) ;
+		SVDBClassDecl classDecl = (SVDBClassDecl)node.getSVDBItem() ;
+		if(classDecl.getSuperClass() == null) {
+			return ;
+		}
+		String superName = classDecl.getSuperClass().getName() ;
+		DiagNode superNode = model.getVisitedClass(superName) ;
+		if(superNode == null) {
+			SVDBFindSuperClass super_finder = new SVDBFindSuperClass(fIndex) ;
+			ISVDBChildParent si = super_finder.find(classDecl);
+			if(si != null && si.getType() == SVDBItemType.ClassDecl) {
+				superNode = createNodeForClass(model, (SVDBClassDecl)si) ;
 			}
-			
 		}
-		
-		return node ;
+		if(superNode != null && !node.getSuperClasses().contains(superNode)) {
+			DiagConnection con = new DiagConnection("bla", DiagConnectionType.Inherits, node, superNode) ;
+			model.addConnection(con) ;
+			node.addSuperClass(superNode) ;
+		}
 	}
 	
 	public void createNodesAndConnectionsForContainedClasses(DiagModel model, DiagNode node) {
@@ -105,16 +121,25 @@ public abstract class AbstractDiagModelFactory implements IDiagModelFactory {
 			return ;
 		}
 		SVDBClassDecl classDecl = (SVDBClassDecl)node.getSVDBItem() ;
+		SVDBFindNamedClass finder = null ;
 		for(ISVDBChildItem child: classDecl.getChildren()) {
 			if(child.getType() == SVDBItemType.VarDeclStmt) {
 				SVDBVarDeclStmt childVarDecl = (SVDBVarDeclStmt)child ;
 				// Check for members of user defined type (class?) as
 				// connected to
 				if(childVarDecl.getTypeInfo().getType() == SVDBItemType.TypeInfoUserDef) {
-					SVDBFindNamedClass finder = new SVDBFindNamedClass(fIndex, SVDBFindClassDefaultNameMatcher.getDefault()) ;
-					List<SVDBClassDecl> classDecls = finder.find(childVarDecl.getTypeName()) ;
-					if(classDecls.size() != 0) {
-						DiagNode kidNode = createNodeForClass(model, (SVDBClassDecl)classDecls.toArray()[0]) ;
+					// Classes already in the model needn't be looked up again
+					DiagNode kidNode = model.getVisitedClass(childVarDecl.getTypeName()) ;
+					if(kidNode == null) {
+						if(finder == null) {
+							finder = new SVDBFindNamedClass(fIndex, SVDBFindClassDefaultNameMatcher.getDefault()) ;
+						}
+						List<SVDBClassDecl> classDecls = finder.find(childVarDecl.getTypeName()) ;
+						if(classDecls.size() != 0) {
+							kidNode = createNodeForClass(model, classDecls.get(0)) ;
+						}
+					}
+					if(kidNode != null && !node.getContainedClasses().contains(kidNode)) {
 						DiagConnection con = new DiagConnection("bla", DiagConnectionType.Contains, node, kidNode) ;
 						model.addConnection(con) ;
 						node.addContainedClass(kidNode) ;
@@ -130,22 +155,34 @@ public abstract class AbstractDiagModelFactory implements IDiagModelFactory {
 			return ;
 		}
 		SVDBModuleDecl moduleDecl = (SVDBModuleDecl)node.getSVDBItem();
-		for(ISVDBChildItem child: moduleDecl.getChildren()) {
-			if(child.getType() == SVDBItemType.ModIfcInst) {
-				SVDBModIfcInst modInst = (SVDBModIfcInst)child;
-				
-				// Check for members of user defined type (class?) as
-				// connected to
-				SVDBFindNamedModIfcClassIfc finder = new SVDBFindNamedModIfcClassIfc(fIndex);
-				List<ISVDBChildItem> result = finder.find(modInst.getTypeName());
+		
+		// Use the module instance graph maintained by the index when 
+		// available, rather than walking the declaration
+		List<Tuple<String, String>> insts = fIndex.findModuleInstances(
+				new NullProgressMonitor(), moduleDecl.getName()) ;
+		if(insts == null) {
+			insts = new ArrayList<Tuple<String,String>>() ;
+			SVDBModInstCacheEntry.collectInstances(insts, moduleDecl) ;
+		}
+		
+		SVDBFindNamedModIfcClassIfc finder = null ;
+		for(Tuple<String, String> inst: insts) {
+			DiagNode kidNode = model.getVisitedClass(inst.second()) ;
+			if(kidNode == null) {
+				if(finder == null) {
+					finder = new SVDBFindNamedModIfcClassIfc(fIndex);
+				}
+				List<ISVDBChildItem> result = finder.find(inst.second());
 			
 				if (result.size() > 0 && result.get(0).getType() == SVDBItemType.ModuleDecl) {
-					DiagNode kidNode = createNodeForModule(model, (SVDBModuleDecl)result.get(0));
-					DiagConnection con = new DiagConnection("bla", DiagConnectionType.Contains, node, kidNode) ;
-					model.addConnection(con) ;
-					node.addContainedClass(kidNode) ;
+					kidNode = createNodeForModule(model, (SVDBModuleDecl)result.get(0));
 				}
 			}
+			if(kidNode != null && !node.getContainedClasses().contains(kidNode)) {
+				DiagConnection con = new DiagConnection("bla", DiagConnectionType.Contains, node, kidNode) ;
+				model.addConnection(con) ;
+				node.addContainedClass(kidNode) ;
+			}
 		}		
 	}
 	
@@ -156,6 +193,9 @@ public abstract class AbstractDiagModelFactory implements IDiagModelFactory {
 		}
 		
 		for(DiagNode node: nodes) {
+			if(node.getSVDBItem() == null || node.getSVDBItem().getType() != SVDBItemType.ClassDecl) {
+				continue ;
+			}
 			SVDBClassDecl classDecl = (SVDBClassDecl)node.getSVDBItem() ;
 			for(ISVDBChildItem child: classDecl.getChildren()) {
 				if(child.getType() == SVDBItemType.VarDeclStmt) {
@@ -164,7 +204,8 @@ public abstract class AbstractDiagModelFactory implements IDiagModelFactory {
 					// connected to
 					if(childVarDecl.getTypeInfo().getType() == SVDBItemType.TypeInfoUserDef) {
 						String typeName = childVarDecl.getTypeName() ;
-						if(nodeHash.containsKey(typeName)) {
+						if(nodeHash.containsKey(typeName) && 
+								!node.getContainedClasses().contains(nodeHash.get(typeName))) {
 							DiagConnection con = new DiagConnection("bla", DiagConnectionType.Contains, node, nodeHash.get(typeName)) ;
 							model.addConnection(con) ;
 							node.addContainedClass(nodeHash.get(typeName)) ;
@@ -12,11 +12,8 @@
 
 package net.sf.sveditor.core.diagrams;
 
-import net.sf.sveditor.core.db.ISVDBChildParent;
 import net.sf.sveditor.core.db.SVDBClassDecl;
-import net.sf.sveditor.core.db.SVDBItemType;
 import net.sf.sveditor.core.db.index.ISVDBIndex;
-import net.sf.sveditor.core.db.search.SVDBFindSuperClass;
 
 public class ClassDiagModelFactory extends AbstractDiagModelFactory {
 	
@@ -27,6 +24,11 @@ public class ClassDiagModelFactory extends AbstractDiagModelFactory {
 		fClassDecl = classDecl ;
 	}
 
+	@Override
+	public String getCacheKey() {
+		return "class:" + ((fClassDecl != null)?fClassDecl.getName():"") ;
+	}
+
 	public DiagModel build() {
 		DiagModel model = new DiagModel() ;
 		
@@ -34,29 +36,9 @@ public class ClassDiagModelFactory extends AbstractDiagModelFactory {
 			
 			DiagNode classNode = createNodeForClass(model, fClassDecl) ;
 			
-			// Check for a super class
-			//
-			if(fClassDecl.getSuperClass() != null) {
-				DiagNode superNode = null ;
-				String superName = fClassDecl.getSuperClass().getName() ;
-				superNode = model.getVisitedClass(superName) ;
-				if(superNode == null) {
-					SVDBFindSuperClass super_finder = new SVDBFindSuperClass(fIndex) ;
-					ISVDBChildParent si = super_finder.find(fClassDecl);
-					if(si != null && si.getType() == SVDBItemType.ClassDecl) {
-						superNode = createNodeForClass(model, (SVDBClassDecl)si) ;
-					}
-				}
-				if(superNode != null) {
-					DiagConnection con = new DiagConnection("bla", DiagConnectionType.Inherits, classNode, superNode) ;
-					model.addConnection(con) ;
-					classNode.addSuperClass(superNode) ;
-				}
-			}
-			
-			// 
-			
-			createNodesAndConnectionsForContainedClasses(model, classNode) ;
+			// Add the super class and contained classes. Those nodes
+			// are expanded on request
+			expandNode(model, classNode) ;
 		}		
 		
 		return model ;
@@ -0,0 +1,218 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.diagrams;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import net.sf.sveditor.core.db.SVDBFile;
+import net.sf.sveditor.core.db.index.ISVDBIndex;
+import net.sf.sveditor.core.db.index.ISVDBIndexChangeListener;
+import net.sf.sveditor.core.db.index.ISVDBIndexIterator;
+import net.sf.sveditor.core.db.index.SVDBFileOverrideIndex;
+import net.sf.sveditor.core.db.index.SVDBIndexCollection;
+import net.sf.sveditor.core.log.LogFactory;
+import net.sf.sveditor.core.log.LogHandle;
+
+/**
+ * Caches the diagram models built from each project index collection,
+ * keyed by the factory's cache key. Editors share the models of the
+ * collection beneath their file-override index. The models for a
+ * collection are discarded when one of its indexes is rebuilt or one
+ * of its files changes.
+ */
+public class DiagModelCache {
+	private static DiagModelCache					fDefault;
+
+	private Map<ISVDBIndexIterator, IndexModels>	fIndexMap;
+	// Entries, including those whose collection has been collected
+	private List<IndexModels>						fEntries;
+	private LogHandle								fLog;
+
+	public DiagModelCache() {
+		fIndexMap = new WeakHashMap<ISVDBIndexIterator, IndexModels>();
+		fEntries = new ArrayList<IndexModels>();
+		fLog = LogFactory.getLogHandle("DiagModelCache");
+	}
+
+	public synchronized static DiagModelCache getDefault() {
+		if (fDefault == null) {
+			fDefault = new DiagModelCache();
+		}
+		return fDefault;
+	}
+
+	/**
+	 * Returns the cached model for the factory, building it if
+	 * no valid model exists
+	 */
+	public DiagModel getModel(ISVDBIndex index, IDiagModelFactory factory) {
+		ISVDBIndexIterator key = getCacheIndex(index);
+		IndexModels models;
+		boolean new_index = false;
+		String cache_key = factory.getCacheKey();
+
+		remove_stale();
+
+		synchronized (fIndexMap) {
+			models = fIndexMap.get(key);
+			if (models == null) {
+				models = new IndexModels(key);
+				fIndexMap.put(key, models);
+				fEntries.add(models);
+				new_index = true;
+			}
+		}
+
+		if (new_index) {
+			models.addListener();
+		}
+
+		DiagModel model;
+		int generation;
+		synchronized (models) {
+			model = models.fModelMap.get(cache_key);
+			generation = models.fGeneration;
+		}
+
+		if (model == null) {
+			// Build outside the lock, since building queries the index
+			// and the index may notify the cache while doing so
+			fLog.debug("Building diagram model \"" + cache_key + "\"");
+			model = factory.build();
+			if (model != null) {
+				synchronized (models) {
+					// The model may be stale if the index changed while building
+					if (models.fGeneration == generation) {
+						models.fModelMap.put(cache_key, model);
+					}
+				}
+			}
+		}
+
+		return model;
+	}
+
+	public void invalidate(ISVDBIndex index) {
+		IndexModels models;
+		synchronized (fIndexMap) {
+			models = fIndexMap.get(getCacheIndex(index));
+		}
+		if (models != null) {
+			models.clear();
+		}
+	}
+
+	/**
+	 * Editors query through a per-editor override index. Models are
+	 * cached against the collection that it overlays
+	 */
+	private static ISVDBIndexIterator getCacheIndex(ISVDBIndex index) {
+		if (index instanceof SVDBFileOverrideIndex &&
+				((SVDBFileOverrideIndex)index).getSuperIterator() != null) {
+			return ((SVDBFileOverrideIndex)index).getSuperIterator();
+		}
+		return index;
+	}
+
+	/**
+	 * Removes the listeners of entries whose collection has been
+	 * garbage collected. Never called from a change notification,
+	 * since the indexes notify while holding their listener list
+	 */
+	private void remove_stale() {
+		List<IndexModels> stale = null;
+
+		synchronized (fIndexMap) {
+			for (int i=0; i<fEntries.size(); i++) {
+				if (fEntries.get(i).fIndexRef.get() == null) {
+					if (stale == null) {
+						stale = new ArrayList<IndexModels>();
+					}
+					stale.add(fEntries.remove(i));
+					i--;
+				}
+			}
+		}
+
+		if (stale != null) {
+			for (IndexModels models : stale) {
+				models.removeListener();
+			}
+		}
+	}
+
+	private class IndexModels implements ISVDBIndexChangeListener {
+		Map<String, DiagModel>				fModelMap;
+		WeakReference<ISVDBIndexIterator>	fIndexRef;
+		// Indexes this entry listens to. Held so that the listener
+		// can be removed once the collection is gone
+		List<ISVDBIndex>					fListenIndexes;
+		// Incremented each time the models are discarded
+		int									fGeneration;
+
+		public IndexModels(ISVDBIndexIterator index) {
+			fModelMap = new HashMap<String, DiagModel>();
+			fIndexRef = new WeakReference<ISVDBIndexIterator>(index);
+			fListenIndexes = new ArrayList<ISVDBIndex>();
+		}
+
+		public void addListener() {
+			ISVDBIndexIterator index = fIndexRef.get();
+			List<ISVDBIndex> index_l = new ArrayList<ISVDBIndex>();
+
+			if (index instanceof SVDBIndexCollection) {
+				index_l.addAll(((SVDBIndexCollection)index).getIndexList());
+			} else if (index instanceof ISVDBIndex) {
+				index_l.add((ISVDBIndex)index);
+			}
+
+			synchronized (fListenIndexes) {
+				fListenIndexes.addAll(index_l);
+			}
+			for (ISVDBIndex i : index_l) {
+				i.addChangeListener(this);
+			}
+		}
+
+		public void removeListener() {
+			List<ISVDBIndex> index_l = new ArrayList<ISVDBIndex>();
+			synchronized (fListenIndexes) {
+				index_l.addAll(fListenIndexes);
+				fListenIndexes.clear();
+			}
+			for (ISVDBIndex i : index_l) {
+				i.removeChangeListener(this);
+			}
+			clear();
+		}
+
+		public synchronized void clear() {
+			fModelMap.clear();
+			fGeneration++;
+		}
+
+		public void index_changed(int reason, SVDBFile file) {
+			clear();
+		}
+
+		public void index_rebuilt() {
+			clear();
+		}
+	}
+
+}
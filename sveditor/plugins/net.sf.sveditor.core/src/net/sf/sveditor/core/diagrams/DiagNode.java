@@ -16,9 +16,14 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 
+import net.sf.sveditor.core.db.ISVDBChildItem;
+import net.sf.sveditor.core.db.ISVDBChildParent;
 import net.sf.sveditor.core.db.ISVDBItemBase;
 import net.sf.sveditor.core.db.SVDBFunction;
+import net.sf.sveditor.core.db.SVDBItemType;
 import net.sf.sveditor.core.db.SVDBTask;
+import net.sf.sveditor.core.db.index.SVDBDeclCacheItem;
+import net.sf.sveditor.core.db.stmt.SVDBVarDeclStmt;
 import net.sf.sveditor.core.db.stmt.SVDBVarDeclItem;
 
 public class DiagNode {
@@ -29,12 +34,21 @@ public class DiagNode {
 	private HashSet<DiagNode> fContainedClasses ;
 	
 	private ISVDBItemBase fISVDBItem ;
+	
+	// Declaration-cache entry the item is resolved from on first use
+	private SVDBDeclCacheItem fDeclCacheItem ;
 
 	private List<SVDBVarDeclItem> fMemberDecls ;
 	private List<SVDBFunction> fFuncDecls ;
 	private List<SVDBTask> fTaskDecls ;
 	
 	private boolean fSelected ;
+	
+	// Set once members have been collected from the item
+	private boolean fMembersResolved ;
+	
+	// Set once super and contained classes have been added to the model
+	private boolean fExpanded ;
 
 	public DiagNode(String name, ISVDBItemBase item) {
 
@@ -47,6 +61,15 @@ public class DiagNode {
 		this.fSuperClasses = new HashSet<DiagNode>() ;
 		this.fContainedClasses = new HashSet<DiagNode>() ;
 	}
+	
+	/**
+	 * Creates a node whose item is resolved from the declaration
+	 * cache only when it is first needed
+	 */
+	public DiagNode(String name, SVDBDeclCacheItem item) {
+		this(name, (ISVDBItemBase)null) ;
+		this.fDeclCacheItem = item ;
+	}
 
 	public String getName() {
 		return fName ;
@@ -73,12 +96,55 @@ public class DiagNode {
 	}
 	
 	public List<SVDBVarDeclItem> getMemberDecls() {
+		ensureMembers() ;
 		return fMemberDecls ;
 	}
 	
-	public ISVDBItemBase getSVDBItem() {
+	public synchronized ISVDBItemBase getSVDBItem() {
+		if(fISVDBItem == null && fDeclCacheItem != null) {
+			fISVDBItem = fDeclCacheItem.getSVDBItem() ;
+			fDeclCacheItem = null ;
+		}
 		return fISVDBItem ; 
 	}
+	
+	public boolean isExpanded() {
+		return fExpanded ;
+	}
+	
+	public void setExpanded(boolean expanded) {
+		fExpanded = expanded ;
+	}
+	
+	/**
+	 * Collects the fields, functions and tasks of the class or module
+	 * the first time they are requested
+	 */
+	private synchronized void ensureMembers() {
+		if(fMembersResolved) {
+			return ;
+		}
+		fMembersResolved = true ;
+		
+		ISVDBItemBase item = getSVDBItem() ;
+		if(!(item instanceof ISVDBChildParent)) {
+			return ;
+		}
+		for(ISVDBChildItem child: ((ISVDBChildParent)item).getChildren()) {
+			if(child.getType() == SVDBItemType.VarDeclStmt) {
+				SVDBVarDeclStmt childVarDecl = (SVDBVarDeclStmt)child ;
+				for(ISVDBChildItem var: childVarDecl.getChildren()) {
+					if(var instanceof SVDBVarDeclItem) {
+						fMemberDecls.add((SVDBVarDeclItem)var) ;
+					}
+				}
+			} else if(child.getType() == SVDBItemType.Function) {
+				fFuncDecls.add((SVDBFunction)child) ;
+			} else if(child.getType() == SVDBItemType.Task) {
+				fTaskDecls.add((SVDBTask)child) ;
+			}
+		}
+	}
 
 	public List<DiagNode> getConnectedTo() {
 		List<DiagNode> connections = new ArrayList<DiagNode>(fSuperClasses) ;
@@ -91,6 +157,7 @@ public class DiagNode {
 	}
 	
 	public List<SVDBFunction> getFuncDecls() {
+		ensureMembers() ;
 		return fFuncDecls ;
 	}
 
@@ -99,6 +166,7 @@ public class DiagNode {
 	}
 	
 	public List<SVDBTask> getTaskDecls() {
+		ensureMembers() ;
 		return fTaskDecls ;
 	}
 
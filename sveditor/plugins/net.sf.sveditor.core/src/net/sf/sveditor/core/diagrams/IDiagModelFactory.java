@@ -16,4 +16,16 @@ public interface IDiagModelFactory {
 	
 	public DiagModel build() ;
 	
+	/**
+	 * Adds the nodes directly related to the specified node to 
+	 * the model. Only the root node(s) are expanded by build()
+	 */
+	public void expandNode(DiagModel model, DiagNode node) ;
+	
+	/**
+	 * Returns a key identifying the model built by this factory.
+	 * Models are cached per-index under this key
+	 */
+	public String getCacheKey() ;
+	
 }
@@ -25,6 +25,11 @@ public class ModuleDiagModelFactory extends AbstractDiagModelFactory {
 		fModuleDecl = moduleDecl;
 	}
 
+	@Override
+	public String getCacheKey() {
+		return "module:" + ((fModuleDecl != null)?fModuleDecl.getName():"") ;
+	}
+
 	public DiagModel build() {
 		DiagModel model = new DiagModel() ;
 		
@@ -54,7 +59,9 @@ public class ModuleDiagModelFactory extends AbstractDiagModelFactory {
 			}
 			 */
 			
-			createNodesAndConnectionsForContainedModules(model, moduleNode) ;
+			// Add the instantiated modules. Those nodes are expanded
+			// on request
+			expandNode(model, moduleNode) ;
 		}		
 		
 		return model ;
@@ -14,7 +14,6 @@ package net.sf.sveditor.core.diagrams;
 
 import java.util.List;
 
-import net.sf.sveditor.core.db.SVDBClassDecl;
 import net.sf.sveditor.core.db.SVDBItemType;
 import net.sf.sveditor.core.db.SVDBPackageDecl;
 import net.sf.sveditor.core.db.index.ISVDBIndex;
@@ -32,6 +31,11 @@ public class PackageClassDiagModelFactory extends AbstractDiagModelFactory {
 		fPackageDecl = pkgDecl ;
 	}
 
+	@Override
+	public String getCacheKey() {
+		return "package:" + fPackageDecl.getName() ;
+	}
+
 	public DiagModel build() {
 		
 		DiagModel model = new DiagModel() ;
@@ -50,8 +54,11 @@ public class PackageClassDiagModelFactory extends AbstractDiagModelFactory {
 		List<SVDBDeclCacheItem> pkgDecls = fIndex.findPackageDecl(new NullProgressMonitor(), pkgDeclItem) ; 
 		if(pkgDecls != null) {
 			for(SVDBDeclCacheItem pkgDecl: pkgDecls) {
-				if(pkgDecl.getType() == SVDBItemType.ClassDecl) {
-					createNodeForClass(model, (SVDBClassDecl)pkgDecl.getSVDBItem()) ;
+				if(pkgDecl.getType() == SVDBItemType.ClassDecl && 
+						model.getVisitedClass(pkgDecl.getName()) == null) {
+					// Class declarations are resolved from the cache item
+					// when first needed
+					model.addNode(new DiagNode(pkgDecl.getName(), pkgDecl)) ;
 				}
 				}
 			}
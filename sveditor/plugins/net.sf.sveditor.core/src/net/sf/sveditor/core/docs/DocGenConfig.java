@@ -14,6 +14,7 @@ package net.sf.sveditor.core.docs;
 import java.io.File;
 import java.util.Set;
 
+import net.sf.sveditor.core.SVCorePlugin;
 import net.sf.sveditor.core.Tuple;
 import net.sf.sveditor.core.db.index.ISVDBIndex;
 import net.sf.sveditor.core.db.index.SVDBDeclCacheItem;
@@ -23,6 +24,8 @@ public class DocGenConfig {
 	private Set<Tuple<SVDBDeclCacheItem,ISVDBIndex>> fPackages ;
 	private File outputDir ;
 	private boolean includeUndocumentedPkgsInPkgIndex = true ;
+	private boolean fIncremental = true ;
+	private int fMaxThreads = SVCorePlugin.getMaxIndexThreads() ;
 
 	public Set<Tuple<SVDBDeclCacheItem,ISVDBIndex>> getSelectedPackages() {
 		return fPackages;
@@ -45,5 +48,27 @@ public class DocGenConfig {
 			boolean includeUndocumentedPkgsInPkgIndex) {
 		this.includeUndocumentedPkgsInPkgIndex = includeUndocumentedPkgsInPkgIndex;
 	}
+	
+	/**
+	 * When set, pages whose source file has not changed since the
+	 * last generation run into the same output directory are not re-written
+	 */
+	public boolean getIncremental() {
+		return fIncremental ;
+	}
+	public void setIncremental(boolean incremental) {
+		fIncremental = incremental ;
+	}
+	
+	/**
+	 * Maximum number of threads used to parse doc comments and render pages.
+	 * A value of 0 or 1 causes generation to be performed serially
+	 */
+	public int getMaxThreads() {
+		return fMaxThreads ;
+	}
+	public void setMaxThreads(int maxThreads) {
+		fMaxThreads = maxThreads ;
+	}
 
 }
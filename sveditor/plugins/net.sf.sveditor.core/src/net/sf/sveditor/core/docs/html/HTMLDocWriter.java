@@ -12,11 +12,17 @@
 package net.sf.sveditor.core.docs.html;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
 
 import net.sf.sveditor.core.SVCorePlugin;
 import net.sf.sveditor.core.docs.DocGenConfig;
@@ -34,6 +40,21 @@ public class HTMLDocWriter implements IDocWriter {
 	
 	private File indexHtmFile ;
 	
+	/**
+	 * Records, for each generated page, the timestamp of the source
+	 * file it was generated from and the pages it links to. Used to 
+	 * skip re-generating pages whose source is unchanged and whose 
+	 * links are still valid when incremental generation is enabled
+	 */
+	private static final String STAMP_FILE = ".svdoc_stamps" ;
+	
+	/**
+	 * Suffix of the stamp-file key holding the pages a page links to.
+	 * UNRESOLVED_LINK is recorded for a link that did not resolve
+	 */
+	private static final String LINKS_SUFFIX = "#links" ;
+	private static final String UNRESOLVED_LINK = "?" ;
+	
 	private class HTMLDocWriterException extends Exception {
 		private static final long serialVersionUID = 567302255024887471L ;
 		public HTMLDocWriterException(String msg) { super(msg) ; }
@@ -78,19 +99,167 @@ public class HTMLDocWriter implements IDocWriter {
 		}
 	}
 
-	private void writeFiles(DocGenConfig cfg, DocModel model) throws IOException {
+	private void writeFiles(final DocGenConfig cfg, final DocModel model) throws IOException {
+		final Properties stamps = readStamps(cfg) ;
+		final List<DocFile> docFiles = new ArrayList<DocFile>() ;
+		List<DocFile> upToDate = new ArrayList<DocFile>() ;
+		Set<String> outPaths = new HashSet<String>() ;
+		Set<String> changed = new HashSet<String>() ;
+		
 		for(String file: model.getFileSet()) {
 			DocFile docFile = model.getDocFile(file) ;
-			writeFile(cfg, model, docFile) ;
+			outPaths.add(docFile.getOutPath()) ;
+			if(cfg.getIncremental() && isUpToDate(stamps, docFile)) {
+				upToDate.add(docFile) ;
+			} else {
+				docFiles.add(docFile) ;
+				changed.add(docFile.getOutPath()) ;
+			}
+		}
+		
+		// Pages no longer generated are changed too
+		for(Object key: stamps.keySet().toArray()) {
+			String outPath = (String)key ;
+			if(!outPath.endsWith(LINKS_SUFFIX) && !outPaths.contains(outPath)) {
+				changed.add(outPath) ;
+				stamps.remove(outPath) ;
+				stamps.remove(outPath + LINKS_SUFFIX) ;
+			}
+		}
+		
+		// Links to the symbols of changed pages may have moved or gone,
+		// and links that did not resolve may now resolve
+		for(DocFile docFile: upToDate) {
+			if(changed.size() > 0 && hasChangedLinks(stamps, docFile, changed)) {
+				docFiles.add(docFile) ;
+			} else {
+				fLog.debug(ILogLevel.LEVEL_MID, "Skipping up-to-date HTML file: " + docFile.getOutPath()) ;
+			}
+		}
+		
+		fLog.debug(ILogLevel.LEVEL_MIN, "Writing " + docFiles.size() + " of " + 
+				model.getFileSet().size() + " HTML files") ;
+		
+		// Pages are rendered independently from a read-only model. 
+		// Want each thread to work on at least 16 files
+		int num_threads = Math.min(cfg.getMaxThreads(), docFiles.size()/16) ;
+		if(num_threads <= 1) {
+			writeFilesJob(cfg, model, docFiles, stamps) ;
+		} else {
+			Thread threads[] = new Thread[num_threads] ;
+			for(int i=0; i<threads.length; i++) {
+				threads[i] = new Thread(new Runnable() {
+					public void run() {
+						writeFilesJob(cfg, model, docFiles, stamps) ;
+					}
+				}, "docgen_write_" + i) ;
+				threads[i].start() ;
+			}
+			for(int i=0; i<threads.length; i++) {
+				try {
+					threads[i].join() ;
+				} catch (InterruptedException e) {}
+			}
+		}
+		
+		writeStamps(cfg, stamps) ;
+	}
+	
+	private void writeFilesJob(DocGenConfig cfg, DocModel model, List<DocFile> docFiles, Properties stamps) {
+		while(true) {
+			DocFile docFile = null ;
+			synchronized(docFiles) {
+				if(docFiles.size() > 0) {
+					docFile = docFiles.remove(0) ;
+				}
+			}
+			if(docFile == null) {
+				break ;
+			}
+			HTMLFileFactory fileFactory = new HTMLFileFactory(cfg, model) ;
+			// Properties is synchronized
+			if(writeFile(fileFactory, docFile)) {
+				stamps.setProperty(docFile.getOutPath() + LINKS_SUFFIX, 
+						getLinks(fileFactory)) ;
+				stamps.setProperty(docFile.getOutPath(), 
+						Long.toString(docFile.getSrcTimestamp())) ;
+			} else {
+				stamps.remove(docFile.getOutPath()) ;
+				stamps.remove(docFile.getOutPath() + LINKS_SUFFIX) ;
+			}
+		}
+	}
+	
+	private boolean isUpToDate(Properties stamps, DocFile docFile) {
+		if(docFile.getSrcTimestamp() <= 0 || !new File(docFile.getOutPath()).isFile()) {
+			return false ;
+		}
+		String stamp = stamps.getProperty(docFile.getOutPath()) ;
+		return (stamp != null && stamp.equals(Long.toString(docFile.getSrcTimestamp()))) ;
+	}
+	
+	private boolean hasChangedLinks(Properties stamps, DocFile docFile, Set<String> changed) {
+		String links = stamps.getProperty(docFile.getOutPath() + LINKS_SUFFIX) ;
+		if(links == null) {
+			// Links not recorded
+			return true ;
+		}
+		for(String link: links.split("\n")) {
+			if(link.equals(UNRESOLVED_LINK) || changed.contains(link)) {
+				return true ;
+			}
+		}
+		return false ;
+	}
+	
+	private String getLinks(HTMLFileFactory fileFactory) {
+		StringBuilder links = new StringBuilder() ;
+		if(fileFactory.hasUnresolvedLinks()) {
+			links.append(UNRESOLVED_LINK) ;
+		}
+		for(String link: fileFactory.getLinkedPages()) {
+			if(links.length() > 0) {
+				links.append('\n') ;
+			}
+			links.append(link) ;
+		}
+		return links.toString() ;
+	}
+	
+	private Properties readStamps(DocGenConfig cfg) {
+		Properties stamps = new Properties() ;
+		File stampFile = new File(cfg.getOutputDir(), STAMP_FILE) ;
+		if(stampFile.isFile()) {
+			try {
+				InputStream in = new FileInputStream(stampFile) ;
+				stamps.load(in) ;
+				in.close() ;
+			} catch (IOException e) {
+				fLog.error("Failed to read doc-generation stamps: " + stampFile, e) ;
+				stamps.clear() ;
+			}
+		}
+		return stamps ;
+	}
+	
+	private void writeStamps(DocGenConfig cfg, Properties stamps) {
+		File stampFile = new File(cfg.getOutputDir(), STAMP_FILE) ;
+		try {
+			FileOutputStream os = new FileOutputStream(stampFile) ;
+			stamps.store(os, "SVEditor documentation generation stamps") ;
+			os.close() ;
+		} catch (IOException e) {
+			fLog.error("Failed to write doc-generation stamps: " + stampFile, e) ;
 		}
 	}
 
-	private void writeFile(DocGenConfig cfg, DocModel model, DocFile docFile) {
-		HTMLFileFactory fileFactory = new HTMLFileFactory(cfg, model) ;
+	private boolean writeFile(HTMLFileFactory fileFactory, DocFile docFile) {
 //		String srcPath = docFile.getDocPath() ;
 //		File outPath = HTMLUtils.getHTMLFileForSrcPath(cfg,srcPath) ;
 		File outPath = new File(docFile.getOutPath()) ;
-		if(!outPath.getParentFile().exists()) outPath.getParentFile().mkdirs() ;
+		synchronized(this) {
+			if(!outPath.getParentFile().exists()) outPath.getParentFile().mkdirs() ;
+		}
 		fLog.debug(ILogLevel.LEVEL_MID, "Generating HTML file: " + outPath) ;
 		FileOutputStream os;
 		try {
@@ -101,9 +270,11 @@ public class HTMLDocWriter implements IDocWriter {
 			}
 			os.write(fileContent.getBytes()) ;
 			os.close() ;
+			return true ;
 		} catch (Exception e) {
 			fLog.error("Exception while opening for write: " + outPath, e) ;
 		}
+		return false ;
 	}
 
 	private void writeIndices(DocGenConfig cfg, DocModel model) throws IOException {
@@ -12,6 +12,7 @@
 package net.sf.sveditor.core.docs.html;
 
 import java.io.File;
+import java.util.Set;
 
 import net.sf.sveditor.core.docs.DocGenConfig;
 import net.sf.sveditor.core.docs.model.DocFile;
@@ -35,6 +36,20 @@ public class HTMLFileFactory {
 		fMarkupToHTML = new HTMLFromNDMarkup(this.model) ;
 	}
 	
+	/**
+	 * @return Output paths of the other pages linked to by the pages built thus far
+	 */
+	public Set<String> getLinkedPages() {
+		return fMarkupToHTML.getLinkedPages() ;
+	}
+	
+	/**
+	 * @return Whether a link in the pages built thus far did not resolve to a page
+	 */
+	public boolean hasUnresolvedLinks() {
+		return fMarkupToHTML.hasUnresolvedLinks() ;
+	}
+	
 	public static String getRelPathToHTML(String path) {
 		String res = "" ;
 		File filePath = new File(path) ;
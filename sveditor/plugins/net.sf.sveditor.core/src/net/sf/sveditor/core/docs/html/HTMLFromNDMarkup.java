@@ -11,6 +11,8 @@
 
 package net.sf.sveditor.core.docs.html ;
 
+import java.util.HashSet;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -33,6 +35,8 @@ public class HTMLFromNDMarkup {
 	
 	private DocModel fModel ;
 	private LogHandle fLog ;
+	private Set<String> fLinkedPages ;
+	private boolean fUnresolvedLinks ;
 	
 	public HTMLFromNDMarkup() { 
 		this(null) ;
@@ -41,6 +45,21 @@ public class HTMLFromNDMarkup {
 	public HTMLFromNDMarkup(DocModel model) {
 		fModel = model ;
 		fLog = LogFactory.getLogHandle("HTMLFromNDMarkup") ;
+		fLinkedPages = new HashSet<String>() ;
+	}
+	
+	/**
+	 * @return Output paths of the other pages linked to by the markup converted thus far
+	 */
+	public Set<String> getLinkedPages() {
+		return fLinkedPages ;
+	}
+	
+	/**
+	 * @return Whether a link in the markup converted thus far did not resolve to a page
+	 */
+	public boolean hasUnresolvedLinks() {
+		return fUnresolvedLinks ;
 	}
 	
 	@SuppressWarnings("unused")
@@ -272,6 +291,7 @@ public class HTMLFromNDMarkup {
 					String.format("Failed to find symbol for link(%s) in docFile(%s)",
 							symbol,
 							docFile.getTitle())) ;
+			fUnresolvedLinks = true ;
 			return original ;
 		} else	if(symbolTableEntry.getDocFile() == null) {
 //			fLog.error(
@@ -282,6 +302,7 @@ public class HTMLFromNDMarkup {
 					String.format("Symbol(%s) in docFile(%s) appears to have no docFile",
 							symbol,
 							docFile.getTitle())) ;
+			fUnresolvedLinks = true ;
 			return original ;
 		} else {
 			String link ;
@@ -291,6 +312,7 @@ public class HTMLFromNDMarkup {
 						docFile.getOutPath(), 
 						symbolTableEntry.getDocFile().getOutPath(), 
 						true) ;
+				fLinkedPages.add(symbolTableEntry.getDocFile().getOutPath()) ;
 			}
 			link = "<a href=\"" ;
 			if(targetFile != null) {
@@ -18,6 +18,7 @@ public class DocFile extends DocTopic {
 	String fDocPath ;
 	String fPageTitle ;
 	String fOutPath ;
+	long fSrcTimestamp ;
 
 	public DocFile(String name) {
 		super(name, "", "") ;
@@ -55,5 +56,16 @@ public class DocFile extends DocTopic {
 	public void setPageTitle(String pageTitle) {
 		fPageTitle = pageTitle ;
 	}
+	
+	/**
+	 * @return Last-modified timestamp of the source file this DocFile was built from
+	 */
+	public long getSrcTimestamp() {
+		return fSrcTimestamp ;
+	}
+	
+	public void setSrcTimestamp(long timestamp) {
+		fSrcTimestamp = timestamp ;
+	}
 
 }
@@ -67,7 +67,7 @@ public class DocModelFactory {
 	 * @param cfg Configuration defining the set to be generated.
 	 * @return A fully prepared DocModel indexed and cross referenced
 	 */
-	public DocModel build(DocGenConfig cfg) {
+	public DocModel build(DocGenConfig cfg) {
 		DocModel model = new DocModel() ;
 		IDocCommentParser docCommentParser = new DocCommentParser(model.getDocTopics()) ;
 		try {
@@ -145,108 +145,188 @@ public class DocModelFactory {
 	 * @param model The model to operate on
 	 * @param docCommentParser
 	 */
-	private void gatherDocTopicsFromPreProcFiles(DocGenConfig cfg, DocModel model, IDocCommentParser docCommentParser) {
+	private void gatherDocTopicsFromPreProcFiles(DocGenConfig cfg, final DocModel model, IDocCommentParser docCommentParser) {
 		HashSet<ISVDBIndex> visitedIndex = new HashSet<ISVDBIndex>() ;
+		final List<DocFileSource> sources = new ArrayList<DocFileSource>() ;
 		fLog.debug(ILogLevel.LEVEL_MIN,"Gathering raw doc comments for each SVDBFile") ;
+		
+		// Collect the pre-processor view of each file serially, since
+		// the index caches are not safe for concurrent access
 		for(Tuple<SVDBDeclCacheItem,ISVDBIndex> pkgTuple: cfg.getSelectedPackages()) {
 			ISVDBIndex index = pkgTuple.second() ;
 			if(!visitedIndex.contains(index)) {
 				visitedIndex.add(index) ;
 				for(String file: index.getFileList(new NullProgressMonitor())) {
-					DocTopic parent = null ;
 					SVDBFile ppFile = index.getCache().getPreProcFile(new NullProgressMonitor(), file) ;
 					if(ppFile == null) {
 						fLog.error("Failed to find pre proc file for: " + file) ;
 					} else {
-						fLog.debug(ILogLevel.LEVEL_MID,"+-------------------------------------------------------------------------------") ;
-						fLog.debug(ILogLevel.LEVEL_MID,"| Entering file(" + file + ")") ;
-						fLog.debug(ILogLevel.LEVEL_MID,"+-------------------------------------------------------------------------------") ;
-						String path = file ;
-						String shortFileName = new File(path).getName() ;
-						if (path.startsWith("${workspace_loc}")) {
-							path = path.substring("${workspace_loc}".length()) ;
-						}
-						DocFile docFile = new DocFile(file) ;
-						parent = docFile ;
-						docFile.setDocPath(path) ;
-						boolean fileHasDocs = false ;
-						for(ISVDBChildItem child: ppFile.getChildren()) {
-							if(child instanceof SVDBDocComment) {
-								List<DocTopic> docTopics = new ArrayList<DocTopic>() ; 
-								SVDBDocComment docCom = (SVDBDocComment)child ;
-								fLog.debug(ILogLevel.LEVEL_MID,
-										String.format("| [%s] +------------------------------------------------------------------------------------",
-												shortFileName)) ;
-								fLog.debug(ILogLevel.LEVEL_MID,
-										String.format("| [%s] | Parsing comment: %s",
-												shortFileName,
-												docCom.getName())) ;
-								fLog.debug(ILogLevel.LEVEL_MID,
-										String.format("| [%s] | +------------------------------------------------------------------------------------",
-												shortFileName)) ;
-								fLog.debug(ILogLevel.LEVEL_MID,
-										String.format("| [%s] | | Body:",
-												shortFileName)) ;
-								fLog.debug(ILogLevel.LEVEL_MID,
-										String.format("| [%s] | +------------------------------------------------------------------------------------",
-												shortFileName)) ;
-								String lines[] = DocCommentCleaner.splitCommentIntoLines(docCom.getRawComment()) ;
-								int lin_num=0 ;
-								for(String line: lines) {
-									fLog.debug(ILogLevel.LEVEL_MID,
-										String.format("| [%s] | | [%03d]: %s",
-												shortFileName,
-												lin_num,
-												line)) ;
-									lin_num++ ;
-								}
-								fLog.debug(ILogLevel.LEVEL_MID,
-										String.format("| [%s] | +------------------------------------------------------------------------------------",
-												shortFileName)) ;
-								docCommentParser.parse(docCom.getRawComment(),docTopics) ;
-								for(DocTopic topic: docTopics) {
-									IDocTopicManager topicMgr = model.getDocTopics() ;
-									DocKeywordInfo kwi = topicMgr.getTopicType(topic.getKeyword()) ;
-									// FIXME: check kwi != null
-									fLog.debug(ILogLevel.LEVEL_MID,
-											String.format("| [%s] |    Found topic: %s",
-													shortFileName,
-													topic.getTitle())) ;
-									fLog.debug(ILogLevel.LEVEL_MID,
-											String.format("| [%s] |      	summary: %s",
-													shortFileName,
-													topic.getSummary())) ;
-									fileHasDocs = true ;
-									switch(kwi.getTopicType().getScopeType()) {
-										case START:
-											docFile.addChild(topic) ;
-											parent = topic ;
-											break ;
-										case NORMAL:
-											parent.addChild(topic) ;
-											break ;
-										case END:
-											parent = docFile ;
-											parent.addChild(topic) ;
-											break ;
-										default:
-											break ;
-									}
-								}
-								fLog.debug(ILogLevel.LEVEL_MID,
-										String.format("| [%s] +------------------------------------------------------------------------------------",
-												shortFileName)) ;
-							}
-						}						
-						fLog.debug(ILogLevel.LEVEL_MID,"+-------------------------------------------------------------------------------") ;
-						fLog.debug(ILogLevel.LEVEL_MID,"| Exiting file(" + file + ")") ;
-						fLog.debug(ILogLevel.LEVEL_MID,"+-------------------------------------------------------------------------------") ;
-						if(fileHasDocs) {
-							model.addDocFile(docFile) ;
-						}
+						sources.add(new DocFileSource(file, ppFile, 
+								index.getCache().getLastModified(file))) ;
+					}
+				}
+			}
+		}
+		
+		// Parsing the doc comments of each file is independent, so
+		// spread the work across threads when there is enough of it.
+		// Want each thread to work on at least 16 files
+		int num_threads = Math.min(cfg.getMaxThreads(), sources.size()/16) ;
+		if(num_threads <= 1) {
+			gatherDocTopicsJob(model, sources, docCommentParser) ;
+		} else {
+			Thread threads[] = new Thread[num_threads] ;
+			for(int i=0; i<threads.length; i++) {
+				threads[i] = new Thread(new Runnable() {
+					public void run() {
+						// DocCommentParser instances are not shared between threads
+						gatherDocTopicsJob(model, sources, 
+								new DocCommentParser(model.getDocTopics())) ;
+					}
+				}, "docgen_parse_" + i) ;
+				threads[i].start() ;
+			}
+			join_threads(threads) ;
+		}
+	}
+	
+	private void gatherDocTopicsJob(DocModel model, List<DocFileSource> sources, IDocCommentParser docCommentParser) {
+		while(true) {
+			DocFileSource src = null ;
+			synchronized(sources) {
+				if(sources.size() > 0) {
+					src = sources.remove(0) ;
+				}
+			}
+			if(src == null) {
+				break ;
+			}
+			DocFile docFile = buildDocFile(model, src.fFile, src.fPPFile, docCommentParser) ;
+			if(docFile != null) {
+				docFile.setSrcTimestamp(src.fTimestamp) ;
+				synchronized(model) {
+					model.addDocFile(docFile) ;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Parses the doc comments of a single pre-processor file
+	 * 
+	 * @return DocFile holding the file's DocTopics, or null if the file contains no docs
+	 */
+	private DocFile buildDocFile(DocModel model, String file, SVDBFile ppFile, IDocCommentParser docCommentParser) {
+		DocTopic parent = null ;
+		fLog.debug(ILogLevel.LEVEL_MID,"+-------------------------------------------------------------------------------") ;
+		fLog.debug(ILogLevel.LEVEL_MID,"| Entering file(" + file + ")") ;
+		fLog.debug(ILogLevel.LEVEL_MID,"+-------------------------------------------------------------------------------") ;
+		String path = file ;
+		String shortFileName = new File(path).getName() ;
+		if (path.startsWith("${workspace_loc}")) {
+			path = path.substring("${workspace_loc}".length()) ;
+		}
+		DocFile docFile = new DocFile(file) ;
+		parent = docFile ;
+		docFile.setDocPath(path) ;
+		boolean fileHasDocs = false ;
+		for(ISVDBChildItem child: ppFile.getChildren()) {
+			if(child instanceof SVDBDocComment) {
+				List<DocTopic> docTopics = new ArrayList<DocTopic>() ; 
+				SVDBDocComment docCom = (SVDBDocComment)child ;
+				fLog.debug(ILogLevel.LEVEL_MID,
+						String.format("| [%s] +------------------------------------------------------------------------------------",
+								shortFileName)) ;
+				fLog.debug(ILogLevel.LEVEL_MID,
+						String.format("| [%s] | Parsing comment: %s",
+								shortFileName,
+								docCom.getName())) ;
+				fLog.debug(ILogLevel.LEVEL_MID,
+						String.format("| [%s] | +------------------------------------------------------------------------------------",
+								shortFileName)) ;
+				fLog.debug(ILogLevel.LEVEL_MID,
+						String.format("| [%s] | | Body:",
+								shortFileName)) ;
+				fLog.debug(ILogLevel.LEVEL_MID,
+						String.format("| [%s] | +------------------------------------------------------------------------------------",
+								shortFileName)) ;
+				String lines[] = DocCommentCleaner.splitCommentIntoLines(docCom.getRawComment()) ;
+				int lin_num=0 ;
+				for(String line: lines) {
+					fLog.debug(ILogLevel.LEVEL_MID,
+						String.format("| [%s] | | [%03d]: %s",
+								shortFileName,
+								lin_num,
+								line)) ;
+					lin_num++ ;
+				}
+				fLog.debug(ILogLevel.LEVEL_MID,
+						String.format("| [%s] | +------------------------------------------------------------------------------------",
+								shortFileName)) ;
+				docCommentParser.parse(docCom.getRawComment(),docTopics) ;
+				for(DocTopic topic: docTopics) {
+					IDocTopicManager topicMgr = model.getDocTopics() ;
+					DocKeywordInfo kwi = topicMgr.getTopicType(topic.getKeyword()) ;
+					// FIXME: check kwi != null
+					fLog.debug(ILogLevel.LEVEL_MID,
+							String.format("| [%s] |    Found topic: %s",
+									shortFileName,
+									topic.getTitle())) ;
+					fLog.debug(ILogLevel.LEVEL_MID,
+							String.format("| [%s] |      	summary: %s",
+									shortFileName,
+									topic.getSummary())) ;
+					fileHasDocs = true ;
+					switch(kwi.getTopicType().getScopeType()) {
+						case START:
+							docFile.addChild(topic) ;
+							parent = topic ;
+							break ;
+						case NORMAL:
+							parent.addChild(topic) ;
+							break ;
+						case END:
+							parent = docFile ;
+							parent.addChild(topic) ;
+							break ;
+						default:
+							break ;
 					}
 				}
+				fLog.debug(ILogLevel.LEVEL_MID,
+						String.format("| [%s] +------------------------------------------------------------------------------------",
+								shortFileName)) ;
 			}
+		}						
+		fLog.debug(ILogLevel.LEVEL_MID,"+-------------------------------------------------------------------------------") ;
+		fLog.debug(ILogLevel.LEVEL_MID,"| Exiting file(" + file + ")") ;
+		fLog.debug(ILogLevel.LEVEL_MID,"+-------------------------------------------------------------------------------") ;
+		if(fileHasDocs) {
+			return docFile ;
+		} else {
+			return null ;
+		}
+	}
+	
+	private static void join_threads(Thread threads[]) {
+		for(int i=0; i<threads.length; i++) {
+			if(threads[i].isAlive()) {
+				try {
+					threads[i].join() ;
+				} catch (InterruptedException e) {}
+			}
+		}
+	}
+	
+	private static class DocFileSource {
+		String					fFile ;
+		SVDBFile				fPPFile ;
+		long					fTimestamp ;
+		
+		public DocFileSource(String file, SVDBFile ppFile, long timestamp) {
+			fFile = file ;
+			fPPFile = ppFile ;
+			fTimestamp = timestamp ;
 		}
 	}
 
@@ -122,10 +122,10 @@ public class SVContentAssistExprVisitor implements ILogLevel {
 				if ((idx = name.indexOf("::")) != -1) {
 					String class_name = name.substring(0, idx);
 					fLog.debug("class_name: " + class_name);
-					List<SVDBClassDecl> result = fFindNamedClass.find(class_name);
+					SVDBClassDecl cls = fFindNamedClass.findFirst(class_name);
 					
-					if (result.size() > 0) {
-						fClassScope = result.get(0);
+					if (cls != null) {
+						fClassScope = cls;
 					}
 				}
 			}
@@ -617,10 +617,10 @@ public class SVContentAssistExprVisitor implements ILogLevel {
 		}
 		
 		// Perform global search
-		List<SVDBClassDecl> cls_l = fFindNamedClass.find(id);
+		SVDBClassDecl cls = fFindNamedClass.findFirst(id);
 		
-		if (cls_l.size() > 0) {
-			return cls_l.get(0);
+		if (cls != null) {
+			return cls;
 		}
 		
 		SVDBFindByName name_finder = new SVDBFindByName(fIndexIt);
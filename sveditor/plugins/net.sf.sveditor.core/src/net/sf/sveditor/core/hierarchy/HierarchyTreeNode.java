@@ -89,5 +89,9 @@ public class HierarchyTreeNode {
 	public void setItemDecl(SVDBItem cls) {
 		fItemDecl = cls;
 	}
+	
+	public void setItemType(ISVDBItemBase type) {
+		fItemType = type;
+	}
 
 }
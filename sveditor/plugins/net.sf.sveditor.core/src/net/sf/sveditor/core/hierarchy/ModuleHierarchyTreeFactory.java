@@ -12,68 +12,111 @@
 
 package net.sf.sveditor.core.hierarchy;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import net.sf.sveditor.core.Tuple;
+import net.sf.sveditor.core.db.ISVDBChildItem;
 import net.sf.sveditor.core.db.ISVDBItemBase;
-import net.sf.sveditor.core.db.ISVDBNamedItem;
-import net.sf.sveditor.core.db.SVDBItem;
 import net.sf.sveditor.core.db.SVDBItemType;
 import net.sf.sveditor.core.db.SVDBModIfcDecl;
 import net.sf.sveditor.core.db.SVDBModIfcInst;
 import net.sf.sveditor.core.db.SVDBModIfcInstItem;
 import net.sf.sveditor.core.db.index.ISVDBIndexIterator;
+import net.sf.sveditor.core.db.index.SVDBModInstCacheEntry;
 import net.sf.sveditor.core.db.search.SVDBFindByName;
 import net.sf.sveditor.core.log.LogFactory;
 import net.sf.sveditor.core.log.LogHandle;
 
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+/**
+ * Builds a module instance tree. The tree is expanded lazily: the 
+ * instances within a module are obtained from the index's module-instance
+ * graph when a node's children are first requested, and module 
+ * declarations are only resolved for nodes that are expanded or inspected.
+ */
 public class ModuleHierarchyTreeFactory {
 	private ISVDBIndexIterator				fIndexIt;
 	private SVDBFindByName					fFinder;
+	private Map<String, SVDBModIfcDecl>		fModuleCache;
 	private LogHandle						fLog;
 	
 	public ModuleHierarchyTreeFactory(ISVDBIndexIterator index_it) {
 		fIndexIt = index_it;
 		fFinder = new SVDBFindByName(fIndexIt);
+		fModuleCache = new HashMap<String, SVDBModIfcDecl>();
 		fLog = LogFactory.getLogHandle("ModuleHierarchyTreeFactory");
 	}
 	
 	public HierarchyTreeNode build(SVDBModIfcDecl mod) {
-		return build_s(null, mod, null);
+		// Root of the tree
+		fModuleCache.put(mod.getName(), mod);
+		return new ModuleHierarchyTreeNode(this, null, mod.getName(), mod, mod.getName());
 	}
 	
-	private HierarchyTreeNode build_s(HierarchyTreeNode parent, SVDBModIfcDecl mod, SVDBModIfcInstItem inst_item) {
-		HierarchyTreeNode ret;
-		if (inst_item != null) {
-			// Instance in the tree
-			ret = new HierarchyTreeNode(parent, inst_item.getName(), inst_item, mod);
+	/**
+	 * Resolves the declaration of the named module or interface. 
+	 * Results are cached for the lifetime of this factory
+	 */
+	SVDBModIfcDecl findModule(String name) {
+		if (fModuleCache.containsKey(name)) {
+			return fModuleCache.get(name);
+		}
+		
+		SVDBModIfcDecl ret = null;
+		List<ISVDBItemBase> it_l = fFinder.find(name, 
+				SVDBItemType.ModuleDecl, SVDBItemType.InterfaceDecl);
+		
+		if (it_l.size() > 0) {
+			ret = (SVDBModIfcDecl)it_l.get(0);
 		} else {
-			// Root of the tree
-			ret = new HierarchyTreeNode(parent, mod.getName(), mod);
+			// ERROR: Unknown module
+			fLog.error("Unknown module type " + name);
 		}
+		fModuleCache.put(name, ret);
 		
-		for (ISVDBItemBase it : mod.getChildren()) {
-			if (it.getType() == SVDBItemType.ModIfcInst) {
-				SVDBModIfcInst inst = (SVDBModIfcInst)it;
-				if (inst.getTypeInfo() == null) {
-					fLog.error("module instance \"" + inst.getName() + "\" has null type");
-				}
-				List<ISVDBItemBase> it_l = fFinder.find(inst.getTypeInfo().getName(), 
-						SVDBItemType.ModuleDecl, SVDBItemType.InterfaceDecl);
-			
-				for (SVDBModIfcInstItem inst_i : inst.getInstList()) {
-					if (it_l.size() > 0) {
-						HierarchyTreeNode n = build_s(ret, (SVDBModIfcDecl)it_l.get(0), inst_i);
-						n.setItemDecl(inst_i);
-						ret.addChild(n);
-					} else if (it instanceof ISVDBNamedItem) {
-						// ERROR: Unknown module
-						fLog.error("Unknown module type" + SVDBItem.getName(it));
-						ret.addChild(new HierarchyTreeNode(ret, ((ISVDBNamedItem)it).getName()));
+		return ret;
+	}
+	
+	/**
+	 * Creates the child nodes of the specified node
+	 */
+	List<HierarchyTreeNode> expand(ModuleHierarchyTreeNode node) {
+		List<HierarchyTreeNode> ret = new ArrayList<HierarchyTreeNode>();
+		SVDBModIfcDecl mod = node.getModuleDecl();
+
+		// Prefer the index's instance graph, falling back to the declaration
+		List<Tuple<String, String>> insts = fIndexIt.findModuleInstances(
+				new NullProgressMonitor(), node.getTypeName());
+		
+		if (insts == null) {
+			if (mod == null) {
+				return ret;
+			}
+			insts = new ArrayList<Tuple<String,String>>();
+			SVDBModInstCacheEntry.collectInstances(insts, mod);
+		}
+		
+		// Locate the instance declarations within the module
+		Map<String, SVDBModIfcInstItem> inst_items = new HashMap<String, SVDBModIfcInstItem>();
+		if (mod != null) {
+			for (ISVDBChildItem it : mod.getChildren()) {
+				if (it.getType() == SVDBItemType.ModIfcInst) {
+					for (SVDBModIfcInstItem inst_i : ((SVDBModIfcInst)it).getInstList()) {
+						inst_items.put(inst_i.getName(), inst_i);
 					}
 				}
 			}
 		}
 		
+		for (Tuple<String, String> inst : insts) {
+			ret.add(new ModuleHierarchyTreeNode(this, node, 
+					inst.first(), inst_items.get(inst.first()), inst.second()));
+		}
+		
 		return ret;
 	}
 
@@ -0,0 +1,76 @@
+/****************************************************************************
+ * Copyright (c) 2008-2010 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.hierarchy;
+
+import java.util.List;
+
+import net.sf.sveditor.core.db.ISVDBItemBase;
+import net.sf.sveditor.core.db.SVDBItem;
+import net.sf.sveditor.core.db.SVDBModIfcDecl;
+
+/**
+ * Module hierarchy node whose children and type are resolved on first use
+ */
+class ModuleHierarchyTreeNode extends HierarchyTreeNode {
+	private ModuleHierarchyTreeFactory		fFactory;
+	private String							fTypeName;
+	private boolean							fTypeResolved;
+	private boolean							fExpanded;
+	
+	public ModuleHierarchyTreeNode(
+			ModuleHierarchyTreeFactory	factory,
+			HierarchyTreeNode			parent,
+			String						name,
+			SVDBItem					item,
+			String						type_name) {
+		super(parent, name, item);
+		fFactory = factory;
+		fTypeName = type_name;
+		// The root node has no type. Its declaration is the module itself
+		fTypeResolved = (parent == null);
+	}
+	
+	public String getTypeName() {
+		return fTypeName;
+	}
+	
+	public SVDBModIfcDecl getModuleDecl() {
+		if (getParent() == null) {
+			return (SVDBModIfcDecl)getItemDecl();
+		} else {
+			return (SVDBModIfcDecl)getItemType();
+		}
+	}
+
+	@Override
+	public ISVDBItemBase getItemType() {
+		if (!fTypeResolved) {
+			fTypeResolved = true;
+			setItemType(fFactory.findModule(fTypeName));
+		}
+		return super.getItemType();
+	}
+
+	@Override
+	public List<HierarchyTreeNode> getChildren() {
+		List<HierarchyTreeNode> children = super.getChildren();
+		
+		if (!fExpanded) {
+			fExpanded = true;
+			children.addAll(fFactory.expand(this));
+		}
+		
+		return children;
+	}
+
+}
@@ -0,0 +1,182 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.highlight;
+
+/**
+ * Table of highlighted ranges, ordered by offset. Each range is held as
+ * three consecutive entries (offset, length, kind) of a single int array,
+ * so large files do not require an object per range.
+ */
+public class SVHighlightTable {
+	private static final int		ENTRY_SIZE = 3;
+
+	private int						fData[];
+	private int						fSize;
+
+	public SVHighlightTable() {
+		fData = new int[ENTRY_SIZE*64];
+	}
+
+	/**
+	 * Appends a range. Ranges must be added in order of offset, and
+	 * must not overlap
+	 */
+	public void add(int offset, int length, int kind) {
+		if (ENTRY_SIZE*(fSize+1) > fData.length) {
+			int tmp[] = new int[fData.length*2];
+			System.arraycopy(fData, 0, tmp, 0, ENTRY_SIZE*fSize);
+			fData = tmp;
+		}
+		int idx = ENTRY_SIZE*fSize;
+		fData[idx]   = offset;
+		fData[idx+1] = length;
+		fData[idx+2] = kind;
+		fSize++;
+	}
+
+	public int size() {
+		return fSize;
+	}
+
+	public int getOffset(int i) {
+		return fData[ENTRY_SIZE*i];
+	}
+
+	public int getLength(int i) {
+		return fData[ENTRY_SIZE*i+1];
+	}
+
+	public int getKind(int i) {
+		return fData[ENTRY_SIZE*i+2];
+	}
+
+	/**
+	 * Returns the index of the first range that ends after 'offset',
+	 * or size() if there is none
+	 */
+	public int find(int offset) {
+		int lo = 0, hi = fSize;
+
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (getOffset(mid) + getLength(mid) <= offset) {
+				lo = mid+1;
+			} else {
+				hi = mid;
+			}
+		}
+
+		return lo;
+	}
+
+	/**
+	 * Updates the table for a change to the document. Ranges after the
+	 * change are moved, while ranges touched by the change are dropped
+	 * until the highlighting is next computed
+	 *
+	 * @param offset   offset of the change
+	 * @param removed  number of characters replaced
+	 * @param inserted number of characters inserted
+	 */
+	public void documentChanged(int offset, int removed, int inserted) {
+		int delta = inserted - removed;
+		int end = offset + removed;
+		int w = 0;
+
+		for (int r=0; r<fSize; r++) {
+			int r_off = fData[ENTRY_SIZE*r];
+			int r_len = fData[ENTRY_SIZE*r+1];
+
+			if (r_off + r_len < offset) {
+				// before the change
+			} else if (r_off > end) {
+				r_off += delta;
+			} else {
+				continue;
+			}
+
+			fData[ENTRY_SIZE*w]   = r_off;
+			fData[ENTRY_SIZE*w+1] = r_len;
+			fData[ENTRY_SIZE*w+2] = fData[ENTRY_SIZE*r+2];
+			w++;
+		}
+
+		fSize = w;
+	}
+
+	/**
+	 * Returns the document regions whose highlighting differs between
+	 * this table and 'other'. Regions are returned as (start, end) pairs
+	 * in order of offset. Adjacent and overlapping regions are merged.
+	 *
+	 * @param max maximum number of regions. If more regions differ,
+	 *            a single region spanning all of them is returned
+	 */
+	public int[] getChangedRegions(SVHighlightTable other, int max) {
+		int regions[] = new int[16];
+		int n_regions = 0;
+		int i = 0, j = 0;
+
+		while (i < fSize || j < other.fSize) {
+			int start, end;
+
+			if (i < fSize && j < other.fSize &&
+					getOffset(i) == other.getOffset(j) &&
+					getLength(i) == other.getLength(j) &&
+					getKind(i) == other.getKind(j)) {
+				i++;
+				j++;
+				continue;
+			}
+
+			if (j >= other.fSize || (i < fSize && getOffset(i) < other.getOffset(j))) {
+				start = getOffset(i);
+				end = start + getLength(i);
+				i++;
+			} else if (i >= fSize || other.getOffset(j) < getOffset(i)) {
+				start = other.getOffset(j);
+				end = start + other.getLength(j);
+				j++;
+			} else {
+				// Same offset, different length or kind
+				start = getOffset(i);
+				end = start + Math.max(getLength(i), other.getLength(j));
+				i++;
+				j++;
+			}
+
+			if (n_regions > 0 && start <= regions[2*n_regions-1]) {
+				regions[2*n_regions-1] = Math.max(end, regions[2*n_regions-1]);
+			} else {
+				if (2*(n_regions+1) > regions.length) {
+					int tmp[] = new int[regions.length*2];
+					System.arraycopy(regions, 0, tmp, 0, 2*n_regions);
+					regions = tmp;
+				}
+				regions[2*n_regions]   = start;
+				regions[2*n_regions+1] = end;
+				n_regions++;
+			}
+		}
+
+		if (n_regions > max) {
+			return new int[] {regions[0], regions[2*n_regions-1]};
+		}
+
+		int ret[] = new int[2*n_regions];
+		System.arraycopy(regions, 0, ret, 0, 2*n_regions);
+
+		return ret;
+	}
+
+}
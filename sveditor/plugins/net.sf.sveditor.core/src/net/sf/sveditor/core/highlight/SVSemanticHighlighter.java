@@ -0,0 +1,327 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.highlight;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.sveditor.core.db.ISVDBChildItem;
+import net.sf.sveditor.core.db.ISVDBChildParent;
+import net.sf.sveditor.core.db.ISVDBNamedItem;
+import net.sf.sveditor.core.db.ISVDBScopeItem;
+import net.sf.sveditor.core.db.SVDBFile;
+import net.sf.sveditor.core.db.SVDBItemType;
+import net.sf.sveditor.core.db.SVDBLocation;
+import net.sf.sveditor.core.db.SVDBTask;
+import net.sf.sveditor.core.db.index.ISVDBIndexIterator;
+import net.sf.sveditor.core.db.index.SVDBDeclCacheItem;
+import net.sf.sveditor.core.db.search.SVDBFindDefaultNameMatcher;
+import net.sf.sveditor.core.db.stmt.SVDBParamPortDecl;
+import net.sf.sveditor.core.scanner.SVCharacter;
+import net.sf.sveditor.core.scanner.SVKeywords;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+/**
+ * Computes semantic highlighting for the content of a file. Identifiers
+ * are classified using the declarations of the parsed file: types
+ * (classes, typedefs, modules, interfaces, packages), tasks and functions,
+ * and variables and fields. An identifier is resolved in the innermost 
+ * scope that encloses it, then in the enclosing scopes. Types declared
+ * elsewhere in the file, then types found through the index iterator,
+ * are used for identifiers that no scope declares. Macro references
+ * are classified by their leading '`'. Keywords, comments and strings
+ * are left to the rule-based scanner.
+ */
+public class SVSemanticHighlighter {
+	public static final int						KIND_TYPE		= 1;
+	public static final int						KIND_FUNCTION	= 2;
+	public static final int						KIND_FIELD		= 3;
+	public static final int						KIND_MACRO		= 4;
+
+	private static final Set<String>			fDirectives;
+	private Scope								fRoot;
+	// Types declared anywhere in the file
+	private Map<String, Integer>				fTypeMap;
+	private ISVDBIndexIterator					fIndexIt;
+	// Results of index lookups. 0 records a name the index does not declare
+	private Map<String, Integer>				fIndexMap;
+
+	static {
+		fDirectives = new HashSet<String>();
+		for (String d : new String[] {"define", "undef", "undefineall",
+				"ifdef", "ifndef", "else", "elsif", "endif", "include",
+				"timescale", "resetall", "celldefine", "endcelldefine",
+				"default_nettype", "line", "pragma", "begin_keywords",
+				"end_keywords", "unconnected_drive", "nounconnected_drive",
+				"__FILE__", "__LINE__"}) {
+			fDirectives.add(d);
+		}
+	}
+
+	public SVSemanticHighlighter() {
+		fRoot = new Scope(null, 0, Integer.MAX_VALUE);
+		fTypeMap = new HashMap<String, Integer>();
+		fIndexMap = new HashMap<String, Integer>();
+	}
+
+	/**
+	 * Collects the declarations used to classify identifiers
+	 */
+	public void setFile(SVDBFile file) {
+		setFile(file, null);
+	}
+
+	/**
+	 * Collects the declarations used to classify identifiers. Types 
+	 * not declared in 'file' are looked up through 'index_it', if non-null
+	 */
+	public void setFile(SVDBFile file, ISVDBIndexIterator index_it) {
+		fRoot = new Scope(null, 0, Integer.MAX_VALUE);
+		fTypeMap.clear();
+		fIndexMap.clear();
+		fIndexIt = index_it;
+		if (file != null) {
+			collectNames(fRoot, file);
+		}
+	}
+
+	/**
+	 * Returns the highlighted ranges of 'content'
+	 */
+	public SVHighlightTable compute(CharSequence content) {
+		SVHighlightTable table = new SVHighlightTable();
+		int len = content.length();
+		int i = 0;
+		int lineno = 1;
+		Scope scope = fRoot.find(lineno);
+
+		while (i < len) {
+			char c = content.charAt(i);
+
+			if (c == '\n') {
+				scope = fRoot.find(++lineno);
+				i++;
+			} else if (c == '/' && i+1 < len && content.charAt(i+1) == '/') {
+				while (i < len && content.charAt(i) != '\n') {
+					i++;
+				}
+			} else if (c == '/' && i+1 < len && content.charAt(i+1) == '*') {
+				i += 2;
+				while (i < len && !(content.charAt(i) == '*' &&
+						i+1 < len && content.charAt(i+1) == '/')) {
+					if (content.charAt(i) == '\n') {
+						lineno++;
+					}
+					i++;
+				}
+				i += 2;
+				scope = fRoot.find(lineno);
+			} else if (c == '"') {
+				i++;
+				while (i < len && content.charAt(i) != '"' && content.charAt(i) != '\n') {
+					if (content.charAt(i) == '\\') {
+						i++;
+					}
+					i++;
+				}
+				if (i < len && content.charAt(i) == '"') {
+					i++;
+				}
+			} else if (c == '\\') {
+				// Escaped identifier
+				while (i < len && !Character.isWhitespace(content.charAt(i))) {
+					i++;
+				}
+			} else if (c == '`') {
+				int start = ++i;
+				while (i < len && SVCharacter.isSVIdentifierPart(content.charAt(i))) {
+					i++;
+				}
+				if (i > start && !fDirectives.contains(
+						content.subSequence(start, i).toString())) {
+					table.add(start-1, i-start+1, KIND_MACRO);
+				}
+			} else if (c == '\'' || Character.isDigit(c)) {
+				// Skip number bases and values (eg 8'hFF) and time literals
+				i++;
+				while (i < len && SVCharacter.isSVIdentifierPart(content.charAt(i))) {
+					i++;
+				}
+			} else if (SVCharacter.isSVIdentifierStart(c)) {
+				int start = i++;
+				while (i < len && SVCharacter.isSVIdentifierPart(content.charAt(i))) {
+					i++;
+				}
+				int kind = resolve(scope, content.subSequence(start, i).toString());
+				if (kind != 0) {
+					table.add(start, i-start, kind);
+				}
+			} else {
+				i++;
+			}
+		}
+
+		return table;
+	}
+
+	private int resolve(Scope scope, String name) {
+		for (Scope s=scope; s != null; s=s.fParent) {
+			Integer kind = s.fNames.get(name);
+			if (kind != null) {
+				return kind.intValue();
+			}
+		}
+
+		Integer kind = fTypeMap.get(name);
+		if (kind != null) {
+			return kind.intValue();
+		}
+
+		if (fIndexIt == null || SVKeywords.isSVKeyword(name) || 
+				SVKeywords.isBuiltInType(name)) {
+			return 0;
+		}
+
+		kind = fIndexMap.get(name);
+		if (kind == null) {
+			kind = 0;
+			List<SVDBDeclCacheItem> found = fIndexIt.findGlobalScopeDecl(
+					new NullProgressMonitor(), name, SVDBFindDefaultNameMatcher.getDefault());
+			for (SVDBDeclCacheItem ci : found) {
+				if (getKind(ci.getType()) == KIND_TYPE) {
+					kind = KIND_TYPE;
+					break;
+				}
+			}
+			fIndexMap.put(name, kind);
+		}
+
+		return kind.intValue();
+	}
+
+	private void collectNames(Scope scope, ISVDBChildParent parent) {
+		for (ISVDBChildItem it : parent.getChildren()) {
+			int kind = getKind(it.getType());
+
+			if (kind != 0 && it instanceof ISVDBNamedItem) {
+				String name = ((ISVDBNamedItem)it).getName();
+				if (name != null) {
+					scope.add(name, kind);
+					if (kind == KIND_TYPE) {
+						add(fTypeMap, name, kind);
+					}
+				}
+			}
+
+			if (it instanceof ISVDBScopeItem && it.getLocation() != null) {
+				ISVDBScopeItem si = (ISVDBScopeItem)it;
+				SVDBLocation end = si.getEndLocation();
+				Scope sub = scope.addScope(it.getLocation().getLine(),
+						(end != null)?end.getLine():scope.fEnd);
+
+				if (it instanceof SVDBTask && ((SVDBTask)it).getParams() != null) {
+					for (SVDBParamPortDecl p : ((SVDBTask)it).getParams()) {
+						collectNames(sub, p);
+					}
+				}
+				collectNames(sub, si);
+			} else if (it instanceof ISVDBChildParent) {
+				// Declarations of statements, such as variable declarations,
+				// belong to the enclosing scope
+				collectNames(scope, (ISVDBChildParent)it);
+			}
+		}
+	}
+
+	/**
+	 * Types take precedence over functions, and functions over fields
+	 */
+	private static void add(Map<String, Integer> map, String name, int kind) {
+		Integer kind_t = map.get(name);
+
+		if (kind_t == null || kind < kind_t.intValue()) {
+			map.put(name, kind);
+		}
+	}
+
+	/**
+	 * Declarations of a scope. A scope covers the lines from its 
+	 * start to its end, and its sub-scopes are ordered by start line
+	 */
+	private static class Scope {
+		Scope							fParent;
+		int								fStart;
+		int								fEnd;
+		Map<String, Integer>			fNames;
+		List<Scope>						fScopes;
+
+		Scope(Scope parent, int start, int end) {
+			fParent = parent;
+			fStart = start;
+			fEnd = end;
+			fNames = new HashMap<String, Integer>();
+			fScopes = new ArrayList<Scope>();
+		}
+
+		void add(String name, int kind) {
+			SVSemanticHighlighter.add(fNames, name, kind);
+		}
+
+		Scope addScope(int start, int end) {
+			Scope s = new Scope(this, start, end);
+			fScopes.add(s);
+			return s;
+		}
+
+		/**
+		 * Returns the innermost scope containing 'lineno'
+		 */
+		Scope find(int lineno) {
+			for (Scope s : fScopes) {
+				if (lineno >= s.fStart && lineno <= s.fEnd) {
+					return s.find(lineno);
+				}
+			}
+			return this;
+		}
+	}
+
+	private static int getKind(SVDBItemType type) {
+		switch (type) {
+			case ClassDecl:
+			case TypedefStmt:
+			case ModuleDecl:
+			case InterfaceDecl:
+			case ProgramDecl:
+			case PackageDecl:
+			case Covergroup:
+				return KIND_TYPE;
+
+			case Function:
+			case Task:
+				return KIND_FUNCTION;
+
+			case VarDeclItem:
+				return KIND_FIELD;
+
+			default:
+				return 0;
+		}
+	}
+
+}
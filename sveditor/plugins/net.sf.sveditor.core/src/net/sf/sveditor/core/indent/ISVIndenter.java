@@ -18,8 +18,27 @@ public interface ISVIndenter {
 	
 	void init(ISVIndentScanner scanner);
 	
+	/**
+	 * Initializes the indenter to resume from a checkpoint recorded by
+	 * an earlier indent operation. The scanner must start at the 
+	 * beginning of the checkpoint line
+	 */
+	void init(ISVIndentScanner scanner, SVIndentCheckpoint cp);
+	
+	/**
+	 * Records checkpoints in 'cache' for lines that start before 'limit'.
+	 * Content at and beyond 'limit' may differ from the document the 
+	 * checkpoints will later be used with
+	 */
+	void setCheckpointCache(SVIndentCheckpointCache cache, int limit);
+	
 	String indent();
 	
+	/**
+	 * Indents the content, returning the lines from 'start' to 'end'.
+	 * Scanning stops after line 'end', so only the indent of lines up 
+	 * to 'end' is available from getLineIndent()
+	 */
 	String indent(int start, int end);
 	
 	String getLineIndent(int lineno);
@@ -0,0 +1,563 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.indent;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Stack;
+
+import net.sf.sveditor.core.SVCorePlugin;
+import net.sf.sveditor.core.job_mgr.IJob;
+import net.sf.sveditor.core.job_mgr.IJobMgr;
+import net.sf.sveditor.core.log.LogFactory;
+import net.sf.sveditor.core.log.LogHandle;
+import net.sf.sveditor.core.scanutils.StringTextScanner;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Formats files outside the editor, running the indenter on the job
+ * manager. Files are formatted in parallel, and a large file is split
+ * ahead of the top-level modules, interfaces, programs, packages and
+ * classes it contains so that its chunks are also indented in parallel.
+ *
+ * The indenter returns to its initial state at the start of a top-level
+ * item, so a chunk indents the same way on its own as it does as part of
+ * the file. Chunks are indented in test mode. Should a chunk not close
+ * its scopes, the file is indented as a whole from the start of that
+ * chunk.
+ *
+ * Files are read and written with an explicit charset. The default,
+ * ISO-8859-1, maps each byte to a character, so that the bytes of other
+ * encodings are written back unchanged.
+ */
+public class SVBatchFormatter {
+	private static final Set<String>			fOpenKW;
+	// Maps each end keyword to the keyword that opens its scope
+	private static final Map<String, String>	fCloseKW;
+
+	private IJobMgr							fJobMgr;
+	private LogHandle						fLog;
+	private String							fIndentIncr = "\t";
+	private Charset							fCharset = Charset.forName("ISO-8859-1");
+	private int								fChunkLines = 1000;
+	private int								fMaxPendingFiles = 16;
+
+	private int								fPending;
+	private int								fComplete;
+	private List<File>						fFailed;
+
+	static {
+		fOpenKW = new HashSet<String>();
+		fOpenKW.add("module");
+		fOpenKW.add("macromodule");
+		fOpenKW.add("interface");
+		fOpenKW.add("program");
+		fOpenKW.add("package");
+		fOpenKW.add("class");
+		fOpenKW.add("config");
+		fOpenKW.add("primitive");
+		fOpenKW.add("checker");
+
+		fCloseKW = new HashMap<String, String>();
+		fCloseKW.put("endmodule", "module");
+		fCloseKW.put("endinterface", "interface");
+		fCloseKW.put("endprogram", "program");
+		fCloseKW.put("endpackage", "package");
+		fCloseKW.put("endclass", "class");
+		fCloseKW.put("endconfig", "config");
+		fCloseKW.put("endprimitive", "primitive");
+		fCloseKW.put("endchecker", "checker");
+	}
+
+	public SVBatchFormatter() {
+		this(SVCorePlugin.getJobMgr());
+	}
+
+	public SVBatchFormatter(IJobMgr job_mgr) {
+		fJobMgr = job_mgr;
+		fLog = LogFactory.getLogHandle("SVBatchFormatter");
+	}
+
+	public void setIndentIncr(String incr) {
+		fIndentIncr = incr;
+	}
+
+	/**
+	 * Sets the charset with which files are read and written
+	 */
+	public void setCharset(Charset charset) {
+		fCharset = charset;
+	}
+
+	/**
+	 * Sets the minimum number of lines in a chunk of a file
+	 */
+	public void setChunkLines(int lines) {
+		fChunkLines = lines;
+	}
+
+	/**
+	 * Indents 'content'. Chunks of the content are indented by jobs, so
+	 * this method must not be called from a job-manager job
+	 */
+	public String format(String content) {
+		FormatTask task = new FormatTask(null, null);
+		task.start(content);
+
+		synchronized (task) {
+			while (!task.fDone) {
+				try {
+					task.wait();
+				} catch (InterruptedException e) {
+					break;
+				}
+			}
+		}
+
+		return task.fResult;
+	}
+
+	/**
+	 * Indents each file in 'in' to the corresponding file in 'out', which
+	 * may be the input file itself. Returns the files that could not be
+	 * formatted. Must not be called from a job-manager job
+	 */
+	public List<File> format(
+			IProgressMonitor		monitor,
+			List<File>				in,
+			List<File>				out) {
+		int reported = 0;
+
+		monitor.beginTask("Format Files", in.size());
+
+		synchronized (this) {
+			fPending = 0;
+			fComplete = 0;
+			fFailed = new ArrayList<File>();
+		}
+
+		for (int i=0; i<in.size(); i++) {
+			synchronized (this) {
+				// Limit the number of files held in memory
+				while (fPending >= fMaxPendingFiles) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						break;
+					}
+				}
+				monitor.worked(fComplete-reported);
+				reported = fComplete;
+				fPending++;
+			}
+
+			if (monitor.isCanceled()) {
+				synchronized (this) {
+					fPending--;
+				}
+				break;
+			}
+
+			IJob job = fJobMgr.createJob();
+			job.init("Format " + in.get(i).getName(),
+					new FormatTask(in.get(i), out.get(i)));
+			// Complete the files already being formatted first
+			job.setPriority(10);
+			fJobMgr.queueJob(job);
+		}
+
+		synchronized (this) {
+			while (fPending > 0) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					break;
+				}
+			}
+		}
+		monitor.done();
+
+		return fFailed;
+	}
+
+	private synchronized void file_done(FormatTask task, boolean ok) {
+		if (!ok) {
+			fFailed.add(task.fIn);
+		}
+		fPending--;
+		fComplete++;
+		notifyAll();
+	}
+
+	/**
+	 * Returns the offsets at which 'content' may be split. The first
+	 * offset is always 0, and each chunk holds at least 'min_lines'
+	 * lines. A split is made at the start of a line that starts a
+	 * top-level item, outside comments, strings and macro definitions.
+	 * The scopes are tracked lexically, and an end keyword only closes
+	 * the scope opened by its own keyword. Should the scopes not balance,
+	 * for example due to conditional compilation, the content is not split.
+	 */
+	public static int[] split(String content, int min_lines) {
+		List<Integer> offsets = new ArrayList<Integer>();
+		Stack<String> scopes = new Stack<String>();
+		int len = content.length();
+		int paren = 0;
+		int lines = 0, line_start = 0;
+		boolean first_id = true;		// next token is the first on its line
+		boolean stmt_end = true;		// last token completes an item
+		boolean end_label = false;		// last token is ':' following an end keyword
+		boolean after_end = false;
+		boolean pending_ifc = false;
+		String prev_id = null;
+		int i = 0;
+
+		offsets.add(0);
+
+		while (i < len) {
+			int c = content.charAt(i);
+
+			if (c == '\n') {
+				i++;
+				lines++;
+				line_start = i;
+				first_id = true;
+			} else if (Character.isWhitespace(c)) {
+				i++;
+			} else if (c == '/' && i+1 < len && content.charAt(i+1) == '/') {
+				while (i < len && content.charAt(i) != '\n') {
+					i++;
+				}
+			} else if (c == '/' && i+1 < len && content.charAt(i+1) == '*') {
+				int end = content.indexOf("*/", i+2);
+				end = (end == -1)?len:end+2;
+				for (; i<end; i++) {
+					if (content.charAt(i) == '\n') {
+						lines++;
+						// A line starting inside the comment cannot be split
+						first_id = false;
+					}
+				}
+			} else if (c == '"') {
+				i++;
+				while (i < len && (c = content.charAt(i)) != '"' && c != '\n') {
+					if (c == '\\') {
+						i++;
+					}
+					i++;
+				}
+				if (i < len && c == '"') {
+					i++;
+				}
+				first_id = stmt_end = after_end = false;
+			} else if (c == '`') {
+				int start = i++;
+				while (i < len && Character.isJavaIdentifierPart(content.charAt(i))) {
+					i++;
+				}
+				if (content.substring(start, i).equals("`define")) {
+					// Skip the definition, including continued lines
+					while (i < len && (c = content.charAt(i)) != '\n') {
+						if (c == '\\' && i+1 < len && content.charAt(i+1) == '\r') {
+							i++;
+						}
+						if (c == '\\' && i+1 < len && content.charAt(i+1) == '\n') {
+							lines++;
+							i++;
+						}
+						i++;
+					}
+				}
+				// Directives and macro calls leave the item state unchanged
+				first_id = false;
+			} else if (Character.isLetter(c) || c == '_' || c == '$') {
+				int start = i++;
+				while (i < len && Character.isJavaIdentifierPart(content.charAt(i))) {
+					i++;
+				}
+				String id = content.substring(start, i);
+
+				if (first_id && stmt_end && scopes.empty() && paren == 0 &&
+						lines >= min_lines &&
+						(fOpenKW.contains(id) || id.equals("virtual"))) {
+					offsets.add(line_start);
+					lines = 0;
+				}
+
+				if (paren == 0) {
+					if (pending_ifc) {
+						// 'interface class' is closed by 'endclass'
+						pending_ifc = false;
+						if (!id.equals("class")) {
+							scopes.push("interface");
+						}
+					}
+					if (id.equals("interface")) {
+						pending_ifc = (prev_id == null || !prev_id.equals("virtual"));
+					} else if (fOpenKW.contains(id)) {
+						if (prev_id == null || !prev_id.equals("typedef")) {
+							scopes.push(id.equals("macromodule")?"module":id);
+						}
+					} else if (fCloseKW.containsKey(id) && !scopes.empty() &&
+							scopes.peek().equals(fCloseKW.get(id))) {
+						// A mismatched end keyword is ignored rather than
+						// closing the enclosing scope
+						scopes.pop();
+					}
+				}
+
+				if (id.startsWith("end")) {
+					stmt_end = after_end = true;
+				} else {
+					stmt_end = end_label;
+					after_end = false;
+				}
+				end_label = false;
+				first_id = false;
+				prev_id = id;
+			} else {
+				if (c == '(' || c == '{' || c == '[') {
+					paren++;
+				} else if ((c == ')' || c == '}' || c == ']') && paren > 0) {
+					paren--;
+				}
+
+				if (c == ';') {
+					stmt_end = true;
+					end_label = false;
+				} else {
+					end_label = (c == ':' && after_end);
+					stmt_end = end_label;
+				}
+				after_end = false;
+				if (c == '\\') {
+					// Escaped identifier
+					while (i < len && !Character.isWhitespace(content.charAt(i))) {
+						i++;
+					}
+				} else {
+					i++;
+				}
+				first_id = false;
+			}
+		}
+
+		if (pending_ifc || !scopes.empty()) {
+			return new int[] {0};
+		}
+
+		int ret[] = new int[offsets.size()];
+		for (int j=0; j<ret.length; j++) {
+			ret[j] = offsets.get(j);
+		}
+
+		return ret;
+	}
+
+	private String indent(String content, boolean test_mode) {
+		ISVIndenter indenter = SVCorePlugin.getDefault().createIndenter();
+
+		indenter.setIndentIncr(fIndentIncr);
+		indenter.setAdaptiveIndentEnd(-1);
+		indenter.setTestMode(test_mode);
+		indenter.init(new SVIndentScanner(new StringTextScanner(content)));
+
+		return indenter.indent();
+	}
+
+	private String read(File file) throws IOException {
+		StringBuilder sb = new StringBuilder((int)file.length());
+		Reader in = new InputStreamReader(new FileInputStream(file), fCharset);
+		char buf[] = new char[65536];
+		int len;
+
+		try {
+			while ((len = in.read(buf, 0, buf.length)) > 0) {
+				sb.append(buf, 0, len);
+			}
+		} finally {
+			in.close();
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Formats a file or a string. When run as a job, reads the input file
+	 * and queues a job for each of its chunks. The job that completes the
+	 * last chunk writes the output
+	 */
+	private class FormatTask implements Runnable {
+		private File				fIn;
+		private File				fOut;
+		private String				fContent;
+		private int					fOffsets[];
+		private String				fResults[];
+		private int					fRemaining;
+		private String				fResult;
+		private boolean				fDone;
+
+		public FormatTask(File in, File out) {
+			fIn = in;
+			fOut = out;
+		}
+
+		public void run() {
+			String content;
+			try {
+				content = read(fIn);
+			} catch (IOException e) {
+				fLog.error("Failed to read \"" + fIn.getPath() + "\"", e);
+				done(false);
+				return;
+			}
+			start(content);
+		}
+
+		public void start(String content) {
+			int offsets[] = split(content, fChunkLines);
+
+			fContent = content;
+			fOffsets = offsets;
+
+			if (offsets.length == 1) {
+				fResults = new String[] {indent(content, false)};
+				complete();
+				return;
+			}
+
+			fResults = new String[offsets.length];
+			fRemaining = offsets.length;
+
+			for (int i=0; i<offsets.length; i++) {
+				int end = (i+1 < offsets.length)?offsets[i+1]:content.length();
+				IJob job = fJobMgr.createJob();
+				job.init("Format Chunk", new ChunkTask(this, i,
+						content.substring(offsets[i], end)));
+				job.setPriority(5);
+				fJobMgr.queueJob(job);
+			}
+		}
+
+		public void chunk_done(int idx, String result) {
+			boolean last;
+
+			synchronized (this) {
+				fResults[idx] = result;
+				last = (--fRemaining == 0);
+			}
+
+			if (last) {
+				complete();
+			}
+		}
+
+		private void complete() {
+			for (int i=0; i<fResults.length; i++) {
+				if (fResults[i] == null) {
+					// The chunks before this one are complete, so the
+					// remainder of the content is indented as a whole
+					if (fIn != null) {
+						fLog.debug("Chunk " + i + " of \"" + fIn.getPath() +
+								"\" did not indent separately");
+					}
+					fResults[i] = indent(fContent.substring(fOffsets[i]), false);
+					for (int j=i+1; j<fResults.length; j++) {
+						fResults[j] = null;
+					}
+					break;
+				}
+			}
+			fContent = null;
+
+			if (fOut == null) {
+				StringBuilder sb = new StringBuilder();
+				for (String r : fResults) {
+					if (r != null) {
+						sb.append(r);
+					}
+				}
+				fResult = sb.toString();
+				done(true);
+			} else {
+				boolean ok = true;
+				try {
+					Writer out = new BufferedWriter(new OutputStreamWriter(
+							new FileOutputStream(fOut), fCharset));
+					try {
+						for (int i=0; i<fResults.length; i++) {
+							if (fResults[i] != null) {
+								out.write(fResults[i]);
+								fResults[i] = null;
+							}
+						}
+					} finally {
+						out.close();
+					}
+				} catch (IOException e) {
+					fLog.error("Failed to write \"" + fOut.getPath() + "\"", e);
+					ok = false;
+				}
+				done(ok);
+			}
+		}
+
+		private void done(boolean ok) {
+			synchronized (this) {
+				fDone = true;
+				notifyAll();
+			}
+			if (fIn != null) {
+				file_done(this, ok);
+			}
+		}
+	}
+
+	private class ChunkTask implements Runnable {
+		private FormatTask			fTask;
+		private int					fIdx;
+		private String				fContent;
+
+		public ChunkTask(FormatTask task, int idx, String content) {
+			fTask = task;
+			fIdx = idx;
+			fContent = content;
+		}
+
+		public void run() {
+			String result = null;
+			try {
+				result = indent(fContent, true);
+			} catch (RuntimeException e) {
+				// Chunk does not stand on its own
+			}
+			fTask.chunk_done(fIdx, result);
+		}
+	}
+
+}
@@ -57,6 +57,14 @@ public class SVDefaultIndenter2 implements ISVIndenter {
 	
 	private int								fAdaptiveIndentEnd;
 	private boolean							fTestMode;
+	
+	private int								fIndentEnd = -1;
+	private boolean							fStopped;
+	private List<String>					fScopes;
+	private SVIndentCheckpoint				fResume;
+	private SVIndentCheckpointCache			fCheckpoints;
+	private int								fCheckpointLimit;
+	private boolean							fCheckpointsValid = true;
 
 	
 	static private Map<String, Integer>		fQualifierMap;
@@ -91,6 +99,7 @@ public class SVDefaultIndenter2 implements ISVIndenter {
 	public SVDefaultIndenter2() {
 		fIndentStack = new Stack<Tuple<String,Boolean>>();
 		fTokenList = new ArrayList<SVIndentToken>();
+		fScopes = new ArrayList<String>();
 		fLog = LogFactory.getLogHandle("SVDefaultIndenter");
 	}
 	
@@ -122,6 +131,19 @@ public class SVDefaultIndenter2 implements ISVIndenter {
 		push_indent_stack("", true);
 	}
 	
+	public void init(ISVIndentScanner scanner, SVIndentCheckpoint cp) {
+		fScanner = scanner;
+		for (Tuple<String, Boolean> t : cp.getIndentStack()) {
+			push_indent_stack(t.first(), t.second());
+		}
+		fResume = cp;
+	}
+	
+	public void setCheckpointCache(SVIndentCheckpointCache cache, int limit) {
+		fCheckpoints = cache;
+		fCheckpointLimit = limit;
+	}
+	
 	public String indent() {
 		return indent(-1, -1);
 	}
@@ -131,13 +153,24 @@ public class SVDefaultIndenter2 implements ISVIndenter {
 		SVIndentToken 	tok;
 		
 		fNLeftParen = fNRightParen = 1;
+		fIndentEnd = end_line;
 		
 		while ((tok = next()) != null) {
 			
 			// Scan forward until the end of the token list or until we find
 			// a keyword
 			try {
+				if (fResume != null) {
+					// Re-enter the scopes that enclose the checkpoint
+					List<String> scopes = fResume.getScopes();
+					fResume = null;
+					if (scopes.size() > 0) {
+						tok = indent_ifc_module_class_body(scopes.get(0), scopes, 1);
+						fQualifiers = 0;
+					}
+				}
 				do {
+					checkpoint(tok);
 					if (tok.getType() == SVIndentTokenType.Identifier &&
 							fQualifierMap.containsKey(tok.getImage())) {
 						fQualifiers |= fQualifierMap.get(tok.getImage());
@@ -173,10 +206,13 @@ public class SVDefaultIndenter2 implements ISVIndenter {
 				if (fTestMode) {
 					throw e;
 				}
+				// The indent state is no longer reliable
+				fCheckpointsValid = false;
+				fScopes.clear();
 			}
 		}
 		
-		if (fTestMode) {
+		if (fTestMode && !fStopped) {
 			if (fIndentStack.size() != 1) {
 				throw new RuntimeException("IndentStack size is " + 
 						fIndentStack.size() + " rather than 1");
@@ -468,7 +504,6 @@ public class SVDefaultIndenter2 implements ISVIndenter {
 	private SVIndentToken indent_ifc_module_class(String item) {
 		SVIndentToken tok = current_s();
 		
-		String end = get_end_kw(item);
 		if (fDebugEn) {
 			debug("--> indent_ifc_module_class(" + item + ")");
 		}
@@ -492,8 +527,39 @@ public class SVDefaultIndenter2 implements ISVIndenter {
 		
 		fQualifiers = 0;
 		
+		return indent_ifc_module_class_body(item, null, 0);
+	}
+	
+	/**
+	 * indent_ifc_module_class_body()
+	 * 
+	 * Indents the body items of a class, module or interface, starting
+	 * with the current token
+	 * 
+	 * @param item
+	 * @param resume     scopes enclosing the checkpoint being resumed from,
+	 *                   or null when not resuming
+	 * @param resume_idx index in 'resume' of the scope nested in this one
+	 * @return
+	 */
+	private SVIndentToken indent_ifc_module_class_body(
+			String 			item,
+			List<String>	resume,
+			int				resume_idx) {
+		SVIndentToken tok = current_s();
+		String end = get_end_kw(item);
+		
+		fScopes.add(item);
+		
+		if (resume != null && resume_idx < resume.size()) {
+			tok = indent_ifc_module_class_body(resume.get(resume_idx), 
+					resume, resume_idx+1);
+			fQualifiers = 0;
+		}
+		
 		// Now, read body items
 		while (tok != null) {
+			checkpoint(tok);
 			
 			if (tok.isId(end)) {
 				break;
@@ -547,6 +613,8 @@ public class SVDefaultIndenter2 implements ISVIndenter {
 			}
 		}
 		
+		fScopes.remove(fScopes.size()-1);
+		
 		leave_scope(tok);
 
 		end_of_scope(tok); // restore scope previously set
@@ -1245,6 +1313,23 @@ public class SVDefaultIndenter2 implements ISVIndenter {
 		return tok;
 	}
 	
+	/**
+	 * Records the indent state before 'tok' if a checkpoint cache is 
+	 * set, and 'tok' starts a line before the checkpoint limit. Must only
+	 * be called between items, where the indent stack and the enclosing
+	 * scopes fully describe the state. The top-level loop steps through
+	 * the tokens of items it does not handle, such as the port connections
+	 * of a bind, so no checkpoint is taken inside parentheses
+	 */
+	private void checkpoint(SVIndentToken tok) {
+		if (fCheckpoints != null && fCheckpointsValid && fQualifiers == 0 &&
+				fNLeftParen == fNRightParen &&
+				tok.isStartLine() && tok.getPos() < fCheckpointLimit) {
+			fCheckpoints.add(new SVIndentCheckpoint(tok.getLineno(), tok.getPos(),
+					fIndentStack, fScopes, fIndentIncr, fAdaptiveIndentEnd));
+		}
+	}
+	
 	private boolean isAdaptiveTraining(SVIndentToken tok) {
 		return (fAdaptiveIndentEnd != -1 && tok.getLineno() <= fAdaptiveIndentEnd);
 	}
@@ -1252,7 +1337,7 @@ public class SVDefaultIndenter2 implements ISVIndenter {
 	private SVIndentToken next() {
 		SVIndentToken tok = null;
 		
-		while ((tok = fScanner.next()) != null &&
+		while ((tok = fScanner.next()) != null && !isPastEnd(tok) &&
 				(tok.getType() == SVIndentTokenType.BlankLine ||
 					tok.getType() == SVIndentTokenType.MultiLineComment ||
 					tok.getType() == SVIndentTokenType.SingleLineComment ||
@@ -1288,6 +1373,12 @@ public class SVDefaultIndenter2 implements ISVIndenter {
 			}
 		}
 		
+		if (tok != null && isPastEnd(tok)) {
+			// Nothing beyond the last line of interest can affect it
+			fStopped = true;
+			tok = null;
+		}
+		
 		if (tok != null) {
 			if (tok.isOp("(")) {
 				if (fNLeftParen == fNRightParen) {
@@ -1313,6 +1404,10 @@ public class SVDefaultIndenter2 implements ISVIndenter {
 		return tok;
 	}
 	
+	private boolean isPastEnd(SVIndentToken tok) {
+		return (fIndentEnd != -1 && tok.getLineno() > fIndentEnd);
+	}
+	
 	private SVIndentToken current() {
 		return fCurrent;
 	}
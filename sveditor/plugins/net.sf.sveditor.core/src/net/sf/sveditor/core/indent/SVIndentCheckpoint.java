@@ -0,0 +1,92 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.indent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.sveditor.core.Tuple;
+
+/**
+ * Snapshot of the indenter state at the start of a line. Checkpoints are
+ * only taken at the start of top-level items and of items in the body of
+ * a class, module, interface or program, outside parentheses, where the
+ * state of the indenter is fully described by the indent stack and the
+ * enclosing scopes.
+ */
+public class SVIndentCheckpoint {
+	private int								fLineno;
+	private int								fOffset;
+	private List<Tuple<String, Boolean>>	fIndentStack;
+	private List<String>					fScopes;
+	private String							fIndentIncr;
+	private int								fTrainedLines;
+
+	SVIndentCheckpoint(
+			int								lineno,
+			int								offset,
+			List<Tuple<String, Boolean>>	indent_stack,
+			List<String>					scopes,
+			String							indent_incr,
+			int								adaptive_indent_end) {
+		fLineno = lineno;
+		fOffset = offset;
+		fIndentStack = new ArrayList<Tuple<String,Boolean>>();
+		for (Tuple<String, Boolean> t : indent_stack) {
+			fIndentStack.add(new Tuple<String, Boolean>(t.first(), t.second()));
+		}
+		fScopes = new ArrayList<String>(scopes);
+		fIndentIncr = indent_incr;
+		fTrainedLines = getTrainedLines(lineno, adaptive_indent_end);
+	}
+
+	/**
+	 * Returns the line number (1-based) of the line the checkpoint precedes
+	 */
+	public int getLineno() {
+		return fLineno;
+	}
+
+	/**
+	 * Returns the offset of the start of the line
+	 */
+	public int getOffset() {
+		return fOffset;
+	}
+
+	List<Tuple<String, Boolean>> getIndentStack() {
+		return fIndentStack;
+	}
+
+	List<String> getScopes() {
+		return fScopes;
+	}
+
+	/**
+	 * Indicates whether an indent operation with the specified settings
+	 * would reach this line in the same state
+	 */
+	public boolean isCompatible(String indent_incr, int adaptive_indent_end) {
+		return (fIndentIncr.equals(indent_incr) &&
+				fTrainedLines == getTrainedLines(fLineno, adaptive_indent_end));
+	}
+
+	/**
+	 * Returns the number of lines up to and including 'lineno' whose
+	 * existing indent is sampled in adaptive-indent mode
+	 */
+	private static int getTrainedLines(int lineno, int adaptive_indent_end) {
+		return Math.max(0, Math.min(lineno, adaptive_indent_end));
+	}
+
+}
@@ -0,0 +1,101 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.indent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds the checkpoints recorded while indenting a document, ordered by
+ * offset. A checkpoint depends only on the content that precedes it, so
+ * a change to the document invalidates the checkpoints after the change.
+ */
+public class SVIndentCheckpointCache {
+	private List<SVIndentCheckpoint>		fCheckpoints;
+
+	public SVIndentCheckpointCache() {
+		fCheckpoints = new ArrayList<SVIndentCheckpoint>();
+	}
+
+	/**
+	 * Adds a checkpoint, replacing any checkpoint at the same offset
+	 */
+	public synchronized void add(SVIndentCheckpoint cp) {
+		int idx = find_idx(cp.getOffset());
+
+		if (idx < fCheckpoints.size() &&
+				fCheckpoints.get(idx).getOffset() == cp.getOffset()) {
+			fCheckpoints.set(idx, cp);
+		} else {
+			fCheckpoints.add(idx, cp);
+		}
+	}
+
+	/**
+	 * Returns the last checkpoint at or before 'offset' that is usable
+	 * with the specified indenter settings, or null if there is none
+	 */
+	public synchronized SVIndentCheckpoint find(
+			int 			offset,
+			String			indent_incr,
+			int				adaptive_indent_end) {
+		int idx = find_idx(offset+1);
+
+		while (--idx >= 0) {
+			SVIndentCheckpoint cp = fCheckpoints.get(idx);
+			if (cp.isCompatible(indent_incr, adaptive_indent_end)) {
+				return cp;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Removes checkpoints made invalid by a change at 'offset'
+	 */
+	public synchronized void invalidate(int offset) {
+		int idx = find_idx(offset+1);
+
+		while (fCheckpoints.size() > idx) {
+			fCheckpoints.remove(fCheckpoints.size()-1);
+		}
+	}
+
+	public synchronized void clear() {
+		fCheckpoints.clear();
+	}
+
+	public synchronized int size() {
+		return fCheckpoints.size();
+	}
+
+	/**
+	 * Returns the index of the first checkpoint at or after 'offset'
+	 */
+	private int find_idx(int offset) {
+		int lo = 0, hi = fCheckpoints.size();
+
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (fCheckpoints.get(mid).getOffset() < offset) {
+				lo = mid+1;
+			} else {
+				hi = mid;
+			}
+		}
+
+		return lo;
+	}
+
+}
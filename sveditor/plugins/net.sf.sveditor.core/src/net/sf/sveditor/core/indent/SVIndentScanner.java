@@ -25,6 +25,8 @@ public class SVIndentScanner implements ISVIndentScanner {
 	private int							fLastCh[] = {-1, -1};
 	private int							fLastChT  = -1;
 	private int							fLineno;
+	private int							fOffset;
+	private int							fLeadingWSPos;
 	
 	private boolean						fStartLine;
 	private String						fLeadingWS;
@@ -91,13 +93,23 @@ public class SVIndentScanner implements ISVIndentScanner {
 	}
 	
 	public SVIndentScanner(ITextScanner scanner) {
+		this(scanner, 1, 0);
+	}
+	
+	/**
+	 * Creates a scanner for content that starts at the beginning of 
+	 * line 'lineno' and at 'offset' in the document. Used to resume 
+	 * indenting from an SVIndentCheckpoint
+	 */
+	public SVIndentScanner(ITextScanner scanner, int lineno, int offset) {
 		fTmp = new StringBuilder();
 		fScanner = scanner;
 
 		fUngetCh   		= -1;
 		fLastCh[0] 		= -1;
 		fLastCh[1] 		= '\n';
-		fLineno    		= 1;
+		fLineno    		= lineno;
+		fOffset			= offset;
 		
 		fLog = LogFactory.getLogHandle("SVIndentScanner");
 		fStartLine = true;
@@ -113,9 +125,10 @@ public class SVIndentScanner implements ISVIndentScanner {
 		fStartLine = false;
 
 		if (fLeadingWS == null) {
-			pos = (int)fScanner.getPos();
+			fLeadingWSPos = getOffset();
 			fLeadingWS = getIndent();
 		}
+		pos = fLeadingWSPos;
 		int c = get_ch();
 		int lineno = fLineno;
 		
@@ -258,6 +271,7 @@ public class SVIndentScanner implements ISVIndentScanner {
 					unget_ch(c);
 				} else {
 					fTmp.setLength(0);
+					fLeadingWSPos = getOffset();
 					while ((c = get_ch()) != -1 && 
 							Character.isWhitespace(c) && c != '\n') {
 						fTmp.append((char)c);
@@ -273,7 +287,7 @@ public class SVIndentScanner implements ISVIndentScanner {
 					fTmp.setLength(0);
 					unget_ch(c);
 
-					pos = (int)fScanner.getPos();
+					fLeadingWSPos = getOffset();
 					while ((c = get_ch()) != -1 && 
 							Character.isWhitespace(c) && c != '\n') {
 						fTmp.append((char)c);
@@ -414,6 +428,13 @@ public class SVIndentScanner implements ISVIndentScanner {
 		return fTmp.toString();
 	}
 	
+	/**
+	 * Returns the document offset of the next character to be read
+	 */
+	private int getOffset() {
+		return (fUngetCh != -1)?(fOffset-1):fOffset;
+	}
+	
 	private int get_ch() {
 		int c = -1;
 		
@@ -422,6 +443,9 @@ public class SVIndentScanner implements ISVIndentScanner {
 			fUngetCh = -1;
 		} else {
 			c = fScanner.get_ch();
+			if (c != -1) {
+				fOffset++;
+			}
 			
 			if (fDebugEn) {
 				debug("c=\"" + (char)c + "\"");
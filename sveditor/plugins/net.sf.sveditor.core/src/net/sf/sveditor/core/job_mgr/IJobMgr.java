@@ -22,6 +22,11 @@ public interface IJobMgr {
 	
 	void removeJobListener(IJobListener l);
 	
+	/**
+	 * Sets the maximum number of worker threads
+	 */
+	void setMaxThreads(int max);
+	
 	void dispose();
 
 }
@@ -4,6 +4,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 import net.sf.sveditor.core.job_mgr.JobMgrWorkerThread.ThreadState;
+import net.sf.sveditor.core.metrics.MetricsHistogram;
+import net.sf.sveditor.core.metrics.MetricsRegistry;
 
 public class JobMgr implements IJobMgr {
 	
@@ -12,6 +14,7 @@ public class JobMgr implements IJobMgr {
 	private List<IJob>					fJobQueue;
 	private int						fMaxThreads;
 	private boolean					fDisposed;
+	private MetricsHistogram			fQueueDepth;
 	
 	public JobMgr() {
 		fJobListeners = new ArrayList<IJobListener>();
@@ -19,6 +22,7 @@ public class JobMgr implements IJobMgr {
 		fJobQueue = new ArrayList<IJob>();
 		
 		fMaxThreads = 4;
+		fQueueDepth = MetricsRegistry.histogram(MetricsRegistry.JOBMGR_QUEUE_DEPTH);
 	}
 	
 	public void dispose() {
@@ -48,6 +52,12 @@ public class JobMgr implements IJobMgr {
 		}
 	}
 	
+	public void setMaxThreads(int max) {
+		synchronized (fThreadPool) {
+			fMaxThreads = (max > 0)?max:1;
+		}
+	}
+	
 	public IJob createJob() {
 		return new JobMgrJob();
 	}
@@ -72,6 +82,7 @@ public class JobMgr implements IJobMgr {
 					fJobQueue.add(job);
 				}
 			}
+			fQueueDepth.record(fJobQueue.size());
 			fJobQueue.notifyAll();
 		}
 	}
@@ -0,0 +1,175 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.log;
+
+/**
+ * Log listener that queues messages in a fixed-size ring buffer and
+ * delivers them to a target listener from a dedicated thread. Threads
+ * that log only wait when the buffer is full.
+ *
+ * @author ballance
+ *
+ */
+public class AsyncLogListener implements ILogListener, Runnable {
+	public static final int				DEFAULT_SIZE = 4096;
+
+	private ILogListener				fTarget;
+	private Thread						fThread;
+	private boolean						fStop;
+
+	// Ring buffer. Entries are stored in parallel arrays, so queueing
+	// a message does not allocate
+	private ILogHandle					fHandles[];
+	private int							fTypes[];
+	private int							fLevels[];
+	private String						fMessages[];
+	private int							fHead;
+	private int							fCount;
+
+	// Set while the writer thread delivers messages removed from the buffer
+	private boolean						fBusy;
+
+	public AsyncLogListener(ILogListener target) {
+		this(target, DEFAULT_SIZE);
+	}
+
+	public AsyncLogListener(ILogListener target, int size) {
+		fTarget   = target;
+		fHandles  = new ILogHandle[size];
+		fTypes    = new int[size];
+		fLevels   = new int[size];
+		fMessages = new String[size];
+
+		fThread = new Thread(this, "SVEditor Log Writer");
+		fThread.setDaemon(true);
+		fThread.start();
+	}
+
+	public void message(ILogHandle handle, int type, int level, String message) {
+		if (Thread.currentThread() == fThread) {
+			// Message logged by the target listener
+			fTarget.message(handle, type, level, message);
+			return;
+		}
+
+		synchronized (this) {
+			while (fCount == fHandles.length && !fStop) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					break;
+				}
+			}
+
+			if (fStop || fCount == fHandles.length) {
+				fTarget.message(handle, type, level, message);
+				return;
+			}
+
+			int idx = (fHead + fCount) % fHandles.length;
+			fHandles[idx]  = handle;
+			fTypes[idx]    = type;
+			fLevels[idx]   = level;
+			fMessages[idx] = message;
+			fCount++;
+
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Waits until all queued messages have been delivered
+	 */
+	public void flush() {
+		if (Thread.currentThread() == fThread) {
+			return;
+		}
+		synchronized (this) {
+			while ((fCount > 0 || fBusy) && fThread.isAlive()) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Delivers all queued messages and stops the writer thread.
+	 * Messages logged after dispose() are delivered directly.
+	 */
+	public void dispose() {
+		flush();
+		synchronized (this) {
+			fStop = true;
+			notifyAll();
+		}
+	}
+
+	public void run() {
+		int size = fHandles.length;
+		ILogHandle handles[] = new ILogHandle[size];
+		int types[] = new int[size];
+		int levels[] = new int[size];
+		String messages[] = new String[size];
+
+		while (true) {
+			int n;
+			synchronized (this) {
+				while (fCount == 0 && !fStop) {
+					try {
+						wait();
+					} catch (InterruptedException e) {}
+				}
+
+				if (fCount == 0) {
+					// Stopped
+					break;
+				}
+
+				// Take all queued messages
+				n = fCount;
+				for (int i=0; i<n; i++) {
+					int idx = (fHead + i) % size;
+					handles[i]  = fHandles[idx];
+					types[i]    = fTypes[idx];
+					levels[i]   = fLevels[idx];
+					messages[i] = fMessages[idx];
+					fHandles[idx]  = null;
+					fMessages[idx] = null;
+				}
+				fHead = (fHead + n) % size;
+				fCount = 0;
+				fBusy = true;
+				notifyAll();
+			}
+
+			for (int i=0; i<n; i++) {
+				try {
+					fTarget.message(handles[i], types[i], levels[i], messages[i]);
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+				handles[i]  = null;
+				messages[i] = null;
+			}
+
+			synchronized (this) {
+				fBusy = false;
+				notifyAll();
+			}
+		}
+	}
+
+}
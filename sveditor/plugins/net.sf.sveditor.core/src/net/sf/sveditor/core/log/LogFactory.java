@@ -13,11 +13,11 @@
 package net.sf.sveditor.core.log;
 
 import java.lang.ref.WeakReference;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class LogFactory implements ILogListener {
 	
@@ -26,11 +26,18 @@ public class LogFactory implements ILogListener {
 	private int									fLogLevel = 0;
 	private Map<String, LogCategory>			fLogHandleCategoryMap;
 	private List<WeakReference<ILogListener>>	fLogListeners;
+	private ILogListener						fDispatcher;
+	private volatile AsyncLogListener			fAsyncListener;
 	
 	public LogFactory() {
 		fLogHandleMap = new HashMap<String, LogHandle>();
 		fLogHandleCategoryMap = new HashMap<String, LogCategory>();
-		fLogListeners = new ArrayList<WeakReference<ILogListener>>();
+		fLogListeners = new CopyOnWriteArrayList<WeakReference<ILogListener>>();
+		fDispatcher = new ILogListener() {
+			public void message(ILogHandle handle, int type, int level, String message) {
+				dispatch(handle, type, level, message);
+			}
+		};
 	}
 	
 	public synchronized static LogFactory getDefault() {
@@ -106,33 +113,69 @@ public class LogFactory implements ILogListener {
 	}
 
 	public void addLogListener(ILogListener l) {
-		synchronized (fLogListeners) {
-			fLogListeners.add(new WeakReference<ILogListener>(l));
-		}
+		fLogListeners.add(new WeakReference<ILogListener>(l));
 	}
 	
 	public void removeLogListener(ILogListener l) {
-		synchronized (fLogListeners) {
-			for (int i=0; i<fLogListeners.size(); i++) {
-				if (fLogListeners.get(i).get() == l) {
-					fLogListeners.remove(i);
-				}
+		for (WeakReference<ILogListener> lr : fLogListeners) {
+			if (lr.get() == l) {
+				fLogListeners.remove(lr);
 			}
 		}
 	}
-
+	
+	/**
+	 * Controls whether info and debug messages are delivered to the
+	 * log listeners from a separate writer thread. Error messages are
+	 * always delivered on the logging thread, once previously-queued
+	 * messages have been delivered.
+	 */
+	public synchronized void setAsync(boolean async) {
+		if (async && fAsyncListener == null) {
+			fAsyncListener = new AsyncLogListener(fDispatcher);
+		} else if (!async && fAsyncListener != null) {
+			AsyncLogListener l = fAsyncListener;
+			fAsyncListener = null;
+			l.dispose();
+		}
+	}
+	
+	public boolean isAsync() {
+		return (fAsyncListener != null);
+	}
+	
+	/**
+	 * Waits until queued messages have been delivered
+	 */
+	public void flush() {
+		AsyncLogListener l = fAsyncListener;
+		if (l != null) {
+			l.flush();
+		}
+	}
 
 	public void message(ILogHandle handle, int type, int level, String message) {
-		synchronized (fLogListeners) {
-			for (int i=0; i<fLogListeners.size(); i++) {
-				WeakReference<ILogListener> lr = fLogListeners.get(i);
+		AsyncLogListener l = fAsyncListener;
+		
+		if (l != null) {
+			if ((type & ILogListener.Type_Error) == 0) {
+				l.message(handle, type, level, message);
+				return;
+			}
+			l.flush();
+		}
+		
+		dispatch(handle, type, level, message);
+	}
+	
+	private void dispatch(ILogHandle handle, int type, int level, String message) {
+		for (WeakReference<ILogListener> lr : fLogListeners) {
+			ILogListener listener = lr.get();
 
-				if (lr.get() == null) {
-					fLogListeners.remove(i);
-					i--;
-				} else {
-					lr.get().message(handle, type, level, message);
-				}
+			if (listener == null) {
+				fLogListeners.remove(lr);
+			} else {
+				listener.message(handle, type, level, message);
 			}
 		}
 	}
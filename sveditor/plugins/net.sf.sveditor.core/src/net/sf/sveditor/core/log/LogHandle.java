@@ -20,7 +20,7 @@ public class LogHandle implements ILogHandle {
 	private String						fName;
 	private String						fCategory;
 	private ILogListener				fListener;
-	private int							fDebugLevel = 1;
+	private volatile int				fDebugLevel = 1;
 	private int							fIndent;
 	private List<WeakReference<ILogLevelListener>>		fLogLevelListeners;
 	
@@ -75,8 +75,12 @@ public class LogHandle implements ILogHandle {
 		return (fDebugLevel > 0);
 	}
 
+	/**
+	 * Returns whether debug messages at the specified level are
+	 * delivered to the log listeners
+	 */
 	public boolean isEnabled(int level) {
-		return (fDebugLevel > level);
+		return (fDebugLevel >= level);
 	}
 
 	public void print(int type, int level, String msg) {
@@ -91,36 +95,88 @@ public class LogHandle implements ILogHandle {
 	}
 	
 	public void debug(String msg) {
-		println(ILogListener.Type_Debug, 3, 
-				(fIndent > 0)?(indent(fIndent) + msg):msg);
+		if (isEnabled(LEVEL_MAX)) {
+			println(ILogListener.Type_Debug, LEVEL_MAX, 
+					(fIndent > 0)?(indent(fIndent) + msg):msg);
+		}
 	}
 
 	public void debug(String msg, Exception e) {
-		int level = ILogListener.Type_Error+ILogListener.Type_Debug;
-		println(level, 3, msg);
-		println(level, 3, e.getMessage());
-		for (StackTraceElement s_e : e.getStackTrace()) {
-			String m = "    at " + 
-					s_e.getClassName() + "." + s_e.getMethodName() + "(" +
-					s_e.getFileName() + ":" + s_e.getLineNumber() + ")";
-			println(level, 3, m);
+		if (isEnabled(LEVEL_MAX)) {
+			int level = ILogListener.Type_Error+ILogListener.Type_Debug;
+			println(level, LEVEL_MAX, msg);
+			println(level, LEVEL_MAX, e.getMessage());
+			for (StackTraceElement s_e : e.getStackTrace()) {
+				String m = "    at " + 
+						s_e.getClassName() + "." + s_e.getMethodName() + "(" +
+						s_e.getFileName() + ":" + s_e.getLineNumber() + ")";
+				println(level, LEVEL_MAX, m);
+			}
 		}
 	}
 
 	public void debug(int level, String msg) {
-		println(ILogListener.Type_Debug, level, 
-				(fIndent > 0)?(indent(fIndent) + msg):msg);
+		if (isEnabled(level)) {
+			println(ILogListener.Type_Debug, level, 
+					(fIndent > 0)?(indent(fIndent) + msg):msg);
+		}
 	}
 
 	public void debug(int level, String msg, Exception e) {
-		int type = ILogListener.Type_Error+ILogListener.Type_Debug;
-		println(type, level, msg);
-		println(type, level, e.getMessage());
-		for (StackTraceElement s_e : e.getStackTrace()) {
-			String m = "    at " + 
-					s_e.getClassName() + "." + s_e.getMethodName() + "(" +
-					s_e.getFileName() + ":" + s_e.getLineNumber() + ")";
-			println(type, level, m);
+		if (isEnabled(level)) {
+			int type = ILogListener.Type_Error+ILogListener.Type_Debug;
+			println(type, level, msg);
+			println(type, level, e.getMessage());
+			for (StackTraceElement s_e : e.getStackTrace()) {
+				String m = "    at " + 
+						s_e.getClassName() + "." + s_e.getMethodName() + "(" +
+						s_e.getFileName() + ":" + s_e.getLineNumber() + ")";
+				println(type, level, m);
+			}
+		}
+	}
+
+	/*
+	 * Formatted debug messages. The message is only formatted, using
+	 * String.format(), when debug messages at the level are delivered.
+	 * Fixed-arity methods are used so that a disabled call does not
+	 * allocate an argument array. Note that primitive arguments are
+	 * still boxed by the caller. The methods are named apart from
+	 * debug(), so that an exception is never taken as a format argument.
+	 */
+	public void debugf(String fmt, Object a1) {
+		if (isEnabled(LEVEL_MAX)) {
+			debug(LEVEL_MAX, String.format(fmt, a1));
+		}
+	}
+
+	public void debugf(String fmt, Object a1, Object a2) {
+		if (isEnabled(LEVEL_MAX)) {
+			debug(LEVEL_MAX, String.format(fmt, a1, a2));
+		}
+	}
+
+	public void debugf(String fmt, Object a1, Object a2, Object a3) {
+		if (isEnabled(LEVEL_MAX)) {
+			debug(LEVEL_MAX, String.format(fmt, a1, a2, a3));
+		}
+	}
+
+	public void debugf(int level, String fmt, Object a1) {
+		if (isEnabled(level)) {
+			debug(level, String.format(fmt, a1));
+		}
+	}
+
+	public void debugf(int level, String fmt, Object a1, Object a2) {
+		if (isEnabled(level)) {
+			debug(level, String.format(fmt, a1, a2));
+		}
+	}
+
+	public void debugf(int level, String fmt, Object a1, Object a2, Object a3) {
+		if (isEnabled(level)) {
+			debug(level, String.format(fmt, a1, a2, a3));
 		}
 	}
 
@@ -0,0 +1,49 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe event counter
+ */
+public class MetricsCounter {
+	private String						fName;
+	private AtomicLong					fValue;
+
+	public MetricsCounter(String name) {
+		fName = name;
+		fValue = new AtomicLong();
+	}
+
+	public String getName() {
+		return fName;
+	}
+
+	public void inc() {
+		fValue.incrementAndGet();
+	}
+
+	public void add(long n) {
+		fValue.addAndGet(n);
+	}
+
+	public long get() {
+		return fValue.get();
+	}
+
+	public void reset() {
+		fValue.set(0);
+	}
+
+}
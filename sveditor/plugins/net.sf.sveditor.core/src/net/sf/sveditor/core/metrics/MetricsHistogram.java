@@ -0,0 +1,172 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import net.sf.sveditor.core.log.ILogLevel;
+import net.sf.sveditor.core.log.LogFactory;
+import net.sf.sveditor.core.log.LogHandle;
+
+/**
+ * Thread-safe distribution of recorded values. Values are counted in
+ * power-of-two buckets, so percentiles are approximate (within a
+ * factor of two). Recording does not allocate or lock.
+ *
+ * A histogram also serves as a timer: start() returns a timestamp
+ * that is passed to stop(), which records the elapsed time in
+ * microseconds. When debug output is enabled for the 'Metrics' log
+ * handle, each completed span is also traced.
+ */
+public class MetricsHistogram implements ILogLevel {
+	private static final int			NUM_BUCKETS = 64;
+	private static LogHandle			fLog = LogFactory.getLogHandle("Metrics");
+
+	private String						fName;
+	private AtomicLong					fCount;
+	private AtomicLong					fSum;
+	private AtomicLong					fMin;
+	private AtomicLong					fMax;
+	// Bucket 0 holds values <= 0. Bucket i holds values in [2^(i-1), 2^i)
+	private AtomicLongArray				fBuckets;
+
+	public MetricsHistogram(String name) {
+		fName    = name;
+		fCount   = new AtomicLong();
+		fSum     = new AtomicLong();
+		fMin     = new AtomicLong(Long.MAX_VALUE);
+		fMax     = new AtomicLong(Long.MIN_VALUE);
+		fBuckets = new AtomicLongArray(NUM_BUCKETS);
+	}
+
+	public String getName() {
+		return fName;
+	}
+
+	public void record(long value) {
+		fCount.incrementAndGet();
+		fSum.addAndGet(value);
+		fBuckets.incrementAndGet(bucket(value));
+
+		long min;
+		while (value < (min = fMin.get())) {
+			if (fMin.compareAndSet(min, value)) {
+				break;
+			}
+		}
+
+		long max;
+		while (value > (max = fMax.get())) {
+			if (fMax.compareAndSet(max, value)) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Begins a timing span
+	 *
+	 * @return the start timestamp, to be passed to stop()
+	 */
+	public long start() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Completes a timing span begun by start()
+	 *
+	 * @return the elapsed time, in microseconds
+	 */
+	public long stop(long start) {
+		long elapsed = (System.nanoTime() - start) / 1000;
+		record(elapsed);
+
+		if (fLog.isEnabled(LEVEL_MAX)) {
+			fLog.debug(LEVEL_MAX, fName + ": " + elapsed + "us");
+		}
+
+		return elapsed;
+	}
+
+	public long getCount() {
+		return fCount.get();
+	}
+
+	public long getSum() {
+		return fSum.get();
+	}
+
+	public long getMin() {
+		return (fCount.get() > 0)?fMin.get():0;
+	}
+
+	public long getMax() {
+		return (fCount.get() > 0)?fMax.get():0;
+	}
+
+	public long getMean() {
+		long count = fCount.get();
+		return (count > 0)?(fSum.get() / count):0;
+	}
+
+	/**
+	 * Returns an upper bound on the value below which the specified
+	 * percentage of recorded values fall
+	 *
+	 * @param pct percentage (0-100)
+	 */
+	public long getPercentile(double pct) {
+		long count = 0;
+		for (int i=0; i<NUM_BUCKETS; i++) {
+			count += fBuckets.get(i);
+		}
+
+		if (count == 0) {
+			return 0;
+		}
+
+		long rank = (long)Math.ceil((pct * count) / 100.0);
+		long seen = 0;
+		for (int i=0; i<NUM_BUCKETS; i++) {
+			seen += fBuckets.get(i);
+			if (seen >= rank && seen > 0) {
+				if (i == 0) {
+					return Math.min(0, getMax());
+				}
+				long upper = (i < 63)?((1L << i) - 1):Long.MAX_VALUE;
+				return Math.min(upper, getMax());
+			}
+		}
+
+		return getMax();
+	}
+
+	public void reset() {
+		fCount.set(0);
+		fSum.set(0);
+		fMin.set(Long.MAX_VALUE);
+		fMax.set(Long.MIN_VALUE);
+		for (int i=0; i<NUM_BUCKETS; i++) {
+			fBuckets.set(i, 0);
+		}
+	}
+
+	private static int bucket(long value) {
+		if (value <= 0) {
+			return 0;
+		}
+		return (64 - Long.numberOfLeadingZeros(value));
+	}
+
+}
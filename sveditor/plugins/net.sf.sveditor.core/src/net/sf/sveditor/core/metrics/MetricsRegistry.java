@@ -0,0 +1,186 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of named performance counters and histograms. Metrics are
+ * created on first use, and may be queried or dumped at any time.
+ * Timing histograms record microseconds.
+ *
+ * The metrics are written to the file named by the METRICS_FILE_PROPERTY
+ * system property when the core plugin stops.
+ */
+public class MetricsRegistry {
+	public static final String						METRICS_FILE_PROPERTY = "sveditor.metrics.file";
+
+	// Well-known metrics
+	public static final String						INDEX_PHASE         = "index.phase.";
+	public static final String						INDEX_FILE_PREPROC  = "index.file.preprocess";
+	public static final String						INDEX_FILE_PARSE    = "index.file.parse";
+	public static final String						INDEX_ARGFILE_SCAN  = "index.argfile.scan";
+	public static final String						CACHE_FILE_WRITE    = "cache.file.write";
+	public static final String						CACHE_FILE          = "cache.file";
+	public static final String						CACHE_PREPROC_FILE  = "cache.preProcFile";
+	public static final String						CACHE_FILE_TREE     = "cache.fileTree";
+	public static final String						PERSISTENCE_CLASS_BUILD = "persistence.classBuild";
+	public static final String						HIT_SUFFIX          = ".hit";
+	public static final String						MISS_SUFFIX         = ".miss";
+	public static final String						JOBMGR_QUEUE_DEPTH  = "jobmgr.queue.depth";
+	public static final String						CONTENT_ASSIST      = "content_assist.computeProposals";
+
+	private static MetricsRegistry					fDefault;
+
+	private Map<String, MetricsCounter>				fCounters;
+	private Map<String, MetricsHistogram>			fHistograms;
+
+	public MetricsRegistry() {
+		fCounters = new ConcurrentHashMap<String, MetricsCounter>();
+		fHistograms = new ConcurrentHashMap<String, MetricsHistogram>();
+	}
+
+	public static synchronized MetricsRegistry getDefault() {
+		if (fDefault == null) {
+			fDefault = new MetricsRegistry();
+		}
+		return fDefault;
+	}
+
+	/**
+	 * Convenience method that returns a counter from the default registry
+	 */
+	public static MetricsCounter counter(String name) {
+		return getDefault().getCounter(name);
+	}
+
+	/**
+	 * Convenience method that returns a histogram from the default registry
+	 */
+	public static MetricsHistogram histogram(String name) {
+		return getDefault().getHistogram(name);
+	}
+
+	public MetricsCounter getCounter(String name) {
+		MetricsCounter c = fCounters.get(name);
+
+		if (c == null) {
+			synchronized (fCounters) {
+				if ((c = fCounters.get(name)) == null) {
+					c = new MetricsCounter(name);
+					fCounters.put(name, c);
+				}
+			}
+		}
+
+		return c;
+	}
+
+	public MetricsHistogram getHistogram(String name) {
+		MetricsHistogram h = fHistograms.get(name);
+
+		if (h == null) {
+			synchronized (fHistograms) {
+				if ((h = fHistograms.get(name)) == null) {
+					h = new MetricsHistogram(name);
+					fHistograms.put(name, h);
+				}
+			}
+		}
+
+		return h;
+	}
+
+	/**
+	 * Returns the counters, ordered by name
+	 */
+	public Map<String, MetricsCounter> getCounters() {
+		return new TreeMap<String, MetricsCounter>(fCounters);
+	}
+
+	/**
+	 * Returns the histograms, ordered by name
+	 */
+	public Map<String, MetricsHistogram> getHistograms() {
+		return new TreeMap<String, MetricsHistogram>(fHistograms);
+	}
+
+	/**
+	 * Returns the ratio of hits to lookups for a pair of counters
+	 * named <prefix>.hit and <prefix>.miss
+	 */
+	public double getHitRatio(String prefix) {
+		long hit = getCounter(prefix + HIT_SUFFIX).get();
+		long miss = getCounter(prefix + MISS_SUFFIX).get();
+
+		return ((hit+miss) > 0)?((double)hit / (hit+miss)):0.0;
+	}
+
+	public void reset() {
+		for (MetricsCounter c : fCounters.values()) {
+			c.reset();
+		}
+		for (MetricsHistogram h : fHistograms.values()) {
+			h.reset();
+		}
+	}
+
+	public void dump(PrintStream out) {
+		Map<String, MetricsCounter> counters = getCounters();
+
+		for (Entry<String, MetricsCounter> e : counters.entrySet()) {
+			out.println("counter " + e.getKey() + " " + e.getValue().get());
+		}
+
+		for (String name : counters.keySet()) {
+			if (name.endsWith(HIT_SUFFIX)) {
+				String prefix = name.substring(0, name.length()-HIT_SUFFIX.length());
+				if (counters.containsKey(prefix + MISS_SUFFIX)) {
+					out.println("ratio " + prefix + ".hit_ratio " +
+							String.format("%.3f", getHitRatio(prefix)));
+				}
+			}
+		}
+
+		for (Entry<String, MetricsHistogram> e : getHistograms().entrySet()) {
+			MetricsHistogram h = e.getValue();
+			out.println("histogram " + e.getKey() +
+					" count=" + h.getCount() +
+					" sum=" + h.getSum() +
+					" min=" + h.getMin() +
+					" mean=" + h.getMean() +
+					" p50=" + h.getPercentile(50) +
+					" p90=" + h.getPercentile(90) +
+					" p99=" + h.getPercentile(99) +
+					" max=" + h.getMax());
+		}
+	}
+
+	public void dump(File file) throws IOException {
+		PrintStream out = new PrintStream(new FileOutputStream(file));
+
+		try {
+			dump(out);
+		} finally {
+			out.close();
+		}
+	}
+
+}
@@ -0,0 +1,34 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.objects;
+
+import net.sf.sveditor.core.db.index.ISVDBIndex;
+
+/**
+ * Receives notification as a background build of the objects tree 
+ * progresses. Notifications are delivered on the build thread, in
+ * index order
+ */
+public interface IObjectsTreeBuildListener {
+	
+	/**
+	 * The declarations from 'index' have been added to the tree
+	 */
+	void contributionAdded(ObjectsTreeNode topNode, ISVDBIndex index);
+	
+	/**
+	 * All indexes have been processed, or the build was cancelled
+	 */
+	void buildComplete(ObjectsTreeNode topNode, boolean cancelled);
+
+}
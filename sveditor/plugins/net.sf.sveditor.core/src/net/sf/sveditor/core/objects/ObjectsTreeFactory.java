@@ -13,6 +13,7 @@
 
 package net.sf.sveditor.core.objects;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,115 +31,270 @@ import net.sf.sveditor.core.log.LogHandle;
 import org.eclipse.core.runtime.NullProgressMonitor;
 
 
+/**
+ * Builds the objects tree from the declarations of a list of indexes.
+ * Each index is searched on a worker thread, and its declarations are
+ * merged into the tree as soon as they are available. The classes of a
+ * package are collected when the package node is first expanded.
+ */
 public class ObjectsTreeFactory {
 	List<ISVDBIndex> fProjectIndexList ;
-	private LogHandle				fLog;
+	private LogHandle						fLog;
+	private NullProgressMonitor				fMonitor;
+	private int								fMaxThreads;
+	
+	private ObjectsTreeNode					fTopNode;
+	private ObjectsTreeNode					fPackagesNode;
+	private ObjectsTreeNode					fRootPkgNode;
+	private ObjectsTreeNode					fModulesNode;
+	private ObjectsTreeNode					fInterfacesNode;
+	
+	private Map<String,SVDBDeclCacheItem>	fPkgMap;
+	private Map<String,SVDBDeclCacheItem>	fGlobalPkgMap;
+	private Map<String,SVDBDeclCacheItem>	fIfaceMap;
+	private Map<String,SVDBDeclCacheItem>	fModuleMap;
+	
+	/**
+	 * Declarations collected from a single index
+	 */
+	private static class Contribution {
+		ISVDBIndex							fIndex;
+		List<SVDBDeclCacheItem>				fRootClasses;
+		List<SVDBDeclCacheItem>				fPackages;
+		List<SVDBDeclCacheItem>				fModules;
+		List<SVDBDeclCacheItem>				fInterfaces;
+		
+		public Contribution(ISVDBIndex index) {
+			fIndex = index;
+		}
+	}
 	
 	public ObjectsTreeFactory(List<ISVDBIndex> projectIndexList) {
 		fProjectIndexList = projectIndexList;
 		fLog = LogFactory.getLogHandle("ObjectsTreeFactory");
+		fMonitor = new NullProgressMonitor();
+		fMaxThreads = Runtime.getRuntime().availableProcessors();
+	}
+	
+	public void setMaxThreads(int max) {
+		fMaxThreads = max;
 	}
 	
+	/**
+	 * Stops the build. Indexes that have not yet been searched are 
+	 * skipped, and contributions not yet merged are discarded
+	 */
+	public void cancel() {
+		fMonitor.setCanceled(true);
+	}
+	
+	public boolean isCancelled() {
+		return fMonitor.isCanceled();
+	}
+	
+	/**
+	 * Builds the complete tree, returning once all indexes are processed
+	 */
 	public ObjectsTreeNode build() { 
 		
 		if(fProjectIndexList == null) {
 			return null ;
 		}
 		
-		Map<String,SVDBDeclCacheItem> pkgMap = new HashMap<String, SVDBDeclCacheItem>();
-		Map<String,SVDBDeclCacheItem> globalPkgMap = new HashMap<String, SVDBDeclCacheItem>() ;
-		Map<String,SVDBDeclCacheItem> ifaceMap = new HashMap<String, SVDBDeclCacheItem>() ;
-		Map<String,SVDBDeclCacheItem> moduleMap = new HashMap<String, SVDBDeclCacheItem>() ;
+		ObjectsTreeNode topNode = createTree() ;
+		buildContributions(null) ;
 		
-		ObjectsTreeNode topNode  = new ObjectsTreeNode(null, "Top") ;
+		return topNode ;
+	}
+	
+	/**
+	 * Returns the top-level nodes of the tree immediately and builds
+	 * the remainder of the tree in the background. The listener is 
+	 * notified as the declarations from each index are added.
+	 */
+	public ObjectsTreeNode build(final IObjectsTreeBuildListener listener) {
 		
-		ObjectsTreeNode packagesNode = new ObjectsTreeNode(topNode, ObjectsTreeNode.PACKAGES_NODE) ;
-		topNode.addChild(packagesNode) ;
-		packagesNode.setItemDecl(new SVDBDeclCacheItem(null, null, ObjectsTreeNode.PACKAGES_NODE, SVDBItemType.PackageDecl, false)) ;
+		if(fProjectIndexList == null) {
+			return null ;
+		}
 		
-		ObjectsTreeNode rootPkgNode = new ObjectsTreeNode(packagesNode, "root") ;
-		packagesNode.addChild(rootPkgNode) ;
-		rootPkgNode.setItemDecl(new SVDBDeclCacheItem(null, null, "root", SVDBItemType.PackageDecl, false)) ;
+		final ObjectsTreeNode topNode = createTree() ;
 		
-		// Global classes go into the "root" package
-		//
-		for(ISVDBIndex svdbIndex: fProjectIndexList) {
-			List<SVDBDeclCacheItem> rootClasses = svdbIndex.findGlobalScopeDecl(new NullProgressMonitor(), "rootClasses", new SVDBFindClassMatcher()) ;
-			if(rootClasses != null) {
-				for(SVDBDeclCacheItem rootClass: rootClasses) {
-					if(rootClass.getName().matches("^__.*")) { continue ; } // Skip builtins
-					if(!globalPkgMap.containsKey(rootClass.getName())) {
-						ObjectsTreeNode rootClassNode = new ObjectsTreeNode(rootPkgNode, rootClass.getName(), rootClass) ;  
-						rootPkgNode.addChild(rootClassNode) ; 
-						globalPkgMap.put(rootClass.getName(), rootClass) ;
+		Thread t = new Thread(new Runnable() {
+			public void run() {
+				buildContributions(listener) ;
+				listener.buildComplete(topNode, isCancelled()) ;
+			}
+		}, "objects_tree_build") ;
+		t.start() ;
+		
+		return topNode ;
+	}
+	
+	private ObjectsTreeNode createTree() {
+		fPkgMap = new HashMap<String, SVDBDeclCacheItem>();
+		fGlobalPkgMap = new HashMap<String, SVDBDeclCacheItem>() ;
+		fIfaceMap = new HashMap<String, SVDBDeclCacheItem>() ;
+		fModuleMap = new HashMap<String, SVDBDeclCacheItem>() ;
+		
+		fTopNode  = new ObjectsTreeNode(null, "Top") ;
+		
+		fPackagesNode = new ObjectsTreeNode(fTopNode, ObjectsTreeNode.PACKAGES_NODE) ;
+		fTopNode.addChild(fPackagesNode) ;
+		fPackagesNode.setItemDecl(new SVDBDeclCacheItem(null, null, ObjectsTreeNode.PACKAGES_NODE, SVDBItemType.PackageDecl, false)) ;
+		
+		fRootPkgNode = new ObjectsTreeNode(fPackagesNode, "root") ;
+		fPackagesNode.addChild(fRootPkgNode) ;
+		fRootPkgNode.setItemDecl(new SVDBDeclCacheItem(null, null, "root", SVDBItemType.PackageDecl, false)) ;
+		
+		fModulesNode = new ObjectsTreeNode(fTopNode, ObjectsTreeNode.MODULES_NODE) ;
+		fTopNode.addChild(fModulesNode) ;
+		fModulesNode.setItemDecl(new SVDBDeclCacheItem(null, null, ObjectsTreeNode.MODULES_NODE, SVDBItemType.ModuleDecl, false)) ;
+		
+		fInterfacesNode = new ObjectsTreeNode(fTopNode, ObjectsTreeNode.INTERFACES_NODE) ;
+		fTopNode.addChild(fInterfacesNode) ;
+		fInterfacesNode.setItemDecl(new SVDBDeclCacheItem(null, null, ObjectsTreeNode.INTERFACES_NODE, SVDBItemType.InterfaceDecl, false)) ;
+		
+		return fTopNode ;
+	}
+	
+	private void buildContributions(IObjectsTreeBuildListener listener) {
+		final List<ISVDBIndex> indexes = new ArrayList<ISVDBIndex>(fProjectIndexList) ;
+		final Contribution contributions[] = new Contribution[indexes.size()] ;
+		final int next[] = new int[1] ;
+		
+		// Searching each index is independent, so spread the indexes 
+		// across threads. Contributions are merged in index order once
+		// all are collected, so the tree doesn't depend on thread timing
+		int num_threads = Math.min(fMaxThreads, indexes.size()) ;
+		if(num_threads <= 1) {
+			buildContributionsJob(indexes, contributions, next) ;
+		} else {
+			Thread threads[] = new Thread[num_threads] ;
+			for(int i=0; i<threads.length; i++) {
+				threads[i] = new Thread(new Runnable() {
+					public void run() {
+						buildContributionsJob(indexes, contributions, next) ;
 					}
-				}
+				}, "objects_tree_" + i) ;
+				threads[i].start() ;
 			}
+			join_threads(threads) ;
 		}
 		
-		for(ISVDBIndex svdbIndex: fProjectIndexList) {
-			List<SVDBDeclCacheItem> packages = svdbIndex.findGlobalScopeDecl(new NullProgressMonitor(), "pkgs", new SVDBFindPackageMatcher()) ;
-			if(packages != null) {
-				for(SVDBDeclCacheItem pkg: packages) {
-					if(!pkgMap.containsKey(pkg.getName())) {
-						ObjectsTreeNode pkgNode = new ObjectsTreeNode(packagesNode, pkg.getName(), pkg) ;  
-						packagesNode.addChild(pkgNode) ; 
-						pkgMap.put(pkg.getName(), pkg) ;
-						// Look deeper into this project to find all classes for this package
-						List<SVDBDeclCacheItem> pkgDecls = svdbIndex.findPackageDecl(new NullProgressMonitor(), pkg) ; 
-						if(pkgDecls != null) {
-							fLog.debug("Package Declaration for \"" + pkg.getName() + "\" found");
-							for(SVDBDeclCacheItem pkgDecl: pkgDecls) {
-								if(pkgDecl.getType() == SVDBItemType.ClassDecl) {
-									fLog.debug("  Add node for \"" + pkgDecl.getName() + "\"");
-									ObjectsTreeNode pkgClassNode = new ObjectsTreeNode(pkgNode, pkgDecl.getName(), pkgDecl) ;
-									pkgNode.addChild(pkgClassNode) ;
-								}
-							}
-						} else {
-							fLog.debug("Package Declaration for \"" + pkg.getName() + "\" not found");
-						}
-					}
-				}
+		for(Contribution c : contributions) {
+			if(c != null && merge(c) && listener != null) {
+				listener.contributionAdded(fTopNode, c.fIndex) ;
+			}
+		}
+	}
+	
+	private void buildContributionsJob(
+			List<ISVDBIndex>	indexes, 
+			Contribution		contributions[],
+			int					next[]) {
+		while(!isCancelled()) {
+			int idx ;
+			synchronized(next) {
+				idx = next[0]++ ;
+			}
+			if(idx >= indexes.size()) {
+				break ;
 			}
+			
+			contributions[idx] = collect(indexes.get(idx)) ;
 		}
+	}
+	
+	/**
+	 * Searches a single index for the top-level declarations shown in the tree
+	 * 
+	 * @return the declarations, or null if the build was cancelled
+	 */
+	private Contribution collect(ISVDBIndex svdbIndex) {
+		Contribution c = new Contribution(svdbIndex) ;
 		
-		ObjectsTreeNode modulesNode = new ObjectsTreeNode(topNode, ObjectsTreeNode.MODULES_NODE) ;
-		topNode.addChild(modulesNode) ;
-		modulesNode.setItemDecl(new SVDBDeclCacheItem(null, null, ObjectsTreeNode.MODULES_NODE, SVDBItemType.ModuleDecl, false)) ;
-		
-		for(ISVDBIndex svdbIndex: fProjectIndexList) {
-			List<SVDBDeclCacheItem> modules = svdbIndex.findGlobalScopeDecl(new NullProgressMonitor(), "modules", new SVDBFindModuleMatcher()) ;
-			if(modules != null) {
-				for(SVDBDeclCacheItem module: modules) {
-					if(!moduleMap.containsKey(module.getName())) {
-						ObjectsTreeNode moduleNode = new ObjectsTreeNode(modulesNode, module.getName(), module) ;  
-						modulesNode.addChild(moduleNode) ; 
-						moduleMap.put(module.getName(),module) ;
+		c.fRootClasses = svdbIndex.findGlobalScopeDecl(fMonitor, "rootClasses", new SVDBFindClassMatcher()) ;
+		if(isCancelled()) { return null ; }
+		c.fPackages = svdbIndex.findGlobalScopeDecl(fMonitor, "pkgs", new SVDBFindPackageMatcher()) ;
+		if(isCancelled()) { return null ; }
+		c.fModules = svdbIndex.findGlobalScopeDecl(fMonitor, "modules", new SVDBFindModuleMatcher()) ;
+		if(isCancelled()) { return null ; }
+		c.fInterfaces = svdbIndex.findGlobalScopeDecl(fMonitor, "interfaces", new SVDBFindInterfaceMatcher()) ;
+		if(isCancelled()) { return null ; }
+		
+		return c ;
+	}
+	
+	/**
+	 * Adds the declarations of a contribution to the tree. Declarations 
+	 * whose name is already present in the tree are skipped.
+	 * 
+	 * @return false if the build was cancelled
+	 */
+	private boolean merge(Contribution c) {
+		synchronized(fTopNode) {
+			if(isCancelled()) {
+				return false ;
+			}
+			
+			// Global classes go into the "root" package
+			//
+			if(c.fRootClasses != null) {
+				for(SVDBDeclCacheItem rootClass: c.fRootClasses) {
+					if(rootClass.getName().matches("^__.*")) { continue ; } // Skip builtins
+					if(!fGlobalPkgMap.containsKey(rootClass.getName())) {
+						ObjectsTreeNode rootClassNode = new ObjectsTreeNode(fRootPkgNode, rootClass.getName(), rootClass) ;  
+						fRootPkgNode.addChild(rootClassNode) ; 
+						fGlobalPkgMap.put(rootClass.getName(), rootClass) ;
 					}
 				}
 			}
-		}
-		
-		ObjectsTreeNode interfacesNode = new ObjectsTreeNode(topNode, ObjectsTreeNode.INTERFACES_NODE) ;
-		topNode.addChild(interfacesNode) ;
-		interfacesNode.setItemDecl(new SVDBDeclCacheItem(null, null, ObjectsTreeNode.INTERFACES_NODE, SVDBItemType.InterfaceDecl, false)) ;
-		
-		for(ISVDBIndex svdbIndex: fProjectIndexList) {
-			List<SVDBDeclCacheItem> interfaces = svdbIndex.findGlobalScopeDecl(new NullProgressMonitor(), "interfaces", new SVDBFindInterfaceMatcher()) ;
-			if(interfaces != null) {
-				for(SVDBDeclCacheItem iface: interfaces) {
-					if(!ifaceMap.containsKey(iface.getName())) {
-						ObjectsTreeNode ifaceNode = new ObjectsTreeNode(interfacesNode, iface.getName(), iface) ;  
-						interfacesNode.addChild(ifaceNode) ; 
-						ifaceMap.put(iface.getName(),iface) ;
+			
+			// Package content is collected from the first index to 
+			// declare the package when the package is expanded
+			if(c.fPackages != null) {
+				for(SVDBDeclCacheItem pkg: c.fPackages) {
+					if(!fPkgMap.containsKey(pkg.getName())) {
+						ObjectsTreeNode pkgNode = new ObjectsTreePackageNode(fPackagesNode, pkg.getName(), pkg, c.fIndex) ;  
+						fPackagesNode.addChild(pkgNode) ; 
+						fPkgMap.put(pkg.getName(), pkg) ;
+					}
+				}
+			}
+			
+			if(c.fModules != null) {
+				for(SVDBDeclCacheItem module: c.fModules) {
+					if(!fModuleMap.containsKey(module.getName())) {
+						ObjectsTreeNode moduleNode = new ObjectsTreeNode(fModulesNode, module.getName(), module) ;  
+						fModulesNode.addChild(moduleNode) ; 
+						fModuleMap.put(module.getName(),module) ;
+					}
+				}
+			}
+			
+			if(c.fInterfaces != null) {
+				for(SVDBDeclCacheItem iface: c.fInterfaces) {
+					if(!fIfaceMap.containsKey(iface.getName())) {
+						ObjectsTreeNode ifaceNode = new ObjectsTreeNode(fInterfacesNode, iface.getName(), iface) ;  
+						fInterfacesNode.addChild(ifaceNode) ; 
+						fIfaceMap.put(iface.getName(),iface) ;
 					}
 				}
 			}
 		}
 		
-		return topNode ;
-		
+		return true ;
+	}
+	
+	private static void join_threads(Thread threads[]) {
+		for(int i=0; i<threads.length; i++) {
+			if(threads[i].isAlive()) {
+				try {
+					threads[i].join() ;
+				} catch (InterruptedException e) {}
+			}
+		}
 	}
 		
 }
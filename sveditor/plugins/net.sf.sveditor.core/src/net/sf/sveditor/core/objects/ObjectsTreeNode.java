@@ -54,8 +54,10 @@ public class ObjectsTreeNode {
 	}
 	
 	public void addChild(ObjectsTreeNode child) {
-		if (!fChildren.contains(child)) {
-			fChildren.add(child);
+		synchronized (fChildren) {
+			if (!fChildren.contains(child)) {
+				fChildren.add(child);
+			}
 		}
 	}
 	
@@ -76,8 +78,25 @@ public class ObjectsTreeNode {
 		fParent = parent;
 	}
 	
+	/**
+	 * Returns a snapshot of the node's children. Children may be added 
+	 * by a background build while the tree is displayed
+	 */
 	public List<ObjectsTreeNode> getChildren() {
-		return fChildren;
+		synchronized (fChildren) {
+			return new ArrayList<ObjectsTreeNode>(fChildren);
+		}
+	}
+	
+	/**
+	 * Indicates whether the node has, or may have, children. Unlike
+	 * getChildren(), does not cause the children of a lazily-expanded 
+	 * node to be collected
+	 */
+	public boolean hasChildren() {
+		synchronized (fChildren) {
+			return (fChildren.size() > 0);
+		}
 	}
 	
 	public SVDBDeclCacheItem getItemDecl() {
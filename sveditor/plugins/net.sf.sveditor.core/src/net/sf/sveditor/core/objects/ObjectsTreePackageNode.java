@@ -0,0 +1,88 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.objects;
+
+import java.util.List;
+
+import net.sf.sveditor.core.db.SVDBItemType;
+import net.sf.sveditor.core.db.index.ISVDBIndex;
+import net.sf.sveditor.core.db.index.SVDBDeclCacheItem;
+import net.sf.sveditor.core.log.LogFactory;
+import net.sf.sveditor.core.log.LogHandle;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+/**
+ * Tree node for a package. The classes declared in the package are 
+ * collected from the package's index the first time the children of
+ * the node are requested
+ */
+public class ObjectsTreePackageNode extends ObjectsTreeNode {
+	private ISVDBIndex				fIndex;
+	private boolean				fExpanded;
+	private LogHandle				fLog;
+	
+	public ObjectsTreePackageNode(
+			ObjectsTreeNode			parent,
+			String					name,
+			SVDBDeclCacheItem		pkg,
+			ISVDBIndex				index) {
+		super(parent, name, pkg);
+		fIndex = index;
+		fLog = LogFactory.getLogHandle("ObjectsTreePackageNode");
+	}
+	
+	@Override
+	public List<ObjectsTreeNode> getChildren() {
+		expand();
+		return super.getChildren();
+	}
+	
+	@Override
+	public boolean hasChildren() {
+		synchronized (this) {
+			if (!fExpanded) {
+				return true;
+			}
+		}
+		return super.hasChildren();
+	}
+	
+	public synchronized boolean isExpanded() {
+		return fExpanded;
+	}
+	
+	private synchronized void expand() {
+		if (fExpanded) {
+			return;
+		}
+		fExpanded = true;
+		
+		// Look deeper into the index to find all classes for this package
+		List<SVDBDeclCacheItem> pkgDecls = fIndex.findPackageDecl(
+				new NullProgressMonitor(), getItemDecl());
+		if (pkgDecls != null) {
+			fLog.debug("Package Declaration for \"" + getName() + "\" found");
+			for (SVDBDeclCacheItem pkgDecl : pkgDecls) {
+				if (pkgDecl.getType() == SVDBItemType.ClassDecl) {
+					fLog.debug("  Add node for \"" + pkgDecl.getName() + "\"");
+					addChild(new ObjectsTreeNode(this, pkgDecl.getName(), pkgDecl));
+				}
+			}
+		} else {
+			fLog.debug("Package Declaration for \"" + getName() + "\" not found");
+		}
+		fIndex = null;
+	}
+
+}
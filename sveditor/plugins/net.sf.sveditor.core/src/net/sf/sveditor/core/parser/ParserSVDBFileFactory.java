@@ -17,9 +17,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import net.sf.sveditor.core.SVCorePlugin;
 import net.sf.sveditor.core.Tuple;
 import net.sf.sveditor.core.db.IFieldItemAttr;
+import net.sf.sveditor.core.db.ISVDBChildItem;
 import net.sf.sveditor.core.db.ISVDBFileFactory;
 import net.sf.sveditor.core.db.ISVDBItemBase;
 import net.sf.sveditor.core.db.ISVDBScopeItem;
@@ -36,10 +39,13 @@ import net.sf.sveditor.core.db.SVDBMarker.MarkerType;
 import net.sf.sveditor.core.db.SVDBPackageDecl;
 import net.sf.sveditor.core.db.SVDBScopeItem;
 import net.sf.sveditor.core.db.stmt.SVDBParamPortDecl;
+import net.sf.sveditor.core.job_mgr.IJob;
+import net.sf.sveditor.core.job_mgr.IJobMgr;
 import net.sf.sveditor.core.log.ILogHandle;
 import net.sf.sveditor.core.log.ILogLevelListener;
 import net.sf.sveditor.core.log.LogFactory;
 import net.sf.sveditor.core.log.LogHandle;
+import net.sf.sveditor.core.preproc.SVPreProcOutput;
 import net.sf.sveditor.core.preproc.SVPreProcessor;
 import net.sf.sveditor.core.scanner.IDefineProvider;
 import net.sf.sveditor.core.scanner.IPreProcErrorListener;
@@ -63,6 +69,12 @@ import net.sf.sveditor.core.scanutils.ScanLocation;
 public class ParserSVDBFileFactory implements ISVScanner,
 		IPreProcErrorListener, ISVDBFileFactory, ISVPreProcScannerObserver,
 		ISVParser, ILogLevelListener {
+	/**
+	 * System property that specifies the default parallel-parse size.
+	 * See setParallelParseMinSize()
+	 */
+	public static final String PARALLEL_PARSE_PROPERTY = "sveditor.parser.parallel_min_size";
+	
 	private ITextScanner fInput;
 	private SVLexer fLexer;
 
@@ -80,6 +92,11 @@ public class ParserSVDBFileFactory implements ISVScanner,
 	private boolean					fDebugEn;
 	private List<SVDBMarker>			fMarkers;
 	private boolean					fDisableErrors;
+	private int						fParallelMinSize;
+	private boolean					fSkimBodies;
+	
+	// Smallest piece of a file that is parsed in parallel
+	private static final int			PARALLEL_MIN_CHUNK_SIZE = 16*1024;
 
 	public ParserSVDBFileFactory(IDefineProvider dp) {
 		// Setup logging
@@ -564,7 +581,57 @@ public class ParserSVDBFileFactory implements ISVScanner,
 	
 		SVPreProcessor preproc = new SVPreProcessor(
 				in, filename, fDefineProvider);
-		fInput = preproc.preprocess();
+		SVPreProcOutput pp_out = preproc.preprocess();
+		
+		if (fParallelMinSize <= 0 || pp_out.getText().length() < fParallelMinSize ||
+				!parse_parallel(pp_out)) {
+			parse_items(pp_out);
+		}
+
+		if (fScopeStack.size() > 0
+				&& fScopeStack.peek().getType() == SVDBItemType.File) {
+			setEndLocation(fScopeStack.peek());
+			fScopeStack.pop();
+		}
+
+		if (fDefineProvider != null) {
+			fDefineProvider.removeErrorListener(this);
+		}
+		
+		return fFile;
+	}
+	
+	/**
+	 * Sets the size, in pre-processed characters, from which a file is
+	 * split at top-level design elements, and the pieces parsed in 
+	 * parallel. A size <= 0 disables parallel parsing
+	 */
+	public void setParallelParseMinSize(int size) {
+		fParallelMinSize = size;
+	}
+	
+	/**
+	 * Enables skim parsing. When skimming, the bodies of tasks, 
+	 * functions, constraints and begin/fork blocks of initial, always
+	 * and final statements are skipped by matching their delimiters, 
+	 * so only declarations, signatures and scope structure are 
+	 * recorded. Used for library files whose bodies are rarely needed
+	 */
+	public void setSkimBodies(boolean skim) {
+		fSkimBodies = skim;
+	}
+	
+	public boolean isSkimBodies() {
+		return fSkimBodies;
+	}
+	
+	/**
+	 * Parses the top-level items from 'input' into fFile
+	 * 
+	 * @return false if parsing stopped because of an error
+	 */
+	private boolean parse_items(ITextScanner input) {
+		fInput = input;
 		fLexer = new SVLexer();
 		fLexer.init(this, fInput);
 		fSVParsers = new SVParsers();
@@ -578,23 +645,171 @@ public class ParserSVDBFileFactory implements ISVScanner,
 			if (fDebugEn) {
 				debug("ParseException: post-process()", e);
 			}
+			return false;
 		} catch (EOFException e) {
 			e.printStackTrace();
+			return false;
 		} catch (SVAbortParseException e) {
 			// error limit exceeded
+			return false;
 		}
-
-		if (fScopeStack.size() > 0
-				&& fScopeStack.peek().getType() == SVDBItemType.File) {
-			setEndLocation(fScopeStack.peek());
-			fScopeStack.pop();
+		
+		return true;
+	}
+	
+	/**
+	 * Splits the pre-processed file at top-level design elements, and
+	 * parses the pieces concurrently on the job manager. The calling 
+	 * thread parses pieces too, and only waits for pieces that another
+	 * thread has started, so parsing from a job-manager thread is safe.
+	 * 
+	 * Returns false, leaving fFile unchanged, if the file cannot be
+	 * split, or if parsing any piece stopped on an error. The file is 
+	 * then parsed sequentially. Pieces that complete with recoverable
+	 * errors are kept, so the result matches a sequential parse only as
+	 * long as the parser recovers from each error before the end of 
+	 * its piece.
+	 */
+	private boolean parse_parallel(SVPreProcOutput input) {
+		long start = System.currentTimeMillis();
+		int n_threads = Runtime.getRuntime().availableProcessors();
+		int length = input.getText().length();
+		List<ParseChunk> chunk_l = new ArrayList<ParseChunk>();
+		int chunk_start = 0;
+		
+		for (int b : findParallelSplitPoints(input.getText())) {
+			chunk_l.add(new ParseChunk(input.subRange(chunk_start, b)));
+			chunk_start = b;
 		}
-
-		if (fDefineProvider != null) {
-			fDefineProvider.removeErrorListener(this);
+		
+		if (chunk_l.size() == 0) {
+			return false;
+		}
+		chunk_l.add(new ParseChunk(input.subRange(chunk_start, length)));
+
+		final ParseChunk chunks[] = chunk_l.toArray(new ParseChunk[chunk_l.size()]);
+		final AtomicInteger next = new AtomicInteger();
+		Runnable worker = new Runnable() {
+			public void run() {
+				int idx;
+				while ((idx = next.getAndIncrement()) < chunks.length) {
+					chunks[idx].parse();
+				}
+			}
+		};
+		
+		IJobMgr job_mgr = SVCorePlugin.getJobMgr();
+		for (int i=1; i<Math.min(chunks.length, n_threads); i++) {
+			IJob job = job_mgr.createJob();
+			job.init("Parse " + fFile.getFilePath(), worker);
+			job_mgr.queueJob(job);
 		}
+		worker.run();
 		
-		return fFile;
+		// A sequential parse would have stopped at the first uncaught 
+		// error, or once the error limit was reached
+		int n_errors = fParseErrorCount;
+		boolean ok = true;
+		for (ParseChunk c : chunks) {
+			if (!c.waitComplete()) {
+				ok = false;
+			} else {
+				n_errors += c.fParser.fParseErrorCount;
+			}
+		}
+		
+		if (!ok || (fParseErrorMax > 0 && n_errors >= fParseErrorMax)) {
+			if (fDebugEn) {
+				debug("Parallel parse of " + fFile.getFilePath() + 
+						" stopped on an error. Parsing sequentially");
+			}
+			return false;
+		}
+		
+		for (ParseChunk c : chunks) {
+			for (ISVDBChildItem it : c.fParser.fFile.getChildren()) {
+				fFile.addChildItem(it);
+			}
+			fMarkers.addAll(c.fParser.fMarkers);
+		}
+		fParseErrorCount = n_errors;
+		
+		// The file ends where the last piece ends
+		fInput = chunks[chunks.length-1].fInput;
+		
+		if (fDebugEn) {
+			debug("Parsed " + fFile.getFilePath() + " in " + chunks.length + 
+					" pieces in " + (System.currentTimeMillis()-start) + "ms");
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Returns the offsets at which the pre-processed text 'text' is split
+	 * for a parallel parse. Each piece holds several top-level items, and
+	 * there are a few pieces for each processor
+	 */
+	public static List<Integer> findParallelSplitPoints(CharSequence text) {
+		List<Integer> ret = new ArrayList<Integer>();
+		int n_threads = Runtime.getRuntime().availableProcessors();
+		int length = text.length();
+		int chunk_size = Math.max(PARALLEL_MIN_CHUNK_SIZE, length / (4*n_threads));
+		int chunk_start = 0;
+		
+		for (int b : SVTopLevelScanner.findItemBoundaries(text)) {
+			if (b - chunk_start >= chunk_size && length - b >= PARALLEL_MIN_CHUNK_SIZE) {
+				ret.add(b);
+				chunk_start = b;
+			}
+		}
+		
+		return ret;
+	}
+	
+	private class ParseChunk {
+		public SVPreProcOutput					fInput;
+		public ParserSVDBFileFactory			fParser;
+		private boolean							fOk;
+		private boolean							fDone;
+		
+		public ParseChunk(SVPreProcOutput input) {
+			fInput = input;
+		}
+		
+		public void parse() {
+			boolean ok = false;
+			
+			try {
+				fParser = new ParserSVDBFileFactory(null);
+				fParser.fSkimBodies = fSkimBodies;
+				fParser.fFile = new SVDBFile(fFile.getFilePath());
+				fParser.fScopeStack.push(fParser.fFile);
+				fParser.fMarkers = new ArrayList<SVDBMarker>();
+				ok = fParser.parse_items(fInput);
+			} catch (RuntimeException e) {
+				if (fDebugEn) {
+					debug("Parse of file piece failed", e);
+				}
+			}
+			
+			synchronized (this) {
+				fOk = ok;
+				fDone = true;
+				notifyAll();
+			}
+		}
+		
+		public synchronized boolean waitComplete() {
+			while (!fDone) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					return false;
+				}
+			}
+			return fOk;
+		}
 	}
 
 	public void init(InputStream in, String name) {
@@ -696,6 +696,59 @@ public class SVBehavioralBlockParser extends SVParserBase {
 		}
 	}
 	
+	/**
+	 * Adds an empty begin/end or fork/join block, skipping the
+	 * statements it contains by matching the block delimiters
+	 */
+	public void skim_block(ISVDBAddChildItem parent) throws SVParseException {
+		SVDBLocation start = fLexer.getStartLocation();
+		SVDBBlockStmt block;
+		String prev = null;
+		int depth = 0;
+		
+		if (fLexer.peekKeyword("fork")) {
+			block = new SVDBForkStmt();
+		} else {
+			block = new SVDBBlockStmt();
+		}
+		block.setLocation(start);
+		parent.addChildItem(block);
+		
+		fLexer.readKeyword("begin", "fork");
+		
+		while (fLexer.peek() != null) {
+			if (fLexer.peekKeyword("begin") || 
+					// 'wait fork' and 'disable fork' are statements
+					(fLexer.peekKeyword("fork") && 
+							!"wait".equals(prev) && !"disable".equals(prev))) {
+				depth++;
+			} else if (fLexer.peekKeyword("end", "join", "join_none", "join_any")) {
+				if (depth == 0) {
+					break;
+				}
+				depth--;
+			}
+			prev = fLexer.eatToken();
+		}
+
+		block.setEndLocation(fLexer.getStartLocation());
+		String end = fLexer.readKeyword("end", "join", "join_none", "join_any");
+		if (block.getType() == SVDBItemType.ForkStmt) {
+			if (end.equals("join")) {
+				((SVDBForkStmt)block).setJoinType(JoinType.Join);
+			} else if (end.equals("join_none")) {
+				((SVDBForkStmt)block).setJoinType(JoinType.JoinNone);
+			} else if (end.equals("join_any")) {
+				((SVDBForkStmt)block).setJoinType(JoinType.JoinAny);
+			}
+		}
+		
+		if (fLexer.peekOperator(":")) {
+			fLexer.eatToken();
+			fLexer.readId();
+		}
+	}
+	
 	private void parse_if_stmt(ISVDBAddChildItem parent) throws SVParseException {
 		SVDBLocation start = fLexer.getStartLocation();
 		String if_stem = fLexer.eatToken();
@@ -47,14 +47,37 @@ public class SVConstraintParser extends SVParserBase {
 
 			parent.addChildItem(c);
 
-			while (fLexer.peek() != null && !fLexer.peekOperator("}")) {
-				c.addChildItem(constraint_set_item());
+			if (skimBodies()) {
+				skim_constraint_set();
+			} else {
+				while (fLexer.peek() != null && !fLexer.peekOperator("}")) {
+					c.addChildItem(constraint_set_item());
+				}
 			}
 
 			fLexer.readOperator("}");
 		}
 	}
 	
+	/**
+	 * Skips the constraint items up to the closing brace
+	 */
+	private void skim_constraint_set() throws SVParseException {
+		int depth = 0;
+		
+		while (fLexer.peek() != null) {
+			if (fLexer.peekOperator("{")) {
+				depth++;
+			} else if (fLexer.peekOperator("}")) {
+				if (depth == 0) {
+					break;
+				}
+				depth--;
+			}
+			fLexer.eatToken();
+		}
+	}
+	
 	public SVDBStmt constraint_set(boolean force_braces) throws SVParseException {
 		if (fDebugEn) {debug("--> constraint_set()");}
 		
@@ -17,13 +17,11 @@ import java.util.List;
 import java.util.Set;
 import java.util.Stack;
 
-import net.sf.sveditor.core.db.SVDBLocation;
 import net.sf.sveditor.core.log.LogFactory;
 import net.sf.sveditor.core.log.LogHandle;
 import net.sf.sveditor.core.scanner.SVCharacter;
 import net.sf.sveditor.core.scanner.SVKeywords;
 import net.sf.sveditor.core.scanutils.ITextScanner;
-import net.sf.sveditor.core.scanutils.ScanLocation;
 
 public class SVLexer extends SVToken {
 	private ITextScanner fScanner;
@@ -155,7 +153,8 @@ public class SVLexer extends SVToken {
 		fIsOperator = tok.fIsOperator;
 		fIsString = tok.fIsString;
 		fIsTime = tok.fIsTime;
-		fStartLocation = tok.fStartLocation.duplicate();
+		fStartLine = tok.fStartLine;
+		fStartPos = tok.fStartPos;
 	}
 
 	public SVToken peekToken() {
@@ -670,9 +669,8 @@ public class SVLexer extends SVToken {
 			append_ch(ch);
 		}
 
-		// TODO: should fix
-		ScanLocation loc = fScanner.getLocation();
-		fStartLocation = new SVDBLocation(loc.getLineNo(), loc.getLinePos());
+		fStartLine = fScanner.getLineno();
+		fStartPos = fScanner.getLinepos();
 
 		if (ch == -1) {
 			fEOF = true;
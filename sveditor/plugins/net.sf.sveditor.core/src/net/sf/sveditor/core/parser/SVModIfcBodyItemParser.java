@@ -583,7 +583,11 @@ public class SVModIfcBodyItemParser extends SVParserBase {
 		
 		parent.addChildItem(ret);
 		
-		fParsers.behavioralBlockParser().statement(ret);
+		if (skimBodies() && fLexer.peekKeyword("begin", "fork")) {
+			fParsers.behavioralBlockParser().skim_block(ret);
+		} else {
+			fParsers.behavioralBlockParser().statement(ret);
+		}
 	}
 	
 	private void modport_decl(ISVDBAddChildItem parent) throws SVParseException {
@@ -756,6 +760,10 @@ public class SVModIfcBodyItemParser extends SVParserBase {
 		ret.setLocation(start);
 		
 		parent.addChildItem(ret);
-		fParsers.behavioralBlockParser().statement((SVDBBodyStmt)ret);
+		if (skimBodies() && fLexer.peekKeyword("begin", "fork")) {
+			fParsers.behavioralBlockParser().skim_block((SVDBBodyStmt)ret);
+		} else {
+			fParsers.behavioralBlockParser().statement((SVDBBodyStmt)ret);
+		}
 	}
 }
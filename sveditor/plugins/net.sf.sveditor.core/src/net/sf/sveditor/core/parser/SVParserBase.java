@@ -96,4 +96,12 @@ public class SVParserBase implements ISVParser, ILogLevelListener {
 	protected void setEndLocation(SVDBScopeItem item) {
 		item.setEndLocation(getLocation());
 	}
+	
+	/**
+	 * Returns true if procedural bodies are skipped rather than parsed
+	 */
+	protected boolean skimBodies() {
+		ParserSVDBFileFactory p = fParsers.SVParser();
+		return (p != null && p.isSkimBodies());
+	}
 }
@@ -29,6 +29,12 @@ public class SVTaskFuncBodyParser extends SVParserBase {
 		}
 		
 		
+		// Non-ANSI bodies declare the ports, so are always parsed
+		if (is_ansi && skimBodies()) {
+			skim(tf, end_keyword);
+			return;
+		}
+		
 		// Parse the task/function body, including declarations
 		// decl_allowed tracks the 
 		boolean decl_allowed = true;
@@ -49,4 +55,20 @@ public class SVTaskFuncBodyParser extends SVParserBase {
 			debug("<-- SVTaskFuncBodyParser: " + fLexer.peek());
 		}
 	}
+	
+	/**
+	 * Skips the body tokens up to the end keyword
+	 */
+	private void skim(SVDBTask tf, String end_keyword) throws SVParseException {
+		String prev = null;
+		
+		while (fLexer.peek() != null && !fLexer.peekKeyword(end_keyword)) {
+			// virtual interface is a valid variable type
+			if (fLexer.peekKeyword("class", "module") ||
+					(fLexer.peekKeyword("interface") && !"virtual".equals(prev))) {
+				error("Missing " + ((tf.getType() == SVDBItemType.Function)?"function":"task") + " end");
+			}
+			prev = fLexer.eatToken();
+		}
+	}
 }
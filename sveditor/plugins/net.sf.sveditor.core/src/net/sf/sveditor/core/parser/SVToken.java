@@ -24,7 +24,10 @@ public class SVToken {
 	protected boolean						fIsIdentifier;
 	protected boolean						fIsKeyword;
 	protected boolean						fIsPath;
-	protected SVDBLocation					fStartLocation;
+	// Start location is kept in primitive fields. An SVDBLocation is 
+	// only created when requested by getStartLocation()
+	protected int							fStartLine;
+	protected int							fStartPos;
 
 	public SVToken duplicate() {
 		SVToken ret = new SVToken();
@@ -36,7 +39,8 @@ public class SVToken {
 		ret.fIsIdentifier  = fIsIdentifier;
 		ret.fIsKeyword     = fIsKeyword;
 		ret.fIsPath        = fIsPath;
-		ret.fStartLocation = fStartLocation.duplicate();
+		ret.fStartLine     = fStartLine;
+		ret.fStartPos      = fStartPos;
 		
 		return ret;
 	}
@@ -79,8 +83,19 @@ public class SVToken {
 		return fImage;
 	}
 	
+	/**
+	 * Returns a new location object for the start of the token
+	 */
 	public SVDBLocation getStartLocation() {
-		return fStartLocation;
+		return new SVDBLocation(fStartLine, fStartPos);
+	}
+	
+	public int getStartLine() {
+		return fStartLine;
+	}
+	
+	public int getStartPos() {
+		return fStartPos;
 	}
 	
 }
@@ -0,0 +1,183 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.parser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fast scan of pre-processed text for the ends of top-level design
+ * elements (modules, interfaces, programs, packages, classes, etc).
+ * Only keywords, strings and escaped identifiers are recognized, so the
+ * scan is much cheaper than a parse. The text between two boundaries
+ * holds complete top-level items, and may be parsed independently.
+ */
+public class SVTopLevelScanner {
+	private static final Map<String, String>	fScopeKeywords;
+	private static final Set<String>			fEndKeywords;
+
+	static {
+		fScopeKeywords = new HashMap<String, String>();
+		fScopeKeywords.put("module", "endmodule");
+		fScopeKeywords.put("macromodule", "endmodule");
+		fScopeKeywords.put("interface", "endinterface");
+		fScopeKeywords.put("program", "endprogram");
+		fScopeKeywords.put("package", "endpackage");
+		fScopeKeywords.put("class", "endclass");
+		fScopeKeywords.put("primitive", "endprimitive");
+		fScopeKeywords.put("checker", "endchecker");
+		fScopeKeywords.put("config", "endconfig");
+
+		fEndKeywords = new HashSet<String>(fScopeKeywords.values());
+	}
+
+	private CharSequence					fText;
+	private int								fIdx;
+
+	private SVTopLevelScanner(CharSequence text) {
+		fText = text;
+		fIdx = 0;
+	}
+
+	/**
+	 * Returns the offsets just past the end of each top-level design
+	 * element in 'text', including any end label. An empty list is
+	 * returned if the scope keywords in the text are not balanced.
+	 */
+	public static List<Integer> findItemBoundaries(CharSequence text) {
+		return new SVTopLevelScanner(text).scan();
+	}
+
+	private List<Integer> scan() {
+		List<Integer> ret = new ArrayList<Integer>();
+		List<String> scope_stack = new ArrayList<String>();
+		String prev = null;
+		String id;
+
+		while ((id = next_id()) != null) {
+			String end = fScopeKeywords.get(id);
+
+			if (end != null) {
+				// Forward declarations, extern declarations and virtual
+				// interface types do not open a scope. An interface class
+				// is closed by 'endclass'
+				if ((id.equals("class") && "typedef".equals(prev)) ||
+						"extern".equals(prev) ||
+						(id.equals("interface") && "virtual".equals(prev)) ||
+						(id.equals("interface") && "class".equals(peek_id()))) {
+					end = null;
+				}
+			}
+
+			if (end != null) {
+				scope_stack.add(end);
+			} else if (fEndKeywords.contains(id)) {
+				if (scope_stack.size() == 0 ||
+						!scope_stack.get(scope_stack.size()-1).equals(id)) {
+					// Unbalanced. Don't attempt to split
+					return new ArrayList<Integer>();
+				}
+				scope_stack.remove(scope_stack.size()-1);
+
+				if (scope_stack.size() == 0) {
+					skip_end_label();
+					ret.add(fIdx);
+				}
+			}
+			prev = id;
+		}
+
+		if (scope_stack.size() != 0) {
+			ret.clear();
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Returns the next identifier or keyword, skipping strings,
+	 * escaped identifiers, numbers and operators
+	 */
+	private String next_id() {
+		int len = fText.length();
+
+		while (fIdx < len) {
+			char ch = fText.charAt(fIdx);
+
+			if (ch == '"') {
+				fIdx++;
+				while (fIdx < len && (ch = fText.charAt(fIdx)) != '"') {
+					fIdx += (ch == '\\')?2:1;
+				}
+				fIdx++;
+			} else if (ch == '\\') {
+				while (fIdx < len && !Character.isWhitespace(fText.charAt(fIdx))) {
+					fIdx++;
+				}
+			} else if (Character.isLetter(ch) || ch == '_') {
+				int start = fIdx;
+				while (fIdx < len && is_id_part(fText.charAt(fIdx))) {
+					fIdx++;
+				}
+				return fText.subSequence(start, fIdx).toString();
+			} else if (Character.isDigit(ch) || ch == '$' || ch == '\'') {
+				// Skip numbers, system identifiers and based literals
+				fIdx++;
+				while (fIdx < len && is_id_part(fText.charAt(fIdx))) {
+					fIdx++;
+				}
+			} else {
+				fIdx++;
+			}
+		}
+
+		return null;
+	}
+
+	private String peek_id() {
+		int idx = fIdx;
+		String ret = next_id();
+		fIdx = idx;
+		return ret;
+	}
+
+	private void skip_end_label() {
+		int len = fText.length();
+		int idx = fIdx;
+
+		while (idx < len && Character.isWhitespace(fText.charAt(idx))) {
+			idx++;
+		}
+
+		if (idx < len && fText.charAt(idx) == ':' &&
+				(idx+1 >= len || fText.charAt(idx+1) != ':')) {
+			idx++;
+			while (idx < len && Character.isWhitespace(fText.charAt(idx))) {
+				idx++;
+			}
+			while (idx < len && is_id_part(fText.charAt(idx))) {
+				idx++;
+			}
+			fIdx = idx;
+		}
+	}
+
+	private static boolean is_id_part(char ch) {
+		return (Character.isLetterOrDigit(ch) || ch == '_' || ch == '$');
+	}
+
+}
@@ -242,7 +242,7 @@ public class SVPreProcDirectiveScanner extends AbstractTextScanner
 		String title = fDocCommentParser.isDocComment(comment) ;
 		if(title != null) { 
 			if (fObserver != null) {
-				fLog.debug("Saving doc comment (title=" + title + "): " + comment);
+				fLog.debugf("Saving doc comment (title=%s): %s", title, comment);
 				fObserver.comment( title, comment) ; 
 			}
 		}
@@ -460,7 +460,7 @@ public class SVPreProcDirectiveScanner extends AbstractTextScanner
 				
 				inc = inc.substring(1, inc.length()-1);
 				
-				fLog.debug("Include: last char=\"" + inc.charAt(inc.length()-1) + "\"");
+				fLog.debugf("Include: last char=\"%c\"", inc.charAt(inc.length()-1));
 				
 				if (fObserver != null) {
 					fObserver.preproc_include(inc);
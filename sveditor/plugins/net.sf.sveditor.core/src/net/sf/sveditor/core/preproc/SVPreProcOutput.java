@@ -11,6 +11,7 @@ public class SVPreProcOutput extends AbstractTextScanner {
 	private int						fLineIdx;
 	private int						fNextLinePos;
 	private int						fIdx;
+	private int						fEnd;
 	private int						fUngetCh1, fUngetCh2;
 	
 	public SVPreProcOutput(
@@ -18,6 +19,7 @@ public class SVPreProcOutput extends AbstractTextScanner {
 			List<Integer>		line_map) {
 		fText = text;
 		fIdx = 0;
+		fEnd = text.length();
 		fLineIdx = 0;
 		fLineMap = line_map;
 		if (line_map.size() > 1) {
@@ -36,6 +38,51 @@ public class SVPreProcOutput extends AbstractTextScanner {
 		fUngetCh1 = -1;
 		fUngetCh2 = -1;
 	}
+	
+	private SVPreProcOutput(SVPreProcOutput base, int start, int end) {
+		fText = base.fText;
+		fLineMap = base.fLineMap;
+		fIdx = start;
+		fEnd = end;
+		fNextLinePos = (fLineMap.size() > 1)?fLineMap.get(1):Integer.MAX_VALUE;
+		fLineIdx = 0;
+		fLineno = 1;
+		
+		// Start with the line that the full output reports at 'start'
+		if (start >= fNextLinePos) {
+			int lo = 0, hi = fLineMap.size();
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (fLineMap.get(mid) < start) {
+					lo = mid+1;
+				} else {
+					hi = mid;
+				}
+			}
+			fLineIdx = lo;
+			fLineno = 1 + lo;
+			if (fLineIdx >= fLineMap.size()) {
+				fNextLinePos = Integer.MAX_VALUE;
+			}
+		}
+		fUngetCh1 = -1;
+		fUngetCh2 = -1;
+	}
+	
+	/**
+	 * Returns a scanner over the range [start, end) of the output. The
+	 * scanner reports the same locations for the range as this one does.
+	 */
+	public SVPreProcOutput subRange(int start, int end) {
+		return new SVPreProcOutput(this, start, end);
+	}
+	
+	/**
+	 * Returns the pre-processed text. The text must not be modified
+	 */
+	public CharSequence getText() {
+		return fText;
+	}
 
 	public int get_ch() {
 		int ch = -1;
@@ -43,7 +90,7 @@ public class SVPreProcOutput extends AbstractTextScanner {
 			ch = fUngetCh1;
 			fUngetCh1 = fUngetCh2;
 			fUngetCh2 = -1;
-		} else if (fIdx < fText.length()) {
+		} else if (fIdx < fEnd) {
 			ch = fText.charAt(fIdx++);
 		}
 		return ch;
@@ -55,6 +102,11 @@ public class SVPreProcOutput extends AbstractTextScanner {
 	}
 
 	public ScanLocation getLocation() {
+		return new ScanLocation("", getLineno(), 1);
+	}
+	
+	@Override
+	public int getLineno() {
 		// Spin the line location forward if necessary
 		if (fIdx >= fNextLinePos) {
 			// Need to move forward
@@ -71,7 +123,12 @@ public class SVPreProcOutput extends AbstractTextScanner {
 			}
 		}
 		
-		return new ScanLocation("", fLineno, 1);
+		return fLineno;
+	}
+	
+	@Override
+	public int getLinepos() {
+		return 1;
 	}
 
 	public long getPos() {
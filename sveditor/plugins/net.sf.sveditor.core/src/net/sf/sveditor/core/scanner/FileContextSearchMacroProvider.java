@@ -101,7 +101,7 @@ public class FileContextSearchMacroProvider implements IPreProcMacroProvider {
 					if (fWorkingSet.containsKey(ib_s)) {
 						ib = fWorkingSet.get(ib_s);
 					} else {
-						ib = fIndexCache.getFileTree(new NullProgressMonitor(), ib_s);
+						ib = getFileTree(ib_s);
 					}
 					if (ib == null) {
 						fLog.error("Failed to obtain path \"" + ib_s + "\" from the FileTree Cache");
@@ -170,7 +170,7 @@ public class FileContextSearchMacroProvider implements IPreProcMacroProvider {
 					if (fWorkingSet.containsKey(inc_s)) {
 						inc = fWorkingSet.get(inc_s);
 					} else {
-						inc = fIndexCache.getFileTree(new NullProgressMonitor(), inc_s);
+						inc = getFileTree(inc_s);
 					}
 					 
 					debug_s(indent(fIndent) + "    searching included file \"" + ((inc !=null)?inc.getFilePath():"NULL") + "\"");
@@ -212,7 +212,7 @@ public class FileContextSearchMacroProvider implements IPreProcMacroProvider {
 				if (fWorkingSet.containsKey(is_s)) {
 					is = fWorkingSet.get(is_s);
 				} else {
-					is = fIndexCache.getFileTree(new NullProgressMonitor(), is_s);
+					is = getFileTree(is_s);
 				}
 				
 				if (is == null) {
@@ -229,7 +229,7 @@ public class FileContextSearchMacroProvider implements IPreProcMacroProvider {
 							if (fWorkingSet.containsKey(ib_s)) {
 								ib = fWorkingSet.get(ib_s);
 							} else {
-								ib = fIndexCache.getFileTree(new NullProgressMonitor(), ib_s);
+								ib = getFileTree(ib_s);
 							}
 							if ((m = searchUp(boundary, ib, context, key)) != null) {
 								break;
@@ -265,5 +265,15 @@ public class FileContextSearchMacroProvider implements IPreProcMacroProvider {
 		}
 		return ret;
 	}
+	
+	/**
+	 * The file-tree cache may be shared by providers running on 
+	 * different threads
+	 */
+	private SVDBFileTree getFileTree(String path) {
+		synchronized (fIndexCache) {
+			return fIndexCache.getFileTree(new NullProgressMonitor(), path);
+		}
+	}
 
 }
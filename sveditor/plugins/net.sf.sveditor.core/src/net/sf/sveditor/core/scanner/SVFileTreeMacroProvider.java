@@ -110,7 +110,7 @@ public class SVFileTreeMacroProvider implements IPreProcMacroProvider {
 		file_list.add(ib);
 		while (ib.getIncludedByFiles().size() > 0) {
 			String ib_s = ib.getIncludedByFiles().get(0); 
-			ib = fIndexCache.getFileTree(new NullProgressMonitor(), ib_s);
+			ib = getFileTree(ib_s);
 			file_list.add(ib);
 		}
 		
@@ -152,14 +152,14 @@ public class SVFileTreeMacroProvider implements IPreProcMacroProvider {
 					fLog.debug("Found stop point");
 					 */
 					return true;
-				} else if (!fMissingIncludes.contains(leaf)) {
+				} else if (!isMissingInclude(leaf)) {
 					// Look for the included file
 					SVDBFileTree inc = null;
 					if (fDebugEn) {
 						fLog.debug("Searching included files of " + file.getFilePath() + " for " + leaf);
 					}
 					for (String inc_s : file.getIncludedFiles()) {
-						SVDBFileTree inc_t = fIndexCache.getFileTree(new NullProgressMonitor(), inc_s);
+						SVDBFileTree inc_t = getFileTree(inc_s);
 						
 						if (inc_t != null) {
 							if (fDebugEn) {
@@ -179,7 +179,7 @@ public class SVFileTreeMacroProvider implements IPreProcMacroProvider {
 							collectMacroDefs(inc, inc.getSVDBFile(), null);
 						}
 					} else {
-						fMissingIncludes.add(leaf);
+						addMissingInclude(leaf);
 						fLog.debug("Failed to find \"" + leaf + "\" in file-tree");
 						if (fDebugEn) {
 							for (String inc_s : file.getIncludedFiles()) {
@@ -228,13 +228,13 @@ public class SVFileTreeMacroProvider implements IPreProcMacroProvider {
 				}
 				SVDBFileTree inc = null;
 				String it_leaf = new File(((ISVDBNamedItem)it).getName()).getName();
-				if (!fMissingIncludes.contains(it_leaf)) {
+				if (!isMissingInclude(it_leaf)) {
 					if (fDebugEn) {
 						List<String> inc_f = context.getIncludedFiles();
 						fLog.debug("    There are " + ((inc_f != null)?inc_f.size():"null") + " included files");
 					}
 					for (String inc_s : context.getIncludedFiles()) {
-						SVDBFileTree inc_t = fIndexCache.getFileTree(new NullProgressMonitor(), inc_s);
+						SVDBFileTree inc_t = getFileTree(inc_s);
 						if (fDebugEn) {
 							fLog.debug("    inc_s: " + inc_s + " -> " + inc_t);
 						}
@@ -263,7 +263,7 @@ public class SVFileTreeMacroProvider implements IPreProcMacroProvider {
 						}
 					} else {
 						fLog.error("Failed to find \"" + SVDBItem.getName(it) + "\" in this-file-tree");
-						fMissingIncludes.add(it_leaf);
+						addMissingInclude(it_leaf);
 						if (fDebugEn) {
 							for (String inc_s : context.getIncludedFiles()) {
 								fLog.debug("    " + inc_s);
@@ -276,5 +276,27 @@ public class SVFileTreeMacroProvider implements IPreProcMacroProvider {
 		
 		return true;
 	}
+	
+	/**
+	 * The file-tree cache and the missing-include set may be shared by
+	 * providers running on different threads
+	 */
+	private SVDBFileTree getFileTree(String path) {
+		synchronized (fIndexCache) {
+			return fIndexCache.getFileTree(new NullProgressMonitor(), path);
+		}
+	}
+	
+	private boolean isMissingInclude(String leaf) {
+		synchronized (fMissingIncludes) {
+			return fMissingIncludes.contains(leaf);
+		}
+	}
+	
+	private void addMissingInclude(String leaf) {
+		synchronized (fMissingIncludes) {
+			fMissingIncludes.add(leaf);
+		}
+	}
 
 }
@@ -39,6 +39,18 @@ public abstract class AbstractTextScanner implements ITextScanner {
 		fCaptureEnabled = false;
 	}
 	
+	/**
+	 * Scanners that track the location in fLineno/fLinepos override
+	 * getLineno() and getLinepos() to avoid creating a location
+	 */
+	public int getLineno() {
+		return getLocation().getLineNo();
+	}
+	
+	public int getLinepos() {
+		return getLocation().getLinePos();
+	}
+	
 	public boolean getScanFwd() {
 		return fScanFwd;
 	}
@@ -32,6 +32,16 @@ public interface ITextScanner {
 	
 	ScanLocation getLocation();
 	
+	/**
+	 * Returns the line number of getLocation(), without allocating
+	 */
+	int getLineno();
+	
+	/**
+	 * Returns the line position of getLocation(), without allocating
+	 */
+	int getLinepos();
+	
 	long getPos();
 
 }
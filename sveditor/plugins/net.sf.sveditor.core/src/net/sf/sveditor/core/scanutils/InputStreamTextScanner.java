@@ -40,6 +40,16 @@ public class InputStreamTextScanner extends AbstractTextScanner {
 		return new ScanLocation(fFilename, fLineno, fLinepos);
 	}
 	
+	@Override
+	public int getLineno() {
+		return fLineno;
+	}
+	
+	@Override
+	public int getLinepos() {
+		return fLinepos;
+	}
+	
 	public int get_ch() {
 		int ch = -1;
 		
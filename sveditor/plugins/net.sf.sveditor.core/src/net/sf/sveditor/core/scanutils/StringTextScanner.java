@@ -204,4 +204,14 @@ public class StringTextScanner extends AbstractTextScanner
 	public ScanLocation getLocation() {
 		return new ScanLocation("UNKNOWN", fLineno, fLinepos);
 	}
+	
+	@Override
+	public int getLineno() {
+		return fLineno;
+	}
+	
+	@Override
+	public int getLinepos() {
+		return fLinepos;
+	}
 }
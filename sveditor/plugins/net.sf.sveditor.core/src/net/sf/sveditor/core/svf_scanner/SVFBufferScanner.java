@@ -0,0 +1,481 @@
+/****************************************************************************
+ * Copyright (c) 2008-2011 Matthew Ballance and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Matthew Ballance - initial implementation
+ ****************************************************************************/
+
+
+package net.sf.sveditor.core.svf_scanner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.sveditor.core.scanner.SVCharacter;
+
+/**
+ * SVFBufferScanner is a byte-oriented variant of SVFScanner intended for
+ * large, generated argument files. The complete file is read into a
+ * single buffer that is scanned in place using a character-class table.
+ * Strings are only created for the entries that are kept.
+ *
+ * The entries produced are the same as those produced by SVFScanner,
+ * with the following exceptions:
+ * - A non-identifier define value (eg -define A=1) is read up to
+ *   the next whitespace, instead of being treated as a file path
+ * - Unterminated block comments and a trailing -v switch terminate
+ *   at the end of the file
+ *
+ * @author ballance
+ *
+ */
+public class SVFBufferScanner {
+	private static final byte				CC_WS		= 0x01;
+	private static final byte				CC_ID_START	= 0x02;
+	private static final byte				CC_ID_PART	= 0x04;
+	private static final byte				fCharClass[];
+
+	private byte							fBuf[];
+	private int							fIdx;
+	private int							fEnd;
+
+	private List<String>					fIncludePaths;
+	private Map<String, String>			fDefineMap;
+	private List<String>					fFilePaths;
+	private List<String>					fLibPaths;
+	private Set<String>					fSrcExtensions;
+	private List<String>					fIncludedArgFiles;
+
+	static {
+		fCharClass = new byte[256];
+		for (int i=0; i<256; i++) {
+			byte cc = 0;
+			if (Character.isWhitespace(i)) {
+				cc |= CC_WS;
+			}
+			if (SVCharacter.isSVIdentifierStart(i)) {
+				cc |= CC_ID_START;
+			}
+			if (SVCharacter.isSVIdentifierPart(i)) {
+				cc |= CC_ID_PART;
+			}
+			fCharClass[i] = cc;
+		}
+	}
+
+	public SVFBufferScanner() {
+		fIncludePaths 		= new ArrayList<String>();
+		fDefineMap 			= new HashMap<String, String>();
+		fFilePaths 			= new ArrayList<String>();
+		fLibPaths			= new ArrayList<String>();
+		fIncludedArgFiles 	= new ArrayList<String>();
+		fSrcExtensions		= new HashSet<String>();
+
+		fSrcExtensions.add(".sv");
+		fSrcExtensions.add(".v");
+		fSrcExtensions.add(".vl");
+		fSrcExtensions.add(".vlog");
+	}
+
+	public List<String> getIncludePaths() {
+		return fIncludePaths;
+	}
+
+	public List<String> getFilePaths() {
+		return fFilePaths;
+	}
+
+	public List<String> getLibPaths() {
+		return fLibPaths;
+	}
+
+	public Set<String> getSrcExts() {
+		return fSrcExtensions;
+	}
+
+	public List<String> getArgFilePaths() {
+		return fIncludedArgFiles;
+	}
+
+	public Map<String, String> getDefineMap() {
+		return fDefineMap;
+	}
+
+	/**
+	 * Reads the complete stream, then scans it. The stream is not closed
+	 *
+	 * @param in
+	 * @throws IOException
+	 */
+	public void scan(InputStream in) throws IOException {
+		byte buf[] = new byte[1024*64];
+		int len = 0, n;
+
+		while ((n = in.read(buf, len, buf.length-len)) > 0) {
+			len += n;
+			if (len == buf.length) {
+				byte tmp[] = new byte[buf.length*2];
+				System.arraycopy(buf, 0, tmp, 0, len);
+				buf = tmp;
+			}
+		}
+
+		scan(buf, 0, len);
+	}
+
+	public void scan(byte buf[], int off, int len) {
+		fBuf = buf;
+		fIdx = off;
+		fEnd = off+len;
+		int ch;
+
+		while ((ch = skipWhite()) != -1) {
+			if (ch == '+') {
+				scanPlusArg();
+			} else if (ch == '-') {
+				scanSwitch();
+			} else if (ch == '#') {
+				// Skip preprocessor like lines such as #ifndef, #endif
+				skipLine();
+			} else if (ch == '/' && peek(1) == '/') {
+				skipLine();
+			} else if (ch == '/' && peek(1) == '*') {
+				skipBlockComment();
+			} else {
+				// Probably a file path
+				int start = fIdx;
+				fIdx = skipToWhite(start);
+				if (!isCSource(start, fIdx)) {
+					String path = str(start, fIdx).trim();
+					fFilePaths.add(path);
+				}
+			}
+		}
+
+		fBuf = null;
+	}
+
+	private void scanPlusArg() {
+		int start = fIdx++;
+		int key_end = fIdx;
+
+		// read a plusarg. The terminating '=' or whitespace is consumed
+		while (fIdx < fEnd) {
+			int ch = fBuf[fIdx++] & 0xFF;
+			if (ch == '=' || (fCharClass[ch] & CC_WS) != 0) {
+				break;
+			}
+			key_end = fIdx;
+			if (ch == '+') {
+				break;
+			}
+		}
+
+		if (equals(start, key_end, "+define+")) {
+			String key, val;
+			int key_start = fIdx;
+			int ch = -1;
+			while (fIdx < fEnd) {
+				ch = fBuf[fIdx] & 0xFF;
+				if (ch == '=' || (fCharClass[ch] & CC_WS) != 0) {
+					break;
+				}
+				fIdx++;
+			}
+			key = str(key_start, fIdx);
+
+			if (fIdx < fEnd && ch == '=') {
+				fIdx++;
+				if (peek(0) == '"') {
+					val = readString();
+				} else {
+					int val_start = fIdx;
+					fIdx = skipToWhite(fIdx);
+					val = str(val_start, fIdx);
+				}
+			} else {
+				val = "";
+			}
+
+			fDefineMap.remove(key);
+			fDefineMap.put(key, val);
+		} else if (equals(start, key_end, "+incdir+")) {
+			if (skipWhite() != -1) {
+				int path_start = fIdx;
+				fIdx = skipToWhite(fIdx);
+				fIncludePaths.add(str(path_start, fIdx));
+			}
+		} else {
+			// Read to the end of the string
+			fIdx = skipToWhite(fIdx);
+		}
+	}
+
+	private void scanSwitch() {
+		int start = fIdx;
+		int end = skipToWhite(start);
+
+		// The whitespace terminating the switch is consumed
+		fIdx = (end < fEnd)?end+1:end;
+
+		String key = str(start, end);
+
+		if (SVFScanner.fIgnoredSwitches.containsKey(key)) {
+			int ignore_arg_count = SVFScanner.fIgnoredSwitches.get(key);
+			for (int i=0; i<ignore_arg_count; i++) {
+				// ignore next argument
+				while (fIdx < fEnd && (fCharClass[fBuf[fIdx] & 0xFF] & CC_WS) != 0) {
+					fIdx++;
+				}
+				fIdx = skipToWhite(fIdx);
+			}
+		} else if (key.equals("-DEF") || key.toLowerCase().equals("-define")) {
+			if (skipWhite() == -1) {
+				return;
+			}
+
+			String def_key = readIdentifier();
+
+			if (def_key == null) {
+				return;
+			}
+
+			String val;
+			if (peek(0) == '=') {
+				fIdx++;
+				int ch = peek(0);
+				if (ch == '"') {
+					val = readString();
+				} else if (ch != -1 && (fCharClass[ch] & CC_ID_START) != 0) {
+					val = readIdentifier();
+				} else {
+					int val_start = fIdx;
+					fIdx = skipToWhite(fIdx);
+					val = str(val_start, fIdx);
+				}
+			} else {
+				val = "";
+			}
+
+			fDefineMap.remove(def_key);
+			fDefineMap.put(def_key, val);
+		} else if (key.equals("-IN") || key.toLowerCase().equals("-incdir")) {
+			String path = readPathArg();
+			if (path != null) {
+				fIncludePaths.add(path);
+			}
+		} else if (key.equals("-f") || key.equals("-file")) {
+			String path = readPathArg();
+			if (path != null) {
+				fIncludedArgFiles.add(path);
+			}
+		} else if (key.equals("-v")) {
+			// Verilog library file. Treat as a regular file
+			String path = readPathArg();
+			if (path != null) {
+				fFilePaths.add(path);
+			}
+		} else if (key.equals("-y")) {
+			String path = readPathArg();
+			if (path != null) {
+				fLibPaths.add(path);
+			}
+		}
+	}
+
+	/**
+	 * Skips whitespace, then reads a whitespace-terminated argument
+	 */
+	private String readPathArg() {
+		if (skipWhite() == -1) {
+			return null;
+		}
+		int start = fIdx;
+		fIdx = skipToWhite(fIdx);
+
+		return str(start, fIdx);
+	}
+
+	/**
+	 * Reads an identifier, following the rules of
+	 * AbstractTextScanner.readIdentifier()
+	 */
+	private String readIdentifier() {
+		int start = fIdx;
+		int ch = peek(0);
+
+		if (ch == -1 || (fCharClass[ch] & CC_ID_START) == 0) {
+			return null;
+		}
+
+		boolean in_ref = false;
+		int last_ch = ch;
+		fIdx++;
+
+		while (fIdx < fEnd) {
+			ch = fBuf[fIdx] & 0xFF;
+			if ((fCharClass[ch] & CC_ID_PART) != 0) {
+				fIdx++;
+			} else if (ch == ':') {
+				if (peek(1) == ':') {
+					fIdx += 2;
+				} else {
+					break;
+				}
+			} else if (last_ch == '$' && ch == '{') {
+				in_ref = true;
+				fIdx++;
+			} else if (in_ref && ch == '}') {
+				in_ref = false;
+				fIdx++;
+			} else {
+				break;
+			}
+			last_ch = ch;
+		}
+
+		// ':' must not appear at the end of an identifier
+		while (fIdx > start && fBuf[fIdx-1] == ':') {
+			fIdx--;
+		}
+
+		return str(start, fIdx);
+	}
+
+	/**
+	 * Reads a double-quoted string, following the rules of
+	 * AbstractTextScanner.readString(). The closing quote is consumed
+	 */
+	private String readString() {
+		StringBuilder sb = new StringBuilder();
+		int last_ch = -1;
+
+		// Skip the opening quote
+		fIdx++;
+
+		while (fIdx < fEnd) {
+			int ch = fBuf[fIdx++] & 0xFF;
+
+			if ((ch == '"' || ch == '\n') && last_ch != '\\') {
+				break;
+			}
+
+			if (last_ch == '\\' && ch == '"') {
+				if (sb.charAt(sb.length()-1) == '\\') {
+					sb.setCharAt(sb.length()-1, '"');
+				}
+			} else if (last_ch == '\\' && ch == '\n') {
+				if (sb.charAt(sb.length()-1) == '\r') {
+					sb.setLength(sb.length()-1);
+				}
+				if (sb.charAt(sb.length()-1) == '\\') {
+					sb.setCharAt(sb.length()-1, ' ');
+				}
+			} else {
+				sb.append((char)ch);
+			}
+
+			if (ch != '\r') {
+				last_ch = ch;
+			}
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Skips whitespace and line continuations. Returns the next
+	 * character without consuming it, or -1 at the end of the buffer
+	 */
+	private int skipWhite() {
+		while (fIdx < fEnd) {
+			int ch = fBuf[fIdx] & 0xFF;
+			if ((fCharClass[ch] & CC_WS) != 0) {
+				fIdx++;
+			} else if (ch == '\\' && (peek(1) == '\r' || peek(1) == '\n')) {
+				fIdx += 2;
+			} else {
+				return ch;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the index of the first whitespace character at or
+	 * after 'idx', or the end of the buffer
+	 */
+	private int skipToWhite(int idx) {
+		while (idx < fEnd && (fCharClass[fBuf[idx] & 0xFF] & CC_WS) == 0) {
+			idx++;
+		}
+		return idx;
+	}
+
+	private void skipLine() {
+		while (fIdx < fEnd && fBuf[fIdx] != '\n') {
+			fIdx++;
+		}
+	}
+
+	private void skipBlockComment() {
+		// Skip the opening '/*'
+		fIdx += 2;
+		while (fIdx < fEnd) {
+			if (fBuf[fIdx] == '*' && peek(1) == '/') {
+				fIdx += 2;
+				return;
+			}
+			fIdx++;
+		}
+	}
+
+	private int peek(int offset) {
+		int idx = fIdx+offset;
+		return (idx < fEnd)?(fBuf[idx] & 0xFF):-1;
+	}
+
+	private boolean equals(int start, int end, String str) {
+		if (end-start != str.length()) {
+			return false;
+		}
+		for (int i=0; i<str.length(); i++) {
+			if ((fBuf[start+i] & 0xFF) != str.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks whether the path ends with a C/C++ source extension
+	 */
+	private boolean isCSource(int start, int end) {
+		return (endsWith(start, end, ".c") || endsWith(start, end, ".h") ||
+				endsWith(start, end, ".cpp") || endsWith(start, end, ".hpp"));
+	}
+
+	private boolean endsWith(int start, int end, String suffix) {
+		return (end-start >= suffix.length() &&
+				equals(end-suffix.length(), end, suffix));
+	}
+
+	private String str(int start, int end) {
+		char tmp[] = new char[end-start];
+		for (int i=start; i<end; i++) {
+			tmp[i-start] = (char)(fBuf[i] & 0xFF);
+		}
+		return new String(tmp);
+	}
+
+}
@@ -12,6 +12,8 @@ package net.sf.sveditor.ui.editor;
 
 import net.sf.sveditor.core.SVCorePlugin;
 import net.sf.sveditor.core.indent.ISVIndenter;
+import net.sf.sveditor.core.indent.SVIndentCheckpoint;
+import net.sf.sveditor.core.indent.SVIndentCheckpointCache;
 import net.sf.sveditor.core.indent.SVIndentScanner;
 import net.sf.sveditor.core.log.LogFactory;
 import net.sf.sveditor.core.log.LogHandle;
@@ -22,7 +24,9 @@ import net.sf.sveditor.ui.pref.SVEditorPrefsConstants;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.DefaultIndentLineAutoEditStrategy;
 import org.eclipse.jface.text.DocumentCommand;
+import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
 import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.TextUtilities;
 import org.eclipse.jface.util.IPropertyChangeListener;
@@ -34,19 +38,90 @@ public class SVAutoIndentStrategy extends DefaultIndentLineAutoEditStrategy
 	private LogHandle					fLog;
 	private boolean						fAutoIndentEnabled;
 	
+	// Indenter state saved by previous indent operations on fDocument
+	private SVIndentCheckpointCache		fCheckpoints;
+	private IDocument					fDocument;
+	
+	private IDocumentListener			fDocumentListener = new IDocumentListener() {
+		public void documentAboutToBeChanged(DocumentEvent event) {
+			fCheckpoints.invalidate(event.getOffset());
+		}
+		public void documentChanged(DocumentEvent event) {}
+	};
+	
 	public SVAutoIndentStrategy(SVEditor editor, String p) {
 		fLog = LogFactory.getLogHandle("SVAutoIndentStrategy");
+		fCheckpoints = new SVIndentCheckpointCache();
 		
 		fAutoIndentEnabled = SVUiPlugin.getDefault().getPreferenceStore().getBoolean(
 				SVEditorPrefsConstants.P_AUTO_INDENT_ENABLED_S);
 	}
 	
+	/**
+	 * Stops tracking changes to the document and discards the checkpoints
+	 */
+	public void dispose() {
+		if (fDocument != null) {
+			fDocument.removeDocumentListener(fDocumentListener);
+			fDocument = null;
+		}
+		fCheckpoints.clear();
+	}
+	
 	public void propertyChange(PropertyChangeEvent event) {
 		if (event.getProperty().equals(SVEditorPrefsConstants.P_AUTO_INDENT_ENABLED_S)) {
 			fAutoIndentEnabled = event.getNewValue().toString().equals("true");
 		}
 	}
 
+	/**
+	 * Returns the latest checkpoint before 'offset' usable with the 
+	 * specified settings, or null if indenting must start from the
+	 * beginning of the document
+	 */
+	private SVIndentCheckpoint findCheckpoint(
+			IDocument		doc, 
+			int				offset, 
+			String			indent_incr,
+			int				adaptive_indent_end) {
+		if (doc != fDocument) {
+			if (fDocument != null) {
+				fDocument.removeDocumentListener(fDocumentListener);
+			}
+			fCheckpoints.clear();
+			fDocument = doc;
+			fDocument.addDocumentListener(fDocumentListener);
+		}
+		
+		return fCheckpoints.find(offset, indent_incr, adaptive_indent_end);
+	}
+	
+	/**
+	 * Creates an indenter for 'content', which starts at checkpoint 'cp' 
+	 * (or at the beginning of the document if 'cp' is null) and matches 
+	 * the document up to 'limit'. The indenter records new checkpoints 
+	 * in that range
+	 */
+	private ISVIndenter createIndenter(
+			String					content,
+			SVIndentCheckpoint		cp,
+			int						limit,
+			String					indent_incr) {
+		StringBIDITextScanner text_scanner = new StringBIDITextScanner(content);
+		ISVIndenter indenter = SVCorePlugin.getDefault().createIndenter();
+		
+		indenter.setIndentIncr(indent_incr);
+		if (cp != null) {
+			indenter.init(new SVIndentScanner(text_scanner, 
+					cp.getLineno(), cp.getOffset()), cp);
+		} else {
+			indenter.init(new SVIndentScanner(text_scanner));
+		}
+		indenter.setCheckpointCache(fCheckpoints, limit);
+		
+		return indenter;
+	}
+
 	private void indentPastedContent(IDocument doc, DocumentCommand cmd) {
 		fLog.debug("indentPastedContent(offset=" + cmd.offset + ")");
 		fLog.debug("    content=\"" + cmd.text + "\"");
@@ -79,10 +154,13 @@ public class SVAutoIndentStrategy extends DefaultIndentLineAutoEditStrategy
 
 			fLog.debug("Document line start=" + lineno);
 			
+			// Pasted content is indented with the default indent increment
+			SVIndentCheckpoint cp = findCheckpoint(doc, cmd.offset, "\t", target_lineno);
+			int doc_start = (cp != null)?cp.getOffset():0;
 			StringBuilder doc_str = new StringBuilder();
 			// Append what's before the
 			
-			doc_str.append(doc.get(0, cmd.offset));
+			doc_str.append(doc.get(doc_start, cmd.offset-doc_start));
 			doc_str.append(cmd.text);
 			int start = cmd.offset+cmd.length;
 			int len = (doc.getLength()-(cmd.offset+cmd.length)-1);
@@ -95,13 +173,8 @@ public class SVAutoIndentStrategy extends DefaultIndentLineAutoEditStrategy
 				throw e;
 			}
 			
-			StringBIDITextScanner text_scanner = 
-				new StringBIDITextScanner(doc_str.toString());
-			
-			ISVIndenter indenter = SVCorePlugin.getDefault().createIndenter();
-			SVIndentScanner scanner = new SVIndentScanner(text_scanner);
-			
-			indenter.init(scanner);
+			ISVIndenter indenter = createIndenter(
+					doc_str.toString(), cp, cmd.offset, "\t");
 			
 			indenter.setAdaptiveIndent(true);
 			indenter.setAdaptiveIndentEnd(target_lineno);
@@ -163,7 +236,21 @@ public class SVAutoIndentStrategy extends DefaultIndentLineAutoEditStrategy
 
 		try {
 			int target_lineno = doc.getLineOfOffset(cmd.offset);
-			doc_str.append(doc.get(0, cmd.offset));
+			// Want the indent of the next line when adding a line, 
+			// otherwise the indent of this line
+			int indent_lineno = target_lineno + ((indent_newline)?2:1);
+			if (cmd.text.equals("\n")) {
+				target_lineno++;
+			}
+			
+			// Determine the appropriate indent increment
+			String indent_incr = SVUiPlugin.getDefault().getIndentIncr();
+			
+			// Only content from the nearest checkpoint to the end of the 
+			// line being indented is needed
+			SVIndentCheckpoint cp = findCheckpoint(doc, cmd.offset, indent_incr, target_lineno);
+			int doc_start = (cp != null)?cp.getOffset():0;
+			doc_str.append(doc.get(doc_start, cmd.offset-doc_start));
 			doc_str.append(cmd.text);
 			
 			// If we're moving to a new line, put a dummy statement in place
@@ -172,40 +259,22 @@ public class SVAutoIndentStrategy extends DefaultIndentLineAutoEditStrategy
 				doc_str.append("DUMMY=5;\n");
 			}
 			
-			if (doc.getLength() > (cmd.offset+cmd.length)) {
-				doc_str.append(doc.get(
-						cmd.offset+cmd.length, 
-						(doc.getLength()-(cmd.offset+cmd.length)-1)));
+			int rest = cmd.offset+cmd.length;
+			if (doc.getLength() > rest) {
+				int rest_lineno = doc.getLineOfOffset(rest);
+				int rest_end = doc.getLineOffset(rest_lineno) + doc.getLineLength(rest_lineno);
+				doc_str.append(doc.get(rest, rest_end-rest));
 			}
 			
-			StringBIDITextScanner text_scanner = 
-				new StringBIDITextScanner(doc_str.toString());
-			
-			ISVIndenter indenter = SVCorePlugin.getDefault().createIndenter();
-			SVIndentScanner scanner = new SVIndentScanner(text_scanner);
-			
-			
-			// Determine the appropriate indent increment
-			indenter.setIndentIncr(SVUiPlugin.getDefault().getIndentIncr());
-			
-			indenter.init(scanner);
+			ISVIndenter indenter = createIndenter(
+					doc_str.toString(), cp, cmd.offset, indent_incr);
 			
 			indenter.setAdaptiveIndent(true);
-			if (cmd.text.equals("\n")) {
-				target_lineno++;
-			}
 			indenter.setAdaptiveIndentEnd(target_lineno);
-			indenter.indent();
+			indenter.indent(indent_lineno, indent_lineno);
 
 			IRegion cmd_line = doc.getLineInformationOfOffset(cmd.offset);
-			String indent = null;
-    		if (indent_newline) {
-        		// Want the indent of the next line
-    			indent = indenter.getLineIndent(doc.getLineOfOffset(cmd.offset)+2);
-    		} else {
-    			// Want indent of this line
-    			indent = indenter.getLineIndent(doc.getLineOfOffset(cmd.offset)+1);
-    		}
+			String indent = indenter.getLineIndent(indent_lineno);
     		
     		if (indent != null) {
     			if (indent_newline) {
@@ -116,6 +116,12 @@ public class SVCompletionProcessor extends AbstractCompletionProcessor
 			return new ICompletionProposal[0];
 		}
 
+		// Bound the time spent searching for identifier proposals by
+		// the content-assist timeout, so partial results can be shown
+		IPreferenceStore p_store = SVUiPlugin.getDefault().getPreferenceStore();
+		int timeout_ms = p_store.getInt(SVEditorPrefsConstants.P_CONTENT_ASSIST_TIMEOUT);
+		setLatencyBudget(timeout_ms);
+
 		IJobMgr job_mgr = SVCorePlugin.getJobMgr();
 		IJob job = job_mgr.createJob();
 		final int lineno_f = lineno, linepos_f = linepos;
@@ -130,8 +136,6 @@ public class SVCompletionProcessor extends AbstractCompletionProcessor
 		// Now, wait for the job to complete
 		Display d = Display.getCurrent();
 		int wait_time_ms = 1;
-		IPreferenceStore p_store = SVUiPlugin.getDefault().getPreferenceStore();
-		int timeout_ms = p_store.getInt(SVEditorPrefsConstants.P_CONTENT_ASSIST_TIMEOUT);
 		int timeout_remain = timeout_ms;
 		
 		while (true) {
@@ -179,14 +179,19 @@ public class SVEditor extends TextEditor
 		protected IStatus run(IProgressMonitor monitor) {
 			IEditorInput ed_in = getEditorInput();
 			IDocument doc = getDocumentProvider().getDocument(ed_in);
-			StringInputStream sin = new StringInputStream(doc.get());
+			// Read before the content, so highlighting for stale content is dropped
+			int generation = (fHighlightManager != null)?fHighlightManager.getGeneration():-1;
+			String content = doc.get();
+			StringInputStream sin = new StringInputStream(content);
 			List<SVDBMarker> markers = new ArrayList<SVDBMarker>();
 
 			Tuple<SVDBFile, SVDBFile> new_in = fIndexMgr.parse(
 					getProgressMonitor(), sin, fSVDBFilePath, markers);
-			fSVDBFile.clearChildren();
+			SVDBFile old_file = fSVDBFile;
 			
 			if (new_in != null) {
+				// The previous version is kept so that the outline
+				// can be updated with just the differences
 				fSVDBFile = new_in.second();
 				fSVDBFilePP = new_in.first();
 				if (fSVDBIndex != null) {
@@ -195,10 +200,20 @@ public class SVEditor extends TextEditor
 				}
 
 				addErrorMarkers(markers);
-			}
-
-			if (fOutline != null) {
-				fOutline.refresh();
+				
+				if (fOutline != null) {
+					fOutline.update(old_file, fSVDBFile);
+				}
+				
+				if (fHighlightManager != null) {
+					fHighlightManager.update(content, fSVDBFile, fSVDBIndex, generation);
+				}
+			} else {
+				fSVDBFile.clearChildren();
+				
+				if (fOutline != null) {
+					fOutline.refresh();
+				}
 			}
 			
 			synchronized (SVEditor.this) {
@@ -668,8 +683,15 @@ public class SVEditor extends TextEditor
 	
 	@Override
 	public void dispose() {
+		if (getSourceViewerConfiguration() instanceof SVSourceViewerConfiguration) {
+			((SVSourceViewerConfiguration)getSourceViewerConfiguration()).dispose();
+		}
 		super.dispose();
 		
+		if (fHighlightManager != null) {
+			fHighlightManager.uninstall();
+			fHighlightManager = null;
+		}
 		if (fOutline != null) {
 			fOutline.dispose();
 			fOutline = null;
@@ -870,6 +892,9 @@ public class SVEditor extends TextEditor
 			public void propertyChange(PropertyChangeEvent event) {
 				SVColorManager.clear();
 				getCodeScanner().updateRules();
+				if (fHighlightManager != null) {
+					fHighlightManager.updateAttributes();
+				}
 				getSourceViewer().getTextWidget().redraw();
 				getSourceViewer().getTextWidget().update();
 			}
@@ -28,7 +28,11 @@ public enum SVEditorColors {
 	KEYWORD,
 	STRING,
 	SINGLE_LINE_COMMENT,
-	MULTI_LINE_COMMENT;
+	MULTI_LINE_COMMENT,
+	TYPE,
+	FUNCTION,
+	FIELD,
+	MACRO;
 
 	private static Map<SVEditorColors, String>              fColorMap;
 	private static Map<SVEditorColors, String>              fStyleMap;
@@ -43,12 +47,20 @@ public enum SVEditorColors {
 		fColorMap.put(SINGLE_LINE_COMMENT, SVEditorPrefsConstants.P_COMMENT_C);
 		fColorMap.put(MULTI_LINE_COMMENT, SVEditorPrefsConstants.P_COMMENT_C);
 		fColorMap.put(KEYWORD, SVEditorPrefsConstants.P_KEYWORD_C);
+		fColorMap.put(TYPE, SVEditorPrefsConstants.P_TYPE_C);
+		fColorMap.put(FUNCTION, SVEditorPrefsConstants.P_FUNCTION_C);
+		fColorMap.put(FIELD, SVEditorPrefsConstants.P_FIELD_C);
+		fColorMap.put(MACRO, SVEditorPrefsConstants.P_MACRO_C);
 		
 		fStyleMap.put(DEFAULT, SVEditorPrefsConstants.P_DEFAULT_S);
 		fStyleMap.put(STRING, SVEditorPrefsConstants.P_STRING_S);
 		fStyleMap.put(SINGLE_LINE_COMMENT, SVEditorPrefsConstants.P_COMMENT_S);
 		fStyleMap.put(MULTI_LINE_COMMENT, SVEditorPrefsConstants.P_COMMENT_S);
 		fStyleMap.put(KEYWORD, SVEditorPrefsConstants.P_KEYWORD_S);
+		fStyleMap.put(TYPE, SVEditorPrefsConstants.P_TYPE_S);
+		fStyleMap.put(FUNCTION, SVEditorPrefsConstants.P_FUNCTION_S);
+		fStyleMap.put(FIELD, SVEditorPrefsConstants.P_FIELD_S);
+		fStyleMap.put(MACRO, SVEditorPrefsConstants.P_MACRO_S);
 	}
 
 	static IPreferenceStore fPrefStore = SVUiPlugin.getDefault().getPreferenceStore();
@@ -12,47 +12,101 @@
 
 package net.sf.sveditor.ui.editor;
 
-import java.util.EnumMap;
+import net.sf.sveditor.core.db.SVDBFile;
+import net.sf.sveditor.core.db.index.ISVDBIndexIterator;
+import net.sf.sveditor.core.highlight.SVHighlightTable;
+import net.sf.sveditor.core.highlight.SVSemanticHighlighter;
+import net.sf.sveditor.ui.SVUiPlugin;
+import net.sf.sveditor.ui.pref.SVEditorPrefsConstants;
 
-import org.eclipse.jface.text.TextAttribute;
 import org.eclipse.jface.text.source.SourceViewer;
+import org.eclipse.swt.widgets.Display;
 
+/**
+ * Manages semantic highlighting for an editor. Highlighting is computed
+ * by the caller's thread (typically the job that re-parses the file)
+ * from the parsed file, and handed to the presenter on the UI thread.
+ */
 public class SVHighlightingManager {
-	
-	private static EnumMap<SVEditorColors, TextAttribute>		fHighlightAttr;
-	/*
+
 	private SVHightingPresenter			fPresenter;
-	private SVPresentationReconciler	fReconciler;
-	 */
-	
-	static {
-		if (fHighlightAttr == null) {
-			EnumMap<SVEditorColors, TextAttribute> tmp = 
-				new EnumMap<SVEditorColors, TextAttribute>(SVEditorColors.class);
-			
-			for (SVEditorColors c : new SVEditorColors[] {
-					SVEditorColors.KEYWORD, SVEditorColors.STRING}) {
-				tmp.put(c, new TextAttribute(SVEditorColors.getColor(c), 
-						null, SVEditorColors.getStyle(c)));
-			}
-			fHighlightAttr = tmp;
-		}
+	private SVSemanticHighlighter		fHighlighter;
+	private SourceViewer				fViewer;
+
+	public SVHighlightingManager() {
+		fHighlighter = new SVSemanticHighlighter();
 	}
 
 	public void install(
-			SourceViewer 				viewer, 
-			SVPresentationReconciler 	rec, 
+			SourceViewer 				viewer,
+			SVPresentationReconciler 	rec,
 			SVEditor 		editor) {
-		/*
+		fViewer = viewer;
 		fPresenter = new SVHightingPresenter();
-		fPresenter.install(viewer, rec);
-		fReconciler = new SVPresentationReconciler();
-		fReconciler.install(this, fPresenter, editor);
-		 */
+		fPresenter.install(viewer);
+	}
+
+	public void uninstall() {
+		if (fPresenter != null) {
+			fPresenter.uninstall();
+			fPresenter = null;
+		}
+		fViewer = null;
+	}
+
+	/**
+	 * Returns the document generation. Must be read before the document
+	 * content passed to update() is obtained
+	 */
+	public int getGeneration() {
+		SVHightingPresenter p = fPresenter;
+		return (p != null)?p.getGeneration():-1;
 	}
-	
-	public TextAttribute getHighlight(SVEditorColors key) {
-		System.out.println("getHighlight: " + key);
-		return fHighlightAttr.get(key);
+
+	/**
+	 * Computes highlighting for 'content', which was parsed to 'file'.
+	 * Types declared in other files are looked up through 'index_it'.
+	 * The result is discarded if the document changed after 'generation'
+	 */
+	public void update(
+			String 					content, 
+			SVDBFile 				file, 
+			ISVDBIndexIterator		index_it,
+			final int 				generation) {
+		final SVHighlightTable table;
+
+		if (SVUiPlugin.getDefault().getPreferenceStore().getBoolean(
+				SVEditorPrefsConstants.P_SEMANTIC_HIGHLIGHTING_ENABLED)) {
+			synchronized (fHighlighter) {
+				fHighlighter.setFile(file, index_it);
+				table = fHighlighter.compute(content);
+			}
+		} else {
+			table = new SVHighlightTable();
+		}
+
+		Display.getDefault().asyncExec(new Runnable() {
+			public void run() {
+				SVHightingPresenter p = fPresenter;
+				if (p != null) {
+					p.setHighlighting(table, generation);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Re-reads the highlighting preferences. Must be called from the UI thread
+	 */
+	public void updateAttributes() {
+		if (fPresenter != null) {
+			fPresenter.updateAttributes();
+			if (!SVUiPlugin.getDefault().getPreferenceStore().getBoolean(
+					SVEditorPrefsConstants.P_SEMANTIC_HIGHLIGHTING_ENABLED)) {
+				fPresenter.setHighlighting(new SVHighlightTable(),
+						fPresenter.getGeneration());
+			}
+			fViewer.invalidateTextPresentation();
+		}
 	}
 }
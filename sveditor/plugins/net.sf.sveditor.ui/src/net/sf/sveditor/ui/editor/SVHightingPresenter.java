@@ -12,48 +12,156 @@
 
 package net.sf.sveditor.ui.editor;
 
+import net.sf.sveditor.core.highlight.SVHighlightTable;
+import net.sf.sveditor.core.highlight.SVSemanticHighlighter;
+
 import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITextInputListener;
 import org.eclipse.jface.text.ITextPresentationListener;
+import org.eclipse.jface.text.TextAttribute;
 import org.eclipse.jface.text.TextPresentation;
+import org.eclipse.jface.text.source.SourceViewer;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.StyleRange;
 
+/**
+ * Applies semantic highlighting to the presentation of the editor. The
+ * highlighted ranges are merged into each presentation the viewer creates.
+ * When new ranges are computed, only the regions whose highlighting
+ * changed are re-presented. Must be accessed from the UI thread, except
+ * for getGeneration().
+ */
 public class SVHightingPresenter implements ITextPresentationListener,
 		ITextInputListener, IDocumentListener {
 
-	
-	public void applyTextPresentation(TextPresentation textPresentation) {
-		// TODO Auto-generated method stub
+	// Above this many changed regions, a single spanning region is re-presented
+	private static final int				MAX_REGIONS = 64;
 
+	private SourceViewer					fViewer;
+	private SVHighlightTable				fTable;
+	private TextAttribute					fAttributes[];
+	private volatile int					fGeneration;
+
+	public SVHightingPresenter() {
+		fTable = new SVHighlightTable();
+		updateAttributes();
 	}
 
-	
-	public void inputDocumentAboutToBeChanged(IDocument oldInput,
-			IDocument newInput) {
-		System.out.println("inputDocumentAboutToBeChanged()");
-		// TODO Auto-generated method stub
+	public void install(SourceViewer viewer) {
+		fViewer = viewer;
+		fViewer.addTextPresentationListener(this);
+		fViewer.addTextInputListener(this);
+		if (fViewer.getDocument() != null) {
+			fViewer.getDocument().addPrenotifiedDocumentListener(this);
+		}
+	}
 
+	public void uninstall() {
+		if (fViewer != null) {
+			if (fViewer.getDocument() != null) {
+				fViewer.getDocument().removePrenotifiedDocumentListener(this);
+			}
+			fViewer.removeTextInputListener(this);
+			fViewer.removeTextPresentationListener(this);
+			fViewer = null;
+		}
 	}
 
-	
-	public void inputDocumentChanged(IDocument oldInput, IDocument newInput) {
-		// TODO Auto-generated method stub
-		System.out.println("inputDocumentChanged()");
+	/**
+	 * Returns a counter that changes whenever the document changes.
+	 * Highlighting computed from the document content is only applied
+	 * if the document has not changed since
+	 */
+	public int getGeneration() {
+		return fGeneration;
+	}
+
+	/**
+	 * Replaces the highlighted ranges, re-presenting the regions that changed
+	 */
+	public void setHighlighting(SVHighlightTable table, int generation) {
+		if (fViewer == null || generation != fGeneration) {
+			return;
+		}
+
+		int regions[] = fTable.getChangedRegions(table, MAX_REGIONS);
+		fTable = table;
 
+		int doc_len = fViewer.getDocument().getLength();
+		for (int i=0; i<regions.length; i+=2) {
+			int start = Math.min(regions[i], doc_len);
+			int end = Math.min(regions[i+1], doc_len);
+			if (end > start) {
+				fViewer.invalidateTextPresentation(start, end-start);
+			}
+		}
 	}
 
-	
-	public void documentAboutToBeChanged(DocumentEvent event) {
-		// TODO Auto-generated method stub
+	/**
+	 * Re-reads the highlighting colors and styles
+	 */
+	public void updateAttributes() {
+		fAttributes = new TextAttribute[SVSemanticHighlighter.KIND_MACRO+1];
+		fAttributes[SVSemanticHighlighter.KIND_TYPE] = getAttribute(SVEditorColors.TYPE);
+		fAttributes[SVSemanticHighlighter.KIND_FUNCTION] = getAttribute(SVEditorColors.FUNCTION);
+		fAttributes[SVSemanticHighlighter.KIND_FIELD] = getAttribute(SVEditorColors.FIELD);
+		fAttributes[SVSemanticHighlighter.KIND_MACRO] = getAttribute(SVEditorColors.MACRO);
+	}
 
+	private static TextAttribute getAttribute(SVEditorColors c) {
+		return new TextAttribute(SVEditorColors.getColor(c), null, SVEditorColors.getStyle(c));
 	}
 
-	
-	public void documentChanged(DocumentEvent event) {
-		// TODO Auto-generated method stub
-		System.out.println("documentChanged()");
+	public void applyTextPresentation(TextPresentation textPresentation) {
+		IRegion extent = textPresentation.getExtent();
+		int ext_start = extent.getOffset();
+		int ext_end = ext_start + extent.getLength();
 
+		for (int i=fTable.find(ext_start); i<fTable.size(); i++) {
+			int start = fTable.getOffset(i);
+			int end = start + fTable.getLength(i);
+
+			if (start >= ext_end) {
+				break;
+			}
+			start = Math.max(start, ext_start);
+			end = Math.min(end, ext_end);
+
+			TextAttribute attr = fAttributes[fTable.getKind(i)];
+			textPresentation.mergeStyleRange(new StyleRange(start, end-start,
+					attr.getForeground(), null,
+					attr.getStyle() & (SWT.BOLD | SWT.ITALIC)));
+		}
+	}
+
+	public void inputDocumentAboutToBeChanged(IDocument oldInput,
+			IDocument newInput) {
+		if (oldInput != null) {
+			oldInput.removePrenotifiedDocumentListener(this);
+		}
+		fGeneration++;
+		fTable = new SVHighlightTable();
+	}
+
+	public void inputDocumentChanged(IDocument oldInput, IDocument newInput) {
+		if (newInput != null) {
+			newInput.addPrenotifiedDocumentListener(this);
+		}
+	}
+
+	public void documentAboutToBeChanged(DocumentEvent event) {}
+
+	/**
+	 * Notified before the presentation is repaired, so the ranges
+	 * used for the repair are already adjusted for the change
+	 */
+	public void documentChanged(DocumentEvent event) {
+		fGeneration++;
+		fTable.documentChanged(event.getOffset(), event.getLength(),
+				(event.getText() != null)?event.getText().length():0);
 	}
 
 }
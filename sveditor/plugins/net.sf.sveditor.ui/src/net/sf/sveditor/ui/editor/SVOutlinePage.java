@@ -13,19 +13,13 @@
 package net.sf.sveditor.ui.editor;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
-import net.sf.sveditor.core.db.ISVDBChildItem;
-import net.sf.sveditor.core.db.ISVDBChildParent;
 import net.sf.sveditor.core.db.ISVDBItemBase;
-import net.sf.sveditor.core.db.ISVDBNamedItem;
 import net.sf.sveditor.core.db.SVDBFile;
-import net.sf.sveditor.core.db.SVDBItem;
 import net.sf.sveditor.core.db.SVDBItemType;
-import net.sf.sveditor.core.db.SVDBModIfcInst;
 import net.sf.sveditor.core.db.index.ISVDBChangeListener;
-import net.sf.sveditor.core.db.stmt.SVDBVarDeclStmt;
+import net.sf.sveditor.core.db.utils.SVDBFileTreeDiff;
 import net.sf.sveditor.ui.SVDBIconUtils;
 import net.sf.sveditor.ui.SVUiPlugin;
 import net.sf.sveditor.ui.editor.actions.ToggleCommentAction;
@@ -39,12 +33,9 @@ import org.eclipse.core.runtime.IAdaptable;
 import org.eclipse.jface.action.Action;
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.viewers.IElementComparer;
-import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.jface.viewers.ISelectionChangedListener;
-import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.jface.viewers.SelectionChangedEvent;
 import org.eclipse.jface.viewers.StructuredSelection;
-import org.eclipse.jface.viewers.TreePath;
 import org.eclipse.jface.viewers.TreeViewer;
 import org.eclipse.jface.viewers.ViewerComparator;
 import org.eclipse.swt.widgets.Composite;
@@ -58,7 +49,10 @@ public class SVOutlinePage extends ContentOutlinePage
 	implements IShowInTarget, IAdaptable, 
 			Runnable, ISVDBChangeListener {
 	private SVDBFile					fSVDBFile;
+	private OutlineInput				fInput;
 	private SVTreeContentProvider		fContentProvider;
+	private SVTreeLabelProvider			fDiffLabelProvider;
+	private OutlineDiff					fDiff;
 	private SVEditor					fEditor;
 	private boolean						fIgnoreSelectionChange = false;
 	private ISVDBItemBase				fLastSelection;
@@ -79,17 +73,86 @@ public class SVOutlinePage extends ContentOutlinePage
 	private SVDBDefaultContentFilter    DefaultContentFilter;
 	private ViewerComparator            ViewerComapartor;
 	
+	// Above this many deltas, the whole outline is refreshed
+	private static final int			MAX_DELTAS = 256;
+	
+	/**
+	 * Input of the outline viewer. The input stays the same while
+	 * the file it presents is replaced on each re-parse
+	 */
+	private static class OutlineInput {
+		public SVDBFile					fFile;
+	}
+	
+	/**
+	 * Presents the file held by the outline input
+	 */
+	private class OutlineContentProvider extends SVTreeContentProvider {
+		
+		@Override
+		public Object[] getElements(Object element) {
+			if (element instanceof OutlineInput) {
+				return getChildren(((OutlineInput)element).fFile);
+			}
+			return super.getElements(element);
+		}
+
+		@Override
+		public Object getParent(Object element) {
+			Object p = super.getParent(element);
+			if (p instanceof SVDBFile) {
+				return fInput;
+			}
+			return p;
+		}
+	}
+	
+	/**
+	 * Compares the outline content of two versions of the file
+	 */
+	private class OutlineDiff extends SVDBFileTreeDiff {
+
+		@Override
+		protected List<ISVDBItemBase> getChildren(ISVDBItemBase parent) {
+			List<ISVDBItemBase> ret = new ArrayList<ISVDBItemBase>();
+			for (Object c : fContentProvider.getChildren(parent)) {
+				ret.add((ISVDBItemBase)c);
+			}
+			return ret;
+		}
+
+		@Override
+		protected ISVDBItemBase getParent(ISVDBItemBase it) {
+			Object p = fContentProvider.getParent(it);
+			if (p == fInput) {
+				// Top-level items of any version of the file
+				return super.getParent(it);
+			}
+			return (p instanceof ISVDBItemBase)?(ISVDBItemBase)p:null;
+		}
+
+		@Override
+		protected boolean isChanged(ISVDBItemBase old_it, ISVDBItemBase new_it) {
+			return !fDiffLabelProvider.getText(old_it).equals(
+					fDiffLabelProvider.getText(new_it));
+		}
+	}
+	
 	public SVOutlinePage(SVEditor editor) {
 		fEditor = editor;
-		fContentProvider = new SVTreeContentProvider();
+		fContentProvider = new OutlineContentProvider();
 		
 		fSVDBFile = new SVDBFile("");
+		fInput = new OutlineInput();
+		fInput.fFile = fSVDBFile;
+		fDiff = new OutlineDiff();
 	}
 	
 	public void createControl(Composite parent) {
 		super.createControl(parent);
 
-		fContentProvider = new SVTreeContentProvider();
+		fContentProvider = new OutlineContentProvider();
+		fDiffLabelProvider = new SVTreeLabelProvider();
 		DefaultContentFilter = new SVDBDefaultContentFilter();
 		ViewerComapartor     = new ViewerComparator();
 
@@ -117,18 +180,27 @@ public class SVOutlinePage extends ContentOutlinePage
 		}
 		getTreeViewer().setLabelProvider(
 				new SVDBDecoratingLabelProvider(new SVTreeLabelProvider()));
+		// Items from successive parses of the file are the same element 
+		// if they have the same identity. This allows the viewer to keep
+		// its items when the outline is refreshed
 		getTreeViewer().setComparer(new IElementComparer() {
 			public int hashCode(Object element) {
+				if (element instanceof ISVDBItemBase) {
+					return fDiff.hashCode((ISVDBItemBase)element);
+				}
 				return element.hashCode();
 			}
 			
 			public boolean equals(Object a, Object b) {
-				// Just do a simple compare
+				if (a instanceof ISVDBItemBase && b instanceof ISVDBItemBase) {
+					return fDiff.isSameItem((ISVDBItemBase)a, (ISVDBItemBase)b);
+				}
 				return (a == b);
 			}
 		});
+		getTreeViewer().setUseHashlookup(true);
 		
-		getTreeViewer().setInput(fSVDBFile);
+		getTreeViewer().setInput(fInput);
 		
 		getTreeViewer().addSelectionChangedListener(fSelectionListener);
 		getTreeViewer().setAutoExpandLevel(TreeViewer.ALL_LEVELS);
@@ -138,15 +210,113 @@ public class SVOutlinePage extends ContentOutlinePage
 	}
 
 	
-	public void SVDBFileChanged(SVDBFile file, List<SVDBItem> adds,
-			List<SVDBItem> removes, List<SVDBItem> changes) {
+	/**
+	 * Updates the outline from a new parse of the file. Only the 
+	 * differences from the previous parse are applied to the viewer.
+	 * The comparison runs on the UI thread, since it updates the item
+	 * identities that the viewer compares elements with
+	 */
+	public void update(final SVDBFile old_file, final SVDBFile new_file) {
+		if (getTreeViewer() == null || getTreeViewer().getControl().isDisposed()) {
+			// Viewer not yet created
+			return;
+		}
+		Display.getDefault().asyncExec(new Runnable() {
+			public void run() {
+				if (getTreeViewer().getControl().isDisposed()) {
+					return;
+				}
+				List<ISVDBItemBase> adds = new ArrayList<ISVDBItemBase>();
+				List<ISVDBItemBase> removes = new ArrayList<ISVDBItemBase>();
+				List<ISVDBItemBase> changes = new ArrayList<ISVDBItemBase>();
+
+				fDiff.diff(old_file, new_file, adds, removes, changes);
+
+				applyDeltas(new_file, adds, removes, changes);
+			}
+		});
+	}
+	
+	public void SVDBFileChanged(
+			final SVDBFile 						file, 
+			final List<ISVDBItemBase> 			adds,
+			final List<ISVDBItemBase> 			removes, 
+			final List<ISVDBItemBase> 			changes) {
 		if (file.getFilePath().equals(fEditor.getFilePath())) {
 			if (getTreeViewer() != null && !getTreeViewer().getControl().isDisposed()) {
-				Display.getDefault().asyncExec(this);
+				Display.getDefault().asyncExec(new Runnable() {
+					public void run() {
+						fDiff.setRoot(file);
+						applyDeltas(file, adds, removes, changes);
+					}
+				});
 			}
 		}
 	}
 	
+	private void applyDeltas(
+			SVDBFile							file,
+			List<ISVDBItemBase>					adds,
+			List<ISVDBItemBase>					removes,
+			List<ISVDBItemBase>					changes) {
+		if (getTreeViewer() == null || getTreeViewer().getControl().isDisposed()) {
+			return;
+		}
+		TreeViewer tv = getTreeViewer();
+		
+		fSVDBFile = file;
+		fInput.fFile = file;
+		
+		// Selection changes caused by updating the viewer are not 
+		// forwarded to the editor
+		fIgnoreSelectionChange = true;
+		try {
+			if (adds.size() + removes.size() + changes.size() > MAX_DELTAS) {
+				tv.refresh();
+			} else {
+				apply_deltas(tv, adds, removes, changes);
+			}
+		} finally {
+			fIgnoreSelectionChange = false;
+		}
+	}
+	
+	private void apply_deltas(
+			TreeViewer							tv,
+			List<ISVDBItemBase>					adds,
+			List<ISVDBItemBase>					removes,
+			List<ISVDBItemBase>					changes) {
+		if (removes.size() > 0) {
+			tv.remove(removes.toArray());
+		}
+		
+		// New items are created by refreshing their parent
+		List<Object> parents = new ArrayList<Object>();
+		for (ISVDBItemBase it : adds) {
+			Object p = fContentProvider.getParent(it);
+			if (p == null) {
+				p = fInput;
+			}
+			boolean found = false;
+			for (Object p_t : parents) {
+				if (p_t == p) {
+					found = true;
+					break;
+				}
+			}
+			if (!found) {
+				parents.add(p);
+			}
+		}
+		for (Object p : parents) {
+			tv.refresh(p, false);
+		}
+		
+		if (changes.size() > 0) {
+			tv.update(changes.toArray(), null);
+		}
+	}
+	
 	public void refresh() {
 		if (getTreeViewer() != null && !getTreeViewer().getControl().isDisposed()) {
 			Display.getDefault().asyncExec(this);
@@ -156,163 +326,37 @@ public class SVOutlinePage extends ContentOutlinePage
 	public void run() {
 		if (getTreeViewer() != null && !getTreeViewer().getControl().isDisposed()) {
 			fSVDBFile = fEditor.getSVDBFile();
+			fInput.fFile = fSVDBFile;
+			fDiff.setRoot(fSVDBFile);
 			
-			List<ISVDBItemBase> exp_path_list = getExpansionPaths();
-			
-			ISelection sel = getTreeViewer().getSelection();
-			
-			getTreeViewer().setInput(fSVDBFile);
-			
-			// Apply selection and expansions previously saved
-			setExpansionPaths(exp_path_list);
-			
-			setSavedSelection(sel);
-		}
-	}
-	
-	private List<ISVDBItemBase> getExpansionPaths() {
-		List<ISVDBItemBase> ret = new ArrayList<ISVDBItemBase>();
-		for (TreePath p : getTreeViewer().getExpandedTreePaths()) {
-			Object last_seg_o = p.getLastSegment();
-			
-			if (last_seg_o instanceof ISVDBItemBase) {
-				ret.add((ISVDBItemBase)last_seg_o);
-			}
-		}
-
-		return ret;
-	}
-	
-	private void setExpansionPaths(List<ISVDBItemBase> exp_paths) {
-		List<ISVDBItemBase> path = new ArrayList<ISVDBItemBase>();
-		List<ISVDBItemBase> target_path = new ArrayList<ISVDBItemBase>();
-		List<TreePath>		exp_tree_paths = new ArrayList<TreePath>();
-		
-		for (ISVDBItemBase item : exp_paths) {
-			path.clear();
-			target_path.clear();
-			
-			// Build the path
-			buildFullPath(path, item);
-			
-			// Find the corresponding path
-			lookupPath(fSVDBFile, path.iterator(), target_path);
-			
-			if (target_path.size() > 0) {
-				exp_tree_paths.add(new TreePath(target_path.toArray()));
-			}
-		}
-		
-		if (exp_tree_paths.size() > 0) {
-			getTreeViewer().setExpandedTreePaths(exp_tree_paths.toArray(
-					new TreePath[exp_tree_paths.size()]));
-		}
-	}
-	
-	private void buildFullPath(List<ISVDBItemBase> path, ISVDBItemBase leaf) {
-		ISVDBItemBase item_tmp = leaf;
-		while (item_tmp != null && item_tmp.getType() != SVDBItemType.File) {
-			// Don't record the container, since there isn't an
-			// identifier to use
-			if (!(item_tmp instanceof SVDBVarDeclStmt) &&
-					!(item_tmp instanceof SVDBModIfcInst)) {
-				path.add(0, item_tmp);
-			}
-			if (item_tmp instanceof ISVDBChildItem) {
-				item_tmp = ((ISVDBChildItem)item_tmp).getParent();
-			} else {
-				item_tmp = null;
-			}
-		}
-	}
-	
-	private void setSavedSelection(ISelection sel) {
-		fIgnoreSelectionChange = true;
-		if (!sel.isEmpty() && sel instanceof IStructuredSelection) {
-			List<ISVDBItemBase> path = new ArrayList<ISVDBItemBase>();
-			IStructuredSelection ss = (IStructuredSelection)sel;
-			List<ISVDBItemBase> new_sel_l = new ArrayList<ISVDBItemBase>();
-			List<ISVDBItemBase> target_path = new ArrayList<ISVDBItemBase>();
-			
-			for (Object sel_it : ss.toList()) {
-				if (sel_it instanceof ISVDBItemBase) {
-					path.clear();
-					target_path.clear();
-					buildFullPath(path, (ISVDBItemBase)sel_it);
-					
-					if (lookupPath(fSVDBFile, path.iterator(), target_path)) {
-						ISVDBItemBase sel_t = target_path.get(target_path.size()-1);
-						new_sel_l.add(sel_t);
-					}
-				}
+			// Expansion and selection are preserved, since elements
+			// are compared by identity rather than by reference
+			fIgnoreSelectionChange = true;
+			try {
+				getTreeViewer().refresh();
+			} finally {
+				fIgnoreSelectionChange = false;
 			}
-			StructuredSelection new_sel = new StructuredSelection(new_sel_l);
-			
-			getTreeViewer().setSelection(new_sel);
 		}
 	}
 	
-	private boolean lookupPath(
-			ISVDBChildParent			scope,
-			Iterator<ISVDBItemBase>		path_it,
-			List<ISVDBItemBase>			target_path) {
-		ISVDBItemBase path_item = path_it.next();
-		ISVDBItemBase target_item = null;
-		boolean ret = false;
-		
-		if (!(path_item instanceof ISVDBNamedItem)) {
-			// TODO:
-			return ret;
-		}
-		
-		ISVDBNamedItem ni = (ISVDBNamedItem)path_item;
-		
-		for (ISVDBChildItem ci : scope.getChildren()) {
-			if (ci instanceof ISVDBNamedItem) {
-				ISVDBNamedItem ci_ni = (ISVDBNamedItem)ci;
-				if (ni.getName().equals(ci_ni.getName()) &&
-						ni.getType() == ci_ni.getType()) {
-					target_item = ci;
-					break;
-				}
-			} else if (ci instanceof SVDBVarDeclStmt ||
-					ci instanceof SVDBModIfcInst) {
-				// instance list
-				ISVDBChildParent inst_list = (ISVDBChildParent)ci;
-				for (ISVDBChildItem ci_inst : inst_list.getChildren()) {
-					ISVDBNamedItem ci_inst_ni = (ISVDBNamedItem)ci_inst;
-					if (ni.getName().equals(ci_inst_ni.getName()) &&
-							ni.getType() == ci_inst_ni.getType()) {
-						target_item = ci_inst;
-						break;
-					}
-				}
-				if (target_item != null) {
-					break;
-				}
-			} else {
-				// TODO: How to match?
-			}
-		}
-		
-		if (target_item != null) {
-			target_path.add(target_item);
-		}
-		
-		if (path_it.hasNext() && target_item != null &&
-				target_item instanceof ISVDBChildParent) {
-			ret = lookupPath((ISVDBChildParent)target_item, path_it, target_path);
-		} else if (!path_it.hasNext() && target_item != null) {
-			ret = true;
-		}
-		
-		return ret;
+	/**
+	 * Returns the item in the current version of the file that 
+	 * corresponds to 'item', which may be from a previous version.
+	 * Items the viewer has not been refreshed for are from previous 
+	 * versions
+	 */
+	private ISVDBItemBase resolve(ISVDBItemBase item) {
+		return fDiff.findCurrent(item);
 	}
 
 	public void dispose() {
 		if (getTreeViewer() != null) {
 			getTreeViewer().removeSelectionChangedListener(fSelectionListener);
 		}
+		if (fDiffLabelProvider != null) {
+			fDiffLabelProvider.dispose();
+		}
 	}
 
 	@SuppressWarnings("rawtypes")
@@ -335,7 +379,6 @@ public class SVOutlinePage extends ContentOutlinePage
 			
 			public void selectionChanged(SelectionChangedEvent event) {
 				if (fIgnoreSelectionChange) {
-					fIgnoreSelectionChange = false;
 					return;
 				}
 				
@@ -344,7 +387,7 @@ public class SVOutlinePage extends ContentOutlinePage
 				if (event.getSelection() instanceof StructuredSelection) {
 					StructuredSelection sel = (StructuredSelection)event.getSelection();
 					if (sel.getFirstElement() instanceof ISVDBItemBase) {
-						ISVDBItemBase it = (ISVDBItemBase)sel.getFirstElement();
+						ISVDBItemBase it = resolve((ISVDBItemBase)sel.getFirstElement());
 						
 						if (fLastSelection == null || !fLastSelection.equals(it, true)) {
 							fEditor.setSelection(it, false);
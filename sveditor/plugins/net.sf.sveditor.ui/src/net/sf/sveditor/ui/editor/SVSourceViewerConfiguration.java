@@ -36,7 +36,6 @@ import org.eclipse.jface.text.IInformationControlCreator;
 import org.eclipse.jface.text.ITextHover;
 import org.eclipse.jface.text.TextAttribute;
 import org.eclipse.jface.text.contentassist.ContentAssistant;
-import org.eclipse.jface.text.contentassist.IContentAssistProcessor;
 import org.eclipse.jface.text.contentassist.IContentAssistant;
 import org.eclipse.jface.text.information.IInformationPresenter;
 import org.eclipse.jface.text.information.IInformationProvider;
@@ -60,9 +59,21 @@ import org.eclipse.ui.texteditor.AbstractDecoratedTextEditorPreferenceConstants;
 public class SVSourceViewerConfiguration extends SourceViewerConfiguration {
 	private SVEditor				fEditor;
 	private ContentAssistant		fContentAssist;
+	private List<SVAutoIndentStrategy>	fAutoIndentStrategies;
 	
 	public SVSourceViewerConfiguration(SVEditor editor) {
 		fEditor = editor;
+		fAutoIndentStrategies = new ArrayList<SVAutoIndentStrategy>();
+	}
+	
+	/**
+	 * Releases the auto-indent strategies created for the editor
+	 */
+	public void dispose() {
+		for (SVAutoIndentStrategy s : fAutoIndentStrategies) {
+			s.dispose();
+		}
+		fAutoIndentStrategies.clear();
 	}
 	
 	@Override
@@ -89,10 +100,11 @@ public class SVSourceViewerConfiguration extends SourceViewerConfiguration {
 	public IContentAssistant getContentAssistant(ISourceViewer sourceViewer) {
 		if (fContentAssist == null) {
 			fContentAssist = new ContentAssistant();
-			IContentAssistProcessor p = new SVTemplateCompletionProcessor(fEditor);
+			SVTemplateCompletionProcessor p = new SVTemplateCompletionProcessor(fEditor);
 
 			fContentAssist.setContentAssistProcessor(p,
 					IDocument.DEFAULT_CONTENT_TYPE);
+			fContentAssist.addCompletionListener(p);
 			fContentAssist.setInformationControlCreator(
 					getInformationControlCreator(sourceViewer));
 			fContentAssist.enableAutoActivation(true);
@@ -121,7 +133,9 @@ public class SVSourceViewerConfiguration extends SourceViewerConfiguration {
         	
         	IAutoEditStrategy ss[] = super.getAutoEditStrategies(sourceViewer, contentType);
         	
-        	ret.add(new SVAutoIndentStrategy(fEditor, partitioning));
+        	SVAutoIndentStrategy ai = new SVAutoIndentStrategy(fEditor, partitioning);
+        	fAutoIndentStrategies.add(ai);
+        	ret.add(ai);
         	for (IAutoEditStrategy si : ss) {
         		ret.add(si);
         	}
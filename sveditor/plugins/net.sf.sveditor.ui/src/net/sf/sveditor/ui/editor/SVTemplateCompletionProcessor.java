@@ -24,6 +24,8 @@ import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITextSelection;
 import org.eclipse.jface.text.ITextViewer;
 import org.eclipse.jface.text.Region;
+import org.eclipse.jface.text.contentassist.ContentAssistEvent;
+import org.eclipse.jface.text.contentassist.ICompletionListener;
 import org.eclipse.jface.text.contentassist.ICompletionProposal;
 import org.eclipse.jface.text.templates.ContextTypeRegistry;
 import org.eclipse.jface.text.templates.Template;
@@ -33,7 +35,8 @@ import org.eclipse.jface.text.templates.TemplateContextType;
 import org.eclipse.jface.text.templates.TemplateException;
 import org.eclipse.swt.graphics.Image;
 
-public class SVTemplateCompletionProcessor extends TemplateCompletionProcessor {
+public class SVTemplateCompletionProcessor extends TemplateCompletionProcessor 
+	implements ICompletionListener {
 	private SVEditor							fEditor;
 	private SVCompletionProcessor				fSubProcessor;
 
@@ -52,6 +55,15 @@ public class SVTemplateCompletionProcessor extends TemplateCompletionProcessor {
 		fSubProcessor = new SVCompletionProcessor(fEditor);
 	}
 
+	public void assistSessionStarted(ContentAssistEvent event) {}
+
+	public void assistSessionEnded(ContentAssistEvent event) {
+		// Proposals cached for the session are no longer needed
+		fSubProcessor.clearResultCache();
+	}
+
+	public void selectionChanged(ICompletionProposal proposal, boolean smartToggle) {}
+
 	@Override
 	public ICompletionProposal[] computeCompletionProposals(ITextViewer viewer,
 			int offset) {
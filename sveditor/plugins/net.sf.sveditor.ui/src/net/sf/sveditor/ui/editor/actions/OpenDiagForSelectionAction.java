@@ -23,6 +23,7 @@ import net.sf.sveditor.core.db.SVDBModuleDecl;
 import net.sf.sveditor.core.db.SVDBPackageDecl;
 import net.sf.sveditor.core.diagrams.ClassDiagModelFactory;
 import net.sf.sveditor.core.diagrams.DiagModel;
+import net.sf.sveditor.core.diagrams.DiagModelCache;
 import net.sf.sveditor.core.diagrams.IDiagModelFactory;
 import net.sf.sveditor.core.diagrams.ModuleDiagModelFactory;
 import net.sf.sveditor.core.diagrams.PackageClassDiagModelFactory;
@@ -98,7 +99,8 @@ public class OpenDiagForSelectionAction extends TextEditorAction {
 						
 					if(factory != null) {
 					
-						DiagModel model = factory.build() ;
+						DiagModel model = DiagModelCache.getDefault().getModel(
+								fEditor.getSVDBIndex(), factory) ;
 
 						page.activate(view);
 						
@@ -49,9 +49,9 @@ public class SVFileNavigatorContentProvider
 	
 	public void SVDBFileChanged(
 			SVDBFile 			file, 
-			List<SVDBItem> 		adds,
-			List<SVDBItem> 		removes, 
-			List<SVDBItem> 		changes) {
+			List<ISVDBItemBase>	adds,
+			List<ISVDBItemBase>	removes, 
+			List<ISVDBItemBase>	changes) {
 		Display.getDefault().asyncExec(this);
 	}
 	
@@ -23,11 +23,21 @@ public class SVEditorPrefsConstants {
 	public static final String P_COMMENT_C 										= EDIT_SETTINGS + "singleLineCommentColorPreference";
 	public static final String P_KEYWORD_C 										= EDIT_SETTINGS + "keywordColorPreference";
 	public static final String P_STRING_C 										= EDIT_SETTINGS + "stringColorPreference";
+	public static final String P_TYPE_C 										= EDIT_SETTINGS + "typeColorPreference";
+	public static final String P_FUNCTION_C 									= EDIT_SETTINGS + "functionColorPreference";
+	public static final String P_FIELD_C 										= EDIT_SETTINGS + "fieldColorPreference";
+	public static final String P_MACRO_C 										= EDIT_SETTINGS + "macroColorPreference";
 	
 	public static final String P_DEFAULT_S 										= EDIT_SETTINGS + "defaultStylePreference";
 	public static final String P_KEYWORD_S 										= EDIT_SETTINGS + "keywordStylePreference";
 	public static final String P_COMMENT_S 										= EDIT_SETTINGS + "singleLineCommentStylePreference";
 	public static final String P_STRING_S 										= EDIT_SETTINGS + "stringStylePreference";
+	public static final String P_TYPE_S 										= EDIT_SETTINGS + "typeStylePreference";
+	public static final String P_FUNCTION_S 									= EDIT_SETTINGS + "functionStylePreference";
+	public static final String P_FIELD_S 										= EDIT_SETTINGS + "fieldStylePreference";
+	public static final String P_MACRO_S 										= EDIT_SETTINGS + "macroStylePreference";
+	
+	public static final String P_SEMANTIC_HIGHLIGHTING_ENABLED					= EDIT_SETTINGS + "semanticHighlightingEnabled";
 	
 	public static final String P_SV_FILE_EXTENSIONS_S 							= "svFileExtensions";
 	
@@ -42,6 +42,10 @@ public class SVEditorPrefsInitialize extends AbstractPreferenceInitializer {
 		PreferenceConverter.setDefault(store, SVEditorPrefsConstants.P_COMMENT_C, new RGB(0, 128, 0));
 		PreferenceConverter.setDefault(store, SVEditorPrefsConstants.P_STRING_C, new RGB(42, 0, 255));
 		PreferenceConverter.setDefault(store, SVEditorPrefsConstants.P_KEYWORD_C, new RGB(128, 0, 64));
+		PreferenceConverter.setDefault(store, SVEditorPrefsConstants.P_TYPE_C, new RGB(0, 80, 128));
+		PreferenceConverter.setDefault(store, SVEditorPrefsConstants.P_FUNCTION_C, new RGB(0, 0, 0));
+		PreferenceConverter.setDefault(store, SVEditorPrefsConstants.P_FIELD_C, new RGB(0, 0, 192));
+		PreferenceConverter.setDefault(store, SVEditorPrefsConstants.P_MACRO_C, new RGB(100, 70, 50));
 		
 		PreferenceConverter.setDefault(store, SVEditorPrefsConstants.P_CONTENT_ASSIST_HOVER_BG_COLOR, 
 				new RGB(0xFF,0xFF,0xC0));
@@ -52,6 +56,11 @@ public class SVEditorPrefsInitialize extends AbstractPreferenceInitializer {
 		store.setDefault(SVEditorPrefsConstants.P_COMMENT_S, SWT.NORMAL);
 		store.setDefault(SVEditorPrefsConstants.P_STRING_S, SWT.NORMAL);
 		store.setDefault(SVEditorPrefsConstants.P_KEYWORD_S, SWT.BOLD);
+		store.setDefault(SVEditorPrefsConstants.P_TYPE_S, SWT.NORMAL);
+		store.setDefault(SVEditorPrefsConstants.P_FUNCTION_S, SWT.ITALIC);
+		store.setDefault(SVEditorPrefsConstants.P_FIELD_S, SWT.NORMAL);
+		store.setDefault(SVEditorPrefsConstants.P_MACRO_S, SWT.NORMAL);
+		store.setDefault(SVEditorPrefsConstants.P_SEMANTIC_HIGHLIGHTING_ENABLED, true);
 		
 		store.setDefault(SVEditorPrefsConstants.P_DEBUG_LEVEL_S, "LEVEL_OFF");
 		store.setDefault(SVEditorPrefsConstants.P_DEBUG_CONSOLE_S, false);
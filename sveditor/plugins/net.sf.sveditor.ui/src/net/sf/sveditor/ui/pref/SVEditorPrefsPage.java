@@ -32,6 +32,11 @@ public class SVEditorPrefsPage extends FieldEditorPreferencePage implements IWor
 		addField( new ColorStyleFieldEditor(SVEditorPrefsConstants.P_COMMENT_C, "Comment color:", SVEditorPrefsConstants.P_COMMENT_S, getFieldEditorParent()));
 		addField( new ColorStyleFieldEditor(SVEditorPrefsConstants.P_STRING_C, "String color:", SVEditorPrefsConstants.P_STRING_S, getFieldEditorParent()));
 		addField( new ColorStyleFieldEditor(SVEditorPrefsConstants.P_KEYWORD_C, "Keyword color:", SVEditorPrefsConstants.P_KEYWORD_S, getFieldEditorParent()));
+		addField( new ColorStyleFieldEditor(SVEditorPrefsConstants.P_TYPE_C, "Type color:", SVEditorPrefsConstants.P_TYPE_S, getFieldEditorParent()));
+		addField( new ColorStyleFieldEditor(SVEditorPrefsConstants.P_FUNCTION_C, "Task/Function color:", SVEditorPrefsConstants.P_FUNCTION_S, getFieldEditorParent()));
+		addField( new ColorStyleFieldEditor(SVEditorPrefsConstants.P_FIELD_C, "Field color:", SVEditorPrefsConstants.P_FIELD_S, getFieldEditorParent()));
+		addField( new ColorStyleFieldEditor(SVEditorPrefsConstants.P_MACRO_C, "Macro color:", SVEditorPrefsConstants.P_MACRO_S, getFieldEditorParent()));
+		addField( new BooleanFieldEditor(SVEditorPrefsConstants.P_SEMANTIC_HIGHLIGHTING_ENABLED, "Enable Semantic Highlighting:", getFieldEditorParent()));
 		
 		addField( new BooleanFieldEditor(SVEditorPrefsConstants.P_AUTO_INDENT_ENABLED_S, "Enable Auto-Indent:", getFieldEditorParent()));
 
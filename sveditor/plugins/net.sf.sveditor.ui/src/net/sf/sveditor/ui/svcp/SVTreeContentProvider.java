@@ -100,7 +100,13 @@ public class SVTreeContentProvider implements ITreeContentProvider {
 	
 	public Object getParent(Object element) {
 		if (element instanceof ISVDBChildItem) {
-			return ((ISVDBChildItem)element).getParent();
+			ISVDBChildItem p = ((ISVDBChildItem)element).getParent();
+
+			// Children of in-line items are shown under the enclosing scope
+			while (p != null && fExpandInLineItems.contains(p.getType())) {
+				p = p.getParent();
+			}
+			return p;
 		} else {
 			return null;
 		}
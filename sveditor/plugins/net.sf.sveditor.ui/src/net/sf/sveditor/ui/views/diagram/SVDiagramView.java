@@ -11,7 +11,9 @@
 
 package net.sf.sveditor.ui.views.diagram;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import net.sf.sveditor.core.db.index.ISVDBIndex;
@@ -86,7 +88,6 @@ public class SVDiagramView extends ViewPart implements SelectionListener, IZooma
 	
 	private GraphViewer fGraphViewer ;
 	private DiagModel fModel ;
-	@SuppressWarnings("unused")
 	private IDiagModelFactory fModelFactory ;
 	private CTabItem fConfigTab ;
 	private CTabFolder fTabFolder ;
@@ -148,6 +149,12 @@ public class SVDiagramView extends ViewPart implements SelectionListener, IZooma
 
 	protected void fillContextMenu(IMenuManager mgr) {
 		mgr.add(fNewDiagramForClassContributionItem) ;
+		mgr.add(new Action("Expand") {
+			{ setEnabled(getSelectedUnexpandedNodes().size() != 0) ; }
+			public void run() {
+				expandSelectedNodes() ;
+			}
+		}) ;
 		mgr.add(new Separator(IWorkbenchActionConstants.MB_ADDITIONS)) ;
 	}
 	private void createContributions() {
@@ -429,6 +436,37 @@ public class SVDiagramView extends ViewPart implements SelectionListener, IZooma
 		});
 	}
 	
+	private List<DiagNode> getSelectedUnexpandedNodes() {
+		List<DiagNode> nodes = new ArrayList<DiagNode>() ;
+		if(fModel == null || fModelFactory == null) {
+			return nodes ;
+		}
+		for(Object item: fGraphViewer.getGraphControl().getGraph().getSelection()) {
+			if(!(item instanceof CGraphNode)) { continue ; }
+			CGraphNode graphNode = (CGraphNode)item ;
+			if(!(graphNode.getData() instanceof DiagNode)) { continue ; }
+			DiagNode dNode = (DiagNode)graphNode.getData() ;
+			if(!dNode.isExpanded()) {
+				nodes.add(dNode) ;
+			}
+		}
+		return nodes ;
+	}
+	
+	/**
+	 * Resolves the neighbors of the selected nodes from the index and
+	 * refreshes the diagram without re-running the full layout
+	 */
+	private void expandSelectedNodes() {
+		List<DiagNode> nodes = getSelectedUnexpandedNodes() ;
+		for(DiagNode node: nodes) {
+			fModelFactory.expandNode(fModel, node) ;
+		}
+		if(nodes.size() != 0) {
+			updateInputNoLayout() ;
+		}
+	}
+	
 	private void updateInputNoLayout() {
 		fGraphViewer.setLayoutAlgorithm(new LeaveEmBeLayoutAlgoritm(SWT.NONE)) ;
 		fGraphViewer.setInput(fModel.getNodes()) ;
@@ -15,6 +15,7 @@ import net.sf.sveditor.core.db.SVDBClassDecl;
 import net.sf.sveditor.core.db.index.ISVDBIndex;
 import net.sf.sveditor.core.diagrams.ClassDiagModelFactory;
 import net.sf.sveditor.core.diagrams.DiagModel;
+import net.sf.sveditor.core.diagrams.DiagModelCache;
 import net.sf.sveditor.core.diagrams.IDiagModelFactory;
 import net.sf.sveditor.ui.SVUiPlugin;
 import net.sf.sveditor.ui.views.diagram.SVDiagramView;
@@ -51,7 +52,7 @@ public class NewDiagramForClassHandler extends AbstractHandler implements IHandl
 				if ((view = page.findView(SVUiPlugin.PLUGIN_ID + ".diagramView")) == null) {
 					view = page.showView(SVUiPlugin.PLUGIN_ID + ".diagramView") ;
 				}
-				DiagModel model = factory.build() ;
+				DiagModel model = DiagModelCache.getDefault().getModel(fSVDBIndex, factory) ;
 				if(model == null) { return null ; }
 //				view = page.showView(SVUiPlugin.PLUGIN_ID + ".diagramView", viewName, IWorkbenchPage.VIEW_VISIBLE) ;
 //				view = page.showView(SVUiPlugin.PLUGIN_ID + ".diagramView");
@@ -17,15 +17,26 @@ import java.util.List;
 
 import net.sf.sveditor.core.db.index.ISVDBIndex;
 import net.sf.sveditor.core.db.index.SVDBIndexRegistry;
+import net.sf.sveditor.core.objects.IObjectsTreeBuildListener;
 import net.sf.sveditor.core.objects.ObjectsTreeFactory;
 import net.sf.sveditor.core.objects.ObjectsTreeNode;
 
 import org.eclipse.jface.viewers.ITreeContentProvider;
 import org.eclipse.jface.viewers.Viewer;
+import org.eclipse.swt.widgets.Display;
 
-public class ObjectsViewContentProvider implements ITreeContentProvider {
+/**
+ * Provides the objects tree. The tree is built in the background, and
+ * the viewer is refreshed as the declarations of each index are added.
+ * The build is cancelled when the input changes or the viewer is disposed
+ */
+public class ObjectsViewContentProvider implements ITreeContentProvider, IObjectsTreeBuildListener {
 	private static final Object 		fEmptyArray[] = new Object[0];
 	private SVDBIndexRegistry fIndexRegistry ;
+	private Viewer					fViewer;
+	private ObjectsTreeFactory		fFactory;
+	private ObjectsTreeNode			fTopNode;
+	private boolean				fRefreshPending;
 	
 	private ObjectsTreeNode         fNodeModules;
 	private ObjectsTreeNode         fNodeInterface;
@@ -59,31 +70,96 @@ public class ObjectsViewContentProvider implements ITreeContentProvider {
 
 	public boolean hasChildren(Object element) {
 		if (element instanceof ObjectsTreeNode) {
-			return (((ObjectsTreeNode)element).getChildren().size() > 0);
+			return ((ObjectsTreeNode)element).hasChildren();
 		} else {
 			return false;
 		}
 	}
 
 	public Object[] getElements(Object inputElement) {
-		List<ISVDBIndex> projectIndexList = fIndexRegistry.getAllProjectLists() ; 
-		ObjectsTreeFactory factory = new ObjectsTreeFactory(projectIndexList) ;
-		ObjectsTreeNode topNode = factory.build();
-		if(topNode == null)  {
+		// The tree is built once per input. Refreshes triggered by 
+		// the background build return the partially-built tree
+		if(fTopNode == null && fIndexRegistry != null) {
+			List<ISVDBIndex> projectIndexList = fIndexRegistry.getAllProjectLists() ; 
+			ObjectsTreeFactory factory = new ObjectsTreeFactory(projectIndexList) ;
+			synchronized(this) {
+				fFactory = factory ;
+			}
+			fTopNode = factory.build(this);
+			if(fTopNode != null) {
+				fNodeInterface = fTopNode.getChildByName(ObjectsTreeNode.INTERFACES_NODE) ;
+				fNodeModules = fTopNode.getChildByName(ObjectsTreeNode.MODULES_NODE) ;
+				fNodePackages = fTopNode.getChildByName(ObjectsTreeNode.PACKAGES_NODE) ;
+			}
+		}
+		
+		if(fTopNode == null)  {
 			return fEmptyArray ;
 		} else {
-			fNodeInterface = topNode.getChildByName(ObjectsTreeNode.INTERFACES_NODE) ;
-			fNodeModules = topNode.getChildByName(ObjectsTreeNode.MODULES_NODE) ;
-			fNodePackages = topNode.getChildByName(ObjectsTreeNode.PACKAGES_NODE) ;			
-			return topNode.getChildren().toArray() ;
+			return fTopNode.getChildren().toArray() ;
 		}
 		
 	}
 
-	public void dispose() {}
+	public void dispose() {
+		cancelBuild() ;
+	}
 
 	public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {
+		cancelBuild() ;
+		fTopNode = null ;
+		fViewer = viewer ;
 		fIndexRegistry = (SVDBIndexRegistry)newInput ; 
 	}
+	
+	public void contributionAdded(ObjectsTreeNode topNode, ISVDBIndex index) {
+		refresh() ;
+	}
+	
+	public void buildComplete(ObjectsTreeNode topNode, boolean cancelled) {
+		if(!cancelled) {
+			refresh() ;
+		}
+	}
+	
+	private synchronized void cancelBuild() {
+		if(fFactory != null) {
+			fFactory.cancel() ;
+			fFactory = null ;
+		}
+	}
+	
+	/**
+	 * Refreshes the viewer from the UI thread. Contributions that arrive
+	 * while a refresh is pending are picked up by that refresh
+	 */
+	private void refresh() {
+		final Viewer viewer = fViewer ;
+		
+		synchronized(this) {
+			if(fRefreshPending || viewer == null) {
+				return ;
+			}
+			fRefreshPending = true ;
+		}
+		
+		Display d = viewer.getControl().getDisplay() ;
+		if(d != null && !d.isDisposed() && !viewer.getControl().isDisposed()) {
+			d.asyncExec(new Runnable() {
+				public void run() {
+					synchronized(ObjectsViewContentProvider.this) {
+						fRefreshPending = false ;
+					}
+					if(!viewer.getControl().isDisposed()) {
+						viewer.refresh() ;
+					}
+				}
+			});
+		} else {
+			synchronized(this) {
+				fRefreshPending = false ;
+			}
+		}
+	}
 
 }